@@ -3,7 +3,18 @@ package org.opengis.cite.cdb10;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientRequest;
 import com.sun.jersey.api.client.ClientResponse;
+import org.opengis.cite.cdb10.cdbStructure.CdbTreeEntry;
+import org.opengis.cite.cdb10.cdbStructure.CdbTreeSnapshot;
+import org.opengis.cite.cdb10.cdbStructure.ScanManifest;
+import org.opengis.cite.cdb10.cdbStructure.TraversalFilter;
+import org.opengis.cite.cdb10.cdbStructure.TraversalMode;
+import org.opengis.cite.cdb10.cdbStructure.TreeSampler;
+import org.opengis.cite.cdb10.metadataAndVersioning.MetadataXmlFile;
+import org.opengis.cite.cdb10.metadataAndVersioning.SchemaValidations;
 import org.opengis.cite.cdb10.util.ClientUtils;
+import org.opengis.cite.cdb10.util.ErrorCollector;
+import org.opengis.cite.cdb10.util.TestSuiteLogger;
+import org.testng.Assert;
 import org.testng.ITestContext;
 import org.testng.SkipException;
 import org.testng.annotations.BeforeClass;
@@ -11,8 +22,11 @@ import org.testng.annotations.BeforeMethod;
 import org.w3c.dom.Document;
 
 import javax.ws.rs.core.MediaType;
+import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Paths;
 import java.util.Map;
+import java.util.logging.Level;
 
 /**
  * A supporting base class that sets up a common test fixture. These
@@ -41,6 +55,33 @@ public class CommonFixture {
     protected String directories;
     protected String latlong;
     protected String minmaxlod;
+    /**
+     * A snapshot of the CDB directory tree shared by the structure tests.
+     */
+    protected CdbTreeSnapshot cdbTree;
+    /**
+     * The scan manifest of the previous run, or null if the CDB is validated
+     * in full.
+     */
+    protected ScanManifest scanManifest;
+    /**
+     * The sampler restricting the structure tests to a random sample of the
+     * CDB, or null if the CDB is validated exhaustively.
+     */
+    protected TreeSampler treeSampler;
+    /**
+     * The listing of the CDB checked instead of its directory tree, or null.
+     */
+    protected String listing;
+    /**
+     * The Metadata files of the CDB, shared by the test classes.
+     */
+    protected MetadataRegistry metadataRegistry;
+    /**
+     * The schema validations of the Metadata files started with the suite, or
+     * null.
+     */
+    protected SchemaValidations schemaValidations;
 
     /**
      * Initializes the common test fixture with a client component for
@@ -73,14 +114,116 @@ public class CommonFixture {
         path = testContext.getSuite().getAttribute(
                 SuiteAttribute.TEST_SUBJECT.getName()).toString().trim();
 
-//        directories = testContext.getSuite().getAttribute(
-//                SuiteAttribute.DIRECTORIES.getName()).toString();
-//
-//        latlong = testContext.getSuite().getAttribute(
-//                SuiteAttribute.LATLONG.getName()).toString();
-//
-//        minmaxlod = testContext.getSuite().getAttribute(
-//                SuiteAttribute.MINMAXLOD.getName()).toString();
+        Object tree = testContext.getSuite().getAttribute(SuiteAttribute.CDB_TREE.getName());
+        if (null != tree) {
+            this.cdbTree = CdbTreeSnapshot.class.cast(tree);
+        }
+
+        Object manifest = testContext.getSuite().getAttribute(SuiteAttribute.SCAN_MANIFEST.getName());
+        if (null != manifest) {
+            this.scanManifest = ScanManifest.class.cast(manifest);
+        }
+
+        Object sampler = testContext.getSuite().getAttribute(SuiteAttribute.TREE_SAMPLER.getName());
+        if (null != sampler) {
+            this.treeSampler = TreeSampler.class.cast(sampler);
+        }
+
+        Object listingAttr = testContext.getSuite().getAttribute(SuiteAttribute.LISTING_FILE.getName());
+        if (null != listingAttr) {
+            this.listing = listingAttr.toString();
+        }
+
+        Object registry = testContext.getSuite().getAttribute(SuiteAttribute.METADATA_REGISTRY.getName());
+        if (null != registry) {
+            this.metadataRegistry = MetadataRegistry.class.cast(registry);
+        }
+
+        Object validations = testContext.getSuite().getAttribute(SuiteAttribute.SCHEMA_VALIDATIONS.getName());
+        if (null != validations) {
+            this.schemaValidations = SchemaValidations.class.cast(validations);
+        }
+
+        Object directoriesAttr = testContext.getSuite().getAttribute(
+                SuiteAttribute.DIRECTORIES.getName());
+        if (null != directoriesAttr) {
+            directories = directoriesAttr.toString();
+        }
+
+        Object latlongAttr = testContext.getSuite().getAttribute(
+                SuiteAttribute.LATLONG.getName());
+        if (null != latlongAttr) {
+            latlong = latlongAttr.toString();
+        }
+
+        Object minmaxlodAttr = testContext.getSuite().getAttribute(
+                SuiteAttribute.MINMAXLOD.getName());
+        if (null != minmaxlodAttr) {
+            minmaxlod = minmaxlodAttr.toString();
+        }
+    }
+
+    /**
+     * Returns the snapshot of the CDB directory tree. The snapshot is normally
+     * built once by {@link SuiteFixtureListener}; if it is not available it is
+     * built from {@link #path}, or from {@link #listing} if one was given, on
+     * first use, restricted to the directories, geocells and LODs selected by
+     * the test run arguments.
+     *
+     * @return A snapshot of the files and directories in the CDB.
+     * @throws IOException If the CDB directory tree cannot be read.
+     */
+    protected CdbTreeSnapshot getCdbTree() throws IOException {
+        if (null == this.cdbTree) {
+            TraversalFilter filter = TraversalFilter.parse(directories, latlong, minmaxlod);
+            if (null != this.treeSampler) {
+                filter.withSampler(this.treeSampler);
+            }
+            if (null != this.listing) {
+                this.cdbTree = CdbTreeSnapshot.fromListing(Paths.get(this.path), Paths.get(this.listing), null, filter);
+            } else {
+                this.cdbTree = CdbTreeSnapshot.build(Paths.get(this.path), TraversalMode.SEQUENTIAL, 1, null, filter);
+            }
+        }
+        return this.cdbTree;
+    }
+
+    /**
+     * Returns a Metadata file of the CDB. The file is normally loaded once per
+     * suite through the registry created by {@link SuiteFixtureListener}; if
+     * that is not available a registry for {@link #path} is created on first
+     * use.
+     *
+     * @param type The type of Metadata file.
+     * @param <T>  The type of Metadata file.
+     * @return The shared instance of the file.
+     */
+    protected <T extends MetadataXmlFile> T getMetadata(Class<T> type) {
+        if (null == this.metadataRegistry) {
+            this.metadataRegistry = new MetadataRegistry(this.path);
+        }
+        return this.metadataRegistry.get(type);
+    }
+
+    /**
+     * Asserts that a structure test found no violations. In a sampled run the
+     * failure message starts with the error rate estimated from the sample,
+     * counting the entries with at least one violation.
+     *
+     * @param errors The violations found, with the checks on each entry at
+     *               depth started by {@link ErrorCollector#beginEntry()}.
+     * @param base   The directory the test started from.
+     * @param depth  The depth below base of the entries the test checks.
+     */
+    protected void assertNoViolations(ErrorCollector errors, CdbTreeEntry base, int depth) {
+        String message = errors.getMessage();
+        if (null != this.treeSampler) {
+            int checked = base.countAtDepth(depth);
+            String estimate = this.treeSampler.describeErrorRate((int) errors.getFailedEntries(), checked);
+            TestSuiteLogger.log(Level.INFO, estimate);
+            message = estimate + "\n" + message;
+        }
+        Assert.assertTrue(errors.isEmpty(), message);
     }
 
     @BeforeMethod
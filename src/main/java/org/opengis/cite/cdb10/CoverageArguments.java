@@ -0,0 +1,145 @@
+package org.opengis.cite.cdb10;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.beust.jcommander.Parameters;
+import java.io.File;
+
+import org.opengis.cite.cdb10.cdbStructure.CoverageIndex;
+
+/**
+ * Declares the arguments of the coverage command, which counts or lists the
+ * tiles held in a coverage index written by a test run (see the coverageindex
+ * test run argument). Only the index file is read. By default every tile of
+ * every dataset is listed.
+ *
+ * <p>
+ * <strong>Synopsis</strong>
+ * </p>
+ *
+ * <pre>
+ * ets-${ets-code}-${version}-aio.jar coverage --index coverage.idx [--dataset 001]
+ *     [--lod 5|min,max] [--bbox minLat,minLon,maxLat,maxLon] [--count] [--limit 1000]
+ * </pre>
+ */
+@Parameters(commandDescription = "Count or list the tiles of a coverage index")
+public class CoverageArguments {
+
+    /**
+     * The name of the command, given as the first argument.
+     */
+    public static final String COMMAND = "coverage";
+
+    @Parameter(names = "--index", description = "Coverage index written by a test run", required = true)
+    private String index;
+
+    @Parameter(names = "--dataset", description = "Dataset code, e.g. 001 (default: all datasets)")
+    private String dataset;
+
+    @Parameter(names = "--lod", description = "LOD, or min,max LOD range (default: all LODs)")
+    private String lod;
+
+    @Parameter(names = "--bbox", description = "minLat,minLon,maxLat,maxLon in degrees (default: the whole earth)")
+    private String bbox;
+
+    @Parameter(names = "--count", description = "Print the number of tiles at each LOD instead of the tiles")
+    private boolean countOnly;
+
+    @Parameter(names = "--limit", description = "Largest number of tiles listed")
+    private int limit = 1000;
+
+    public File getIndexFile() {
+        return new File(index);
+    }
+
+    /**
+     * @return The dataset code, or {@link CoverageIndex#ANY_DATASET}.
+     */
+    public int getDatasetCode() {
+        if (null == dataset || dataset.trim().isEmpty()) {
+            return CoverageIndex.ANY_DATASET;
+        }
+        String code = dataset.trim();
+        if (code.length() > 3 && code.charAt(3) == '_') {
+            code = code.substring(0, 3);
+        }
+        try {
+            int value = Integer.parseInt(code);
+            if (value >= 0 && value <= 999) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new ParameterException("--dataset must be a dataset code such as 001: " + dataset);
+    }
+
+    /**
+     * @return The lowest and highest LOD queried.
+     */
+    public int[] getLodRange() {
+        if (null == lod || lod.trim().isEmpty()) {
+            return new int[] { 0, CoverageIndex.MAX_LOD };
+        }
+        String[] bounds = lod.split(",");
+        if (bounds.length > 2) {
+            throw new ParameterException("--lod must be an LOD or min,max: " + lod);
+        }
+        int min = parseLod(bounds[0]);
+        int max = (bounds.length == 2) ? parseLod(bounds[1]) : min;
+        if (min > max) {
+            throw new ParameterException("--lod minimum exceeds maximum: " + lod);
+        }
+        return new int[] { min, max };
+    }
+
+    private int parseLod(String bound) {
+        String value = bound.trim();
+        if (value.startsWith("L")) {
+            value = value.substring(1);
+        }
+        try {
+            int level = Integer.parseInt(value);
+            if (level >= 0 && level <= CoverageIndex.MAX_LOD) {
+                return level;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new ParameterException("--lod must be 0 to " + CoverageIndex.MAX_LOD + ": " + lod);
+    }
+
+    /**
+     * @return The minimum latitude, minimum longitude, maximum latitude and
+     *         maximum longitude of the area queried.
+     */
+    public double[] getBoundingBox() {
+        if (null == bbox || bbox.trim().isEmpty()) {
+            return new double[] { -90, -180, 90, 180 };
+        }
+        String[] bounds = bbox.split(",");
+        if (bounds.length != 4) {
+            throw new ParameterException("--bbox must be minLat,minLon,maxLat,maxLon: " + bbox);
+        }
+        double[] box = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                box[i] = Double.parseDouble(bounds[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new ParameterException("--bbox must be minLat,minLon,maxLat,maxLon: " + bbox);
+        }
+        if (box[0] > box[2] || box[1] > box[3]) {
+            throw new ParameterException("--bbox minimum exceeds maximum: " + bbox);
+        }
+        return box;
+    }
+
+    public boolean isCountOnly() {
+        return countOnly;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
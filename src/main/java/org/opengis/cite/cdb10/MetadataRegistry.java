@@ -0,0 +1,112 @@
+package org.opengis.cite.cdb10;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+
+import org.opengis.cite.cdb10.metadataAndVersioning.MetadataXmlFile;
+import org.opengis.cite.cdb10.metadataAndVersioning.SchemaValidations;
+import org.opengis.cite.cdb10.util.TestSuiteLogger;
+
+/**
+ * Holds one instance of each Metadata file of a CDB, shared by every test
+ * class in the suite. Each file is checked and loaded the first time it is
+ * requested; the time taken and the approximate heap used are logged.
+ * Instances are safe to share between threads once loaded.
+ */
+public class MetadataRegistry {
+
+    private final String path;
+    private final SchemaValidations schemaValidations;
+    private final ConcurrentMap<Class<?>, Holder> files = new ConcurrentHashMap<Class<?>, Holder>();
+
+    /**
+     * @param path The CDB root directory.
+     */
+    public MetadataRegistry(String path) {
+        this(path, null);
+    }
+
+    /**
+     * @param path              The CDB root directory.
+     * @param schemaValidations The schema validations started with the
+     *                          suite, used by the files to check their
+     *                          schema; may be null.
+     */
+    public MetadataRegistry(String path, SchemaValidations schemaValidations) {
+        this.path = path;
+        this.schemaValidations = schemaValidations;
+    }
+
+    /**
+     * Returns the Metadata file of the given type, loading it on first use.
+     * If the file is missing or cannot be read the assertion error raised by
+     * its constructor is thrown, and the file is checked again on the next
+     * request.
+     *
+     * @param type A MetadataXmlFile subclass with a constructor taking the CDB
+     *             root directory.
+     * @param <T>  The type of Metadata file.
+     * @return The shared instance.
+     */
+    public <T extends MetadataXmlFile> T get(Class<T> type) {
+        Holder holder = files.get(type);
+        if (null == holder) {
+            Holder created = new Holder();
+            holder = files.putIfAbsent(type, created);
+            if (null == holder) {
+                holder = created;
+            }
+        }
+        return type.cast(holder.get(type));
+    }
+
+    private MetadataXmlFile load(Class<? extends MetadataXmlFile> type) {
+        Runtime runtime = Runtime.getRuntime();
+        long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.currentTimeMillis();
+        MetadataXmlFile file = newInstance(type);
+        if (null != schemaValidations) {
+            file.setSchemaValidations(schemaValidations);
+        }
+        file.load();
+        long usedAfter = runtime.totalMemory() - runtime.freeMemory();
+        TestSuiteLogger.log(Level.CONFIG, String.format("Loaded %s (%d bytes) in %d ms, about %d KB of heap",
+                file.getXmlFile().getName(), file.getXmlFile().length(), System.currentTimeMillis() - start,
+                Math.max(0, usedAfter - usedBefore) / 1024));
+        return file;
+    }
+
+    private MetadataXmlFile newInstance(Class<? extends MetadataXmlFile> type) {
+        try {
+            return type.getConstructor(String.class).newInstance(this.path);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Unable to create " + type.getSimpleName(), cause);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create " + type.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * The instance of one type of Metadata file, loaded at most once.
+     */
+    private class Holder {
+
+        private MetadataXmlFile file;
+
+        synchronized MetadataXmlFile get(Class<? extends MetadataXmlFile> type) {
+            if (null == file) {
+                file = load(type);
+            }
+            return file;
+        }
+    }
+}
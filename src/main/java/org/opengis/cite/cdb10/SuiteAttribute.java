@@ -4,6 +4,15 @@ import com.sun.jersey.api.client.Client;
 
 import java.io.File;
 
+import org.opengis.cite.cdb10.cdbStructure.CdbArchive;
+import org.opengis.cite.cdb10.cdbStructure.CdbTreeSnapshot;
+import org.opengis.cite.cdb10.cdbStructure.CoverageIndex;
+import org.opengis.cite.cdb10.cdbStructure.ListingFormat;
+import org.opengis.cite.cdb10.cdbStructure.ScanManifest;
+import org.opengis.cite.cdb10.cdbStructure.TraversalFilter;
+import org.opengis.cite.cdb10.cdbStructure.TraversalMode;
+import org.opengis.cite.cdb10.cdbStructure.TreeSampler;
+import org.opengis.cite.cdb10.metadataAndVersioning.SchemaValidations;
 import org.w3c.dom.Document;
 import java.util.ArrayList;
 
@@ -30,7 +39,72 @@ public enum SuiteAttribute {
     LEVELS("levels", Integer[].class),
     DIRECTORIES("directories", String.class),
     LATLONG("latlong", String.class),
-    MINMAXLOD("minmaxlod", String.class);
+    MINMAXLOD("minmaxlod", String.class),
+    /**
+     * A snapshot of the CDB directory tree, enumerated once per test run and
+     * shared by the structure tests.
+     */
+    CDB_TREE("cdbTree", CdbTreeSnapshot.class),
+    /**
+     * The number of worker threads used to enumerate the CDB directory tree.
+     */
+    THREADS("threads", Integer.class),
+    /**
+     * The strategy used to enumerate the CDB directory tree.
+     */
+    TRAVERSAL("traversal", TraversalMode.class),
+    /**
+     * The location of the scan manifest, if incremental validation was
+     * requested.
+     */
+    MANIFEST_FILE("manifestFile", String.class),
+    /**
+     * The scan manifest left by the previous run, used to skip checks on parts
+     * of the CDB that have not changed.
+     */
+    SCAN_MANIFEST("scanManifest", ScanManifest.class),
+    /**
+     * Restricts the part of the CDB that is enumerated, as given by the
+     * directories, latlong and minmaxlod arguments.
+     */
+    TRAVERSAL_FILTER("traversalFilter", TraversalFilter.class),
+    /**
+     * Draws the random sample of the CDB validated in a sampled run.
+     */
+    TREE_SAMPLER("treeSampler", TreeSampler.class),
+    /**
+     * The location of the CDB listing checked instead of the CDB directory
+     * tree, if one was given.
+     */
+    LISTING_FILE("listingFile", String.class),
+    /**
+     * The format of the CDB listing, or absent to detect it.
+     */
+    LISTING_FORMAT("listingFormat", ListingFormat.class),
+    /**
+     * The zip or tar archive holding the CDB under test, if the iut argument
+     * names one.
+     */
+    CDB_ARCHIVE("cdbArchive", CdbArchive.class),
+    /**
+     * The Metadata files of the CDB, loaded once and shared by the test
+     * classes.
+     */
+    METADATA_REGISTRY("metadataRegistry", MetadataRegistry.class),
+    /**
+     * The schema validations of the Metadata files, started with the suite.
+     */
+    SCHEMA_VALIDATIONS("schemaValidations", SchemaValidations.class),
+    /**
+     * The location at which to write the coverage index, if one was
+     * requested.
+     */
+    COVERAGE_INDEX_FILE("coverageIndexFile", String.class),
+    /**
+     * The tiles of the CDB indexed by geocell, dataset and LOD, if a coverage
+     * index was requested.
+     */
+    COVERAGE_INDEX("coverageIndex", CoverageIndex.class);
 
     private final Class attrType;
     private final String attrName;
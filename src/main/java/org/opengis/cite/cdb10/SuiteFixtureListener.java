@@ -3,10 +3,25 @@ package org.opengis.cite.cdb10;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Map;
+import java.util.Random;
 import java.util.logging.Level;
 
+import org.opengis.cite.cdb10.cdbStructure.CdbArchive;
+import org.opengis.cite.cdb10.cdbStructure.CdbTreeSnapshot;
+import org.opengis.cite.cdb10.cdbStructure.CoverageIndex;
+import org.opengis.cite.cdb10.cdbStructure.ListingFormat;
+import org.opengis.cite.cdb10.cdbStructure.ScanManifest;
+import org.opengis.cite.cdb10.cdbStructure.TraversalFilter;
+import org.opengis.cite.cdb10.cdbStructure.TraversalMode;
+import org.opengis.cite.cdb10.cdbStructure.TreeSampler;
+import org.opengis.cite.cdb10.metadataAndVersioning.SchemaValidations;
 import org.opengis.cite.cdb10.util.ClientUtils;
+import org.opengis.cite.cdb10.util.SchemaCache;
 import org.opengis.cite.cdb10.util.TestSuiteLogger;
 import org.opengis.cite.cdb10.util.URIUtils;
 import org.opengis.cite.cdb10.util.XMLUtils;
@@ -36,10 +51,16 @@ public class SuiteFixtureListener implements ISuiteListener {
 	public void onStart(ISuite suite) {
 		this.processSuiteParameters(suite);
 		this.registerClientComponent(suite);
+		this.buildCdbTreeSnapshot(suite);
+		this.buildCoverageIndex(suite);
+		this.registerMetadataRegistry(suite);
 	}
 
 	@Override
 	public void onFinish(ISuite suite) {
+		this.writeScanManifest(suite);
+		TestSuiteLogger.log(Level.CONFIG, String.format("Schema cache: %d hit(s), %d miss(es)",
+				SchemaCache.getHits(), SchemaCache.getMisses()));
 		this.deleteTempFiles(suite);
 	}
 
@@ -89,6 +110,64 @@ public class SuiteFixtureListener implements ISuiteListener {
 			suite.setAttribute(SuiteAttribute.MINMAXLOD.getName(), minmaxlod);
 		}
 
+		TraversalFilter filter = TraversalFilter.parse(directories, latlong, minmaxlod);
+		String sampleRate = params.get(TestRunArg.SAMPLERATE.toString());
+		if (null != sampleRate) {
+			String seedParam = params.get(TestRunArg.SEED.toString());
+			long seed = (null != seedParam) ? Long.parseLong(seedParam.trim()) : new Random().nextLong();
+			TreeSampler sampler = new TreeSampler(Double.parseDouble(sampleRate.trim()), seed);
+			suite.setAttribute(SuiteAttribute.TREE_SAMPLER.getName(), sampler);
+			filter.withSampler(sampler);
+		}
+		if (!filter.isEmpty()) {
+			suite.setAttribute(SuiteAttribute.TRAVERSAL_FILTER.getName(), filter);
+		}
+
+		TraversalMode traversal = null;
+		if (null != params.get(TestRunArg.TRAVERSAL.toString())) {
+			traversal = TraversalMode.fromString(params.get(TestRunArg.TRAVERSAL.toString()));
+		}
+
+		Integer threads = null;
+		if (null != params.get(TestRunArg.THREADS.toString())) {
+			threads = Integer.parseInt(params.get(TestRunArg.THREADS.toString()).trim());
+			if (threads < 1) {
+				throw new IllegalArgumentException("The number of threads must be positive: " + threads);
+			}
+		}
+		if (null == traversal) {
+			traversal = (null != threads && threads > 1) ? TraversalMode.FORKJOIN : TraversalMode.SEQUENTIAL;
+		}
+		if (null == threads) {
+			if (traversal == TraversalMode.CONCURRENT) {
+				threads = CdbTreeSnapshot.DEFAULT_IN_FLIGHT;
+			} else if (traversal == TraversalMode.FORKJOIN) {
+				threads = Runtime.getRuntime().availableProcessors();
+			} else {
+				threads = 1;
+			}
+		}
+		suite.setAttribute(SuiteAttribute.TRAVERSAL.getName(), traversal);
+		suite.setAttribute(SuiteAttribute.THREADS.getName(), threads);
+
+		String manifest = params.get(TestRunArg.MANIFEST.toString());
+		if (null != manifest) {
+			suite.setAttribute(SuiteAttribute.MANIFEST_FILE.getName(), manifest.trim());
+		}
+
+		String listing = params.get(TestRunArg.LISTING.toString());
+		if (null != listing && !listing.trim().isEmpty()) {
+			suite.setAttribute(SuiteAttribute.LISTING_FILE.getName(), listing.trim());
+		}
+		String listingFormat = params.get(TestRunArg.LISTINGFORMAT.toString());
+		if (null != listingFormat && !listingFormat.trim().isEmpty()) {
+			suite.setAttribute(SuiteAttribute.LISTING_FORMAT.getName(), ListingFormat.fromString(listingFormat));
+		}
+		String coverageIndex = params.get(TestRunArg.COVERAGEINDEX.toString());
+		if (null != coverageIndex && !coverageIndex.trim().isEmpty()) {
+			suite.setAttribute(SuiteAttribute.COVERAGE_INDEX_FILE.getName(), coverageIndex.trim());
+		}
+
 
 
 		String iutParam = params.get(TestRunArg.IUT.toString());
@@ -117,18 +196,286 @@ public class SuiteFixtureListener implements ISuiteListener {
 		}
 	}
 
+	/**
+	 * Enumerates the CDB directory tree once, using the strategy and number of
+	 * threads given by the {@link TestRunArg#TRAVERSAL traversal} and
+	 * {@link TestRunArg#THREADS threads} arguments, and adds the
+	 * resulting snapshot to the suite fixture as the value of the
+	 * {@link SuiteAttribute#CDB_TREE} attribute. Only the part of the tree
+	 * selected by the {@link TestRunArg#DIRECTORIES directories},
+	 * {@link TestRunArg#LATLONG latlong} and {@link TestRunArg#MINMAXLOD
+	 * minmaxlod} arguments is enumerated. If a {@link TestRunArg#LISTING
+	 * listing} is given the snapshot is read from it instead, without
+	 * accessing the CDB directory tree, and if the {@link TestRunArg#IUT iut}
+	 * is an archive the snapshot is read from the archive. If the tree cannot
+	 * be read the
+	 * attribute is not set, and each structure test will attempt to read the
+	 * tree itself.
+	 *
+	 * @param suite
+	 *            The test suite instance.
+	 */
+	void buildCdbTreeSnapshot(ISuite suite) {
+		Object subject = suite.getAttribute(SuiteAttribute.TEST_SUBJECT.getName());
+		if (null == subject) {
+			return;
+		}
+		Path root = Paths.get(subject.toString().trim());
+		if (CdbArchive.isArchive(root)) {
+			this.openCdbArchive(suite, root);
+			return;
+		}
+		Object listing = suite.getAttribute(SuiteAttribute.LISTING_FILE.getName());
+		if (null != listing) {
+			this.readCdbListing(suite, root, Paths.get(listing.toString()));
+			return;
+		}
+		if (!Files.isDirectory(root)) {
+			return;
+		}
+		Object threadsAttr = suite.getAttribute(SuiteAttribute.THREADS.getName());
+		int threads = (null != threadsAttr) ? (Integer) threadsAttr : 1;
+		Object traversalAttr = suite.getAttribute(SuiteAttribute.TRAVERSAL.getName());
+		TraversalMode traversal = (null != traversalAttr) ? (TraversalMode) traversalAttr
+				: TraversalMode.SEQUENTIAL;
+		TraversalFilter filter = (TraversalFilter) suite.getAttribute(SuiteAttribute.TRAVERSAL_FILTER.getName());
+		ScanManifest manifest = this.loadScanManifest(suite, root);
+		long start = System.currentTimeMillis();
+		try {
+			CdbTreeSnapshot snapshot = CdbTreeSnapshot.build(root, traversal, threads, manifest, filter);
+			suite.setAttribute(SuiteAttribute.CDB_TREE.getName(), snapshot);
+			TestSuiteLogger.log(Level.CONFIG, String.format("Enumerated CDB tree at %s in %d ms (%s, %d thread(s))%s",
+					root, System.currentTimeMillis() - start, traversal, threads,
+					(null != filter) ? " restricted to " + filter : ""));
+			this.reportSample(suite);
+		} catch (IOException e) {
+			TestSuiteLogger.log(Level.WARNING, "Unable to enumerate CDB tree at " + root, e);
+		}
+	}
+
+	/**
+	 * Indexes the tiles of the CDB tree snapshot by geocell, dataset and LOD
+	 * if the {@link TestRunArg#COVERAGEINDEX coverageindex} argument is given,
+	 * adding the index to the suite fixture as the value of the
+	 * {@link SuiteAttribute#COVERAGE_INDEX} attribute and writing it to the
+	 * file named by the argument. The index is built from the snapshot, so it
+	 * only covers the part of the CDB selected for this run.
+	 *
+	 * @param suite
+	 *            The test suite instance.
+	 */
+	void buildCoverageIndex(ISuite suite) {
+		Object indexFile = suite.getAttribute(SuiteAttribute.COVERAGE_INDEX_FILE.getName());
+		Object snapshot = suite.getAttribute(SuiteAttribute.CDB_TREE.getName());
+		if (null == indexFile || null == snapshot) {
+			return;
+		}
+		if (null != suite.getAttribute(SuiteAttribute.TREE_SAMPLER.getName())) {
+			TestSuiteLogger.log(Level.WARNING, "The coverage index only holds the tiles of the sample");
+		}
+		long start = System.currentTimeMillis();
+		CoverageIndex index = CoverageIndex.build(((CdbTreeSnapshot) snapshot).find("Tiles"));
+		suite.setAttribute(SuiteAttribute.COVERAGE_INDEX.getName(), index);
+		try {
+			index.write(Paths.get(indexFile.toString()));
+			TestSuiteLogger.log(Level.CONFIG, String.format("Wrote coverage index of %d tile(s) to %s in %d ms",
+					index.size(), indexFile, System.currentTimeMillis() - start));
+		} catch (IOException e) {
+			TestSuiteLogger.log(Level.WARNING, "Unable to write coverage index " + indexFile, e);
+		}
+	}
+
+	/**
+	 * Adds a {@link MetadataRegistry} for the CDB to the suite fixture as the
+	 * value of the {@link SuiteAttribute#METADATA_REGISTRY} attribute, and
+	 * starts validating every Metadata file against its schema in parallel,
+	 * adding the validations as the value of the
+	 * {@link SuiteAttribute#SCHEMA_VALIDATIONS} attribute. Both are created
+	 * after the tree snapshot, since the test subject of an archived CDB is
+	 * the copy of its Metadata directory.
+	 *
+	 * @param suite
+	 *            The test suite instance.
+	 */
+	void registerMetadataRegistry(ISuite suite) {
+		Object subject = suite.getAttribute(SuiteAttribute.TEST_SUBJECT.getName());
+		if (null == subject) {
+			return;
+		}
+		String path = subject.toString().trim();
+		SchemaValidations validations = SchemaValidations.start(path, Runtime.getRuntime().availableProcessors());
+		suite.setAttribute(SuiteAttribute.SCHEMA_VALIDATIONS.getName(), validations);
+		suite.setAttribute(SuiteAttribute.METADATA_REGISTRY.getName(), new MetadataRegistry(path, validations));
+	}
+
+	/**
+	 * Opens a CDB delivered as a zip or tar archive, adding the snapshot of its
+	 * directory tree to the suite fixture as the value of the
+	 * {@link SuiteAttribute#CDB_TREE} attribute. The
+	 * {@link SuiteAttribute#TEST_SUBJECT} attribute is replaced by the location
+	 * of the copy of its Metadata directory, which the metadata tests read.
+	 *
+	 * @param suite
+	 *            The test suite instance.
+	 * @param archive
+	 *            The archive file.
+	 */
+	void openCdbArchive(ISuite suite, Path archive) {
+		Object threadsAttr = suite.getAttribute(SuiteAttribute.THREADS.getName());
+		int threads = (null != threadsAttr) ? (Integer) threadsAttr : 1;
+		Object traversalAttr = suite.getAttribute(SuiteAttribute.TRAVERSAL.getName());
+		TraversalMode traversal = (null != traversalAttr) ? (TraversalMode) traversalAttr
+				: TraversalMode.SEQUENTIAL;
+		TraversalFilter filter = (TraversalFilter) suite.getAttribute(SuiteAttribute.TRAVERSAL_FILTER.getName());
+		if (null != suite.getAttribute(SuiteAttribute.MANIFEST_FILE.getName())) {
+			TestSuiteLogger.log(Level.WARNING, "Ignoring the scan manifest when validating an archive");
+		}
+		long start = System.currentTimeMillis();
+		try {
+			CdbArchive cdbArchive = CdbArchive.open(archive, traversal, threads, filter);
+			suite.setAttribute(SuiteAttribute.CDB_ARCHIVE.getName(), cdbArchive);
+			suite.setAttribute(SuiteAttribute.CDB_TREE.getName(), cdbArchive.getSnapshot());
+			suite.setAttribute(SuiteAttribute.TEST_SUBJECT.getName(), cdbArchive.getMetadataRoot().toString());
+			TestSuiteLogger.log(Level.CONFIG, String.format("Indexed CDB archive %s in %d ms%s", archive,
+					System.currentTimeMillis() - start, (null != filter) ? " restricted to " + filter : ""));
+			this.reportSample(suite);
+		} catch (IOException e) {
+			TestSuiteLogger.log(Level.WARNING, "Unable to read CDB archive " + archive, e);
+		}
+	}
+
+	/**
+	 * Builds the snapshot of the CDB directory tree from a listing and adds it
+	 * to the suite fixture as the value of the {@link SuiteAttribute#CDB_TREE}
+	 * attribute. A scan manifest is not used, since a listing carries no
+	 * modification times.
+	 *
+	 * @param suite
+	 *            The test suite instance.
+	 * @param root
+	 *            The CDB root directory the listing describes.
+	 * @param listing
+	 *            The listing file.
+	 */
+	void readCdbListing(ISuite suite, Path root, Path listing) {
+		if (null != suite.getAttribute(SuiteAttribute.MANIFEST_FILE.getName())) {
+			TestSuiteLogger.log(Level.WARNING, "Ignoring the scan manifest when validating from a listing");
+		}
+		ListingFormat format = (ListingFormat) suite.getAttribute(SuiteAttribute.LISTING_FORMAT.getName());
+		TraversalFilter filter = (TraversalFilter) suite.getAttribute(SuiteAttribute.TRAVERSAL_FILTER.getName());
+		long start = System.currentTimeMillis();
+		try {
+			CdbTreeSnapshot snapshot = CdbTreeSnapshot.fromListing(root, listing, format, filter);
+			suite.setAttribute(SuiteAttribute.CDB_TREE.getName(), snapshot);
+			TestSuiteLogger.log(Level.CONFIG, String.format("Read CDB listing %s in %d ms%s", listing,
+					System.currentTimeMillis() - start, (null != filter) ? " restricted to " + filter : ""));
+			this.reportSample(suite);
+		} catch (IOException e) {
+			TestSuiteLogger.log(Level.WARNING, "Unable to read CDB listing " + listing, e);
+		}
+	}
+
+	/**
+	 * Logs the sample drawn in a sampled run and writes the path of every
+	 * sampled directory to a file, so that a failure can be traced to the
+	 * exact sample. The same sample is drawn again by re-running with the
+	 * logged seed.
+	 *
+	 * @param suite
+	 *            The test suite instance.
+	 */
+	void reportSample(ISuite suite) {
+		TreeSampler sampler = (TreeSampler) suite.getAttribute(SuiteAttribute.TREE_SAMPLER.getName());
+		if (null == sampler) {
+			return;
+		}
+		StringBuilder msg = new StringBuilder("Validating a random sample of the CDB (");
+		msg.append(sampler).append("): ").append(sampler.describeSample());
+		try {
+			File sampleFile = File.createTempFile("cdb-sample-" + sampler.getSeed() + "-", ".txt");
+			Files.write(sampleFile.toPath(), sampler.getSample(), StandardCharsets.UTF_8);
+			msg.append("; sampled directories listed in ").append(sampleFile);
+		} catch (IOException e) {
+			TestSuiteLogger.log(Level.WARNING, "Unable to write the list of sampled directories", e);
+		}
+		TestSuiteLogger.log(Level.INFO, msg.toString());
+	}
+
+	/**
+	 * Reads the scan manifest named by the {@link TestRunArg#MANIFEST manifest}
+	 * argument, if any, and adds it to the suite fixture as the value of the
+	 * {@link SuiteAttribute#SCAN_MANIFEST} attribute.
+	 *
+	 * @param suite
+	 *            The test suite instance.
+	 * @param root
+	 *            The CDB root directory.
+	 * @return The manifest, or null if incremental validation was not
+	 *         requested or the manifest could not be read.
+	 */
+	ScanManifest loadScanManifest(ISuite suite, Path root) {
+		Object manifestFile = suite.getAttribute(SuiteAttribute.MANIFEST_FILE.getName());
+		if (null == manifestFile) {
+			return null;
+		}
+		try {
+			ScanManifest manifest = ScanManifest.load(Paths.get(manifestFile.toString()), root);
+			suite.setAttribute(SuiteAttribute.SCAN_MANIFEST.getName(), manifest);
+			return manifest;
+		} catch (IOException | RuntimeException e) {
+			TestSuiteLogger.log(Level.WARNING, "Unable to read scan manifest " + manifestFile, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the scan manifest for this run, so that the next run can skip the
+	 * parts of the CDB that have not changed.
+	 *
+	 * @param suite
+	 *            The test suite.
+	 */
+	void writeScanManifest(ISuite suite) {
+		Object manifest = suite.getAttribute(SuiteAttribute.SCAN_MANIFEST.getName());
+		Object snapshot = suite.getAttribute(SuiteAttribute.CDB_TREE.getName());
+		if (null == manifest || null == snapshot) {
+			return;
+		}
+		ScanManifest scanManifest = (ScanManifest) manifest;
+		try {
+			scanManifest.write((CdbTreeSnapshot) snapshot);
+		} catch (IOException e) {
+			TestSuiteLogger.log(Level.WARNING, "Unable to write scan manifest " + scanManifest.getFile(), e);
+		}
+	}
+
 	/**
 	 * Deletes temporary files created during the test run if TestSuiteLogger is
 	 * enabled at the INFO level or higher (they are left intact at the CONFIG
-	 * level or lower).
+	 * level or lower). A CDB archive is unmounted in either case.
 	 *
 	 * @param suite
 	 *            The test suite.
 	 */
 	void deleteTempFiles(ISuite suite) {
+		Object archive = suite.getAttribute(SuiteAttribute.CDB_ARCHIVE.getName());
+		if (null != archive) {
+			try {
+				((CdbArchive) archive).unmount();
+			} catch (IOException e) {
+				TestSuiteLogger.log(Level.WARNING, "Unable to unmount CDB archive", e);
+			}
+		}
 		if (TestSuiteLogger.isLoggable(Level.CONFIG)) {
 			return;
 		}
+		if (null != archive) {
+			try {
+				((CdbArchive) archive).close();
+			} catch (IOException e) {
+				TestSuiteLogger.log(Level.WARNING, "Unable to close CDB archive", e);
+			}
+		}
 		//        File testSubjFile = (File) suite.getAttribute(SuiteAttribute.TEST_SUBJ_FILE.getName());
 		//        if (testSubjFile.exists()) {
 		//            testSubjFile.delete();
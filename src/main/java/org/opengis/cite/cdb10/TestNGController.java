@@ -3,8 +3,11 @@ package org.opengis.cite.cdb10;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintStream;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.logging.Level;
@@ -13,6 +16,7 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.Source;
 
+import org.opengis.cite.cdb10.cdbStructure.CoverageIndex;
 import org.opengis.cite.cdb10.util.TestSuiteLogger;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -45,7 +49,12 @@ public class TestNGController implements TestSuiteController {
      * 
      * <pre>
      * ets-*-aio.jar [-o|--outputDir $TMPDIR] [test-run-props.xml]
+     * ets-*-aio.jar coverage --index coverage.idx [options]
      * </pre>
+     * <p>
+     * The coverage command queries a coverage index instead of running the
+     * test suite; see {@link CoverageArguments}.
+     * </p>
      *
      * @param args
      *            Test run arguments (optional).
@@ -54,6 +63,19 @@ public class TestNGController implements TestSuiteController {
      *             unsatisfied pre-conditions).
      */
     public static void main(String[] args) throws Exception {
+        if (args.length > 0 && CoverageArguments.COMMAND.equals(args[0])) {
+            CoverageArguments coverageArgs = new CoverageArguments();
+            JCommander cmd = new JCommander(coverageArgs);
+            cmd.setProgramName("ets-*-aio.jar " + CoverageArguments.COMMAND);
+            try {
+                cmd.parse(Arrays.copyOfRange(args, 1, args.length));
+                queryCoverage(coverageArgs, System.out);
+            } catch (ParameterException px) {
+                System.out.println(px.getMessage());
+                cmd.usage();
+            }
+            return;
+        }
         TestRunArguments testRunArgs = new TestRunArguments();
         JCommander cmd = new JCommander(testRunArgs);
         try {
@@ -71,6 +93,47 @@ public class TestNGController implements TestSuiteController {
         System.out.println("Test results: " + testResults.getSystemId());
     }
 
+    /**
+     * Counts or lists the tiles of a coverage index selected by the arguments
+     * of the coverage command. Tiles are listed one per line, followed by
+     * their number; with --count, the number of tiles at each LOD is printed
+     * instead.
+     *
+     * @param coverageArgs
+     *            The arguments of the coverage command.
+     * @param out
+     *            The stream the results are printed to.
+     * @throws IOException
+     *             If the coverage index cannot be read.
+     */
+    static void queryCoverage(CoverageArguments coverageArgs, PrintStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        int datasetCode = coverageArgs.getDatasetCode();
+        int[] lods = coverageArgs.getLodRange();
+        double[] box = coverageArgs.getBoundingBox();
+        CoverageIndex index = CoverageIndex.read(coverageArgs.getIndexFile().toPath());
+        int maxLod = Math.min(lods[1], index.getMaxLod());
+        long total = 0;
+        int listed = 0;
+        for (int lod = lods[0]; lod <= maxLod; lod++) {
+            long count = index.count(datasetCode, lod, box[0], box[1], box[2], box[3]);
+            if (coverageArgs.isCountOnly()) {
+                out.println(String.format("L%02d %d", lod, count));
+            } else if (count > 0 && listed < coverageArgs.getLimit()) {
+                List<String> tiles = index.find(datasetCode, lod, box[0], box[1], box[2], box[3],
+                        coverageArgs.getLimit() - listed);
+                for (String tile : tiles) {
+                    out.println(tile);
+                }
+                listed += tiles.size();
+            }
+            total += count;
+        }
+        out.println(String.format("%d tile(s)%s in %d ms", total,
+                (listed < total && !coverageArgs.isCountOnly()) ? ", " + listed + " listed" : "",
+                System.currentTimeMillis() - start));
+    }
+
     /**
      * Default constructor uses the location given by the "user.home" system
      * property as the root output directory.
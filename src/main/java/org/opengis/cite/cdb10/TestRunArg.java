@@ -7,9 +7,56 @@ public enum TestRunArg {
 
     /**
      * An absolute URI that refers to a representation of the test subject or
-     * metadata about it.
+     * metadata about it: the CDB root directory, or a .zip, .tar, .tar.gz or
+     * .tgz archive holding the CDB.
      */
-    IUT, ICS, DIRECTORIES,LATLONG,MINMAXLOD;
+    IUT, ICS, DIRECTORIES,LATLONG,MINMAXLOD,
+    /**
+     * The number of worker threads used to enumerate the CDB directory tree
+     * (default 1, i.e. a sequential walk), or the maximum number of directory
+     * listings in flight for a concurrent traversal (default 256).
+     */
+    THREADS,
+    /**
+     * How the CDB directory tree is enumerated: "sequential", "forkjoin" or
+     * "concurrent" (default "forkjoin" if more than one thread is requested,
+     * otherwise "sequential").
+     */
+    TRAVERSAL,
+    /**
+     * The location of a scan manifest used to re-validate the CDB
+     * incrementally; it is read at the start of the run and rewritten at the
+     * end.
+     */
+    MANIFEST,
+    /**
+     * The fraction, in (0, 1], of Tiles geocells, datasets and UREF
+     * directories and of GTModel/MModel categories to validate; by default the
+     * CDB is validated exhaustively.
+     */
+    SAMPLERATE,
+    /**
+     * The seed of the random sample drawn when a sample rate is given; a
+     * random seed is chosen (and logged) if absent.
+     */
+    SEED,
+    /**
+     * The location of a listing of the CDB (find or ls -R output, or a CSV of
+     * relative paths, optionally gzipped); if given, the structure tests check
+     * the listing instead of walking the CDB directory tree.
+     */
+    LISTING,
+    /**
+     * The format of the listing: "find", "ls" or "csv" (detected from the
+     * listing if absent).
+     */
+    LISTINGFORMAT,
+    /**
+     * The location at which to write the coverage index of the Tiles
+     * directory, which the coverage command queries without reading the CDB
+     * again.
+     */
+    COVERAGEINDEX;
 
 
     @Override
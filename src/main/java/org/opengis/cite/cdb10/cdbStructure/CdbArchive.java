@@ -0,0 +1,458 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * A CDB delivered as a zip or tar archive, validated without extracting it.
+ * A zip archive is mounted through the NIO zip file system and its directory
+ * tree is enumerated like any other; a tar archive (optionally gzipped) is
+ * indexed in a single streaming pass over its entry headers, skipping the
+ * file contents.
+ *
+ * <p>
+ * Only the Metadata directory, which the metadata tests read as ordinary
+ * files, is copied to a temporary directory; it is deleted when the archive
+ * is closed. The CDB may sit at the root of the archive or in a single
+ * top-level directory.
+ * </p>
+ */
+public class CdbArchive implements Closeable {
+
+	/**
+	 * The directories that may appear at the root of a CDB.
+	 */
+	static final List<String> TOP_LEVEL_DIRECTORIES = Collections
+			.unmodifiableList(Arrays.asList("Metadata", "GTModel", "MModel", "Tiles", "Navigation"));
+
+	private static final int TAR_BLOCK = 512;
+
+	private final CdbTreeSnapshot snapshot;
+	private final Path metadataRoot;
+	private final FileSystem fileSystem;
+
+	private CdbArchive(CdbTreeSnapshot snapshot, Path metadataRoot, FileSystem fileSystem) {
+		this.snapshot = snapshot;
+		this.metadataRoot = metadataRoot;
+		this.fileSystem = fileSystem;
+	}
+
+	/**
+	 * @param path
+	 *            The location of the CDB under test.
+	 * @return true if path is a file with the extension of a supported archive
+	 *         (.zip, .tar, .tar.gz or .tgz).
+	 */
+	public static boolean isArchive(Path path) {
+		return isZip(path) || isTar(path);
+	}
+
+	private static boolean isZip(Path path) {
+		return Files.isRegularFile(path) && path.getFileName().toString().toLowerCase().endsWith(".zip");
+	}
+
+	private static boolean isTar(Path path) {
+		String name = path.getFileName().toString().toLowerCase();
+		return Files.isRegularFile(path) && (name.endsWith(".tar") || isGzipped(name));
+	}
+
+	private static boolean isGzipped(String name) {
+		return name.endsWith(".tar.gz") || name.endsWith(".tgz");
+	}
+
+	/**
+	 * Opens an archive, enumerating the part of the CDB accepted by a filter
+	 * and copying its Metadata directory.
+	 *
+	 * @param archive
+	 *            The archive file.
+	 * @param mode
+	 *            The traversal strategy for a zip archive; a tar archive is
+	 *            always read sequentially.
+	 * @param threads
+	 *            The number of fork/join workers, or the maximum number of
+	 *            directory listings in flight for a concurrent traversal.
+	 * @param filter
+	 *            Restricts the directories that are enumerated, or null.
+	 * @return The opened archive.
+	 * @throws IOException
+	 *             If the archive cannot be read.
+	 */
+	public static CdbArchive open(Path archive, TraversalMode mode, int threads, TraversalFilter filter)
+			throws IOException {
+		Path metadataRoot = Files.createTempDirectory("cdb-archive-");
+		try {
+			if (isZip(archive)) {
+				return openZip(archive, mode, threads, filter, metadataRoot);
+			}
+			return new CdbArchive(indexTar(archive, filter, metadataRoot), metadataRoot, null);
+		} catch (IOException | RuntimeException e) {
+			FileUtils.deleteQuietly(metadataRoot.toFile());
+			throw e;
+		}
+	}
+
+	private static CdbArchive openZip(Path archive, TraversalMode mode, int threads, TraversalFilter filter,
+			Path metadataRoot) throws IOException {
+		FileSystem zip = FileSystems.newFileSystem(archive, (ClassLoader) null);
+		try {
+			Path root = findCdbRoot(zip.getPath("/"));
+			CdbTreeSnapshot snapshot = CdbTreeSnapshot.build(root, mode, threads, null, filter);
+			Path metadata = root.resolve("Metadata");
+			if (Files.isDirectory(metadata)) {
+				copyTree(metadata, metadataRoot.resolve("Metadata"));
+			}
+			return new CdbArchive(snapshot, metadataRoot, zip);
+		} catch (IOException | RuntimeException e) {
+			zip.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return The CDB root: dir itself, or its only subdirectory if dir does
+	 *         not hold a CDB.
+	 */
+	private static Path findCdbRoot(Path dir) throws IOException {
+		Path single = null;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path child : stream) {
+				String name = trimSlash(child.getFileName().toString());
+				if (TOP_LEVEL_DIRECTORIES.contains(name) || null != single || !Files.isDirectory(child)) {
+					return dir;
+				}
+				single = child;
+			}
+		}
+		return (null != single) ? single : dir;
+	}
+
+	private static String trimSlash(String name) {
+		return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+	}
+
+	private static void copyTree(final Path source, final Path target) throws IOException {
+		Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				Files.createDirectories(resolve(target, source.relativize(dir)));
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.copy(file, resolve(target, source.relativize(file)));
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Resolves a path of another file system against a local directory.
+	 */
+	private static Path resolve(Path dir, Path relative) {
+		Path resolved = dir;
+		for (Path name : relative) {
+			resolved = resolved.resolve(trimSlash(name.toString()));
+		}
+		return resolved;
+	}
+
+	/**
+	 * Reads the headers of every entry of a tar archive, adding the entries to
+	 * a snapshot and copying the files below Metadata. Both the ustar and GNU
+	 * long name conventions and pax path records are understood.
+	 */
+	static CdbTreeSnapshot indexTar(Path archive, TraversalFilter filter, Path metadataRoot) throws IOException {
+		ListingTreeBuilder builder = new ListingTreeBuilder(filter);
+		InputStream in = new BufferedInputStream(Files.newInputStream(archive), 64 * 1024);
+		if (isGzipped(archive.getFileName().toString().toLowerCase())) {
+			in = new GZIPInputStream(in, 64 * 1024);
+		}
+		byte[] header = new byte[TAR_BLOCK];
+		String prefix = null;
+		String longName = null;
+		try {
+			while (readBlock(in, header)) {
+				String name = (null != longName) ? longName : headerName(header);
+				longName = null;
+				long size = parseSize(header, 124, 12);
+				char type = (char) header[156];
+				if (type == 'L') {
+					longName = trimNul(new String(readData(in, size), StandardCharsets.UTF_8));
+					continue;
+				} else if (type == 'x') {
+					longName = paxPath(readData(in, size));
+					continue;
+				} else if (type == 'g' || type == 'K') {
+					skipData(in, size);
+					continue;
+				}
+
+				boolean directory = type == '5' || name.endsWith("/");
+				String path = name;
+				while (path.startsWith("./")) {
+					path = path.substring(2);
+				}
+				if (null == prefix) {
+					prefix = rootPrefix(path, directory);
+				}
+				if (!path.startsWith(prefix)) {
+					if (path.isEmpty() || path.equals(".") || prefix.startsWith(path)) {
+						skipData(in, size);
+						continue;
+					}
+					throw new IOException("Entry outside of the CDB root " + prefix + ": " + name);
+				}
+				path = path.substring(prefix.length());
+				builder.addPath(directory && !path.endsWith("/") ? path + "/" : path);
+
+				if (path.startsWith("Metadata/") && type != '1' && type != '2') {
+					Path target = metadataRoot.resolve(path).normalize();
+					if (!target.startsWith(metadataRoot)) {
+						throw new IOException("Invalid entry name: " + name);
+					}
+					if (directory) {
+						Files.createDirectories(target);
+						skipData(in, size);
+					} else {
+						Files.createDirectories(target.getParent());
+						copyData(in, size, target);
+					}
+				} else {
+					skipData(in, size);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Malformed tar archive " + archive + ": " + e.getMessage(), e);
+		} finally {
+			in.close();
+		}
+		return builder.finish(archive);
+	}
+
+	/**
+	 * @return The path prefix of the CDB root inside a tar archive, given its
+	 *         first entry: empty if the archive holds the CDB at its root,
+	 *         otherwise the name of the top-level directory and a '/'.
+	 */
+	private static String rootPrefix(String firstPath, boolean directory) {
+		int slash = firstPath.indexOf('/');
+		String top = (slash < 0) ? firstPath : firstPath.substring(0, slash);
+		if (top.isEmpty() || top.equals(".") || TOP_LEVEL_DIRECTORIES.contains(top)
+				|| (slash < 0 && !directory)) {
+			return "";
+		}
+		return top + "/";
+	}
+
+	private static boolean readBlock(InputStream in, byte[] block) throws IOException {
+		int read = 0;
+		while (read < block.length) {
+			int n = in.read(block, read, block.length - read);
+			if (n < 0) {
+				if (read == 0) {
+					return false;
+				}
+				throw new EOFException("Truncated tar header");
+			}
+			read += n;
+		}
+		for (byte b : block) {
+			if (b != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String headerName(byte[] header) {
+		String name = field(header, 0, 100);
+		if (field(header, 257, 5).equals("ustar")) {
+			String namePrefix = field(header, 345, 155);
+			if (!namePrefix.isEmpty()) {
+				name = namePrefix + "/" + name;
+			}
+		}
+		return name;
+	}
+
+	private static String field(byte[] header, int offset, int length) {
+		int end = offset;
+		while (end < offset + length && header[end] != 0) {
+			end++;
+		}
+		return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+	}
+
+	private static String trimNul(String s) {
+		int nul = s.indexOf('\0');
+		return (nul < 0) ? s : s.substring(0, nul);
+	}
+
+	/**
+	 * Parses a numeric header field, either octal or, for sizes of 8 GB and
+	 * more, GNU base-256.
+	 */
+	static long parseSize(byte[] header, int offset, int length) {
+		if ((header[offset] & 0x80) != 0) {
+			long value = header[offset] & 0x7f;
+			for (int i = offset + 1; i < offset + length; i++) {
+				value = (value << 8) | (header[i] & 0xff);
+			}
+			return value;
+		}
+		long value = 0;
+		for (int i = offset; i < offset + length; i++) {
+			byte b = header[i];
+			if (b == 0 || b == ' ') {
+				if (value > 0) {
+					break;
+				}
+				continue;
+			}
+			if (b < '0' || b > '7') {
+				throw new IllegalArgumentException("Invalid size field");
+			}
+			value = (value << 3) + (b - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * @return The path record of a pax extended header, or null if it has
+	 *         none.
+	 */
+	private static String paxPath(byte[] data) {
+		String records = new String(data, StandardCharsets.UTF_8);
+		int pos = 0;
+		while (pos < records.length()) {
+			int space = records.indexOf(' ', pos);
+			if (space < 0) {
+				break;
+			}
+			int length = Integer.parseInt(records.substring(pos, space));
+			String record = records.substring(space + 1, Math.min(pos + length, records.length()));
+			if (record.startsWith("path=")) {
+				return record.substring(5, record.endsWith("\n") ? record.length() - 1 : record.length());
+			}
+			pos += length;
+		}
+		return null;
+	}
+
+	private static long padded(long size) {
+		return (size + TAR_BLOCK - 1) / TAR_BLOCK * TAR_BLOCK;
+	}
+
+	private static byte[] readData(InputStream in, long size) throws IOException {
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Tar header too large");
+		}
+		byte[] data = new byte[(int) size];
+		int read = 0;
+		while (read < data.length) {
+			int n = in.read(data, read, data.length - read);
+			if (n < 0) {
+				throw new EOFException("Truncated tar entry");
+			}
+			read += n;
+		}
+		skipFully(in, padded(size) - size);
+		return data;
+	}
+
+	private static void copyData(InputStream in, long size, Path target) throws IOException {
+		byte[] buffer = new byte[8192];
+		long remaining = size;
+		try (OutputStream out = Files.newOutputStream(target)) {
+			while (remaining > 0) {
+				int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+				if (n < 0) {
+					throw new EOFException("Truncated tar entry");
+				}
+				out.write(buffer, 0, n);
+				remaining -= n;
+			}
+		}
+		skipFully(in, padded(size) - size);
+	}
+
+	private static void skipData(InputStream in, long size) throws IOException {
+		skipFully(in, padded(size));
+	}
+
+	private static void skipFully(InputStream in, long count) throws IOException {
+		long remaining = count;
+		while (remaining > 0) {
+			long skipped = in.skip(remaining);
+			if (skipped <= 0) {
+				if (in.read() < 0) {
+					throw new EOFException("Truncated tar entry");
+				}
+				skipped = 1;
+			}
+			remaining -= skipped;
+		}
+	}
+
+	/**
+	 * @return The snapshot of the CDB in the archive.
+	 */
+	public CdbTreeSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * @return A temporary directory holding a copy of the Metadata directory
+	 *         of the CDB, to be used as the CDB location by the metadata
+	 *         tests.
+	 */
+	public Path getMetadataRoot() {
+		return metadataRoot;
+	}
+
+	/**
+	 * Unmounts the archive, keeping the copy of the Metadata directory.
+	 * Unmounting again has no effect.
+	 *
+	 * @throws IOException
+	 *             If the archive cannot be unmounted.
+	 */
+	public void unmount() throws IOException {
+		if (null != fileSystem && fileSystem.isOpen()) {
+			fileSystem.close();
+		}
+	}
+
+	/**
+	 * Unmounts the archive and deletes the copy of the Metadata directory.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			unmount();
+		} finally {
+			FileUtils.deleteDirectory(metadataRoot.toFile());
+		}
+	}
+}
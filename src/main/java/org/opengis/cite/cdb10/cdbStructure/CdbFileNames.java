@@ -0,0 +1,94 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import static org.opengis.cite.cdb10.cdbStructure.NamingGrammar.UNBOUNDED;
+
+/**
+ * The grammar of each family of CDB file names checked by the structure
+ * tests, compiled once when the class is loaded.
+ */
+final class CdbFileNames {
+
+	/**
+	 * Tiled dataset files, such as N62W162_D001_S001_T001_L03_U2_R5.tif.
+	 */
+	static final NamingGrammar TILES = NamingGrammar.builder("Tiles")
+			.begin("lat").oneOf("latitudeHemisphere", "S", "N").digits("latitude", 2, 2).end()
+			.begin("lon").oneOf("longitudeHemisphere", "E", "W").digits("longitude", 3, 3).end()
+			.literal("_D").digits("datasetCode", 3, 3)
+			.literal("_S").digits("cs1", 3, 3)
+			.literal("_T").digits("cs2", 3, 3)
+			.literal("_").lod("lod")
+			.literal("_").begin("uref").literal("U").digits("urefValue", 1, UNBOUNDED).end()
+			.literal("_R").digits("rref", 1, UNBOUNDED)
+			.literal(".").extension("ext")
+			.compile();
+
+	/**
+	 * Navigation dataset files, such as D400_S001_T002.dbf.
+	 */
+	static final NamingGrammar NAVIGATION = NamingGrammar.builder("Navigation")
+			.text("dataset", '_')
+			.literal("_S").componentSelector("cs1", 1)
+			.literal("_T").componentSelector("cs2", 2)
+			.literal(".").extension("ext")
+			.compile();
+
+	/**
+	 * Moving model texture files, such as D601_S005_T001_W10_M1A2_SEP.rgb.
+	 */
+	static final NamingGrammar MODEL_TEXTURE = NamingGrammar.builder("MModelTexture")
+			.oneOf("dataset", "D601", "D604", "D605")
+			.literal("_S").componentSelector("cs1", 1)
+			.literal("_T").componentSelector("cs2", 2)
+			.literal("_W").digits("tsc", 2, 2)
+			.literal("_").text("tnam", '.')
+			.literal(".").extension("ext")
+			.compile();
+
+	/**
+	 * Moving model geometry files, such as D600_S001_T001_1_1_225_1_1_8_0.flt.
+	 */
+	static final NamingGrammar MODEL_GEOMETRY = disCode(NamingGrammar.builder("MModelGeometry")
+			.oneOf("dataset", "D600", "D603")
+			.literal("_S").componentSelector("cs1", 1)
+			.literal("_T").componentSelector("cs2", 2)
+			.literal("_"))
+			.literal(".").extension("ext")
+			.compile();
+
+	/**
+	 * Moving model signature files, such as D606_S001_T001_LC_0_0_0_0_0_0_0.shp.
+	 */
+	static final NamingGrammar MODEL_SIGNATURE = disCode(NamingGrammar.builder("MModelSignature")
+			.literal("D606_S").componentSelector("cs1", 1)
+			.literal("_T").componentSelector("cs2", 2)
+			.literal("_").lod("lod")
+			.literal("_"))
+			.literal(".").extension("ext")
+			.compile();
+
+	/**
+	 * Moving model DIS entity directories, such as 1_1_225_1_1_8_0.
+	 */
+	static final NamingGrammar DIS_ENTITY = disCode(NamingGrammar.builder("DIS entity"))
+			.compile();
+
+	private CdbFileNames() {
+	}
+
+	/**
+	 * Adds the seven numbers of a moving model DIS code, such as
+	 * 1_1_225_1_1_8_0, as the field mmdc.
+	 */
+	private static NamingGrammar.Builder disCode(NamingGrammar.Builder builder) {
+		return builder.begin("mmdc")
+				.digits("kind", 1, UNBOUNDED).literal("_")
+				.digits("domain", 1, UNBOUNDED).literal("_")
+				.digits("country", 1, UNBOUNDED).literal("_")
+				.digits("category", 1, UNBOUNDED).literal("_")
+				.digits("subcategory", 1, UNBOUNDED).literal("_")
+				.digits("specific", 1, UNBOUNDED).literal("_")
+				.digits("extra", 1, UNBOUNDED)
+				.end();
+	}
+}
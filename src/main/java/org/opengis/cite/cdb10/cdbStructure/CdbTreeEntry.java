@@ -0,0 +1,180 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A single file or directory in a {@link CdbTreeSnapshot}. Children are kept
+ * sorted by name so that every traversal of the snapshot visits entries in the
+ * same order.
+ */
+public class CdbTreeEntry {
+
+	private static final Comparator<CdbTreeEntry> BY_NAME = new Comparator<CdbTreeEntry>() {
+		@Override
+		public int compare(CdbTreeEntry a, CdbTreeEntry b) {
+			return a.name.compareTo(b.name);
+		}
+	};
+
+	private final CdbTreeEntry parent;
+	private final String name;
+	private boolean directory;
+	private List<CdbTreeEntry> children = Collections.emptyList();
+	private long lastModified = -1;
+	private boolean pruned;
+
+	CdbTreeEntry(CdbTreeEntry parent, String name, boolean directory) {
+		this.parent = parent;
+		this.name = name;
+		this.directory = directory;
+	}
+
+	/**
+	 * Sets the children of this entry. Only used while the snapshot is being
+	 * built.
+	 */
+	void setChildren(List<CdbTreeEntry> entries) {
+		if (entries.isEmpty()) {
+			this.children = Collections.emptyList();
+			return;
+		}
+		List<CdbTreeEntry> sorted = new ArrayList<CdbTreeEntry>(entries);
+		Collections.sort(sorted, BY_NAME);
+		this.children = Collections.unmodifiableList(sorted);
+	}
+
+	/**
+	 * Marks this entry as a directory, once a listing shows that it has
+	 * contents. Only used while the snapshot is being built.
+	 */
+	void setDirectory(boolean directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Records the modification time of this directory as seen when it was
+	 * listed. Only used while the snapshot is being built.
+	 */
+	void setLastModified(long lastModified) {
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * Marks this directory as having had entries left out by a
+	 * {@link TraversalFilter}. Only used while the snapshot is being built.
+	 */
+	void setPruned(boolean pruned) {
+		this.pruned = pruned;
+	}
+
+	/**
+	 * @return true if some entries of this directory were left out of the
+	 *         snapshot by a {@link TraversalFilter}.
+	 */
+	public boolean isPruned() {
+		return pruned;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public boolean isDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return The parent entry, or null for the root of the snapshot.
+	 */
+	public CdbTreeEntry getParent() {
+		return parent;
+	}
+
+	/**
+	 * @return The modification time of this directory, in milliseconds since
+	 *         the epoch, when it was listed; -1 if unknown or for files.
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * @return The entries contained in this directory, sorted by name; empty
+	 *         for files.
+	 */
+	public List<CdbTreeEntry> getChildren() {
+		return children;
+	}
+
+	/**
+	 * Looks up a direct child by name.
+	 *
+	 * @param childName
+	 *            The file or directory name.
+	 * @return The matching entry, or null if there is none.
+	 */
+	public CdbTreeEntry getChild(String childName) {
+		int low = 0;
+		int high = children.size() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = children.get(mid).name.compareTo(childName);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return children.get(mid);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param depth
+	 *            A depth below this entry; its children are at depth 1.
+	 * @return The number of entries at that depth below this entry.
+	 */
+	public int countAtDepth(int depth) {
+		if (depth <= 0) {
+			return 1;
+		}
+		int count = 0;
+		for (CdbTreeEntry child : children) {
+			count += child.countAtDepth(depth - 1);
+		}
+		return count;
+	}
+
+	/**
+	 * @return The number of ancestors of this entry; the snapshot root has
+	 *         depth 0.
+	 */
+	public int getDepth() {
+		int depth = 0;
+		for (CdbTreeEntry e = parent; e != null; e = e.parent) {
+			depth++;
+		}
+		return depth;
+	}
+
+	/**
+	 * @return The path of this entry relative to the CDB root, using '/' as
+	 *         the separator.
+	 */
+	public String getRelativePath() {
+		if (parent == null) {
+			return "";
+		}
+		String parentPath = parent.getRelativePath();
+		return parentPath.isEmpty() ? name : parentPath + "/" + name;
+	}
+
+	@Override
+	public String toString() {
+		return getRelativePath();
+	}
+}
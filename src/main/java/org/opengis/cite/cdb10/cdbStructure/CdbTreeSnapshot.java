@@ -0,0 +1,279 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An in-memory snapshot of the file/directory hierarchy of a CDB. The tree is
+ * enumerated once (normally by the suite fixture listener) and is then queried
+ * by every structure test, so that a large CDB is only walked a single time per
+ * test run.
+ */
+public class CdbTreeSnapshot {
+
+	/**
+	 * The default maximum number of directory listings in flight during a
+	 * {@link TraversalMode#CONCURRENT concurrent} traversal.
+	 */
+	public static final int DEFAULT_IN_FLIGHT = 256;
+
+	private final Path root;
+	private final CdbTreeEntry rootEntry;
+
+	CdbTreeSnapshot(Path root, CdbTreeEntry rootEntry) {
+		this.root = root;
+		this.rootEntry = rootEntry;
+	}
+
+	/**
+	 * Enumerates the directory tree rooted at the given path.
+	 *
+	 * @param root
+	 *            The CDB root directory.
+	 * @return A snapshot of every file and directory below root.
+	 * @throws IOException
+	 *             If a directory cannot be read.
+	 */
+	public static CdbTreeSnapshot build(Path root) throws IOException {
+		return build(root, TraversalMode.SEQUENTIAL, 1);
+	}
+
+	/**
+	 * Enumerates the directory tree rooted at the given path using a fork/join
+	 * pool, so that geocells and datasets are listed concurrently. The
+	 * resulting snapshot is identical to the one returned by
+	 * {@link #build(Path)}.
+	 *
+	 * @param root
+	 *            The CDB root directory.
+	 * @param threads
+	 *            The number of worker threads; a value of 1 or less walks the
+	 *            tree on the calling thread.
+	 * @return A snapshot of every file and directory below root.
+	 * @throws IOException
+	 *             If one or more directories cannot be read. The first failure
+	 *             in tree order is thrown, with any others attached as
+	 *             suppressed exceptions.
+	 */
+	public static CdbTreeSnapshot build(Path root, int threads) throws IOException {
+		return build(root, threads <= 1 ? TraversalMode.SEQUENTIAL : TraversalMode.FORKJOIN, threads);
+	}
+
+	/**
+	 * Enumerates the directory tree rooted at the given path with the given
+	 * strategy. Every strategy produces the same snapshot.
+	 *
+	 * @param root
+	 *            The CDB root directory.
+	 * @param mode
+	 *            The traversal strategy.
+	 * @param threads
+	 *            The number of fork/join workers, or the maximum number of
+	 *            directory listings in flight for a concurrent traversal.
+	 *            Ignored by a sequential traversal.
+	 * @return A snapshot of every file and directory below root.
+	 * @throws IOException
+	 *             If one or more directories cannot be read. The first failure
+	 *             in tree order is thrown, with any others attached as
+	 *             suppressed exceptions.
+	 */
+	public static CdbTreeSnapshot build(Path root, TraversalMode mode, int threads) throws IOException {
+		return build(root, mode, threads, DirectoryLister.FILE_SYSTEM);
+	}
+
+	/**
+	 * Enumerates the directory tree rooted at the given path, taking the
+	 * contents of directories that are unchanged since the previous run from
+	 * the given manifest instead of listing them again.
+	 *
+	 * @param root
+	 *            The CDB root directory.
+	 * @param mode
+	 *            The traversal strategy.
+	 * @param threads
+	 *            The number of fork/join workers, or the maximum number of
+	 *            directory listings in flight for a concurrent traversal.
+	 * @param manifest
+	 *            The manifest left by the previous run.
+	 * @return A snapshot of every file and directory below root.
+	 * @throws IOException
+	 *             If one or more directories cannot be read.
+	 */
+	public static CdbTreeSnapshot build(Path root, TraversalMode mode, int threads, ScanManifest manifest)
+			throws IOException {
+		return build(root, mode, threads, manifest, null);
+	}
+
+	/**
+	 * Enumerates the part of the directory tree rooted at the given path that
+	 * is accepted by a filter, optionally reusing the listings of a scan
+	 * manifest.
+	 *
+	 * @param root
+	 *            The CDB root directory.
+	 * @param mode
+	 *            The traversal strategy.
+	 * @param threads
+	 *            The number of fork/join workers, or the maximum number of
+	 *            directory listings in flight for a concurrent traversal.
+	 * @param manifest
+	 *            The manifest left by the previous run, or null.
+	 * @param filter
+	 *            Restricts the directories that are enumerated, or null.
+	 * @return A snapshot of the accepted files and directories below root.
+	 * @throws IOException
+	 *             If one or more directories cannot be read.
+	 */
+	public static CdbTreeSnapshot build(Path root, TraversalMode mode, int threads, ScanManifest manifest,
+			TraversalFilter filter) throws IOException {
+		DirectoryLister lister = DirectoryLister.FILE_SYSTEM;
+		if (null != manifest) {
+			lister = manifest.lister(lister);
+		}
+		if (null != filter && !filter.isEmpty()) {
+			lister = filter.lister(lister);
+		}
+		return build(root, mode, threads, lister);
+	}
+
+	/**
+	 * Builds a snapshot from a file listing, without accessing the CDB itself.
+	 * The listing is streamed, so its length only matters through the number
+	 * of entries kept in the snapshot.
+	 *
+	 * @param root
+	 *            The CDB root directory the listing describes.
+	 * @param listing
+	 *            A listing of the CDB, optionally gzipped.
+	 * @param format
+	 *            The format of the listing, or null to detect it.
+	 * @param filter
+	 *            Restricts the directories that are kept, or null.
+	 * @return A snapshot of the accepted files and directories in the listing.
+	 * @throws IOException
+	 *             If the listing cannot be read or is malformed.
+	 */
+	public static CdbTreeSnapshot fromListing(Path root, Path listing, ListingFormat format, TraversalFilter filter)
+			throws IOException {
+		return new ListingTreeBuilder(filter).build(root, listing, format);
+	}
+
+	static CdbTreeSnapshot build(Path root, TraversalMode mode, int threads, DirectoryLister lister)
+			throws IOException {
+		switch (mode) {
+		case FORKJOIN:
+			return new ForkJoinTreeBuilder(threads, lister).build(root);
+		case CONCURRENT:
+			return new ConcurrentTreeBuilder(threads, lister).build(root);
+		default:
+			CdbTreeEntry rootEntry = new CdbTreeEntry(null, "", true);
+			populate(rootEntry, root, lister);
+			return new CdbTreeSnapshot(root, rootEntry);
+		}
+	}
+
+	private static void populate(CdbTreeEntry dir, Path dirPath, DirectoryLister lister) throws IOException {
+		for (CdbTreeEntry entry : readDirectory(dir, dirPath, lister)) {
+			if (entry.isDirectory()) {
+				populate(entry, dirPath.resolve(entry.getName()), lister);
+			}
+		}
+	}
+
+	/**
+	 * Lists a single directory and attaches the result to dir.
+	 *
+	 * @param dir
+	 *            The entry representing the directory.
+	 * @param dirPath
+	 *            The location of the directory.
+	 * @param lister
+	 *            Reads the directory contents.
+	 * @return The children of dir, sorted by name.
+	 * @throws IOException
+	 *             If the directory cannot be read.
+	 */
+	static List<CdbTreeEntry> readDirectory(CdbTreeEntry dir, Path dirPath, DirectoryLister lister)
+			throws IOException {
+		dir.setChildren(lister.list(dir, dirPath));
+		return dir.getChildren();
+	}
+
+	/**
+	 * Combines the read failures of a traversal into a single exception.
+	 *
+	 * @param errors
+	 *            The failures, in tree order.
+	 * @return The first failure with the others attached as suppressed
+	 *         exceptions, or null if there were none.
+	 */
+	static IOException mergeErrors(List<IOException> errors) {
+		if (errors.isEmpty()) {
+			return null;
+		}
+		IOException first = errors.get(0);
+		for (int i = 1; i < errors.size(); i++) {
+			first.addSuppressed(errors.get(i));
+		}
+		return first;
+	}
+
+	/**
+	 * @return The location of the CDB that was enumerated.
+	 */
+	public Path getRoot() {
+		return root;
+	}
+
+	/**
+	 * @return The entry representing the CDB root directory.
+	 */
+	public CdbTreeEntry getRootEntry() {
+		return rootEntry;
+	}
+
+	/**
+	 * Looks up an entry by its path relative to the CDB root.
+	 *
+	 * @param names
+	 *            The successive path elements, e.g. "Tiles", "N33".
+	 * @return The matching entry, or null if it does not exist.
+	 */
+	public CdbTreeEntry find(String... names) {
+		CdbTreeEntry entry = rootEntry;
+		for (String name : names) {
+			entry = entry.getChild(name);
+			if (entry == null) {
+				return null;
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * @param names
+	 *            The successive path elements relative to the CDB root.
+	 * @return true if the file or directory exists in the snapshot.
+	 */
+	public boolean exists(String... names) {
+		return find(names) != null;
+	}
+
+	/**
+	 * Lists the contents of a directory.
+	 *
+	 * @param names
+	 *            The successive path elements relative to the CDB root.
+	 * @return The entries in the directory, sorted by name; empty if the
+	 *         directory does not exist.
+	 */
+	public List<CdbTreeEntry> list(String... names) {
+		CdbTreeEntry entry = find(names);
+		if (entry == null) {
+			return Collections.emptyList();
+		}
+		return entry.getChildren();
+	}
+}
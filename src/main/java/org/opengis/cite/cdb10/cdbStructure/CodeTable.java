@@ -0,0 +1,93 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.w3c.dom.Node;
+
+/**
+ * An immutable table of the integer codes and names of a list of metadata
+ * elements, such as the Country elements of DIS_Country_Codes.xml. Codes are
+ * small dense integers, so names are kept in an array indexed by code. Where
+ * the same code appears more than once, the first element in document order
+ * wins.
+ */
+class CodeTable {
+
+	/**
+	 * Codes up to this value are looked up in an array.
+	 */
+	static final int MAX_ARRAY_CODE = 0xffff;
+
+	private final String[] namesByCode;
+	private final Map<Integer, String> otherCodes = new HashMap<Integer, String>();
+	private final Set<String> names = new HashSet<String>();
+
+	/**
+	 * @param elements
+	 *            Elements with "code" and "name" attributes. Elements whose
+	 *            code is not a plain decimal integer are only indexed by name.
+	 */
+	CodeTable(List<Node> elements) {
+		String[] byCode = new String[0];
+		for (Node element : elements) {
+			Node nameAttr = element.getAttributes().getNamedItem("name");
+			Node codeAttr = element.getAttributes().getNamedItem("code");
+			String name = (null != nameAttr) ? nameAttr.getNodeValue() : null;
+			if (null != name) {
+				names.add(name);
+			}
+			Integer code = (null != codeAttr) ? parseCode(codeAttr.getNodeValue()) : null;
+			if (null == code) {
+				continue;
+			}
+			if (code >= 0 && code <= MAX_ARRAY_CODE) {
+				if (code >= byCode.length) {
+					byCode = Arrays.copyOf(byCode, Math.max(code + 1, byCode.length * 2));
+				}
+				if (null == byCode[code]) {
+					byCode[code] = (null != name) ? name : "";
+				}
+			} else if (!otherCodes.containsKey(code)) {
+				otherCodes.put(code, (null != name) ? name : "");
+			}
+		}
+		this.namesByCode = byCode;
+	}
+
+	/**
+	 * @return The code, or null unless value is the canonical decimal form of
+	 *         an int (the form the codes are compared in).
+	 */
+	private static Integer parseCode(String value) {
+		try {
+			int code = Integer.parseInt(value);
+			return Integer.toString(code).equals(value) ? code : null;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	boolean containsCode(int code) {
+		return null != nameForCode(code);
+	}
+
+	boolean containsName(String name) {
+		return names.contains(name);
+	}
+
+	/**
+	 * @return The name of the first element with the code, or null if there
+	 *         is none.
+	 */
+	String nameForCode(int code) {
+		if (code >= 0 && code < namesByCode.length) {
+			return namesByCode[code];
+		}
+		return otherCodes.isEmpty() ? null : otherCodes.get(code);
+	}
+}
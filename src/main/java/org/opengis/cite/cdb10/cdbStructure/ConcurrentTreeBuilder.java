@@ -0,0 +1,112 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds a {@link CdbTreeSnapshot} by issuing every directory listing as soon
+ * as its parent directory has been read. On high-latency (NFS/SMB) file
+ * systems the cost of a walk is dominated by round trips rather than CPU, so
+ * many listings are kept in flight at once and their latencies overlap instead
+ * of adding up. The number of listings in flight is bounded by the size of the
+ * I/O thread pool.
+ */
+class ConcurrentTreeBuilder {
+
+	private final int inFlight;
+	private final DirectoryLister lister;
+
+	ConcurrentTreeBuilder(int inFlight, DirectoryLister lister) {
+		this.inFlight = Math.max(1, inFlight);
+		this.lister = lister;
+	}
+
+	CdbTreeSnapshot build(Path root) throws IOException {
+		final CdbTreeEntry rootEntry = new CdbTreeEntry(null, "", true);
+		final Map<CdbTreeEntry, IOException> failures = new ConcurrentHashMap<CdbTreeEntry, IOException>();
+		final AtomicInteger pending = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(inFlight, new ListerThreadFactory());
+		try {
+			submit(pool, rootEntry, root, failures, pending, done);
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while enumerating " + root);
+		} finally {
+			pool.shutdownNow();
+		}
+
+		List<IOException> errors = new ArrayList<IOException>();
+		collectErrors(rootEntry, failures, errors);
+		IOException error = CdbTreeSnapshot.mergeErrors(errors);
+		if (null != error) {
+			throw error;
+		}
+		return new CdbTreeSnapshot(root, rootEntry);
+	}
+
+	private void submit(final ExecutorService pool, final CdbTreeEntry dir, final Path dirPath,
+			final Map<CdbTreeEntry, IOException> failures, final AtomicInteger pending, final CountDownLatch done) {
+		pending.incrementAndGet();
+		pool.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (CdbTreeEntry child : CdbTreeSnapshot.readDirectory(dir, dirPath, lister)) {
+						if (child.isDirectory()) {
+							submit(pool, child, dirPath.resolve(child.getName()), failures, pending, done);
+						}
+					}
+				} catch (IOException e) {
+					failures.put(dir, e);
+				} catch (RuntimeException e) {
+					failures.put(dir, new IOException("Unable to list " + dirPath, e));
+				} finally {
+					if (pending.decrementAndGet() == 0) {
+						done.countDown();
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Gathers the read failures depth-first, so that they are reported in the
+	 * same order as by a sequential walk.
+	 */
+	private static void collectErrors(CdbTreeEntry dir, Map<CdbTreeEntry, IOException> failures,
+			List<IOException> errors) {
+		IOException failure = failures.get(dir);
+		if (null != failure) {
+			errors.add(failure);
+		}
+		for (CdbTreeEntry child : dir.getChildren()) {
+			if (child.isDirectory()) {
+				collectErrors(child, failures, errors);
+			}
+		}
+	}
+
+	private static class ListerThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "cdb-tree-lister-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
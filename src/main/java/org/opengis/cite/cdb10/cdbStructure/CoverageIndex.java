@@ -0,0 +1,349 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The tiles present in the Tiles directory of a CDB, indexed by geocell,
+ * dataset and LOD so that the tiles of a region can be listed or counted
+ * without reading the CDB again. Each dataset of each geocell holds a
+ * {@link TilePyramid}; a query only visits the words of the pyramids whose
+ * geocells intersect the bounding box. The tiles of a dataset are indexed
+ * regardless of their component selectors, and LC tiles are not indexed.
+ *
+ * <p>
+ * The index is built from a {@link CdbTreeSnapshot}, which is read once per
+ * test run, and can be written to a file and read back by the coverage
+ * command of {@link org.opengis.cite.cdb10.TestNGController}. An index is not
+ * safe to share between threads while tiles are added.
+ * </p>
+ */
+public final class CoverageIndex {
+
+	/**
+	 * Selects every dataset in a query.
+	 */
+	public static final int ANY_DATASET = -1;
+
+	/**
+	 * The highest LOD indexed.
+	 */
+	public static final int MAX_LOD = TilePyramid.MAX_LOD;
+
+	private static final int MAGIC = 0x43444243;
+	private static final int VERSION = 1;
+
+	private final Map<Long, TilePyramid> pyramids = new HashMap<Long, TilePyramid>();
+	private final BitSet datasetCodes = new BitSet();
+	private long size;
+
+	/**
+	 * Indexes the tiles of a Tiles directory. Files that are not named as
+	 * tiles, or that are not in the directories their names call for, are
+	 * skipped.
+	 *
+	 * @param tilesDir
+	 *            The Tiles directory of a snapshot, or null.
+	 * @return The index, empty if there is no Tiles directory.
+	 */
+	public static CoverageIndex build(CdbTreeEntry tilesDir) {
+		CoverageIndex index = new CoverageIndex();
+		if (null == tilesDir) {
+			return index;
+		}
+		TileFileName tileFileName = new TileFileName();
+		for (CdbTreeEntry latDir : tilesDir.getChildren()) {
+			for (CdbTreeEntry lonDir : latDir.getChildren()) {
+				for (CdbTreeEntry datasetDir : lonDir.getChildren()) {
+					for (CdbTreeEntry lodDir : datasetDir.getChildren()) {
+						for (CdbTreeEntry urefDir : lodDir.getChildren()) {
+							for (CdbTreeEntry file : urefDir.getChildren()) {
+								if (!file.isDirectory() && tileFileName.parse(file.getName())
+										&& tileFileName.latitudeEquals(latDir.getName())
+										&& tileFileName.longitudeEquals(lonDir.getName())
+										&& tileFileName.datasetCodeEquals(datasetDir.getName())
+										&& tileFileName.lodEquals(lodDir.getName())
+										&& tileFileName.urefEquals(urefDir.getName())) {
+									index.add(tileFileName);
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Adds the tile named by a decoded file name.
+	 *
+	 * @return false if the tile is LC or outside the index and was ignored.
+	 */
+	boolean add(TileFileName tileFileName) {
+		if (tileFileName.isCoarse()) {
+			return false;
+		}
+		return add(tileFileName.getSignedLatitude(), tileFileName.getSignedLongitude(),
+				tileFileName.getDatasetCode(), tileFileName.getLod(), tileFileName.getUref(), tileFileName.getRref());
+	}
+
+	/**
+	 * Adds a tile.
+	 *
+	 * @param latitude
+	 *            The latitude of the geocell, -90 to 89.
+	 * @param longitude
+	 *            The longitude of the geocell, -180 to 179, a multiple of the
+	 *            geocell width at its latitude.
+	 * @param datasetCode
+	 *            The dataset code, 0 to 999.
+	 * @param lod
+	 *            The LOD, 0 to {@link #MAX_LOD}.
+	 * @param uref
+	 *            The UREF, below 2^lod.
+	 * @param rref
+	 *            The RREF, below 2^lod.
+	 * @return false if the tile is outside the index and was ignored.
+	 */
+	public boolean add(int latitude, int longitude, int datasetCode, int lod, long uref, long rref) {
+		if (latitude < -90 || latitude > 89 || longitude < -180 || longitude > 179 || datasetCode < 0
+				|| datasetCode > 999 || (longitude + 180) % TraversalFilter.sliceWidth(latitude) != 0) {
+			return false;
+		}
+		long key = key(latitude, longitude, datasetCode);
+		TilePyramid pyramid = pyramids.get(key);
+		if (null == pyramid) {
+			pyramid = new TilePyramid();
+		}
+		if (pyramid.contains(lod, uref, rref)) {
+			return true;
+		}
+		if (!pyramid.add(lod, uref, rref)) {
+			return false;
+		}
+		pyramids.put(key, pyramid);
+		datasetCodes.set(datasetCode);
+		size++;
+		return true;
+	}
+
+	/**
+	 * @return The number of tiles in the index.
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * @return The codes of the datasets holding a tile, in increasing order.
+	 */
+	public int[] getDatasetCodes() {
+		int[] codes = new int[datasetCodes.cardinality()];
+		int i = 0;
+		for (int code = datasetCodes.nextSetBit(0); code >= 0; code = datasetCodes.nextSetBit(code + 1)) {
+			codes[i++] = code;
+		}
+		return codes;
+	}
+
+	/**
+	 * @return The highest LOD holding a tile, or -1 if the index is empty.
+	 */
+	public int getMaxLod() {
+		int maxLod = -1;
+		for (TilePyramid pyramid : pyramids.values()) {
+			maxLod = Math.max(maxLod, pyramid.getMaxLod());
+		}
+		return maxLod;
+	}
+
+	/**
+	 * Counts the tiles of an LOD that intersect a bounding box. A box of zero
+	 * height or width selects the tiles containing its edge.
+	 *
+	 * @param datasetCode
+	 *            The dataset code, or {@link #ANY_DATASET}.
+	 * @param lod
+	 *            The LOD, 0 to {@link #MAX_LOD}.
+	 * @param minLat
+	 *            The southern edge of the box, in degrees.
+	 * @param minLon
+	 *            The western edge of the box, in degrees.
+	 * @param maxLat
+	 *            The northern edge of the box, in degrees.
+	 * @param maxLon
+	 *            The eastern edge of the box, in degrees.
+	 * @return The number of tiles.
+	 * @throws IllegalArgumentException
+	 *             If the LOD is out of range or a minimum exceeds its maximum.
+	 */
+	public long count(int datasetCode, int lod, double minLat, double minLon, double maxLat, double maxLon) {
+		return query(datasetCode, lod, minLat, minLon, maxLat, maxLon, null, 0);
+	}
+
+	/**
+	 * Lists the tiles of an LOD that intersect a bounding box, as in
+	 * {@link #count(int, int, double, double, double, double)}.
+	 *
+	 * @param limit
+	 *            The largest number of tiles to list.
+	 * @return The tiles, named like their files without the component
+	 *         selectors and extension (e.g. N62W162_D001_L03_U2_R5), by
+	 *         geocell from south-west to north-east, then by dataset.
+	 */
+	public List<String> find(int datasetCode, int lod, double minLat, double minLon, double maxLat, double maxLon,
+			int limit) {
+		List<String> tiles = new ArrayList<String>();
+		query(datasetCode, lod, minLat, minLon, maxLat, maxLon, tiles, limit);
+		return tiles;
+	}
+
+	private long query(int datasetCode, int lod, double minLat, double minLon, double maxLat, double maxLon,
+			List<String> tiles, int limit) {
+		if (lod < 0 || lod > MAX_LOD) {
+			throw new IllegalArgumentException("LOD must be 0 to " + MAX_LOD + ": " + lod);
+		}
+		if (minLat > maxLat || minLon > maxLon) {
+			throw new IllegalArgumentException(String.format("Bounding box minimum exceeds maximum: %s,%s,%s,%s",
+					minLat, minLon, maxLat, maxLon));
+		}
+		long side = 1L << lod;
+		int firstLat = clamp((int) Math.floor(minLat), -90, 89);
+		int lastLat = clamp((int) Math.ceil(maxLat) - 1, firstLat, 89);
+		long count = 0;
+		for (int lat = firstLat; lat <= lastLat; lat++) {
+			int width = TraversalFilter.sliceWidth(lat);
+			long minUref = (long) Math.floor((minLat - lat) * side);
+			long maxUref = Math.max((long) Math.ceil((maxLat - lat) * side) - 1, minUref);
+			int firstLon = clamp(Math.floorDiv((int) Math.floor(minLon) + 180, width) * width - 180, -180,
+					180 - width);
+			for (int lon = firstLon; lon <= 180 - width && (lon == firstLon || lon < maxLon); lon += width) {
+				long minRref = (long) Math.floor((minLon - lon) / width * side);
+				long maxRref = Math.max((long) Math.ceil((maxLon - lon) / width * side) - 1, minRref);
+				int first = (datasetCode == ANY_DATASET) ? datasetCodes.nextSetBit(0) : datasetCode;
+				for (int code = first; code >= 0; code = (datasetCode == ANY_DATASET)
+						? datasetCodes.nextSetBit(code + 1) : -1) {
+					if (null != tiles && tiles.size() >= limit) {
+						return count;
+					}
+					TilePyramid pyramid = pyramids.get(key(lat, lon, code));
+					if (null == pyramid) {
+						continue;
+					}
+					if (null == tiles) {
+						count += pyramid.count(lod, minUref, maxUref, minRref, maxRref);
+						continue;
+					}
+					for (long tile : pyramid.find(lod, minUref, maxUref, minRref, maxRref)) {
+						if (tiles.size() < limit) {
+							tiles.add(tileName(lat, lon, code, lod, TilePyramid.uref(tile), TilePyramid.rref(tile)));
+						}
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Writes the index to a gzipped file.
+	 *
+	 * @param file
+	 *            The file, replaced if it exists.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	public void write(Path file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(file))))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(pyramids.size());
+			for (Map.Entry<Long, TilePyramid> entry : pyramids.entrySet()) {
+				TilePyramid pyramid = entry.getValue();
+				out.writeLong(entry.getKey());
+				out.writeByte(pyramid.getMaxLod());
+				for (int lod = 0; lod <= pyramid.getMaxLod(); lod++) {
+					long[] indexes = pyramid.getWordIndexes(lod);
+					out.writeInt(indexes.length);
+					for (long index : indexes) {
+						out.writeLong(index);
+						out.writeLong(pyramid.getWord(lod, index));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads an index written by {@link #write(Path)}.
+	 *
+	 * @param file
+	 *            The file.
+	 * @return The index.
+	 * @throws IOException
+	 *             If the file cannot be read or is not a coverage index.
+	 */
+	public static CoverageIndex read(Path file) throws IOException {
+		CoverageIndex index = new CoverageIndex();
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Not a coverage index: " + file);
+			}
+			int pyramidCount = in.readInt();
+			for (int i = 0; i < pyramidCount; i++) {
+				long key = in.readLong();
+				int datasetCode = (int) (key % 1000);
+				if (key < 0 || key >= 180L * 360 * 1000) {
+					throw new IOException("Malformed coverage index: " + file);
+				}
+				TilePyramid pyramid = new TilePyramid();
+				int maxLod = in.readByte();
+				for (int lod = 0; lod <= maxLod; lod++) {
+					int wordCount = in.readInt();
+					for (int w = 0; w < wordCount; w++) {
+						long wordIndex = in.readLong();
+						long word = in.readLong();
+						pyramid.addWord(lod, wordIndex, word);
+					}
+					for (long wordIndex : pyramid.getWordIndexes(lod)) {
+						index.size += Long.bitCount(pyramid.getWord(lod, wordIndex));
+					}
+				}
+				if (pyramid.getMaxLod() >= 0) {
+					index.pyramids.put(key, pyramid);
+					index.datasetCodes.set(datasetCode);
+				}
+			}
+		}
+		return index;
+	}
+
+	private static long key(int latitude, int longitude, int datasetCode) {
+		return ((latitude + 90) * 360L + (longitude + 180)) * 1000 + datasetCode;
+	}
+
+	private static int clamp(int value, int min, int max) {
+		return Math.max(min, Math.min(max, value));
+	}
+
+	private static String tileName(int lat, int lon, int datasetCode, int lod, long uref, long rref) {
+		return String.format("%s%02d%s%03d_D%03d_L%02d_U%d_R%d", lat < 0 ? "S" : "N", Math.abs(lat),
+				lon < 0 ? "W" : "E", Math.abs(lon), datasetCode, lod, uref, rref);
+	}
+}
@@ -2,34 +2,52 @@ package org.opengis.cite.cdb10.cdbStructure;
 
 import org.opengis.cite.cdb10.metadataAndVersioning.MetadataXmlFile;
 import org.opengis.cite.cdb10.util.XMLUtils;
-import org.w3c.dom.Node;
+import org.testng.Assert;
 import org.w3c.dom.NodeList;
 
+/**
+ * The DIS country codes of DIS_Country_Codes.xml, read once, on the first
+ * lookup, into a {@link CodeTable}.
+ */
 public class DISCountryCodesXml extends MetadataXmlFile {
+
+	private volatile CodeTable countries;
+
+	@Override
+	public void load() {
+		getCountries();
+	}
+
 	public DISCountryCodesXml(String path) {
 		super(path, "DIS_Country_Codes.xml", "DIS_Country_Codes.xsd");
 	}
 
-	public boolean isValidCountryCode(Integer code) {
-		NodeList matches = XMLUtils.getNodeList("/DIS_Country_Codes/Country[@code = \"" + code.toString() +
-				"\"]", this.xmlFile.toPath());
+	private CodeTable getCountries() {
+		CodeTable result = this.countries;
+		if (null == result) {
+			synchronized (this) {
+				result = this.countries;
+				if (null == result) {
+					NodeList countryNodes = XMLUtils.getNodeList("/DIS_Country_Codes/Country", this.xmlFile.toPath());
+					Assert.assertNotNull(countryNodes, "Unable to read " + this.xmlFile.getName());
+					result = new CodeTable(XMLUtils.asList(countryNodes));
+					this.countries = result;
+				}
+			}
+		}
+		return result;
+	}
 
-		return (matches.getLength() > 0);
+	public boolean isValidCountryCode(Integer code) {
+		return getCountries().containsCode(code);
 	}
 
 	public boolean isValidCountryName(String name) {
-		NodeList matches = XMLUtils.getNodeList("/DIS_Country_Codes/Country[@name = \"" + name + "\"]",
-				this.xmlFile.toPath());
-
-		return (matches.getLength() > 0);
+		return getCountries().containsName(name);
 	}
 
 	public String countryNameForCode(Integer code) {
-		NodeList matches = XMLUtils.getNodeList("/DIS_Country_Codes/Country[@code = \"" + code.toString() +
-				"\"]", this.xmlFile.toPath());
-		Node currentItem = matches.item(0);
-		String name = currentItem.getAttributes().getNamedItem("name").getNodeValue();
-		return name;
+		return getCountries().nameForCode(code);
 	}
 
 }
@@ -1,57 +1,53 @@
 package org.opengis.cite.cdb10.cdbStructure;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-
 import org.opengis.cite.cdb10.metadataAndVersioning.MetadataXmlFile;
 import org.opengis.cite.cdb10.util.XMLUtils;
-import org.w3c.dom.Node;
+import org.testng.Assert;
 import org.w3c.dom.NodeList;
 
+/**
+ * The dataset definitions of Datasets.xml, read once, on the first lookup,
+ * into a {@link CodeTable} that is then shared by every lookup made through
+ * this instance.
+ */
 public class DatasetsXml extends MetadataXmlFile {
+
+	private volatile CodeTable datasets;
+
+	@Override
+	public void load() {
+		getDatasets();
+	}
+
 	public DatasetsXml(String path) {
 		super(path, "Datasets.xml", "Datasets.xsd");
 	}
 
-	public boolean isValidCode(Integer code) {
-		NodeList nodeList = XMLUtils.getNodeList("//Dataset", this.xmlFile.toPath());
-
-		ArrayList<Integer> codes = new ArrayList<Integer>();
-
-		for (int i = 0; i < nodeList.getLength(); i++) {
-			Node currentItem = nodeList.item(i);
-			Integer intCode = Integer.parseInt(currentItem.getAttributes().getNamedItem("code").getNodeValue());
-			codes.add(intCode);
+	private CodeTable getDatasets() {
+		CodeTable result = this.datasets;
+		if (null == result) {
+			synchronized (this) {
+				result = this.datasets;
+				if (null == result) {
+					NodeList datasetNodes = XMLUtils.getNodeList("//Dataset", this.xmlFile.toPath());
+					Assert.assertNotNull(datasetNodes, "Unable to read " + this.xmlFile.getName());
+					result = new CodeTable(XMLUtils.asList(datasetNodes));
+					this.datasets = result;
+				}
+			}
 		}
+		return result;
+	}
 
-		return codes.contains(code);
+	public boolean isValidCode(Integer code) {
+		return null != code && getDatasets().containsCode(code);
 	}
 
 	public boolean isValidName(String datasetName) {
-		NodeList nodeList = XMLUtils.getNodeList("//Dataset", this.xmlFile.toPath());
-
-		ArrayList<String> names = new ArrayList<String>();
-
-		for (int i = 0; i < nodeList.getLength(); i++) {
-			Node currentItem = nodeList.item(i);
-			names.add(currentItem.getAttributes().getNamedItem("name").getNodeValue());
-		}
-
-		return names.contains(datasetName);
+		return getDatasets().containsName(datasetName);
 	}
 
 	public String datasetNameForCode(Integer code) {
-		NodeList nodeList = XMLUtils.getNodeList("//Dataset", this.xmlFile.toPath());
-
-		Map<Integer, String> codeMap = new HashMap<Integer, String>();
-
-		for (int i = 0; i < nodeList.getLength(); i++) {
-			Node currentItem = nodeList.item(i);
-			Integer intCode = Integer.parseInt(currentItem.getAttributes().getNamedItem("code").getNodeValue());
-			String name = currentItem.getAttributes().getNamedItem("name").getNodeValue();
-			codeMap.put(intCode, name);
-		}
-		return codeMap.get(code);
+		return (null == code) ? null : getDatasets().nameForCode(code);
 	}
 }
@@ -0,0 +1,46 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lists the contents of a single directory while a {@link CdbTreeSnapshot} is
+ * being built. The tree builders only decide the order and concurrency of the
+ * listings; how a directory is actually read is up to the lister.
+ */
+interface DirectoryLister {
+
+	/**
+	 * Reads directories through {@link Files#newDirectoryStream(Path)}.
+	 */
+	DirectoryLister FILE_SYSTEM = new DirectoryLister() {
+		@Override
+		public List<CdbTreeEntry> list(CdbTreeEntry dir, Path dirPath) throws IOException {
+			dir.setLastModified(Files.getLastModifiedTime(dirPath).toMillis());
+			List<CdbTreeEntry> children = new ArrayList<CdbTreeEntry>();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(dirPath)) {
+				for (Path child : stream) {
+					children.add(new CdbTreeEntry(dir, child.getFileName().toString(), Files.isDirectory(child)));
+				}
+			}
+			return children;
+		}
+	};
+
+	/**
+	 * @param dir
+	 *            The entry representing the directory; it becomes the parent
+	 *            of the returned entries.
+	 * @param dirPath
+	 *            The location of the directory.
+	 * @return The files and directories in dirPath, in any order. The
+	 *         modification time of dirPath is recorded on dir where known.
+	 * @throws IOException
+	 *             If the directory cannot be read.
+	 */
+	List<CdbTreeEntry> list(CdbTreeEntry dir, Path dirPath) throws IOException;
+}
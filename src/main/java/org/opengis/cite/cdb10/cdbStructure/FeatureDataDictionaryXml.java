@@ -1,74 +1,196 @@
 package org.opengis.cite.cdb10.cdbStructure;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 import org.opengis.cite.cdb10.metadataAndVersioning.MetadataXmlFile;
 import org.opengis.cite.cdb10.util.XMLUtils;
+import org.testng.Assert;
+import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+/**
+ * The feature codes of Feature_Data_Dictionary.xml. The category, subcategory
+ * and feature type hierarchy is read once, on the first lookup, into a tree of
+ * codes, so that a subcategory or feature type is checked within its parents,
+ * and into hash sets of the codes and labels at each level.
+ */
 public class FeatureDataDictionaryXml extends MetadataXmlFile {
+
+	private volatile Index index;
+
+	@Override
+	public void load() {
+		getIndex();
+	}
+
 	public FeatureDataDictionaryXml(String path) {
 		super(path, "Feature_Data_Dictionary.xml", "Feature_Data_Dictionary.xsd");
 	}
 
-	public boolean isValidCategoryCode(String code) {
-		NodeList matches = XMLUtils.getNodeList("/Feature_Data_Dictionary/Category[@code = \"" + code +
-				"\"]", this.xmlFile.toPath());
+	private Index getIndex() {
+		Index result = this.index;
+		if (null == result) {
+			synchronized (this) {
+				result = this.index;
+				if (null == result) {
+					NodeList categories = XMLUtils.getNodeList("/Feature_Data_Dictionary/Category",
+							this.xmlFile.toPath());
+					Assert.assertNotNull(categories, "Unable to read " + this.xmlFile.getName());
+					result = new Index(categories);
+					this.index = result;
+				}
+			}
+		}
+		return result;
+	}
 
-		return (matches.getLength() > 0);
+	public boolean isValidCategoryCode(String code) {
+		return getIndex().categories.codes.contains(code);
 	}
 
 	public boolean isValidSubcategoryCode(String code) {
-		NodeList matches = XMLUtils.getNodeList("/Feature_Data_Dictionary/Category/Subcategory[@code = \"" +
-				code + "\"]", this.xmlFile.toPath());
-
-		return (matches.getLength() > 0);
+		return getIndex().subcategories.codes.contains(code);
 	}
 
 	public boolean isValidFeatureTypeCode(String code) {
-		NodeList matches = XMLUtils.getNodeList("/Feature_Data_Dictionary/Category/Subcategory/Feature_Type[@code = \"" +
-				code + "\"]", this.xmlFile.toPath());
-
-		return (matches.getLength() > 0);
+		return getIndex().featureTypes.codes.contains(code);
 	}
 
 	public boolean isValidCategoryLabel(String label) {
-		NodeList matches = XMLUtils.getNodeList("/Feature_Data_Dictionary/Category/Label[. = \"" + label +
-				"\"]", this.xmlFile.toPath());
-
-		return (matches.getLength() > 0);
+		return getIndex().categories.labels.contains(label);
 	}
 
 	public boolean isValidSubcategoryLabel(String label) {
-		NodeList matches = XMLUtils.getNodeList("/Feature_Data_Dictionary/Category/Subcategory/Label[. = \""
-				+ label + "\"]", this.xmlFile.toPath());
-
-		return (matches.getLength() > 0);
+		return getIndex().subcategories.labels.contains(label);
 	}
 
 	public boolean isValidFeatureTypeLabel(String label) {
-		NodeList matches = XMLUtils.getNodeList("/Feature_Data_Dictionary/Category/Subcategory/Feature_Type/Label[. = \""
-				+ label + "\"]", this.xmlFile.toPath());
-
-		return (matches.getLength() > 0);
+		return getIndex().featureTypes.labels.contains(label);
 	}
 
 	public boolean isCategoryLabelinCategoryCode(String label, String code) {
-		NodeList matches = XMLUtils.getNodeList("/Feature_Data_Dictionary/Category[@code=\"" + code +
-				"\"]/Label[. = \"" + label + "\"]", this.xmlFile.toPath());
+		Element category = getIndex().root.child(code);
+		return null != category && category.labels.contains(label);
+	}
+
+	/**
+	 * @return true if the category has a subcategory with the code.
+	 */
+	public boolean isSubcategoryCodeInCategory(String code, String categoryCode) {
+		return null != getIndex().root.child(categoryCode, code);
+	}
 
-		return (matches.getLength() > 0);
+	/**
+	 * @return true if the subcategory with the code, within the category, has
+	 *         the label.
+	 */
+	public boolean isSubcategoryLabelinSubcategoryCode(String label, String categoryCode, String code) {
+		Element subcategory = getIndex().root.child(categoryCode, code);
+		return null != subcategory && subcategory.labels.contains(label);
 	}
 
-	public boolean isSubcategoryLabelinSubcategoryCode(String label, String code) {
-		NodeList matches = XMLUtils.getNodeList("/Feature_Data_Dictionary/Category/Subcategory[@code=\"" +
-				code + "\"]/Label[. = \"" + label + "\"]", this.xmlFile.toPath());
+	/**
+	 * @return true if the subcategory, within the category, has a feature type
+	 *         with the code.
+	 */
+	public boolean isFeatureTypeCodeInSubcategory(String code, String categoryCode, String subcategoryCode) {
+		return null != getIndex().root.child(categoryCode, subcategoryCode, code);
+	}
 
-		return (matches.getLength() > 0);
+	/**
+	 * @return true if the feature type with the code, within the category and
+	 *         subcategory, has the label.
+	 */
+	public boolean isFeatureTypeLabelinFeatureTypeCode(String label, String categoryCode, String subcategoryCode,
+			String code) {
+		Element featureType = getIndex().root.child(categoryCode, subcategoryCode, code);
+		return null != featureType && featureType.labels.contains(label);
 	}
 
-	public boolean isFeatureTypeLabelinFeatureTypeCode(String label, String code) {
-		NodeList matches = XMLUtils.getNodeList("/Feature_Data_Dictionary/Category/Subcategory/Feature_Type[@code=\"" +
-				code + "\"]/Label[. = \"" + label + "\"]", this.xmlFile.toPath());
+	/**
+	 * The Category, Subcategory and Feature_Type elements as a tree of codes,
+	 * with the codes and labels used at each level. Subcategory and feature
+	 * type codes repeat under different parents, so pairs are looked up
+	 * through their parents.
+	 */
+	private static class Index {
+
+		final Element root = new Element();
+		final Level categories = new Level();
+		final Level subcategories = new Level();
+		final Level featureTypes = new Level();
+
+		Index(NodeList categoryNodes) {
+			for (int i = 0; i < categoryNodes.getLength(); i++) {
+				Node category = categoryNodes.item(i);
+				Element categoryElement = categories.add(root, category);
+				for (Node subcategory : XMLUtils.getChildElements(category, "Subcategory")) {
+					Element subcategoryElement = subcategories.add(categoryElement, subcategory);
+					for (Node featureType : XMLUtils.getChildElements(subcategory, "Feature_Type")) {
+						featureTypes.add(subcategoryElement, featureType);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * An element of the hierarchy: its labels and its children by code.
+	 */
+	private static class Element {
+
+		final Set<String> labels = new HashSet<String>();
+		private final Map<String, Element> children = new HashMap<String, Element>();
+
+		/**
+		 * @return The element at the path of codes below this one, or null.
+		 */
+		Element child(String... codes) {
+			Element element = this;
+			for (String code : codes) {
+				element = element.children.get(code);
+				if (null == element) {
+					return null;
+				}
+			}
+			return element;
+		}
+	}
 
-		return (matches.getLength() > 0);
+	/**
+	 * The codes and labels used at one level of the hierarchy, under any
+	 * parent.
+	 */
+	private static class Level {
+
+		final Set<String> codes = new HashSet<String>();
+		final Set<String> labels = new HashSet<String>();
+
+		/**
+		 * Adds an element under its parent in the tree and to this level.
+		 *
+		 * @return The element in the tree; a detached one if it has no code.
+		 */
+		Element add(Element parent, Node node) {
+			Node codeAttr = node.getAttributes().getNamedItem("code");
+			String code = (null != codeAttr) ? codeAttr.getNodeValue() : null;
+			Element element = (null != code) ? parent.children.get(code) : null;
+			if (null == element) {
+				element = new Element();
+				if (null != code) {
+					codes.add(code);
+					parent.children.put(code, element);
+				}
+			}
+			for (Node label : XMLUtils.getChildElements(node, "Label")) {
+				String text = label.getTextContent();
+				labels.add(text);
+				element.labels.add(text);
+			}
+			return element;
+		}
 	}
 }
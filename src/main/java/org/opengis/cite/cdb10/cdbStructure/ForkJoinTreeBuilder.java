@@ -0,0 +1,101 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds a {@link CdbTreeSnapshot} on a work-stealing {@link ForkJoinPool}.
+ * Every directory down to the dataset level (for example
+ * Tiles/N62/W162/001_Elevation) is listed by its own task, so large geocells
+ * are split per dataset; anything deeper is walked by the task that owns the
+ * dataset. Read failures are collected per task and merged in tree order, so
+ * the reported error does not depend on thread scheduling.
+ */
+class ForkJoinTreeBuilder {
+
+	/**
+	 * Directories at this depth or above are listed by separate tasks; the
+	 * dataset directories inside a Tiles geocell sit at depth 4.
+	 */
+	static final int FORK_DEPTH = 4;
+
+	private final int threads;
+	private final DirectoryLister lister;
+
+	ForkJoinTreeBuilder(int threads, DirectoryLister lister) {
+		this.threads = threads;
+		this.lister = lister;
+	}
+
+	CdbTreeSnapshot build(Path root) throws IOException {
+		CdbTreeEntry rootEntry = new CdbTreeEntry(null, "", true);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		List<IOException> errors;
+		try {
+			errors = pool.invoke(new DirectoryTask(rootEntry, root, 0));
+		} finally {
+			pool.shutdown();
+		}
+		IOException error = CdbTreeSnapshot.mergeErrors(errors);
+		if (null != error) {
+			throw error;
+		}
+		return new CdbTreeSnapshot(root, rootEntry);
+	}
+
+	/**
+	 * Lists one directory and its descendants, returning any read failures in
+	 * tree order.
+	 */
+	private class DirectoryTask extends RecursiveTask<List<IOException>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final CdbTreeEntry dir;
+		private final Path dirPath;
+		private final int depth;
+
+		DirectoryTask(CdbTreeEntry dir, Path dirPath, int depth) {
+			this.dir = dir;
+			this.dirPath = dirPath;
+			this.depth = depth;
+		}
+
+		@Override
+		protected List<IOException> compute() {
+			List<CdbTreeEntry> children;
+			try {
+				children = CdbTreeSnapshot.readDirectory(dir, dirPath, lister);
+			} catch (IOException e) {
+				return Collections.singletonList(e);
+			}
+
+			List<IOException> errors = new ArrayList<IOException>();
+			if (depth < FORK_DEPTH) {
+				List<DirectoryTask> tasks = new ArrayList<DirectoryTask>();
+				for (CdbTreeEntry child : children) {
+					if (child.isDirectory()) {
+						tasks.add(new DirectoryTask(child, dirPath.resolve(child.getName()), depth + 1));
+					}
+				}
+				invokeAll(tasks);
+				for (DirectoryTask task : tasks) {
+					errors.addAll(task.join());
+				}
+			} else {
+				for (CdbTreeEntry child : children) {
+					if (child.isDirectory()) {
+						errors.addAll(new DirectoryTask(child, dirPath.resolve(child.getName()), depth + 1)
+								.compute());
+					}
+				}
+			}
+			return errors;
+		}
+	}
+}
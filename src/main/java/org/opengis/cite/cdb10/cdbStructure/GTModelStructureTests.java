@@ -1,16 +1,12 @@
 package org.opengis.cite.cdb10.cdbStructure;
 
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.lang3.StringUtils;
 import org.opengis.cite.cdb10.CommonFixture;
+import org.opengis.cite.cdb10.util.ErrorCollector;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -23,17 +19,17 @@ public class GTModelStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyDataset() throws IOException {
-		Path gtModelsPath = Paths.get(this.path, "GTModel");
+		CdbTreeEntry gtModelsDir = getCdbTree().find("GTModel");
 
-		if (Files.notExists(gtModelsPath)) {
+		if (gtModelsDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
-		DatasetsXml datasetDefs = new DatasetsXml(this.path);
+		ErrorCollector errors = new ErrorCollector();
+		DatasetsXml datasetDefs = getMetadata(DatasetsXml.class);
 
-		for (Path file : Files.newDirectoryStream(gtModelsPath)) {
-			String filename = file.getFileName().toString();
+		for (CdbTreeEntry file : gtModelsDir.getChildren()) {
+			String filename = file.getName();
 			String prefix = null;
 			Integer prefixID = null;
 			String datasetName = null;
@@ -65,7 +61,7 @@ public class GTModelStructureTests extends CommonFixture {
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		Assert.assertTrue(errors.isEmpty(), errors.getMessage());
 	}
 
 	/**
@@ -76,20 +72,21 @@ public class GTModelStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyCategory() throws IOException {
-		Path gtModelsPath = Paths.get(this.path, "GTModel");
+		CdbTreeEntry gtModelsDir = getCdbTree().find("GTModel");
 
-		if (Files.notExists(gtModelsPath)) {
+		if (gtModelsDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
-		FeatureDataDictionaryXml fddDefs = new FeatureDataDictionaryXml(this.path);
+		ErrorCollector errors = new ErrorCollector();
+		FeatureDataDictionaryXml fddDefs = getMetadata(FeatureDataDictionaryXml.class);
 
-		for (Path dataset : Files.newDirectoryStream(gtModelsPath)) {
-			DirectoryStream<Path> categories = Files.newDirectoryStream(dataset);
+		for (CdbTreeEntry dataset : gtModelsDir.getChildren()) {
+			List<CdbTreeEntry> categories = dataset.getChildren();
 
-			for (Path category : categories) {
-				String filename = category.getFileName().toString();
+			for (CdbTreeEntry category : categories) {
+				errors.beginEntry();
+				String filename = category.getName();
 				String code = null;
 				String categoryLabel = null;
 				try {
@@ -119,7 +116,7 @@ public class GTModelStructureTests extends CommonFixture {
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		assertNoViolations(errors, gtModelsDir, 2);
 	}
 
 	/**
@@ -130,23 +127,25 @@ public class GTModelStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifySubcategory() throws IOException {
-		Path gtModelsPath = Paths.get(this.path, "GTModel");
+		CdbTreeEntry gtModelsDir = getCdbTree().find("GTModel");
 
-		if (Files.notExists(gtModelsPath)) {
+		if (gtModelsDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
-		FeatureDataDictionaryXml fddDefs = new FeatureDataDictionaryXml(this.path);
+		ErrorCollector errors = new ErrorCollector();
+		FeatureDataDictionaryXml fddDefs = getMetadata(FeatureDataDictionaryXml.class);
 
-		for (Path dataset : Files.newDirectoryStream(gtModelsPath)) {
-			DirectoryStream<Path> categories = Files.newDirectoryStream(dataset);
+		for (CdbTreeEntry dataset : gtModelsDir.getChildren()) {
+			List<CdbTreeEntry> categories = dataset.getChildren();
 
-			for (Path category : categories) {
-				DirectoryStream<Path> subcategories = Files.newDirectoryStream(category);
+			for (CdbTreeEntry category : categories) {
+				List<CdbTreeEntry> subcategories = category.getChildren();
+				String categoryCode = category.getName().substring(0, 1);
 
-				for (Path subcategory : subcategories) {
-					String filename = subcategory.getFileName().toString();
+				for (CdbTreeEntry subcategory : subcategories) {
+					errors.beginEntry();
+					String filename = subcategory.getName();
 					String code = null;
 					String subcategoryLabel = null;
 					try {
@@ -169,7 +168,9 @@ public class GTModelStructureTests extends CommonFixture {
 							errors.add("Invalid subcategory label: " + filename);
 						}
 
-						if (!fddDefs.isSubcategoryLabelinSubcategoryCode(subcategoryLabel, code)) {
+						if (!fddDefs.isSubcategoryCodeInCategory(code, categoryCode)) {
+							errors.add("Subcategory code not a child of category code: " + filename);
+						} else if (!fddDefs.isSubcategoryLabelinSubcategoryCode(subcategoryLabel, categoryCode, code)) {
 							errors.add("Subcategory label not a child of subcategory code: " + filename);
 						}
 					}
@@ -177,7 +178,7 @@ public class GTModelStructureTests extends CommonFixture {
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		assertNoViolations(errors, gtModelsDir, 3);
 	}
 
 	/**
@@ -188,26 +189,29 @@ public class GTModelStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyFeatureType() throws IOException {
-		Path gtModelsPath = Paths.get(this.path, "GTModel");
+		CdbTreeEntry gtModelsDir = getCdbTree().find("GTModel");
 
-		if (Files.notExists(gtModelsPath)) {
+		if (gtModelsDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
-		FeatureDataDictionaryXml fddDefs = new FeatureDataDictionaryXml(this.path);
+		ErrorCollector errors = new ErrorCollector();
+		FeatureDataDictionaryXml fddDefs = getMetadata(FeatureDataDictionaryXml.class);
 
-		for (Path dataset : Files.newDirectoryStream(gtModelsPath)) {
-			DirectoryStream<Path> categories = Files.newDirectoryStream(dataset);
+		for (CdbTreeEntry dataset : gtModelsDir.getChildren()) {
+			List<CdbTreeEntry> categories = dataset.getChildren();
 
-			for (Path category : categories) {
-				DirectoryStream<Path> subcategories = Files.newDirectoryStream(category);
+			for (CdbTreeEntry category : categories) {
+				List<CdbTreeEntry> subcategories = category.getChildren();
+				String categoryCode = category.getName().substring(0, 1);
 
-				for (Path subcategory : subcategories) {
-					DirectoryStream<Path> featureTypes = Files.newDirectoryStream(subcategory);
+				for (CdbTreeEntry subcategory : subcategories) {
+					List<CdbTreeEntry> featureTypes = subcategory.getChildren();
+					String subcategoryCode = subcategory.getName().substring(0, 1);
 
-					for (Path featureType : featureTypes) {
-						String filename = featureType.getFileName().toString();
+					for (CdbTreeEntry featureType : featureTypes) {
+						errors.beginEntry();
+						String filename = featureType.getName();
 						String code = null;
 						Integer codeID = null;
 						String featureTypeLabel = null;
@@ -235,7 +239,10 @@ public class GTModelStructureTests extends CommonFixture {
 								errors.add("Invalid subcategory label: " + filename);
 							}
 
-							if (!fddDefs.isFeatureTypeLabelinFeatureTypeCode(featureTypeLabel, code)) {
+							if (!fddDefs.isFeatureTypeCodeInSubcategory(code, categoryCode, subcategoryCode)) {
+								errors.add("Feature type code not a child of subcategory code: " + filename);
+							} else if (!fddDefs.isFeatureTypeLabelinFeatureTypeCode(featureTypeLabel, categoryCode,
+									subcategoryCode, code)) {
 								errors.add("Subcategory label not a child of subcategory code: " + filename);
 							}
 						}
@@ -244,7 +251,7 @@ public class GTModelStructureTests extends CommonFixture {
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		assertNoViolations(errors, gtModelsDir, 4);
 	}
 
 	/**
@@ -255,29 +262,32 @@ public class GTModelStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyLOD() throws IOException {
-		Path gtModelsPath = Paths.get(this.path, "GTModel");
+		CdbTreeEntry gtModelsDir = getCdbTree().find("GTModel");
 
-		if (Files.notExists(gtModelsPath)) {
+		if (gtModelsDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
+		ErrorCollector errors = new ErrorCollector();
 		Pattern LODPattern = Pattern.compile("LC|L0[0-9]|L1[0-9]|L2[0-3]");
 
-		for (Path dataset : Files.newDirectoryStream(gtModelsPath)) {
-			DirectoryStream<Path> categories = Files.newDirectoryStream(dataset);
+		for (CdbTreeEntry dataset : gtModelsDir.getChildren()) {
+			List<CdbTreeEntry> categories = dataset.getChildren();
 
-			for (Path category : categories) {
-				DirectoryStream<Path> subcategories = Files.newDirectoryStream(category);
+			for (CdbTreeEntry category : categories) {
+				List<CdbTreeEntry> subcategories = category.getChildren();
+				String categoryCode = category.getName().substring(0, 1);
 
-				for (Path subcategory : subcategories) {
-					DirectoryStream<Path> featureTypes = Files.newDirectoryStream(subcategory);
+				for (CdbTreeEntry subcategory : subcategories) {
+					List<CdbTreeEntry> featureTypes = subcategory.getChildren();
+					String subcategoryCode = subcategory.getName().substring(0, 1);
 
-					for (Path featureType : featureTypes) {
-						DirectoryStream<Path> lods = Files.newDirectoryStream(featureType);
+					for (CdbTreeEntry featureType : featureTypes) {
+						List<CdbTreeEntry> lods = featureType.getChildren();
 
-						for (Path lod : lods) {
-							String filename = lod.getFileName().toString();
+						for (CdbTreeEntry lod : lods) {
+							errors.beginEntry();
+							String filename = lod.getName();
 							Matcher match = LODPattern.matcher(filename);
 							if (!match.find()) {
 								errors.add("Invalid LOD name: " + filename);
@@ -289,6 +299,6 @@ public class GTModelStructureTests extends CommonFixture {
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		assertNoViolations(errors, gtModelsDir, 5);
 	}
 }
@@ -0,0 +1,47 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+/**
+ * The formats of file listings a {@link CdbTreeSnapshot} can be built from.
+ * In every format a directory may be marked with a trailing '/'; entries that
+ * contain other entries are directories in any case, so only empty
+ * directories need to be marked.
+ */
+public enum ListingFormat {
+
+	/**
+	 * One path per line, as printed by find. If the first line is the
+	 * starting point of the search (e.g. "." or "/mnt/cdb") it is taken as the
+	 * CDB root, otherwise paths are relative to the CDB root. For example
+	 * {@code find . -type d -printf '%p/\n' -o -print} marks every directory.
+	 */
+	FIND,
+	/**
+	 * The output of ls -R: blocks of names, each preceded by a "directory:"
+	 * header and separated by blank lines. The first header is taken as the
+	 * CDB root. Use ls -Rp to mark empty directories.
+	 */
+	LS,
+	/**
+	 * Comma-separated values with the path relative to the CDB root in the
+	 * first column and, optionally, the type ("d"/"directory" or "f"/"file")
+	 * in the second. A first line starting with "path" is skipped as a
+	 * header.
+	 */
+	CSV;
+
+	/**
+	 * @param name
+	 *            The name of a listing format, in any case.
+	 * @return The matching listing format.
+	 * @throws IllegalArgumentException
+	 *             If name does not denote a listing format.
+	 */
+	public static ListingFormat fromString(String name) {
+		return valueOf(name.trim().toUpperCase());
+	}
+
+	@Override
+	public String toString() {
+		return name().toLowerCase();
+	}
+}
@@ -0,0 +1,379 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Builds a {@link CdbTreeSnapshot} from a file listing instead of the file
+ * system, for CDBs on storage where walking the tree is slow. The listing is
+ * read one line at a time and never held in memory; memory use is bounded by
+ * the size of the resulting snapshot, and subtrees rejected by a
+ * {@link TraversalFilter} are dropped as they are read. Listings ending in
+ * ".gz" are decompressed on the fly.
+ */
+class ListingTreeBuilder {
+
+	/**
+	 * Stands in for a directory rejected by the filter, so that its contents
+	 * are skipped without consulting the filter again.
+	 */
+	private static final CdbTreeEntry PRUNED = new CdbTreeEntry(null, "", true);
+
+	private final TraversalFilter filter;
+	private final CdbTreeEntry rootEntry = new CdbTreeEntry(null, "", true);
+	private final Map<CdbTreeEntry, Map<String, CdbTreeEntry>> children =
+			new IdentityHashMap<CdbTreeEntry, Map<String, CdbTreeEntry>>();
+	private final Map<String, String> directoryNames = new HashMap<String, String>();
+	private String lastParentPath = "";
+	private CdbTreeEntry lastParent = rootEntry;
+	private long lineNumber;
+
+	/**
+	 * @param filter
+	 *            Restricts the directories that are kept, or null.
+	 */
+	ListingTreeBuilder(TraversalFilter filter) {
+		this.filter = (null != filter && !filter.isEmpty()) ? filter : null;
+	}
+
+	/**
+	 * Reads a listing.
+	 *
+	 * @param root
+	 *            The CDB root the listing describes; it is not accessed.
+	 * @param listing
+	 *            The listing file.
+	 * @param format
+	 *            The format of the listing, or null to detect it from the
+	 *            file name and first line.
+	 * @return A snapshot of the files and directories in the listing.
+	 * @throws IOException
+	 *             If the listing cannot be read or is malformed.
+	 */
+	CdbTreeSnapshot build(Path root, Path listing, ListingFormat format) throws IOException {
+		InputStream in = Files.newInputStream(listing);
+		if (listing.getFileName().toString().endsWith(".gz")) {
+			in = new GZIPInputStream(in);
+		}
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			if (null == format) {
+				format = detectFormat(listing, reader);
+			}
+			switch (format) {
+			case LS:
+				readLs(reader);
+				break;
+			case CSV:
+				readCsv(reader);
+				break;
+			default:
+				readFind(reader);
+			}
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Malformed listing " + listing + " at line " + lineNumber + ": " + e.getMessage(), e);
+		}
+		return finish(root);
+	}
+
+	/**
+	 * Attaches the entries added so far to their directories.
+	 *
+	 * @param root
+	 *            The CDB root the entries describe.
+	 * @return The snapshot.
+	 */
+	CdbTreeSnapshot finish(Path root) {
+		for (Map.Entry<CdbTreeEntry, Map<String, CdbTreeEntry>> dir : children.entrySet()) {
+			List<CdbTreeEntry> entries = new ArrayList<CdbTreeEntry>(dir.getValue().size());
+			for (CdbTreeEntry entry : dir.getValue().values()) {
+				if (entry != PRUNED) {
+					entries.add(entry);
+				}
+			}
+			dir.getKey().setChildren(entries);
+		}
+		return new CdbTreeSnapshot(root, rootEntry);
+	}
+
+	private static ListingFormat detectFormat(Path listing, BufferedReader reader) throws IOException {
+		String name = listing.getFileName().toString();
+		if (name.endsWith(".csv") || name.endsWith(".csv.gz")) {
+			return ListingFormat.CSV;
+		}
+		reader.mark(64 * 1024);
+		String first;
+		do {
+			first = reader.readLine();
+		} while (null != first && first.trim().isEmpty());
+		reader.reset();
+		return (null != first && first.endsWith(":")) ? ListingFormat.LS : ListingFormat.FIND;
+	}
+
+	private String readLine(BufferedReader reader) throws IOException {
+		String line = reader.readLine();
+		if (null != line) {
+			lineNumber++;
+		}
+		return line;
+	}
+
+	private void readFind(BufferedReader reader) throws IOException {
+		String prefix = null;
+		String line;
+		while ((line = readLine(reader)) != null) {
+			line = line.replace('\\', '/');
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			if (null == prefix) {
+				prefix = isStartingPoint(line) ? rootPrefix(line) : "";
+				if (!prefix.isEmpty()) {
+					continue;
+				}
+			}
+			addPath(line.startsWith(prefix) ? line.substring(prefix.length()) : line);
+		}
+	}
+
+	/**
+	 * @return true if the first line of find output names the directory the
+	 *         search started from rather than an entry below the CDB root.
+	 */
+	private static boolean isStartingPoint(String line) {
+		return line.equals(".") || line.equals("./") || line.startsWith("/")
+				|| (line.length() >= 2 && line.charAt(1) == ':' && Character.isLetter(line.charAt(0)));
+	}
+
+	/**
+	 * @return The starting point of a listing, with a single trailing '/'.
+	 */
+	private static String rootPrefix(String start) {
+		int end = start.length();
+		while (end > 0 && start.charAt(end - 1) == '/') {
+			end--;
+		}
+		return start.substring(0, end) + "/";
+	}
+
+	private void readLs(BufferedReader reader) throws IOException {
+		String prefix = null;
+		CdbTreeEntry dir = rootEntry;
+		boolean blockStart = true;
+		String line;
+		while ((line = readLine(reader)) != null) {
+			if (line.isEmpty()) {
+				blockStart = true;
+				continue;
+			}
+			if (blockStart && line.endsWith(":")) {
+				String header = line.substring(0, line.length() - 1).replace('\\', '/');
+				if (null == prefix) {
+					prefix = rootPrefix(header);
+					dir = rootEntry;
+				} else if (header.startsWith(prefix)) {
+					dir = resolveDirectory(trimSlashes(header.substring(prefix.length())));
+				} else {
+					throw new IllegalArgumentException("Directory outside of " + prefix + ": " + header);
+				}
+				blockStart = false;
+				continue;
+			}
+			blockStart = false;
+			if (null == dir || line.startsWith("total ")) {
+				continue;
+			}
+			boolean directory = line.endsWith("/");
+			addChild(dir, directory ? line.substring(0, line.length() - 1) : line, directory);
+		}
+	}
+
+	private void readCsv(BufferedReader reader) throws IOException {
+		boolean first = true;
+		String line;
+		while ((line = readLine(reader)) != null) {
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			List<String> fields = splitCsv(line);
+			if (first && fields.get(0).trim().toLowerCase().startsWith("path")) {
+				first = false;
+				continue;
+			}
+			first = false;
+			String path = fields.get(0).replace('\\', '/');
+			if (fields.size() > 1 && !fields.get(1).trim().isEmpty()) {
+				char type = Character.toLowerCase(fields.get(1).trim().charAt(0));
+				if (type == 'd' && !path.endsWith("/")) {
+					path = path + "/";
+				}
+			}
+			addPath(path);
+		}
+	}
+
+	/**
+	 * Splits a line of comma-separated values, honouring double quotes.
+	 */
+	static List<String> splitCsv(String line) {
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		if (quoted) {
+			throw new IllegalArgumentException("Unterminated quote");
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+	private static String trimSlashes(String path) {
+		int start = 0;
+		int end = path.length();
+		while (start < end && path.charAt(start) == '/') {
+			start++;
+		}
+		while (end > start && path.charAt(end - 1) == '/') {
+			end--;
+		}
+		return (start == 0 && end == path.length()) ? path : path.substring(start, end);
+	}
+
+	/**
+	 * Adds a path relative to the CDB root, creating its parent directories.
+	 * A trailing '/' marks a directory.
+	 */
+	void addPath(String path) {
+		boolean directory = path.endsWith("/");
+		String relative = trimSlashes(path);
+		while (relative.startsWith("./")) {
+			relative = trimSlashes(relative.substring(2));
+		}
+		if (relative.isEmpty() || relative.equals(".")) {
+			return;
+		}
+		int slash = relative.lastIndexOf('/');
+		String parentPath = (slash < 0) ? "" : relative.substring(0, slash);
+		CdbTreeEntry parent;
+		if (parentPath.equals(lastParentPath)) {
+			parent = lastParent;
+		} else {
+			parent = resolveDirectory(parentPath);
+			lastParentPath = parentPath;
+			lastParent = parent;
+		}
+		if (null != parent) {
+			addChild(parent, relative.substring(slash + 1), directory);
+		}
+	}
+
+	/**
+	 * @return The directory at the given path, created if needed, or null if
+	 *         it lies in a pruned subtree.
+	 */
+	private CdbTreeEntry resolveDirectory(String path) {
+		CdbTreeEntry dir = rootEntry;
+		if (path.isEmpty()) {
+			return dir;
+		}
+		int start = 0;
+		while (null != dir && start <= path.length()) {
+			int end = path.indexOf('/', start);
+			if (end < 0) {
+				end = path.length();
+			}
+			if (end > start) {
+				dir = addChild(dir, path.substring(start, end), true);
+			}
+			start = end + 1;
+		}
+		return dir;
+	}
+
+	/**
+	 * @return The child entry, or null if it was rejected by the filter.
+	 */
+	private CdbTreeEntry addChild(CdbTreeEntry parent, String name, boolean directory) {
+		if (name.equals(".") || name.equals("..")) {
+			throw new IllegalArgumentException("Unexpected path element: " + name);
+		}
+		Map<String, CdbTreeEntry> siblings = children.get(parent);
+		if (null == siblings) {
+			siblings = new HashMap<String, CdbTreeEntry>();
+			children.put(parent, siblings);
+		}
+		CdbTreeEntry entry = siblings.get(name);
+		if (entry == PRUNED) {
+			return null;
+		}
+		if (null != entry) {
+			if (directory && !entry.isDirectory()) {
+				if (!accept(parent, name, siblings)) {
+					return null;
+				}
+				entry.setDirectory(true);
+			}
+			return entry;
+		}
+		if (directory) {
+			if (!accept(parent, name, siblings)) {
+				return null;
+			}
+			name = internDirectoryName(name);
+		}
+		entry = new CdbTreeEntry(parent, name, directory);
+		siblings.put(name, entry);
+		return entry;
+	}
+
+	private boolean accept(CdbTreeEntry parent, String name, Map<String, CdbTreeEntry> siblings) {
+		if (null == filter || filter.accept(parent, name)) {
+			return true;
+		}
+		siblings.put(name, PRUNED);
+		parent.setPruned(true);
+		return false;
+	}
+
+	/**
+	 * Directory names such as "L00" or "001_Elevation" recur throughout a
+	 * CDB; sharing one instance per name keeps large snapshots small.
+	 */
+	private String internDirectoryName(String name) {
+		String shared = directoryNames.get(name);
+		if (null == shared) {
+			directoryNames.put(name, name);
+			return name;
+		}
+		return shared;
+	}
+}
@@ -1,20 +1,23 @@
 package org.opengis.cite.cdb10.cdbStructure;
 
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
 import org.opengis.cite.cdb10.CommonFixture;
+import org.opengis.cite.cdb10.util.ErrorCollector;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 public class MModelGeometryStructureTests extends CommonFixture {
+	private static final int KIND = CdbFileNames.DIS_ENTITY.field("kind");
+	private static final int DOMAIN = CdbFileNames.DIS_ENTITY.field("domain");
+	private static final int COUNTRY = CdbFileNames.DIS_ENTITY.field("country");
+	private static final int CATEGORY = CdbFileNames.DIS_ENTITY.field("category");
+	private static final int DATASET = CdbFileNames.MODEL_GEOMETRY.field("dataset");
+	private static final int EXT = CdbFileNames.MODEL_GEOMETRY.field("ext");
+	private static final int MMDC = CdbFileNames.MODEL_GEOMETRY.field("mmdc");
+
 	/**
 	 * Validates that MModelGeometry DIS Entity Kind directories have valid codes/names.
 	 * Test based on Section 3.5.1, Volume 1, OGC CDB Core Standard (Version 1.0)
@@ -23,17 +26,18 @@ public class MModelGeometryStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyDISEntityKind() throws IOException {
-		Path mmodelGeomPath = Paths.get(this.path, "MModel", "600_MModelGeometry");
+		CdbTreeEntry mmodelGeomDir = getCdbTree().find("MModel", "600_MModelGeometry");
 
-		if (Files.notExists(mmodelGeomPath)) {
+		if (mmodelGeomDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
-		MovingModelCodesXml mmcDefs = new MovingModelCodesXml(this.path);
+		ErrorCollector errors = new ErrorCollector();
+		MovingModelCodesXml mmcDefs = getMetadata(MovingModelCodesXml.class);
 
-		for (Path kindDir : Files.newDirectoryStream(mmodelGeomPath)) {
-			String filename = kindDir.getFileName().toString();
+		for (CdbTreeEntry kindDir : mmodelGeomDir.getChildren()) {
+			errors.beginEntry();
+			String filename = kindDir.getName();
 			String code = null;
 			Integer codeID = null;
 			String kindName = null;
@@ -62,7 +66,7 @@ public class MModelGeometryStructureTests extends CommonFixture {
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		assertNoViolations(errors, mmodelGeomDir, 1);
 	}
 
 	/**
@@ -73,20 +77,21 @@ public class MModelGeometryStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyDISDomain() throws IOException {
-		Path mmodelGeomPath = Paths.get(this.path, "MModel", "600_MModelGeometry");
+		CdbTreeEntry mmodelGeomDir = getCdbTree().find("MModel", "600_MModelGeometry");
 
-		if (Files.notExists(mmodelGeomPath)) {
+		if (mmodelGeomDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
-		MovingModelCodesXml mmcDefs = new MovingModelCodesXml(this.path);
+		ErrorCollector errors = new ErrorCollector();
+		MovingModelCodesXml mmcDefs = getMetadata(MovingModelCodesXml.class);
 
-		for (Path kindDir : Files.newDirectoryStream(mmodelGeomPath)) {
-			DirectoryStream<Path> domainDirs = Files.newDirectoryStream(kindDir);
+		for (CdbTreeEntry kindDir : mmodelGeomDir.getChildren()) {
+			List<CdbTreeEntry> domainDirs = kindDir.getChildren();
 
-			for (Path domainDir : domainDirs) {
-				String filename = domainDir.getFileName().toString();
+			for (CdbTreeEntry domainDir : domainDirs) {
+				errors.beginEntry();
+				String filename = domainDir.getName();
 				String code = null;
 				Integer codeID = null;
 				String domainName = null;
@@ -116,7 +121,7 @@ public class MModelGeometryStructureTests extends CommonFixture {
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		assertNoViolations(errors, mmodelGeomDir, 2);
 	}
 
 	/**
@@ -127,23 +132,24 @@ public class MModelGeometryStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyDISCountry() throws IOException {
-		Path mmodelGeomPath = Paths.get(this.path, "MModel", "600_MModelGeometry");
+		CdbTreeEntry mmodelGeomDir = getCdbTree().find("MModel", "600_MModelGeometry");
 
-		if (Files.notExists(mmodelGeomPath)) {
+		if (mmodelGeomDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
-		DISCountryCodesXml dccDefs = new DISCountryCodesXml(this.path);
+		ErrorCollector errors = new ErrorCollector();
+		DISCountryCodesXml dccDefs = getMetadata(DISCountryCodesXml.class);
 
-		for (Path kindDir : Files.newDirectoryStream(mmodelGeomPath)) {
-			DirectoryStream<Path> domainDirs = Files.newDirectoryStream(kindDir);
+		for (CdbTreeEntry kindDir : mmodelGeomDir.getChildren()) {
+			List<CdbTreeEntry> domainDirs = kindDir.getChildren();
 
-			for (Path domainDir : domainDirs) {
-				DirectoryStream<Path> countryDirs = Files.newDirectoryStream(domainDir);
+			for (CdbTreeEntry domainDir : domainDirs) {
+				List<CdbTreeEntry> countryDirs = domainDir.getChildren();
 
-				for (Path countryDir : countryDirs) {
-					String filename = countryDir.getFileName().toString();
+				for (CdbTreeEntry countryDir : countryDirs) {
+					errors.beginEntry();
+					String filename = countryDir.getName();
 					String code = null;
 					Integer codeID = null;
 					String countryName = null;
@@ -174,7 +180,7 @@ public class MModelGeometryStructureTests extends CommonFixture {
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		assertNoViolations(errors, mmodelGeomDir, 3);
 	}
 
 	/**
@@ -185,26 +191,27 @@ public class MModelGeometryStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyDISCategory() throws IOException {
-		Path mmodelGeomPath = Paths.get(this.path, "MModel", "600_MModelGeometry");
+		CdbTreeEntry mmodelGeomDir = getCdbTree().find("MModel", "600_MModelGeometry");
 
-		if (Files.notExists(mmodelGeomPath)) {
+		if (mmodelGeomDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
-		MovingModelCodesXml mmcDefs = new MovingModelCodesXml(this.path);
+		ErrorCollector errors = new ErrorCollector();
+		MovingModelCodesXml mmcDefs = getMetadata(MovingModelCodesXml.class);
 
-		for (Path kindDir : Files.newDirectoryStream(mmodelGeomPath)) {
-			DirectoryStream<Path> domainDirs = Files.newDirectoryStream(kindDir);
+		for (CdbTreeEntry kindDir : mmodelGeomDir.getChildren()) {
+			List<CdbTreeEntry> domainDirs = kindDir.getChildren();
 
-			for (Path domainDir : domainDirs) {
-				DirectoryStream<Path> countryDirs = Files.newDirectoryStream(domainDir);
+			for (CdbTreeEntry domainDir : domainDirs) {
+				List<CdbTreeEntry> countryDirs = domainDir.getChildren();
 
-				for (Path countryDir : countryDirs) {
-					DirectoryStream<Path> categoryDirs = Files.newDirectoryStream(countryDir);
+				for (CdbTreeEntry countryDir : countryDirs) {
+					List<CdbTreeEntry> categoryDirs = countryDir.getChildren();
 
-					for (Path categoryDir : categoryDirs) {
-						String filename = categoryDir.getFileName().toString();
+					for (CdbTreeEntry categoryDir : categoryDirs) {
+						errors.beginEntry();
+						String filename = categoryDir.getName();
 						String code = null;
 						Integer codeID = null;
 						String categoryName = null;
@@ -236,7 +243,7 @@ public class MModelGeometryStructureTests extends CommonFixture {
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		assertNoViolations(errors, mmodelGeomDir, 4);
 	}
 
 	/**
@@ -247,61 +254,61 @@ public class MModelGeometryStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyDISEntity() throws IOException {
-		Path mmodelGeomPath = Paths.get(this.path, "MModel", "600_MModelGeometry");
+		CdbTreeEntry mmodelGeomDir = getCdbTree().find("MModel", "600_MModelGeometry");
 
-		if (Files.notExists(mmodelGeomPath)) {
+		if (mmodelGeomDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
-		Pattern entityPattern = Pattern.compile("^(?<kind>\\d+)_(?<domain>\\d+)_(?<country>\\d+)_(?<category>\\d+)_(\\d+)_(\\d+)_(\\d+)$");
+		ErrorCollector errors = new ErrorCollector();
+		NamingGrammar.NameMatch match = CdbFileNames.DIS_ENTITY.matcher();
 
-		for (Path kindDir : Files.newDirectoryStream(mmodelGeomPath)) {
-			DirectoryStream<Path> domainDirs = Files.newDirectoryStream(kindDir);
-			String kindFilename = kindDir.getFileName().toString();
+		for (CdbTreeEntry kindDir : mmodelGeomDir.getChildren()) {
+			List<CdbTreeEntry> domainDirs = kindDir.getChildren();
+			String kindFilename = kindDir.getName();
 			String kindCode = kindFilename.split("_")[0];
 
-			for (Path domainDir : domainDirs) {
-				DirectoryStream<Path> countryDirs = Files.newDirectoryStream(domainDir);
-				String domainFilename = domainDir.getFileName().toString();
+			for (CdbTreeEntry domainDir : domainDirs) {
+				List<CdbTreeEntry> countryDirs = domainDir.getChildren();
+				String domainFilename = domainDir.getName();
 				String domainCode = domainFilename.split("_")[0];
 
-				for (Path countryDir : countryDirs) {
-					DirectoryStream<Path> categoryDirs = Files.newDirectoryStream(countryDir);
-					String countryFilename = countryDir.getFileName().toString();
+				for (CdbTreeEntry countryDir : countryDirs) {
+					List<CdbTreeEntry> categoryDirs = countryDir.getChildren();
+					String countryFilename = countryDir.getName();
 					String countryCode = countryFilename.split("_")[0];
 
-					for (Path categoryDir : categoryDirs) {
-						DirectoryStream<Path> entityDirs = Files.newDirectoryStream(categoryDir);
-						String categoryFilename = categoryDir.getFileName().toString();
+					for (CdbTreeEntry categoryDir : categoryDirs) {
+						List<CdbTreeEntry> entityDirs = categoryDir.getChildren();
+						String categoryFilename = categoryDir.getName();
 						String categoryCode = categoryFilename.split("_")[0];
 
-						for (Path entityDir : entityDirs) {
-							String filename = entityDir.getFileName().toString();
+						for (CdbTreeEntry entityDir : entityDirs) {
+							errors.beginEntry();
+							String filename = entityDir.getName();
 
 							if (StringUtils.countMatches(filename, "_") != 6) {
 								errors.add("Should be six underscore separators: " + filename);
 							} else {
-								Matcher match = entityPattern.matcher(filename);
-								if (!match.find()) {
+								if (!match.parse(filename)) {
 									errors.add("Invalid DIS entity directory name: " + filename);
 								} else {
-									if (!match.group("kind").equals(kindCode)) {
+									if (!match.fieldEquals(KIND, kindCode)) {
 										errors.add("DIS Entity Code does not match parent directory: "
 												+ filename);
 									}
 
-									if (!match.group("domain").equals(domainCode)) {
+									if (!match.fieldEquals(DOMAIN, domainCode)) {
 										errors.add("DIS Entity Domain does not match parent directory: "
 												+ filename);
 									}
 
-									if (!match.group("country").equals(countryCode)) {
+									if (!match.fieldEquals(COUNTRY, countryCode)) {
 										errors.add("DIS Country Code does not match parent directory: "
 												+ filename);
 									}
 
-									if (!match.group("category").equals(categoryCode)) {
+									if (!match.fieldEquals(CATEGORY, categoryCode)) {
 										errors.add("DIS Entity Category does not match parent directory: "
 												+ filename);
 									}
@@ -313,7 +320,7 @@ public class MModelGeometryStructureTests extends CommonFixture {
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		assertNoViolations(errors, mmodelGeomDir, 5);
 	}
 
 	/**
@@ -324,104 +331,64 @@ public class MModelGeometryStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyFile() throws IOException {
-		Path mmodelGeomPath = Paths.get(this.path, "MModel", "600_MModelGeometry");
+		CdbTreeEntry mmodelGeomDir = getCdbTree().find("MModel", "600_MModelGeometry");
 
-		if (Files.notExists(mmodelGeomPath)) {
+		if (mmodelGeomDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
+		ErrorCollector errors = new ErrorCollector();
 		/*
 		 * Example of valid filename:
 		 * D600_S001_T001_1_1_225_1_1_8_0.flt
 		 */
-		Pattern filePattern = Pattern.compile(
-				"^(?<dataset>D600|D603)_S(?<cs1>\\d+)_T(?<cs2>\\d+)_(?<mmdc>(?<kind>\\d+)" +
-						"_(?<domain>\\d+)_(?<country>\\d+)_(?<category>\\d+)_(\\d+)_(\\d+)_(\\d+))\\." +
-						"(?<ext>.+)$"
-				);
+		NamingGrammar.NameMatch match = CdbFileNames.MODEL_GEOMETRY.matcher();
 
-		for (Path kindDir : Files.newDirectoryStream(mmodelGeomPath)) {
-			DirectoryStream<Path> domainDirs = Files.newDirectoryStream(kindDir);
+		for (CdbTreeEntry kindDir : mmodelGeomDir.getChildren()) {
+			List<CdbTreeEntry> domainDirs = kindDir.getChildren();
 
-			for (Path domainDir : domainDirs) {
-				DirectoryStream<Path> countryDirs = Files.newDirectoryStream(domainDir);
+			for (CdbTreeEntry domainDir : domainDirs) {
+				List<CdbTreeEntry> countryDirs = domainDir.getChildren();
 
-				for (Path countryDir : countryDirs) {
-					DirectoryStream<Path> categoryDirs = Files.newDirectoryStream(countryDir);
+				for (CdbTreeEntry countryDir : countryDirs) {
+					List<CdbTreeEntry> categoryDirs = countryDir.getChildren();
 
-					for (Path categoryDir : categoryDirs) {
-						DirectoryStream<Path> entityDirs = Files.newDirectoryStream(categoryDir);
+					for (CdbTreeEntry categoryDir : categoryDirs) {
+						List<CdbTreeEntry> entityDirs = categoryDir.getChildren();
 
-						for (Path entityDir : entityDirs) {
-							DirectoryStream<Path> files = Files.newDirectoryStream(entityDir);
-							String entityFilename = entityDir.getFileName().toString();
+						for (CdbTreeEntry entityDir : entityDirs) {
+							List<CdbTreeEntry> files = entityDir.getChildren();
+							String entityFilename = entityDir.getName();
 
-							for (Path file : files) {
-								String filename = file.getFileName().toString();
+							for (CdbTreeEntry file : files) {
+								errors.beginEntry();
+								String filename = file.getName();
 
 								if (StringUtils.countMatches(filename, "_") != 9) {
 									errors.add("Should be nine underscore separators: " + filename);
 								} else {
-									Matcher match = filePattern.matcher(filename);
-									if (!match.find()) {
+									if (!match.parse(filename)) {
 										errors.add("Invalid file name: " + filename);
 									} else {
-										String dataset = match.group("dataset");
-
-										if (!dataset.equals("D600") && !dataset.equals("D603")) {
+										if (!match.fieldEquals(DATASET, "D600") && !match.fieldEquals(DATASET, "D603")) {
 											errors.add("Invalid dataset: " + filename);
 										}
 
-										if (dataset.equals("D600") && !match.group("ext").equals("flt")) {
+										if (match.fieldEquals(DATASET, "D600") && !match.fieldEquals(EXT, "flt")) {
 											errors.add("Invalid file extension for D600: " + filename);
 										}
 
-										if (dataset.equals("D603") && !match.group("ext").equals("xml")) {
+										if (match.fieldEquals(DATASET, "D603") && !match.fieldEquals(EXT, "xml")) {
 											errors.add("Invalid file extension for D603: " + filename);
 										}
 
-										if (!match.group("mmdc").equals(entityFilename)) {
+										if (!match.fieldEquals(MMDC, entityFilename)) {
 											errors.add("Moving Model DIS Code does not match parent directory: "
 													+ filename);
 										}
 
-										if (match.group("cs1").length() != 3) {
-											errors.add("Component Selector 1 should be 3 characters: " + filename);
-										}
-
-										try {
-											Integer cs1 = Integer.parseInt(match.group("cs1"));
-
-											if (((cs1 < 10) && !match.group("cs1").substring(0,2).equals("00")) ||
-													((cs1 < 100) && !match.group("cs1").substring(0,1).equals("0"))) {
-												errors.add("Invalid padding on CS1: " + filename);
-											}
-										}
-										catch (NumberFormatException e) {
-											errors.add("Invalid CS1 number format: " + filename);
-										}
-										catch (StringIndexOutOfBoundsException e) {
-											errors.add("Invalid CS1 length: " + filename);
-										}
-
-										if (match.group("cs2").length() != 3) {
-											errors.add("Component Selector 2 should be 3 characters: " + filename);
-										}
-
-										try {
-											Integer cs2 = Integer.parseInt(match.group("cs2"));
-
-											if (((cs2 < 10) && !match.group("cs2").substring(0,2).equals("00")) ||
-													((cs2 < 100) && !match.group("cs2").substring(0,1).equals("0"))) {
-												errors.add("Invalid padding on CS2: " + filename);
-											}
-										}
-										catch (NumberFormatException e) {
-											errors.add("Invalid CS2 number format: " + filename);
-										}
-										catch (StringIndexOutOfBoundsException e) {
-											errors.add("Invalid CS2 length: " + filename);
+										for (NamingGrammar.Violation violation : match.getViolations()) {
+											errors.add(violation.getMessage(filename));
 										}
 
 									}
@@ -433,6 +400,6 @@ public class MModelGeometryStructureTests extends CommonFixture {
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		assertNoViolations(errors, mmodelGeomDir, 6);
 	}
 }
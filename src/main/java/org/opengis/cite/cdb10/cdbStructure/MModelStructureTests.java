@@ -1,13 +1,9 @@
 package org.opengis.cite.cdb10.cdbStructure;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
 
-import org.apache.commons.lang3.StringUtils;
 import org.opengis.cite.cdb10.CommonFixture;
+import org.opengis.cite.cdb10.util.ErrorCollector;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -20,17 +16,17 @@ public class MModelStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyDataset() throws IOException {
-		Path mmPath = Paths.get(this.path, "MModel");
+		CdbTreeEntry mmDir = getCdbTree().find("MModel");
 
-		if (Files.notExists(mmPath)) {
+		if (mmDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
-		DatasetsXml datasetDefs = new DatasetsXml(this.path);
+		ErrorCollector errors = new ErrorCollector();
+		DatasetsXml datasetDefs = getMetadata(DatasetsXml.class);
 
-		for (Path file : Files.newDirectoryStream(mmPath)) {
-			String filename = file.getFileName().toString();
+		for (CdbTreeEntry file : mmDir.getChildren()) {
+			String filename = file.getName();
 			String prefix = null;
 			Integer prefixID = null;
 			String datasetName = null;
@@ -62,6 +58,6 @@ public class MModelStructureTests extends CommonFixture {
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		Assert.assertTrue(errors.isEmpty(), errors.getMessage());
 	}
 }
@@ -1,20 +1,20 @@
 package org.opengis.cite.cdb10.cdbStructure;
 
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.opengis.cite.cdb10.CommonFixture;
-import org.testng.Assert;
+import org.opengis.cite.cdb10.util.ErrorCollector;
 import org.testng.annotations.Test;
 
 public class MModelTextureStructureTests extends CommonFixture {
+	private static final int DATASET = CdbFileNames.MODEL_TEXTURE.field("dataset");
+	private static final int EXT = CdbFileNames.MODEL_TEXTURE.field("ext");
+	private static final int TNAM = CdbFileNames.MODEL_TEXTURE.field("tnam");
+
 	/**
 	 * Validates that MModelTexture Texture Name Prefix directories have valid codes.
 	 *
@@ -22,16 +22,17 @@ public class MModelTextureStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyTNAMPrefix() throws IOException {
-		Path mmtPath = Paths.get(this.path, "MModel", "601_MModelTexture");
+		CdbTreeEntry mmtDir = getCdbTree().find("MModel", "601_MModelTexture");
 
-		if (Files.notExists(mmtPath)) {
+		if (mmtDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
+		ErrorCollector errors = new ErrorCollector();
 
-		for (Path tnamPrefixDir : Files.newDirectoryStream(mmtPath)) {
-			String filename = tnamPrefixDir.getFileName().toString();
+		for (CdbTreeEntry tnamPrefixDir : mmtDir.getChildren()) {
+			errors.beginEntry();
+			String filename = tnamPrefixDir.getName();
 
 			if (filename.length() != 1) {
 				errors.add("Invalid length on texture name prefix directory: " + filename);
@@ -42,7 +43,7 @@ public class MModelTextureStructureTests extends CommonFixture {
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		assertNoViolations(errors, mmtDir, 1);
 	}
 
 	/**
@@ -52,19 +53,20 @@ public class MModelTextureStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyTNAMSecond() throws IOException {
-		Path mmtPath = Paths.get(this.path, "MModel", "601_MModelTexture");
+		CdbTreeEntry mmtDir = getCdbTree().find("MModel", "601_MModelTexture");
 
-		if (Files.notExists(mmtPath)) {
+		if (mmtDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
+		ErrorCollector errors = new ErrorCollector();
 
-		for (Path tnamPrefixDir : Files.newDirectoryStream(mmtPath)) {
-			DirectoryStream<Path> secondDirs = Files.newDirectoryStream(tnamPrefixDir);
+		for (CdbTreeEntry tnamPrefixDir : mmtDir.getChildren()) {
+			List<CdbTreeEntry> secondDirs = tnamPrefixDir.getChildren();
 
-			for (Path secondDir : secondDirs) {
-				String filename = secondDir.getFileName().toString();
+			for (CdbTreeEntry secondDir : secondDirs) {
+				errors.beginEntry();
+				String filename = secondDir.getName();
 
 				if (filename.length() != 1) {
 					errors.add("Invalid length on level 3 texture name directory: " + filename);
@@ -76,7 +78,7 @@ public class MModelTextureStructureTests extends CommonFixture {
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		assertNoViolations(errors, mmtDir, 2);
 	}
 
 	/**
@@ -86,25 +88,26 @@ public class MModelTextureStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyTNAM() throws IOException {
-		Path mmtPath = Paths.get(this.path, "MModel", "601_MModelTexture");
+		CdbTreeEntry mmtDir = getCdbTree().find("MModel", "601_MModelTexture");
 
-		if (Files.notExists(mmtPath)) {
+		if (mmtDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
+		ErrorCollector errors = new ErrorCollector();
 		Pattern startPattern = Pattern.compile("^\\p{Alnum}{2}");
 
-		for (Path firstDir : Files.newDirectoryStream(mmtPath)) {
-			DirectoryStream<Path> secondDirs = Files.newDirectoryStream(firstDir);
-			String firstDirFilename = firstDir.getFileName().toString();
+		for (CdbTreeEntry firstDir : mmtDir.getChildren()) {
+			List<CdbTreeEntry> secondDirs = firstDir.getChildren();
+			String firstDirFilename = firstDir.getName();
 
-			for (Path secondDir : secondDirs) {
-				DirectoryStream<Path> textureNames = Files.newDirectoryStream(secondDir);
-				String secondDirFilename = secondDir.getFileName().toString();
+			for (CdbTreeEntry secondDir : secondDirs) {
+				List<CdbTreeEntry> textureNames = secondDir.getChildren();
+				String secondDirFilename = secondDir.getName();
 
-				for (Path textureName : textureNames) {
-					String filename = textureName.getFileName().toString();
+				for (CdbTreeEntry textureName : textureNames) {
+					errors.beginEntry();
+					String filename = textureName.getName();
 
 					if ((filename.length() < 2) || (filename.length() > 32)) {
 						errors.add("Invalid length on texture name directory: " + filename);
@@ -128,7 +131,7 @@ public class MModelTextureStructureTests extends CommonFixture {
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		assertNoViolations(errors, mmtDir, 3);
 	}
 
 	/**
@@ -138,100 +141,63 @@ public class MModelTextureStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyFile() throws IOException {
-		Path mmtPath = Paths.get(this.path, "MModel", "601_MModelTexture");
+		CdbTreeEntry mmtDir = getCdbTree().find("MModel", "601_MModelTexture");
 
-		if (Files.notExists(mmtPath)) {
+		if (mmtDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
+		ErrorCollector errors = new ErrorCollector();
 		/*
 		 * Example of valid filename:
 		 * D601_S005_T001_W10_M1A2_SEP.rgb
 		 */
-		Pattern filePattern = Pattern.compile(
-				"^(?<dataset>D601|D604|D605)_S(?<cs1>\\d+)_T(?<cs2>\\d+)_W(?<tsc>\\d{2})_(?<tnam>[^.]+)\\.(?<ext>.+)$");
+		NamingGrammar.NameMatch match = CdbFileNames.MODEL_TEXTURE.matcher();
 
-		for (Path firstDir : Files.newDirectoryStream(mmtPath)) {
-			DirectoryStream<Path> secondDirs = Files.newDirectoryStream(firstDir);
+		for (CdbTreeEntry firstDir : mmtDir.getChildren()) {
+			List<CdbTreeEntry> secondDirs = firstDir.getChildren();
 
-			for (Path secondDir : secondDirs) {
-				DirectoryStream<Path> textureNames = Files.newDirectoryStream(secondDir);
+			for (CdbTreeEntry secondDir : secondDirs) {
+				List<CdbTreeEntry> textureNames = secondDir.getChildren();
 
-				for (Path textureName : textureNames) {
-					DirectoryStream<Path> files = Files.newDirectoryStream(textureName);
-					String textureNameFilename = textureName.getFileName().toString();
+				for (CdbTreeEntry textureName : textureNames) {
+					List<CdbTreeEntry> files = textureName.getChildren();
+					String textureNameFilename = textureName.getName();
 
-					for (Path file : files) {
-						String filename = file.getFileName().toString();
+					for (CdbTreeEntry file : files) {
+						errors.beginEntry();
+						String filename = file.getName();
 
 						if (StringUtils.countMatches(filename, "_") != 4) {
 							errors.add("Should be four underscore separators: " + filename);
 						} else {
-							Matcher match = filePattern.matcher(filename);
-							if (!match.find()) {
+							if (!match.parse(filename)) {
 								errors.add("Invalid file name: " + filename);
 							} else {
-								String dataset = match.group("dataset");
-
-								if (!dataset.equals("D601") && !dataset.equals("D604") &&
-										!dataset.equals("D605")) {
+								if (!match.fieldEquals(DATASET, "D601") && !match.fieldEquals(DATASET, "D604") &&
+										!match.fieldEquals(DATASET, "D605")) {
 									errors.add("Invalid dataset: " + filename);
 								}
 
-								if (dataset.equals("D601") && !match.group("ext").equals("rgb")) {
+								if (match.fieldEquals(DATASET, "D601") && !match.fieldEquals(EXT, "rgb")) {
 									errors.add("Invalid file extension for D601: " + filename);
 								}
 
-								if (dataset.equals("D604") && !match.group("ext").equals("tif")) {
+								if (match.fieldEquals(DATASET, "D604") && !match.fieldEquals(EXT, "tif")) {
 									errors.add("Invalid file extension for D604: " + filename);
 								}
 
-								if (dataset.equals("D605") && !match.group("ext").equals("xml")) {
+								if (match.fieldEquals(DATASET, "D605") && !match.fieldEquals(EXT, "xml")) {
 									errors.add("Invalid file extension for D605: " + filename);
 								}
 
-								if (!match.group("tnam").equals(textureNameFilename)) {
+								if (!match.fieldEquals(TNAM, textureNameFilename)) {
 									errors.add("Texture Name Code does not match parent directory: "
 											+ filename);
 								}
 
-								if (match.group("cs1").length() != 3) {
-									errors.add("Component Selector 1 should be 3 characters: " + filename);
-								}
-
-								try {
-									Integer cs1 = Integer.parseInt(match.group("cs1"));
-
-									if (((cs1 < 10) && !match.group("cs1").substring(0,2).equals("00")) ||
-											((cs1 < 100) && !match.group("cs1").substring(0,1).equals("0"))) {
-										errors.add("Invalid padding on CS1: " + filename);
-									}
-								}
-								catch (NumberFormatException e) {
-									errors.add("Invalid CS1 number format: " + filename);
-								}
-								catch (StringIndexOutOfBoundsException e) {
-									errors.add("Invalid CS1 length: " + filename);
-								}
-
-								if (match.group("cs2").length() != 3) {
-									errors.add("Component Selector 2 should be 3 characters: " + filename);
-								}
-
-								try {
-									Integer cs2 = Integer.parseInt(match.group("cs2"));
-
-									if (((cs2 < 10) && !match.group("cs2").substring(0,2).equals("00")) ||
-											((cs2 < 100) && !match.group("cs2").substring(0,1).equals("0"))) {
-										errors.add("Invalid padding on CS2: " + filename);
-									}
-								}
-								catch (NumberFormatException e) {
-									errors.add("Invalid CS2 number format: " + filename);
-								}
-								catch (StringIndexOutOfBoundsException e) {
-									errors.add("Invalid CS2 length: " + filename);
+								for (NamingGrammar.Violation violation : match.getViolations()) {
+									errors.add(violation.getMessage(filename));
 								}
 
 							}
@@ -241,7 +207,7 @@ public class MModelTextureStructureTests extends CommonFixture {
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		assertNoViolations(errors, mmtDir, 4);
 	}
 
 }
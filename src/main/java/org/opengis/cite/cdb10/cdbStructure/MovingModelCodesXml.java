@@ -1,79 +1,96 @@
 package org.opengis.cite.cdb10.cdbStructure;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.opengis.cite.cdb10.metadataAndVersioning.MetadataXmlFile;
 import org.opengis.cite.cdb10.util.XMLUtils;
+import org.testng.Assert;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+/**
+ * The DIS entity kinds, domains and categories of Moving_Model_Codes.xml. The
+ * file is read once, on the first lookup, into a {@link CodeTable} per level.
+ * As with the former XPath lookups, a domain or category code is looked up
+ * across all kinds and domains, and the first match in document order wins.
+ */
 public class MovingModelCodesXml extends MetadataXmlFile {
+
+	private volatile CodeTable[] tables;
+
 	public MovingModelCodesXml(String path) {
 		super(path, "Moving_Model_Codes.xml", "Moving_Model_Codes.xsd");
 	}
 
-	public boolean isValidCategoryCode(Integer code) {
-		NodeList matches = XMLUtils.getNodeList("/Moving_Model_Codes/Kind/Domain/Category[@code = \"" +
-				code.toString() + "\"]", this.xmlFile.toPath());
+	@Override
+	public void load() {
+		getTables();
+	}
 
-		return (matches.getLength() > 0);
+	/**
+	 * @return The kind, domain and category tables.
+	 */
+	private CodeTable[] getTables() {
+		CodeTable[] result = this.tables;
+		if (null == result) {
+			synchronized (this) {
+				result = this.tables;
+				if (null == result) {
+					NodeList kindNodes = XMLUtils.getNodeList("/Moving_Model_Codes/Kind", this.xmlFile.toPath());
+					Assert.assertNotNull(kindNodes, "Unable to read " + this.xmlFile.getName());
+					List<Node> kinds = XMLUtils.asList(kindNodes);
+					List<Node> domains = new ArrayList<Node>();
+					List<Node> categories = new ArrayList<Node>();
+					for (Node kind : kinds) {
+						for (Node domain : XMLUtils.getChildElements(kind, "Domain")) {
+							domains.add(domain);
+							categories.addAll(XMLUtils.getChildElements(domain, "Category"));
+						}
+					}
+					result = new CodeTable[] { new CodeTable(kinds), new CodeTable(domains),
+							new CodeTable(categories) };
+					this.tables = result;
+				}
+			}
+		}
+		return result;
 	}
 
-	public boolean isValidDomainCode(Integer code) {
-		NodeList matches = XMLUtils.getNodeList("/Moving_Model_Codes/Kind/Domain[@code = \"" +
-				code.toString() + "\"]", this.xmlFile.toPath());
+	public boolean isValidCategoryCode(Integer code) {
+		return getTables()[2].containsCode(code);
+	}
 
-		return (matches.getLength() > 0);
+	public boolean isValidDomainCode(Integer code) {
+		return getTables()[1].containsCode(code);
 	}
 
 	public boolean isValidKindCode(Integer code) {
-		NodeList matches = XMLUtils.getNodeList("/Moving_Model_Codes/Kind[@code = \"" + code.toString() +
-				"\"]", this.xmlFile.toPath());
-
-		return (matches.getLength() > 0);
+		return getTables()[0].containsCode(code);
 	}
 
 	public boolean isValidCategoryName(String name) {
-		NodeList matches = XMLUtils.getNodeList("/Moving_Model_Codes/Kind/Domain/Category[@name = \"" +
-				name + "\"]", this.xmlFile.toPath());
-
-		return (matches.getLength() > 0);
+		return getTables()[2].containsName(name);
 	}
 
 	public boolean isValidDomainName(String name) {
-		NodeList matches = XMLUtils.getNodeList("/Moving_Model_Codes/Kind/Domain[@name = \"" + name + "\"]",
-				this.xmlFile.toPath());
-
-		return (matches.getLength() > 0);
+		return getTables()[1].containsName(name);
 	}
 
 	public boolean isValidKindName(String name) {
-		NodeList matches = XMLUtils.getNodeList("/Moving_Model_Codes/Kind[@name = \"" + name + "\"]",
-				this.xmlFile.toPath());
-
-		return (matches.getLength() > 0);
+		return getTables()[0].containsName(name);
 	}
 
 	public String categoryNameForCode(Integer code) {
-		NodeList matches = XMLUtils.getNodeList("/Moving_Model_Codes/Kind/Domain/Category[@code = \"" +
-				code.toString() + "\"]", this.xmlFile.toPath());
-		Node currentItem = matches.item(0);
-		String name = currentItem.getAttributes().getNamedItem("name").getNodeValue();
-		return name;
+		return getTables()[2].nameForCode(code);
 	}
 
 	public String domainNameForCode(Integer code) {
-		NodeList matches = XMLUtils.getNodeList("/Moving_Model_Codes/Kind/Domain[@code = \"" +
-				code.toString() + "\"]", this.xmlFile.toPath());
-		Node currentItem = matches.item(0);
-		String name = currentItem.getAttributes().getNamedItem("name").getNodeValue();
-		return name;
+		return getTables()[1].nameForCode(code);
 	}
 
 	public String kindNameForCode(Integer code) {
-		NodeList matches = XMLUtils.getNodeList("/Moving_Model_Codes/Kind[@code = \"" + code.toString() +
-				"\"]", this.xmlFile.toPath());
-		Node currentItem = matches.item(0);
-		String name = currentItem.getAttributes().getNamedItem("name").getNodeValue();
-		return name;
+		return getTables()[0].nameForCode(code);
 	}
 
 }
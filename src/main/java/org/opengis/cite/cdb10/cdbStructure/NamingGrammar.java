@@ -0,0 +1,615 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The grammar of the names of one family of CDB files, compiled into a
+ * matcher that reads a name once from left to right. A grammar is a sequence
+ * of segments (literals, alternatives, digits, text up to a delimiter, an LOD
+ * and a file extension); named segments and groups of segments are the fields
+ * of the name.
+ * <p>
+ * Grammars are checked when they are compiled so that every segment can be
+ * matched without backtracking, which makes the matcher equivalent to the
+ * regular expression with the same segments. See {@link CdbFileNames} for the
+ * grammars of the CDB file families.
+ * </p>
+ */
+final class NamingGrammar {
+
+	/**
+	 * The maximum length of a segment with no upper bound.
+	 */
+	static final int UNBOUNDED = Integer.MAX_VALUE;
+
+	private enum Kind {
+		LITERAL, ONE_OF, DIGITS, TEXT, LOD, EXTENSION
+	}
+
+	private final String family;
+	private final Segment[] segments;
+	private final String[] fields;
+	private final int[] firstSegment;
+	private final int[] lastSegment;
+	private final Violation[][] selectorViolations;
+
+	private NamingGrammar(Builder builder) {
+		this.family = builder.family;
+		this.segments = builder.segments.toArray(new Segment[builder.segments.size()]);
+		this.fields = builder.fields.toArray(new String[builder.fields.size()]);
+		this.firstSegment = new int[fields.length];
+		this.lastSegment = new int[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			firstSegment[i] = builder.firstSegment.get(i);
+			lastSegment[i] = builder.lastSegment.get(i);
+		}
+		this.selectorViolations = new Violation[segments.length][];
+		for (int i = 0; i < segments.length; i++) {
+			int selector = segments[i].componentSelector;
+			if (selector > 0) {
+				Violation.Code[] codes = Violation.Code.values();
+				selectorViolations[i] = new Violation[codes.length];
+				for (Violation.Code code : codes) {
+					selectorViolations[i][code.ordinal()] = new Violation(code, selector);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Starts the grammar of a family of files.
+	 *
+	 * @param family
+	 *            The name of the family, used in error messages.
+	 * @return A builder for the grammar.
+	 */
+	static Builder builder(String family) {
+		return new Builder(family);
+	}
+
+	/**
+	 * @return A new matcher for this grammar. A matcher can be reused for any
+	 *         number of names but is not safe to share between threads.
+	 */
+	NameMatch matcher() {
+		return new NameMatch(this);
+	}
+
+	/**
+	 * Resolves a field to the handle the accessors of {@link NameMatch} take.
+	 * Resolve fields once, into constants, so that a name can be read without
+	 * looking up its fields and a mistyped field fails when the class is
+	 * loaded.
+	 *
+	 * @param field
+	 *            The name of the field.
+	 * @return The handle of the field.
+	 * @throws IllegalArgumentException
+	 *             If the grammar has no such field.
+	 */
+	int field(String field) {
+		for (int i = 0; i < fields.length; i++) {
+			if (fields[i].equals(field)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("No field " + field + " in the " + family + " file names");
+	}
+
+	/**
+	 * The result of matching a name against a grammar: the offsets of each
+	 * field in the name and the violations of the component selector rules.
+	 * Fields are read through the handles of {@link NamingGrammar#field(String)};
+	 * reading a field does not create strings.
+	 */
+	static final class NameMatch {
+
+		private final NamingGrammar grammar;
+		private final int[] starts;
+		private final int[] ends;
+		private final long[] values;
+		private final List<Violation> violations = new ArrayList<Violation>();
+		private CharSequence name;
+		private boolean matched;
+
+		private NameMatch(NamingGrammar grammar) {
+			this.grammar = grammar;
+			this.starts = new int[grammar.segments.length];
+			this.ends = new int[grammar.segments.length];
+			this.values = new long[grammar.segments.length];
+		}
+
+		/**
+		 * Matches a name against the grammar.
+		 *
+		 * @param fileName
+		 *            The file name.
+		 * @return true if the name matches the grammar.
+		 */
+		boolean parse(CharSequence fileName) {
+			this.name = fileName;
+			this.violations.clear();
+			this.matched = false;
+			int pos = 0;
+			Segment[] segments = grammar.segments;
+			for (int i = 0; i < segments.length; i++) {
+				starts[i] = pos;
+				pos = segments[i].match(fileName, pos, i, this);
+				if (pos < 0) {
+					return false;
+				}
+				ends[i] = (segments[i].kind == Kind.EXTENSION) ? trimmedEnd(fileName, starts[i]) : pos;
+			}
+			if (pos != fileName.length() && trimmedEnd(fileName, pos) != pos) {
+				return false;
+			}
+			for (int i = 0; i < segments.length; i++) {
+				if (segments[i].componentSelector > 0) {
+					checkComponentSelector(i);
+				}
+			}
+			matched = true;
+			return true;
+		}
+
+		/**
+		 * Checks a component selector as the structure tests always have: it
+		 * should have three digits, a selector of one digit cannot be padded,
+		 * a selector of two digits is badly padded unless it is 00 and a
+		 * selector must fit in an int.
+		 */
+		private void checkComponentSelector(int segment) {
+			Violation[] codes = grammar.selectorViolations[segment];
+			int length = ends[segment] - starts[segment];
+			if (length != 3) {
+				violations.add(codes[Violation.Code.WIDTH.ordinal()]);
+			}
+			if (values[segment] > Integer.MAX_VALUE) {
+				violations.add(codes[Violation.Code.NUMBER_FORMAT.ordinal()]);
+			} else if (length == 1) {
+				violations.add(codes[Violation.Code.LENGTH.ordinal()]);
+			} else if (length == 2 && values[segment] != 0) {
+				violations.add(codes[Violation.Code.PADDING.ordinal()]);
+			}
+		}
+
+		/**
+		 * @return The violations of the component selector rules, in the order
+		 *         of the selectors; empty if the name did not match.
+		 */
+		List<Violation> getViolations() {
+			return Collections.unmodifiableList(violations);
+		}
+
+		/**
+		 * @return true if a field equals a value.
+		 */
+		boolean fieldEquals(int field, CharSequence value) {
+			int start = starts[grammar.firstSegment[field]];
+			int end = ends[grammar.lastSegment[field]];
+			if (!matched || value.length() != end - start) {
+				return false;
+			}
+			for (int i = start; i < end; i++) {
+				if (name.charAt(i) != value.charAt(i - start)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @return true if a field equals the start of a value, such as a
+		 *         dataset code and the name of its dataset directory.
+		 */
+		boolean fieldStarts(int field, CharSequence value) {
+			int start = starts[grammar.firstSegment[field]];
+			int end = ends[grammar.lastSegment[field]];
+			if (!matched || value.length() < end - start) {
+				return false;
+			}
+			for (int i = start; i < end; i++) {
+				if (name.charAt(i) != value.charAt(i - start)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Returns the value of a digits field, Long.MAX_VALUE if it does not fit
+		 * in a long, or the level of an LOD field, 0 for LC.
+		 *
+		 * @param field
+		 *            A digits or LOD field.
+		 * @return The value of the field.
+		 */
+		long getNumber(int field) {
+			int segment = grammar.firstSegment[field];
+			Kind kind = grammar.segments[segment].kind;
+			if (segment != grammar.lastSegment[field] || (kind != Kind.DIGITS && kind != Kind.LOD)) {
+				throw new IllegalArgumentException(grammar.fields[field] + " is not a number");
+			}
+			return values[segment];
+		}
+
+		/**
+		 * @return The offset of the start of a field.
+		 */
+		int start(int field) {
+			return starts[grammar.firstSegment[field]];
+		}
+
+		/**
+		 * @return The offset after the end of a field.
+		 */
+		int end(int field) {
+			return ends[grammar.lastSegment[field]];
+		}
+	}
+
+	/**
+	 * A component selector rule broken by a name that matches the grammar.
+	 */
+	static final class Violation {
+
+		enum Code {
+			/** The selector does not have three digits. */
+			WIDTH,
+			/** The selector has one digit, too short to be padded. */
+			LENGTH,
+			/** The selector has two digits. */
+			PADDING,
+			/** The selector does not fit in an int. */
+			NUMBER_FORMAT
+		}
+
+		private final Code code;
+		private final int selector;
+
+		private Violation(Code code, int selector) {
+			this.code = code;
+			this.selector = selector;
+		}
+
+		Code getCode() {
+			return code;
+		}
+
+		/**
+		 * @return The component selector, 1 or 2.
+		 */
+		int getSelector() {
+			return selector;
+		}
+
+		/**
+		 * @param fileName
+		 *            The file name.
+		 * @return The error message of the structure tests.
+		 */
+		String getMessage(String fileName) {
+			switch (code) {
+			case WIDTH:
+				return "Component Selector " + selector + " should be 3 characters: " + fileName;
+			case LENGTH:
+				return "Invalid CS" + selector + " length: " + fileName;
+			case PADDING:
+				return "Invalid padding on CS" + selector + ": " + fileName;
+			default:
+				return "Invalid CS" + selector + " number format: " + fileName;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return code + " CS" + selector;
+		}
+	}
+
+	/**
+	 * Builds a grammar one segment at a time, from the start of the name.
+	 */
+	static final class Builder {
+
+		private final String family;
+		private final List<Segment> segments = new ArrayList<Segment>();
+		private final List<String> fields = new ArrayList<String>();
+		private final List<Integer> firstSegment = new ArrayList<Integer>();
+		private final List<Integer> lastSegment = new ArrayList<Integer>();
+		private int openGroup = -1;
+
+		private Builder(String family) {
+			this.family = family;
+		}
+
+		/**
+		 * Adds text that must appear as is.
+		 */
+		Builder literal(String text) {
+			return add(null, new Segment(Kind.LITERAL, text));
+		}
+
+		/**
+		 * Adds one of several texts, none of which may start another.
+		 */
+		Builder oneOf(String field, String... alternatives) {
+			for (int i = 0; i < alternatives.length; i++) {
+				for (int j = 0; j < alternatives.length; j++) {
+					if (i != j && alternatives[j].startsWith(alternatives[i])) {
+						throw new IllegalArgumentException(family + ": " + alternatives[i] + " is a prefix of "
+								+ alternatives[j]);
+					}
+				}
+			}
+			return add(field, new Segment(Kind.ONE_OF, alternatives));
+		}
+
+		/**
+		 * Adds between min and max ASCII digits.
+		 */
+		Builder digits(String field, int min, int max) {
+			return add(field, new Segment(min, max, 0));
+		}
+
+		/**
+		 * Adds a component selector, one or more digits checked by the
+		 * component selector rules.
+		 *
+		 * @param selector
+		 *            The number of the selector, 1 or 2.
+		 */
+		Builder componentSelector(String field, int selector) {
+			return add(field, new Segment(1, UNBOUNDED, selector));
+		}
+
+		/**
+		 * Adds one or more characters other than a delimiter.
+		 */
+		Builder text(String field, char delimiter) {
+			Segment segment = new Segment(Kind.TEXT);
+			segment.delimiter = delimiter;
+			return add(field, segment);
+		}
+
+		/**
+		 * Adds a level of detail, LC or L followed by two digits.
+		 */
+		Builder lod(String field) {
+			return add(field, new Segment(Kind.LOD));
+		}
+
+		/**
+		 * Adds the rest of the name, one or more characters other than line
+		 * terminators. It must be the last segment.
+		 */
+		Builder extension(String field) {
+			return add(field, new Segment(Kind.EXTENSION));
+		}
+
+		/**
+		 * Starts a field made of the following segments.
+		 */
+		Builder begin(String field) {
+			if (openGroup >= 0) {
+				throw new IllegalStateException(family + ": groups cannot be nested");
+			}
+			openGroup = addField(field, segments.size());
+			return this;
+		}
+
+		/**
+		 * Ends the field started by {@link #begin(String)}.
+		 */
+		Builder end() {
+			if (openGroup < 0 || firstSegment.get(openGroup) == segments.size()) {
+				throw new IllegalStateException(family + ": empty or unopened group");
+			}
+			lastSegment.set(openGroup, segments.size() - 1);
+			openGroup = -1;
+			return this;
+		}
+
+		/**
+		 * Checks that every segment can be matched without backtracking.
+		 *
+		 * @return The grammar.
+		 */
+		NamingGrammar compile() {
+			if (openGroup >= 0) {
+				throw new IllegalStateException(family + ": group " + fields.get(openGroup) + " is not ended");
+			}
+			for (int i = 0; i < segments.size(); i++) {
+				Segment segment = segments.get(i);
+				if (segment.kind == Kind.EXTENSION && i != segments.size() - 1) {
+					throw new IllegalArgumentException(family + ": the extension must be the last segment");
+				}
+				boolean repeats = segment.kind == Kind.TEXT
+						|| (segment.kind == Kind.DIGITS && segment.min != segment.max);
+				if (repeats && i < segments.size() - 1 && segments.get(i + 1).canStartWithin(segment)) {
+					throw new IllegalArgumentException(family + ": segment " + i
+							+ " cannot be told apart from the segment after it");
+				}
+			}
+			return new NamingGrammar(this);
+		}
+
+		private Builder add(String field, Segment segment) {
+			if (null != field) {
+				addField(field, segments.size());
+			}
+			segments.add(segment);
+			return this;
+		}
+
+		private int addField(String field, int segment) {
+			if (fields.contains(field)) {
+				throw new IllegalArgumentException(family + ": duplicate field " + field);
+			}
+			fields.add(field);
+			firstSegment.add(segment);
+			lastSegment.add(segment);
+			return fields.size() - 1;
+		}
+	}
+
+	private static final class Segment {
+
+		private final Kind kind;
+		private final String[] texts;
+		private final int min;
+		private final int max;
+		private final int componentSelector;
+		private char delimiter;
+
+		Segment(Kind kind, String... texts) {
+			this.kind = kind;
+			this.texts = Arrays.copyOf(texts, texts.length);
+			this.min = 0;
+			this.max = 0;
+			this.componentSelector = 0;
+		}
+
+		Segment(int min, int max, int componentSelector) {
+			if (min < 1 || max < min) {
+				throw new IllegalArgumentException("Invalid digit count " + min + ".." + max);
+			}
+			this.kind = Kind.DIGITS;
+			this.texts = new String[0];
+			this.min = min;
+			this.max = max;
+			this.componentSelector = componentSelector;
+		}
+
+		/**
+		 * @return true if this segment can start with a character that the
+		 *         repeating segment before it would consume.
+		 */
+		boolean canStartWithin(Segment previous) {
+			switch (kind) {
+			case LITERAL:
+			case ONE_OF:
+				for (String text : texts) {
+					if (previous.accepts(text.charAt(0))) {
+						return true;
+					}
+				}
+				return false;
+			case DIGITS:
+				return previous.accepts('0');
+			case LOD:
+				return previous.accepts('L');
+			default:
+				return true;
+			}
+		}
+
+		private boolean accepts(char c) {
+			return (kind == Kind.TEXT) ? c != delimiter : isDigit(c);
+		}
+
+		/**
+		 * @return The offset after the segment, or -1 if it does not match.
+		 */
+		int match(CharSequence name, int pos, int index, NameMatch match) {
+			int length = name.length();
+			switch (kind) {
+			case LITERAL:
+				return regionMatches(name, pos, texts[0]) ? pos + texts[0].length() : -1;
+			case ONE_OF:
+				for (String text : texts) {
+					if (regionMatches(name, pos, text)) {
+						return pos + text.length();
+					}
+				}
+				return -1;
+			case DIGITS: {
+				long value = 0;
+				int end = pos;
+				while (end < length && end - pos < max && isDigit(name.charAt(end))) {
+					value = accumulate(value, name.charAt(end));
+					end++;
+				}
+				match.values[index] = value;
+				return (end - pos < min) ? -1 : end;
+			}
+			case TEXT: {
+				int end = pos;
+				while (end < length && name.charAt(end) != delimiter) {
+					end++;
+				}
+				return (end == pos) ? -1 : end;
+			}
+			case LOD:
+				if (pos + 1 < length && name.charAt(pos) == 'L') {
+					if (name.charAt(pos + 1) == 'C') {
+						match.values[index] = 0;
+						return pos + 2;
+					}
+					if (pos + 2 < length && isDigit(name.charAt(pos + 1)) && isDigit(name.charAt(pos + 2))) {
+						match.values[index] = (name.charAt(pos + 1) - '0') * 10 + (name.charAt(pos + 2) - '0');
+						return pos + 3;
+					}
+				}
+				return -1;
+			default: {
+				int end = trimmedEnd(name, pos);
+				if (end <= pos) {
+					return -1;
+				}
+				for (int i = pos; i < end; i++) {
+					if (isLineTerminator(name.charAt(i))) {
+						return -1;
+					}
+				}
+				return length;
+			}
+			}
+		}
+	}
+
+	/**
+	 * Returns the end of a name without one final line terminator, which the
+	 * $ of a regular expression allows.
+	 */
+	private static int trimmedEnd(CharSequence name, int from) {
+		int end = name.length();
+		if (end - from >= 2 && name.charAt(end - 2) == '\r' && name.charAt(end - 1) == '\n') {
+			return end - 2;
+		}
+		if (end > from && isLineTerminator(name.charAt(end - 1))) {
+			return end - 1;
+		}
+		return end;
+	}
+
+	private static boolean regionMatches(CharSequence name, int pos, String text) {
+		if (pos + text.length() > name.length()) {
+			return false;
+		}
+		for (int i = 0; i < text.length(); i++) {
+			if (name.charAt(pos + i) != text.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long accumulate(long value, char digit) {
+		if (value > (Long.MAX_VALUE - 9) / 10) {
+			return Long.MAX_VALUE;
+		}
+		return value * 10 + (digit - '0');
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+}
@@ -1,41 +1,38 @@
 package org.opengis.cite.cdb10.cdbStructure;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.opengis.cite.cdb10.CommonFixture;
+import org.opengis.cite.cdb10.util.ErrorCollector;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 public class NavigationStructureTests extends CommonFixture {
+	private static final int DATASET = CdbFileNames.NAVIGATION.field("dataset");
+
 	/**
 	 * Validate the Navigation datasets.
 	 * Test based on Section 3.7, Volume 1, OGC CDB Core Standard (Version 1.0)
 	 */
 	@Test
 	public void verifyDatasets() throws IOException {
-		Path navPath = Paths.get(this.path, "Navigation");
+		CdbTreeEntry navDir = getCdbTree().find("Navigation");
 
-		if (Files.notExists(navPath)) {
+		if (navDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
+		ErrorCollector errors = new ErrorCollector();
 
-		for (Path file : Files.newDirectoryStream(navPath)) {
-			String filename = file.getFileName().toString();
+		for (CdbTreeEntry file : navDir.getChildren()) {
+			String filename = file.getName();
 			if (!filename.equals("400_NavDat")) {
 				errors.add("Invalid dataset: " + filename);
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		Assert.assertTrue(errors.isEmpty(), errors.getMessage());
 	}
 
 	/**
@@ -46,76 +43,41 @@ public class NavigationStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyFile() throws IOException {
-		Path navPath = Paths.get(this.path, "Navigation", "400_NavDat");
+		CdbTreeEntry navDir = getCdbTree().find("Navigation", "400_NavDat");
 
-		if (Files.notExists(navPath)) {
+		if (navDir == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
+		ErrorCollector errors = new ErrorCollector();
 		/*
 		 * Example of valid filename:
 		 * D400_S001_T002.dbf
 		 */
-		Pattern filePattern = Pattern.compile("^(?<dataset>[^_]+)_S(?<cs1>\\d+)_T(?<cs2>\\d+)\\.(?<ext>.+)$");
+		NamingGrammar.NameMatch match = CdbFileNames.NAVIGATION.matcher();
 
-		for (Path file : Files.newDirectoryStream(navPath)) {
-			String filename = file.getFileName().toString();
+		for (CdbTreeEntry file : navDir.getChildren()) {
+			String filename = file.getName();
 
 			if (StringUtils.countMatches(filename, "_") != 2) {
 				errors.add("Should be two underscore separators: " + filename);
 			} else {
-				Matcher match = filePattern.matcher(filename);
-				if (!match.find()) {
+				if (!match.parse(filename)) {
 					errors.add("Invalid file name: " + filename);
 				} else {
-					if (!match.group("dataset").equals("D400")) {
+					if (!match.fieldEquals(DATASET, "D400")) {
 						errors.add("Invalid dataset: " + filename);
 					}
 
-					if (match.group("cs1").length() != 3) {
-						errors.add("Component Selector 1 should be 3 characters: " + filename);
-					}
-
-					try {
-						Integer cs1 = Integer.parseInt(match.group("cs1"));
-
-						if (((cs1 < 10) && !match.group("cs1").substring(0,2).equals("00")) ||
-								((cs1 < 100) && !match.group("cs1").substring(0,1).equals("0"))) {
-							errors.add("Invalid padding on CS1: " + filename);
-						}
-					}
-					catch (NumberFormatException e) {
-						errors.add("Invalid CS1 number format: " + filename);
-					}
-					catch (StringIndexOutOfBoundsException e) {
-						errors.add("Invalid CS1 length: " + filename);
-					}
-
-					if (match.group("cs2").length() != 3) {
-						errors.add("Component Selector 2 should be 3 characters: " + filename);
-					}
-
-					try {
-						Integer cs2 = Integer.parseInt(match.group("cs2"));
-
-						if (((cs2 < 10) && !match.group("cs2").substring(0,2).equals("00")) ||
-								((cs2 < 100) && !match.group("cs2").substring(0,1).equals("0"))) {
-							errors.add("Invalid padding on CS2: " + filename);
-						}
-					}
-					catch (NumberFormatException e) {
-						errors.add("Invalid CS2 number format: " + filename);
-					}
-					catch (StringIndexOutOfBoundsException e) {
-						errors.add("Invalid CS2 length: " + filename);
+					for (NamingGrammar.Violation violation : match.getViolations()) {
+						errors.add(violation.getMessage(filename));
 					}
 
 				}
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		Assert.assertTrue(errors.isEmpty(), errors.getMessage());
 	}
 
 }
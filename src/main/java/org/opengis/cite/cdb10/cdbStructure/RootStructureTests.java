@@ -1,14 +1,11 @@
 package org.opengis.cite.cdb10.cdbStructure;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 
-import org.apache.commons.lang3.StringUtils;
 import org.opengis.cite.cdb10.CommonFixture;
+import org.opengis.cite.cdb10.util.ErrorCollector;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -25,17 +22,17 @@ public class RootStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyRootContents() throws IOException {
-		ArrayList<String> errors = new ArrayList<String>();
+		ErrorCollector errors = new ErrorCollector();
 		ArrayList<String> permittedRootDirectories = new ArrayList<String>(
 				Arrays.asList("Metadata", "GTModel", "MModel", "Tiles", "Navigation"));
 
-		for (Path file : Files.newDirectoryStream(Paths.get(this.path))) {
-			String filename = file.getFileName().toString();
+		for (CdbTreeEntry file : getCdbTree().getRootEntry().getChildren()) {
+			String filename = file.getName();
 			if (!permittedRootDirectories.contains(filename)) {
 				errors.add("Invalid file in root directory: " + filename);
 			}
 		}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		Assert.assertTrue(errors.isEmpty(), errors.getMessage());
 	}
 }
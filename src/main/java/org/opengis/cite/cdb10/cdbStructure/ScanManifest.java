@@ -0,0 +1,589 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.opengis.cite.cdb10.util.ErrorCollector;
+
+/**
+ * An on-disk record of a previous scan of a CDB, used to re-validate a CDB
+ * incrementally. The manifest is a gzipped, tab-separated file holding, for
+ * every directory, its path relative to the CDB root, its modification time,
+ * its number of entries and a 64-bit digest of their names and types,
+ * together with the per-rule violations found in each unit of work (e.g. each
+ * Tiles geocell).
+ *
+ * <p>
+ * On the next run the entries of a directory whose modification time is
+ * unchanged are read by name only and no entry is examined: an entry is
+ * taken to be a directory if the manifest has a record for it, so the types
+ * come from the manifest itself. Only the names are checked, against the
+ * entry count and digest of the directory's record; the directory is listed
+ * again if they differ. A unit whose whole subtree is unchanged reuses the
+ * stored violations instead of being checked again. Violations are not held in memory: those of the previous run are
+ * copied to a temporary file when the manifest is loaded, and those of this
+ * run are written to another as each unit is checked, to be merged into the
+ * manifest at the end of the run. Stored violations are discarded if the rule
+ * set version or the contents of the Metadata XML files differ from those of
+ * the previous run.
+ * Directories modified shortly before the previous scan are always listed
+ * again, since a later change within the same timestamp granularity would go
+ * unnoticed.
+ * </p>
+ */
+public class ScanManifest {
+
+	/**
+	 * The version of the structure rules. Increase it whenever a rule is added
+	 * or changed, so that violations stored by an older suite are not reused.
+	 */
+	public static final String RULESET_VERSION = "1";
+
+	private static final String FORMAT = "cdb10-scan-manifest/2";
+
+	/**
+	 * Directories modified within this many milliseconds before a scan are
+	 * not trusted on the next run.
+	 */
+	private static final long MTIME_GRANULARITY = 2000;
+
+	private final Path file;
+	private final String metadataDigest;
+	private final long scanStart;
+	private final long previousScanStart;
+	private final Map<String, DirectoryRecord> directories;
+	private final Map<String, VerdictBlock> previousVerdicts;
+	private final Path previousVerdictsFile;
+	private Path verdictsFile;
+	private Writer verdicts;
+	private IOException recordingFailure;
+
+	ScanManifest(Path file, String metadataDigest, long previousScanStart, Map<String, DirectoryRecord> directories,
+			Map<String, VerdictBlock> previousVerdicts, Path previousVerdictsFile) {
+		this.file = file;
+		this.metadataDigest = metadataDigest;
+		this.scanStart = System.currentTimeMillis();
+		this.previousScanStart = previousScanStart;
+		this.directories = directories;
+		this.previousVerdicts = previousVerdicts;
+		this.previousVerdictsFile = previousVerdictsFile;
+	}
+
+	/**
+	 * Reads the manifest left by a previous run. A missing manifest, or one
+	 * written in an unknown format, yields an empty manifest. Only the
+	 * modification time, entry count and digest of each directory are kept
+	 * in memory.
+	 *
+	 * @param file
+	 *            The location of the manifest; it is rewritten there by
+	 *            {@link #write(CdbTreeSnapshot)}.
+	 * @param cdbRoot
+	 *            The CDB root directory, used to fingerprint the Metadata XML
+	 *            files.
+	 * @return The manifest.
+	 * @throws IOException
+	 *             If the manifest or the Metadata files cannot be read, or the
+	 *             manifest is malformed.
+	 */
+	public static ScanManifest load(Path file, Path cdbRoot) throws IOException {
+		String metadataDigest = metadataDigest(cdbRoot.resolve("Metadata"));
+		Map<String, DirectoryRecord> directories = new HashMap<String, DirectoryRecord>();
+		Map<String, VerdictBlock> previousVerdicts = new HashMap<String, VerdictBlock>();
+		long previousScanStart = 0;
+
+		if (!Files.isRegularFile(file)) {
+			return new ScanManifest(file, metadataDigest, previousScanStart, directories, previousVerdicts, null);
+		}
+
+		Path verdictsFile = null;
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(file));
+				BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			String[] header = split(reader.readLine());
+			if (header.length != 4 || !header[0].equals(FORMAT)) {
+				return new ScanManifest(file, metadataDigest, previousScanStart, directories, previousVerdicts, null);
+			}
+			boolean verdictsValid = header[1].equals(RULESET_VERSION) && header[2].equals(metadataDigest);
+
+			OutputStream verdictsOut = null;
+			VerdictBlock block = null;
+			long position = 0;
+			int lineNumber = 1;
+			try {
+				previousScanStart = Long.parseLong(header[3]);
+				String line;
+				while ((line = reader.readLine()) != null) {
+					lineNumber++;
+					String[] fields = split(line);
+					if (fields[0].equals("D") && fields.length == 5) {
+						directories.put(fields[1], new DirectoryRecord(Long.parseLong(fields[2]),
+								Integer.parseInt(fields[3]), Long.parseUnsignedLong(fields[4], 16)));
+					} else if (!fields[0].equals("V") || fields.length < 3 || fields.length > 4) {
+						throw new IOException("Malformed scan manifest " + file + " at line " + lineNumber);
+					} else if (verdictsValid) {
+						if (null == verdictsOut) {
+							verdictsFile = Files.createTempFile("cdb-verdicts-", ".tsv");
+							verdictsFile.toFile().deleteOnExit();
+							verdictsOut = new BufferedOutputStream(Files.newOutputStream(verdictsFile));
+						}
+						// the violations of a unit are stored together, in one block
+						if (null == block || !block.unit.equals(fields[1])) {
+							if (previousVerdicts.containsKey(fields[1])) {
+								throw new IOException(
+										"Malformed scan manifest " + file + " at line " + lineNumber);
+							}
+							block = new VerdictBlock(fields[1], position);
+							previousVerdicts.put(block.unit, block);
+						}
+						if (fields.length > 3) {
+							byte[] bytes = joinFields(fields[2], fields[3]).getBytes(StandardCharsets.UTF_8);
+							verdictsOut.write(bytes);
+							position += bytes.length;
+							block.length += bytes.length;
+						} else if (!block.rules.contains(fields[2])) {
+							block.rules.add(fields[2]);
+						}
+					}
+				}
+			} catch (NumberFormatException e) {
+				throw new IOException("Malformed scan manifest " + file + " at line " + lineNumber, e);
+			} finally {
+				if (null != verdictsOut) {
+					verdictsOut.close();
+				}
+			}
+		} catch (IOException e) {
+			if (null != verdictsFile) {
+				Files.deleteIfExists(verdictsFile);
+			}
+			throw e;
+		}
+		return new ScanManifest(file, metadataDigest, previousScanStart, directories, previousVerdicts,
+				verdictsFile);
+	}
+
+	/**
+	 * @return The location the manifest is read from and written to.
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Wraps a directory lister so that the entries of directories unchanged
+	 * since the previous scan are read by name only, taking their types from
+	 * the manifest. If the names do not match the entry count and digest of
+	 * the previous scan, the directory is listed by the delegate instead.
+	 */
+	DirectoryLister lister(final DirectoryLister delegate) {
+		return new DirectoryLister() {
+			@Override
+			public List<CdbTreeEntry> list(CdbTreeEntry dir, Path dirPath) throws IOException {
+				String path = dir.getRelativePath();
+				DirectoryRecord record = directories.get(path);
+				if (null != record) {
+					long lastModified = Files.getLastModifiedTime(dirPath).toMillis();
+					if (isStable(record, lastModified)) {
+						String prefix = path.isEmpty() ? "" : path + "/";
+						List<CdbTreeEntry> children = new ArrayList<CdbTreeEntry>(record.entryCount);
+						long digest = 0;
+						try (DirectoryStream<Path> stream = Files.newDirectoryStream(dirPath)) {
+							for (Path child : stream) {
+								String name = child.getFileName().toString();
+								boolean directory = directories.containsKey(prefix + name);
+								children.add(new CdbTreeEntry(dir, name, directory));
+								digest += entryDigest(name, directory);
+							}
+						}
+						if (children.size() == record.entryCount && digest == record.digest) {
+							dir.setLastModified(lastModified);
+							return children;
+						}
+					}
+				}
+				return delegate.list(dir, dirPath);
+			}
+		};
+	}
+
+	private boolean isStable(DirectoryRecord record, long lastModified) {
+		return record.lastModified == lastModified && lastModified >= 0
+				&& lastModified < previousScanStart - MTIME_GRANULARITY;
+	}
+
+	/**
+	 * @param dir
+	 *            A directory in the current snapshot.
+	 * @return true if neither dir nor any directory below it has changed since
+	 *         the previous scan.
+	 */
+	boolean isUnchanged(CdbTreeEntry dir) {
+		if (!dir.isDirectory()) {
+			return true;
+		}
+		DirectoryRecord record = directories.get(dir.getRelativePath());
+		if (null == record || !isStable(record, dir.getLastModified())
+				|| record.entryCount != dir.getChildren().size() || record.digest != childrenDigest(dir)) {
+			return false;
+		}
+		for (CdbTreeEntry child : dir.getChildren()) {
+			if (!isUnchanged(child)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param unit
+	 *            The relative path of a unit of work, e.g. "Tiles/N62/W162".
+	 * @return The names of the rules whose violations the previous run stored
+	 *         for the unit, or null if there are none or they are no longer
+	 *         valid.
+	 */
+	List<String> getPreviousRules(String unit) {
+		VerdictBlock block = previousVerdicts.get(unit);
+		return (null == block) ? null : Collections.unmodifiableList(block.rules);
+	}
+
+	/**
+	 * Adds the violations the previous run stored for a unit of work to the
+	 * collectors of their rules, and records them again for this run.
+	 *
+	 * @param unit
+	 *            The relative path of the unit.
+	 * @param errors
+	 *            The collectors, by rule name; violations of other rules are
+	 *            skipped.
+	 * @throws IOException
+	 *             If the stored violations cannot be read.
+	 */
+	synchronized void reuseVerdicts(String unit, Map<String, ErrorCollector> errors) throws IOException {
+		VerdictBlock block = previousVerdicts.get(unit);
+		if (null == block) {
+			return;
+		}
+		if (block.length == 0) {
+			beginUnit(unit, block.rules);
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(previousVerdictsFile, StandardOpenOption.READ)) {
+			channel.position(block.offset);
+			beginUnit(unit, block.rules);
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+			long read = 0;
+			String line;
+			while (read < block.length && (line = reader.readLine()) != null) {
+				read += line.getBytes(StandardCharsets.UTF_8).length + 1;
+				String[] fields = split(line);
+				ErrorCollector ruleErrors = errors.get(fields[0]);
+				if (fields.length == 2 && null != ruleErrors) {
+					ruleErrors.add(fields[1]);
+					recordVerdict(unit, fields[0], fields[1]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Starts recording the violations found in a unit of work during this run.
+	 * Violations are written to a temporary file as they are recorded, and
+	 * merged into the manifest by {@link #write(CdbTreeSnapshot)}.
+	 *
+	 * @param unit
+	 *            The relative path of the unit.
+	 * @param rules
+	 *            The names of the rules checked in the unit.
+	 */
+	synchronized void beginUnit(String unit, Collection<String> rules) {
+		for (String rule : rules) {
+			record("V", unit, rule);
+		}
+	}
+
+	/**
+	 * Records a violation found in a unit of work during this run.
+	 *
+	 * @param unit
+	 *            The relative path of the unit, as given to
+	 *            {@link #beginUnit(String, Collection)}.
+	 * @param rule
+	 *            The name of the rule.
+	 * @param error
+	 *            The violation.
+	 */
+	synchronized void recordVerdict(String unit, String rule, String error) {
+		record("V", unit, rule, error);
+	}
+
+	/**
+	 * Appends a line to the temporary file of this run's violations. A
+	 * failure is kept and reported by {@link #write(CdbTreeSnapshot)}, so
+	 * that it does not interrupt the checks.
+	 */
+	private void record(String... fields) {
+		if (null != recordingFailure) {
+			return;
+		}
+		try {
+			if (null == verdicts) {
+				verdictsFile = Files.createTempFile("cdb-verdicts-", ".tsv.gz");
+				verdictsFile.toFile().deleteOnExit();
+				verdicts = new BufferedWriter(new OutputStreamWriter(
+						new GZIPOutputStream(Files.newOutputStream(verdictsFile)), StandardCharsets.UTF_8));
+			}
+			writeLine(verdicts, fields);
+		} catch (IOException e) {
+			recordingFailure = e;
+		}
+	}
+
+	/**
+	 * Writes the manifest for the current run, replacing the previous one.
+	 *
+	 * @param snapshot
+	 *            The snapshot of the CDB taken during this run.
+	 * @throws IOException
+	 *             If the manifest cannot be written, or the violations of
+	 *             this run could not be recorded.
+	 */
+	public synchronized void write(CdbTreeSnapshot snapshot) throws IOException {
+		if (null != verdicts) {
+			verdicts.close();
+			verdicts = null;
+		}
+		if (null != recordingFailure) {
+			Files.deleteIfExists(verdictsFile);
+			throw recordingFailure;
+		}
+		Path dir = file.toAbsolutePath().getParent();
+		Files.createDirectories(dir);
+		Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+		try {
+			try (Writer writer = new BufferedWriter(
+					new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+				writeLine(writer, FORMAT, RULESET_VERSION, metadataDigest, Long.toString(scanStart));
+				writeDirectory(writer, snapshot.getRootEntry());
+
+				if (null != verdictsFile) {
+					try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+							new GZIPInputStream(Files.newInputStream(verdictsFile)), StandardCharsets.UTF_8))) {
+						String line;
+						while ((line = reader.readLine()) != null) {
+							writer.write(line);
+							writer.write('\n');
+						}
+					}
+				}
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tmp);
+			if (null != verdictsFile) {
+				Files.deleteIfExists(verdictsFile);
+				verdictsFile = null;
+			}
+			if (null != previousVerdictsFile) {
+				Files.deleteIfExists(previousVerdictsFile);
+			}
+		}
+	}
+
+	/**
+	 * Writes the record of a directory and of every directory below it. Every
+	 * directory has a record, so that the type of an entry can be told from
+	 * the manifest; the record of a directory whose listing cannot be reused,
+	 * such as a pruned listing, which is incomplete, has no modification time.
+	 */
+	private static void writeDirectory(Writer writer, CdbTreeEntry dir) throws IOException {
+		long lastModified = dir.isPruned() ? -1 : dir.getLastModified();
+		writeLine(writer, "D", dir.getRelativePath(), Long.toString(lastModified),
+				Integer.toString(dir.getChildren().size()), Long.toHexString(childrenDigest(dir)));
+		for (CdbTreeEntry child : dir.getChildren()) {
+			if (child.isDirectory()) {
+				writeDirectory(writer, child);
+			}
+		}
+	}
+
+	private static long childrenDigest(CdbTreeEntry dir) {
+		long digest = 0;
+		for (CdbTreeEntry child : dir.getChildren()) {
+			digest += entryDigest(child.getName(), child.isDirectory());
+		}
+		return digest;
+	}
+
+	/**
+	 * Hashes the name and type of a directory entry. The digest of a directory
+	 * is the sum of the hashes of its entries, so that it does not depend on
+	 * the order in which they are listed.
+	 */
+	static long entryDigest(String name, boolean directory) {
+		// FNV-1a, then the MurmurHash3 finalizer to spread the bits
+		long h = directory ? 0xcbf29ce484222325L : 0x84222325cbf29ce4L;
+		for (int i = 0; i < name.length(); i++) {
+			h ^= name.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private static String joinFields(String... fields) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < fields.length; i++) {
+			if (i > 0) {
+				sb.append('\t');
+			}
+			sb.append(escape(fields[i]));
+		}
+		return sb.append('\n').toString();
+	}
+
+	private static void writeLine(Writer writer, String... fields) throws IOException {
+		for (int i = 0; i < fields.length; i++) {
+			if (i > 0) {
+				writer.write('\t');
+			}
+			writer.write(escape(fields[i]));
+		}
+		writer.write('\n');
+	}
+
+	private static String escape(String field) {
+		StringBuilder sb = new StringBuilder(field.length());
+		for (int i = 0; i < field.length(); i++) {
+			char c = field.charAt(i);
+			if (c == '\\') {
+				sb.append("\\\\");
+			} else if (c == '\t') {
+				sb.append("\\t");
+			} else if (c == '\n') {
+				sb.append("\\n");
+			} else if (c == '\r') {
+				sb.append("\\r");
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String[] split(String line) {
+		if (null == line) {
+			return new String[0];
+		}
+		List<String> fields = new ArrayList<String>();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '\t') {
+				fields.add(sb.toString());
+				sb.setLength(0);
+			} else if (c == '\\' && i + 1 < line.length()) {
+				char next = line.charAt(++i);
+				sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+			} else {
+				sb.append(c);
+			}
+		}
+		fields.add(sb.toString());
+		return fields.toArray(new String[fields.size()]);
+	}
+
+	/**
+	 * Computes a SHA-256 digest over the names and contents of the XML files
+	 * in the Metadata directory, in name order.
+	 */
+	static String metadataDigest(Path metadataDir) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		if (Files.isDirectory(metadataDir)) {
+			List<Path> files = new ArrayList<Path>();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(metadataDir, "*.xml")) {
+				for (Path path : stream) {
+					files.add(path);
+				}
+			}
+			Collections.sort(files);
+			for (Path path : files) {
+				digest.update(path.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+				digest.update(Files.readAllBytes(path));
+			}
+		}
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * The violations stored for one unit of work by a previous scan, held as
+	 * a range of the temporary file they were copied to.
+	 */
+	static class VerdictBlock {
+
+		final String unit;
+		final long offset;
+		long length;
+		final List<String> rules = new ArrayList<String>();
+
+		VerdictBlock(String unit, long offset) {
+			this.unit = unit;
+			this.offset = offset;
+		}
+	}
+
+	/**
+	 * The state of one directory as recorded by a previous scan.
+	 */
+	static class DirectoryRecord {
+
+		final long lastModified;
+		final int entryCount;
+		final long digest;
+
+		DirectoryRecord(long lastModified, int entryCount, long digest) {
+			this.lastModified = lastModified;
+			this.entryCount = entryCount;
+			this.digest = digest;
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+/**
+ * Decodes the name of a tiled dataset file, such as
+ * N62W162_D001_S001_T001_L03_U2_R5.tif, with the {@link CdbFileNames#TILES}
+ * grammar. No strings are created, so one instance can decode every file of a
+ * CDB; an instance is not safe to share between threads.
+ */
+final class TileFileName {
+
+	private static final int LAT = CdbFileNames.TILES.field("lat");
+	private static final int LON = CdbFileNames.TILES.field("lon");
+	private static final int LATITUDE = CdbFileNames.TILES.field("latitude");
+	private static final int LONGITUDE = CdbFileNames.TILES.field("longitude");
+	private static final int LATITUDE_HEMISPHERE = CdbFileNames.TILES.field("latitudeHemisphere");
+	private static final int LONGITUDE_HEMISPHERE = CdbFileNames.TILES.field("longitudeHemisphere");
+	private static final int DATASET_CODE = CdbFileNames.TILES.field("datasetCode");
+	private static final int CS1 = CdbFileNames.TILES.field("cs1");
+	private static final int CS2 = CdbFileNames.TILES.field("cs2");
+	private static final int LOD = CdbFileNames.TILES.field("lod");
+	private static final int UREF = CdbFileNames.TILES.field("uref");
+	private static final int UREF_VALUE = CdbFileNames.TILES.field("urefValue");
+	private static final int RREF = CdbFileNames.TILES.field("rref");
+	private static final int EXT = CdbFileNames.TILES.field("ext");
+
+	private final NamingGrammar.NameMatch match = CdbFileNames.TILES.matcher();
+
+	/**
+	 * Decodes a file name. The fields of this instance are only meaningful
+	 * if the name is valid.
+	 *
+	 * @param fileName
+	 *            The file name.
+	 * @return true if the name is a valid tiled dataset file name.
+	 */
+	boolean parse(CharSequence fileName) {
+		return match.parse(fileName);
+	}
+
+	/**
+	 * @return The number of degrees of the latitude, without its hemisphere.
+	 */
+	int getLatitude() {
+		return (int) match.getNumber(LATITUDE);
+	}
+
+	/**
+	 * @return The number of degrees of the longitude, without its hemisphere.
+	 */
+	int getLongitude() {
+		return (int) match.getNumber(LONGITUDE);
+	}
+
+	/**
+	 * @return The latitude of the geocell, negative in the south.
+	 */
+	int getSignedLatitude() {
+		return match.fieldEquals(LATITUDE_HEMISPHERE, "S") ? -getLatitude() : getLatitude();
+	}
+
+	/**
+	 * @return The longitude of the geocell, negative in the west.
+	 */
+	int getSignedLongitude() {
+		return match.fieldEquals(LONGITUDE_HEMISPHERE, "W") ? -getLongitude() : getLongitude();
+	}
+
+	int getDatasetCode() {
+		return (int) match.getNumber(DATASET_CODE);
+	}
+
+	int getCs1() {
+		return (int) match.getNumber(CS1);
+	}
+
+	int getCs2() {
+		return (int) match.getNumber(CS2);
+	}
+
+	/**
+	 * @return The level of detail, 0 for the coarse levels (LC).
+	 */
+	int getLod() {
+		return (int) match.getNumber(LOD);
+	}
+
+	/**
+	 * @return true if the level of detail is LC.
+	 */
+	boolean isCoarse() {
+		return match.end(LOD) - match.start(LOD) == 2;
+	}
+
+	/**
+	 * @return The UREF, or Long.MAX_VALUE if it does not fit in a long.
+	 */
+	long getUref() {
+		return match.getNumber(UREF_VALUE);
+	}
+
+	/**
+	 * @return The RREF, or Long.MAX_VALUE if it does not fit in a long.
+	 */
+	long getRref() {
+		return match.getNumber(RREF);
+	}
+
+	/**
+	 * @return The offset of the file extension, after the '.'.
+	 */
+	int getExtensionStart() {
+		return match.start(EXT);
+	}
+
+	/**
+	 * @return true if the latitude part, such as N62, equals a directory name.
+	 */
+	boolean latitudeEquals(String directory) {
+		return match.fieldEquals(LAT, directory);
+	}
+
+	/**
+	 * @return true if the longitude part, such as W162, equals a directory
+	 *         name.
+	 */
+	boolean longitudeEquals(String directory) {
+		return match.fieldEquals(LON, directory);
+	}
+
+	/**
+	 * @return true if the dataset code equals the first three characters of a
+	 *         dataset directory name, such as 001_Elevation.
+	 */
+	boolean datasetCodeEquals(String directory) {
+		return match.fieldStarts(DATASET_CODE, directory);
+	}
+
+	/**
+	 * @return true if the LOD part, such as L03 or LC, equals a directory name.
+	 */
+	boolean lodEquals(String directory) {
+		return match.fieldEquals(LOD, directory);
+	}
+
+	/**
+	 * @return true if the UREF part, such as U2, equals a directory name.
+	 */
+	boolean urefEquals(String directory) {
+		return match.fieldEquals(UREF, directory);
+	}
+
+	/**
+	 * Returns the largest RREF of a level of detail, 2^lod - 1.
+	 *
+	 * @param lodLevel
+	 *            The level of detail, 0 for LC.
+	 * @return The largest RREF.
+	 */
+	static long maxRref(int lodLevel) {
+		return (lodLevel >= 63) ? Long.MAX_VALUE : (1L << lodLevel) - 1;
+	}
+
+	/**
+	 * Returns the level of detail of an LOD directory name without creating
+	 * strings.
+	 *
+	 * @param directory
+	 *            An LOD directory name, LC or L followed by digits.
+	 * @return The level of detail, 0 for LC, or -1 if the name is not an LOD.
+	 */
+	static int lodLevel(String directory) {
+		int length = directory.length();
+		if (length < 2 || directory.charAt(0) != 'L') {
+			return -1;
+		}
+		if (length == 2 && directory.charAt(1) == 'C') {
+			return 0;
+		}
+		int level = 0;
+		for (int i = 1; i < length; i++) {
+			char c = directory.charAt(i);
+			if (!isDigit(c) || level > 1000) {
+				return -1;
+			}
+			level = level * 10 + (c - '0');
+		}
+		return level;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+}
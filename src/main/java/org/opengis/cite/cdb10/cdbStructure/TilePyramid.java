@@ -0,0 +1,326 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import java.util.Arrays;
+
+import org.opengis.cite.cdb10.util.LongMap;
+import org.opengis.cite.cdb10.util.LongSet;
+
+/**
+ * The tiles present at each LOD of one dataset in one geocell, kept as one
+ * sparse bitset per LOD. Tiles are numbered in Morton order, interleaving the
+ * bits of their UREF and RREF, so that the four children of a tile are four
+ * consecutive bits of the next LOD and a 64-bit word of one LOD covers 16
+ * tiles of the LOD above. Parent and child coverage is then checked a word
+ * at a time. Only the words holding a tile are stored.
+ */
+final class TilePyramid {
+
+	/**
+	 * The highest LOD defined by CDB.
+	 */
+	static final int MAX_LOD = 23;
+
+	private static final long NIBBLE_LOW_BITS = 0x1111111111111111L;
+
+	private final LongMap[] levels = new LongMap[MAX_LOD + 1];
+	private int maxLod = -1;
+
+	/**
+	 * Adds a tile.
+	 *
+	 * @param lod
+	 *            The LOD of the tile, 0 to {@link #MAX_LOD}.
+	 * @param uref
+	 *            The UREF of the tile, below 2^lod.
+	 * @param rref
+	 *            The RREF of the tile, below 2^lod.
+	 * @return false if the tile is outside the pyramid and was ignored.
+	 */
+	boolean add(int lod, long uref, long rref) {
+		if (lod < 0 || lod > MAX_LOD || uref < 0 || rref < 0 || uref >> lod != 0 || rref >> lod != 0) {
+			return false;
+		}
+		if (null == levels[lod]) {
+			levels[lod] = new LongMap();
+		}
+		long morton = morton(uref, rref);
+		long word = levels[lod].get(morton >>> 6, 0L);
+		levels[lod].put(morton >>> 6, word | (1L << morton));
+		maxLod = Math.max(maxLod, lod);
+		return true;
+	}
+
+	/**
+	 * @return true if the tile was added.
+	 */
+	boolean contains(int lod, long uref, long rref) {
+		if (lod < 0 || lod > MAX_LOD || null == levels[lod] || uref >> lod != 0 || rref >> lod != 0) {
+			return false;
+		}
+		long morton = morton(uref, rref);
+		return (levels[lod].get(morton >>> 6, 0L) & (1L << morton)) != 0;
+	}
+
+	/**
+	 * @return The highest LOD holding a tile, or -1 if the pyramid is empty.
+	 */
+	int getMaxLod() {
+		return maxLod;
+	}
+
+	/**
+	 * Removes every tile, so the pyramid can be reused for another dataset.
+	 */
+	void clear() {
+		Arrays.fill(levels, null);
+		maxLod = -1;
+	}
+
+	/**
+	 * Counts the tiles of an LOD in a range of UREFs and RREFs.
+	 *
+	 * @param lod
+	 *            The LOD, 0 to {@link #MAX_LOD}.
+	 * @return The number of tiles whose UREF and RREF lie within the given
+	 *         bounds, inclusive.
+	 */
+	long count(int lod, long minUref, long maxUref, long minRref, long maxRref) {
+		return range(lod, minUref, maxUref, minRref, maxRref, null);
+	}
+
+	/**
+	 * Finds the tiles of an LOD in a range of UREFs and RREFs.
+	 *
+	 * @param lod
+	 *            The LOD, 0 to {@link #MAX_LOD}.
+	 * @return The Morton codes of the tiles whose UREF and RREF lie within the
+	 *         given bounds, inclusive, in increasing order.
+	 */
+	long[] find(int lod, long minUref, long maxUref, long minRref, long maxRref) {
+		LongSet found = new LongSet();
+		range(lod, minUref, maxUref, minRref, maxRref, found);
+		long[] tiles = found.toArray();
+		Arrays.sort(tiles);
+		return tiles;
+	}
+
+	/**
+	 * Visits the words overlapping a range. A word holds an aligned block of 8
+	 * by 8 tiles, so the range is either walked block by block or, if it
+	 * spans more blocks than there are words, checked against every word.
+	 */
+	private long range(int lod, long minUref, long maxUref, long minRref, long maxRref, LongSet found) {
+		if (lod < 0 || lod > MAX_LOD || null == levels[lod]) {
+			return 0;
+		}
+		long maxRef = (1L << lod) - 1;
+		minUref = Math.max(minUref, 0);
+		maxUref = Math.min(maxUref, maxRef);
+		minRref = Math.max(minRref, 0);
+		maxRref = Math.min(maxRref, maxRef);
+		if (minUref > maxUref || minRref > maxRref) {
+			return 0;
+		}
+		LongMap level = levels[lod];
+		long blocks = ((maxUref >>> 3) - (minUref >>> 3) + 1) * ((maxRref >>> 3) - (minRref >>> 3) + 1);
+		long count = 0;
+		if (blocks < level.size()) {
+			for (long urefBlock = minUref >>> 3; urefBlock <= maxUref >>> 3; urefBlock++) {
+				for (long rrefBlock = minRref >>> 3; rrefBlock <= maxRref >>> 3; rrefBlock++) {
+					long index = morton(urefBlock, rrefBlock);
+					long word = level.get(index, 0L);
+					if (word != 0) {
+						count += rangeInWord(index, word, minUref, maxUref, minRref, maxRref, found);
+					}
+				}
+			}
+		} else {
+			for (long index : level.keys()) {
+				count += rangeInWord(index, level.get(index, 0L), minUref, maxUref, minRref, maxRref, found);
+			}
+		}
+		return count;
+	}
+
+	private static long rangeInWord(long index, long word, long minUref, long maxUref, long minRref,
+			long maxRref, LongSet found) {
+		long base = index << 6;
+		long uref = uref(base);
+		long rref = rref(base);
+		if (uref > maxUref || uref + 7 < minUref || rref > maxRref || rref + 7 < minRref) {
+			return 0;
+		}
+		if (null == found && uref >= minUref && uref + 7 <= maxUref && rref >= minRref && rref + 7 <= maxRref) {
+			return Long.bitCount(word);
+		}
+		long count = 0;
+		while (word != 0) {
+			long tile = base + Long.numberOfTrailingZeros(word);
+			word &= word - 1;
+			uref = uref(tile);
+			rref = rref(tile);
+			if (uref >= minUref && uref <= maxUref && rref >= minRref && rref <= maxRref) {
+				count++;
+				if (null != found) {
+					found.add(tile);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return The indexes of the words holding the tiles of an LOD, each
+	 *         covering 64 consecutive Morton codes, in no particular order.
+	 */
+	long[] getWordIndexes(int lod) {
+		return (lod < 0 || lod > MAX_LOD || null == levels[lod]) ? new long[0] : levels[lod].keys();
+	}
+
+	/**
+	 * @return The tiles of an LOD with Morton codes 64 * index to 64 * index +
+	 *         63, one bit each.
+	 */
+	long getWord(int lod, long index) {
+		return (lod < 0 || lod > MAX_LOD || null == levels[lod]) ? 0L : levels[lod].get(index, 0L);
+	}
+
+	/**
+	 * Adds the tiles of one word of an LOD, as returned by
+	 * {@link #getWord(int, long)}.
+	 */
+	void addWord(int lod, long index, long word) {
+		if (lod >= 0 && lod < 3) {
+			word &= (1L << (1 << (2 * lod))) - 1;
+		}
+		if (lod < 0 || lod > MAX_LOD || word == 0 || index < 0 || index > ((1L << (2 * lod)) - 1) >>> 6) {
+			return;
+		}
+		if (null == levels[lod]) {
+			levels[lod] = new LongMap();
+		}
+		levels[lod].put(index, levels[lod].get(index, 0L) | word);
+		maxLod = Math.max(maxLod, lod);
+	}
+
+	/**
+	 * Finds the tiles of an LOD whose parent at the LOD above is missing.
+	 *
+	 * @param lod
+	 *            An LOD from 1 to {@link #MAX_LOD}.
+	 * @return The Morton codes of the orphaned tiles, in increasing order.
+	 */
+	long[] findOrphans(int lod) {
+		return scan(lod, true);
+	}
+
+	/**
+	 * Finds the tiles of the LOD above an LOD that have some but not all of
+	 * their four children.
+	 *
+	 * @param lod
+	 *            The LOD of the children, from 1 to {@link #MAX_LOD}.
+	 * @return The Morton codes of the parent tiles, at lod - 1, in increasing
+	 *         order.
+	 */
+	long[] findIncompleteParents(int lod) {
+		return scan(lod, false);
+	}
+
+	private long[] scan(int lod, boolean orphans) {
+		if (lod < 1 || lod > MAX_LOD || null == levels[lod]) {
+			return new long[0];
+		}
+		LongMap children = levels[lod];
+		LongMap parents = levels[lod - 1];
+		long[] words = children.keys();
+		Arrays.sort(words);
+		long[] found = new long[16];
+		int count = 0;
+		for (long index : words) {
+			long word = children.get(index, 0L);
+			// Bit i of any and all stands for parent 16 * index + i
+			long any = compressNibbles(word | (word >>> 1) | (word >>> 2) | (word >>> 3));
+			long flagged;
+			if (orphans) {
+				long parentWord = (null == parents) ? 0L : parents.get(index >>> 2, 0L);
+				long present = (parentWord >>> ((index & 3) * 16)) & 0xffffL;
+				flagged = any & ~present;
+			} else {
+				long all = compressNibbles(word & (word >>> 1) & (word >>> 2) & (word >>> 3));
+				flagged = any & ~all;
+			}
+			while (flagged != 0) {
+				int bit = Long.numberOfTrailingZeros(flagged);
+				flagged &= flagged - 1;
+				long parent = index * 16 + bit;
+				if (orphans) {
+					long childBits = (word >>> (bit * 4)) & 0xf;
+					while (childBits != 0) {
+						int child = Long.numberOfTrailingZeros(childBits);
+						childBits &= childBits - 1;
+						found = append(found, count++, parent * 4 + child);
+					}
+				} else {
+					found = append(found, count++, parent);
+				}
+			}
+		}
+		return Arrays.copyOf(found, count);
+	}
+
+	private static long[] append(long[] values, int index, long value) {
+		long[] result = (index < values.length) ? values : Arrays.copyOf(values, values.length * 2);
+		result[index] = value;
+		return result;
+	}
+
+	/**
+	 * Gathers the lowest bit of each of the 16 nibbles of a word into the 16
+	 * low bits.
+	 */
+	static long compressNibbles(long word) {
+		long x = word & NIBBLE_LOW_BITS;
+		x = (x | (x >>> 3)) & 0x0303030303030303L;
+		x = (x | (x >>> 6)) & 0x000f000f000f000fL;
+		x = (x | (x >>> 12)) & 0x000000ff000000ffL;
+		x = (x | (x >>> 24)) & 0xffffL;
+		return x;
+	}
+
+	/**
+	 * @return The Morton code of a tile, with the bits of the RREF in the even
+	 *         positions and those of the UREF in the odd positions.
+	 */
+	static long morton(long uref, long rref) {
+		return spread(rref) | (spread(uref) << 1);
+	}
+
+	static long uref(long morton) {
+		return compact(morton >>> 1);
+	}
+
+	static long rref(long morton) {
+		return compact(morton);
+	}
+
+	private static long spread(long value) {
+		long x = value & 0xffffffffL;
+		x = (x | (x << 16)) & 0x0000ffff0000ffffL;
+		x = (x | (x << 8)) & 0x00ff00ff00ff00ffL;
+		x = (x | (x << 4)) & 0x0f0f0f0f0f0f0f0fL;
+		x = (x | (x << 2)) & 0x3333333333333333L;
+		x = (x | (x << 1)) & 0x5555555555555555L;
+		return x;
+	}
+
+	private static long compact(long value) {
+		long x = value & 0x5555555555555555L;
+		x = (x | (x >>> 1)) & 0x3333333333333333L;
+		x = (x | (x >>> 2)) & 0x0f0f0f0f0f0f0f0fL;
+		x = (x | (x >>> 4)) & 0x00ff00ff00ff00ffL;
+		x = (x | (x >>> 8)) & 0x0000ffff0000ffffL;
+		x = (x | (x >>> 16)) & 0x00000000ffffffffL;
+		return x;
+	}
+}
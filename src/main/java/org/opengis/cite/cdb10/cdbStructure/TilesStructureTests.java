@@ -1,17 +1,16 @@
 package org.opengis.cite.cdb10.cdbStructure;
 
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.lang3.StringUtils;
 import org.opengis.cite.cdb10.CommonFixture;
+import org.opengis.cite.cdb10.util.ErrorCollector;
+import org.opengis.cite.cdb10.util.TestSuiteLogger;
 import org.testng.Assert;
+import org.testng.SkipException;
 import org.testng.annotations.Test;
 
 /**
@@ -40,147 +39,166 @@ public class TilesStructureTests extends CommonFixture {
 		return dLonZone;
 	}
 
+	private static final String LATITUDE_PREFIX = "verifyGeocellLatitudeDirNamePrefix";
+	private static final String LATITUDE_SLICE = "verifyGeocellLatitudeDirNameSlice";
+	private static final String LONGITUDE_PREFIX = "verifyGeocellLongitudeDirNamePrefix";
+	private static final String LONGITUDE_SLICE = "verifyGeocellLongitudeDirNameSlice";
+	private static final String DATASET_PREFIX = "verifyDatasetPrefix";
+	private static final String DATASET_CODE_NAME = "verifyDatasetCodeName";
+	private static final String LOD_NAME = "verifyLODName";
+	private static final String UREF_NAME = "verifyUREFName";
+	private static final String DATASET_FILE_NAME = "verifyDatasetFileName";
+	private static final String TILE_PYRAMID = "verifyTilePyramid";
+
+	private static final Pattern LOD_PATTERN = Pattern.compile("LC|L0[0-9]|L1[0-9]|L2[0-3]");
+
 	/**
-	 * Validates that latitude geocell directories start with "S" or "N".
-	 * Test based on Section 3.6, Volume 1, OGC CDB Core Standard (Version 1.0)
-	 *
+	 * The results of every Tiles rule, gathered in a single traversal the first
+	 * time one of the tests runs. With a scan manifest, geocells unchanged
+	 * since the previous run reuse their stored results.
+	 */
+	private TreeRuleDispatcher tilesRules;
+
+	/**
+	 * @return The dispatcher holding the results of the Tiles rules, or null if
+	 *         the CDB has no Tiles directory.
 	 * @throws IOException
+	 *             If the CDB directory tree cannot be read.
 	 */
-	@Test
-	public void verifyGeocellLatitudeDirNamePrefix() throws IOException {
-		Path tilesPath = Paths.get(this.path, "Tiles");
+	private TreeRuleDispatcher getTilesRules() throws IOException {
+		CdbTreeEntry tilesDir = getCdbTree().find("Tiles");
 
-		if (Files.notExists(tilesPath)) {
-			return;
+		if (tilesDir == null) {
+			return null;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
-
-		for (Path file : Files.newDirectoryStream(tilesPath)) {
-			String filename = file.getFileName().toString();
-
-			if (!filename.substring(0, 1).equals("S") && !filename.substring(0, 1).equals("N")) {
-				errors.add("Invalid prefix on directory name in Tiles directory: " + filename);
+		if (this.tilesRules == null) {
+			TreeRuleDispatcher rules = new TreeRuleDispatcher();
+			registerRules(rules);
+			if (this.scanManifest != null) {
+				rules.setManifest(this.scanManifest, 2);
 			}
+			rules.run(tilesDir);
+			this.tilesRules = rules;
 		}
-
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		return this.tilesRules;
 	}
 
-	/**
-	 * Validates that latitude geocell directories end with a valid slice latitude.
-	 * latitudes should be zero-padded to 2 width.
-	 * Test based on Section 3.6, Volume 1, OGC CDB Core Standard (Version 1.0)
-	 *
-	 * @throws IOException
-	 */
-	@Test
-	public void verifyGeocellLatitudeDirNameSlice() throws IOException {
-		Path tilesPath = Paths.get(this.path, "Tiles");
+	private void assertRule(String name) throws IOException {
+		TreeRuleDispatcher rules = getTilesRules();
 
-		if (Files.notExists(tilesPath)) {
+		if (rules == null) {
 			return;
 		}
 
-		ArrayList<String> errors = new ArrayList<String>();
-
-		for (Path file : Files.newDirectoryStream(tilesPath)) {
-			String filename = file.getFileName().toString();
-			String slice = filename.substring(1, filename.length());
-
-			if (filename.length() != 3) {
-				errors.add("Invalid padding/length on geocell directory name: " + filename);
-			} else if (filename.substring(0, 1).equals("S")) {
-				Integer sliceID = Integer.parseInt(slice);
-				if ((sliceID > 90) || (sliceID <= 0)) {
-					errors.add("Invalid latitude for geocell directory name: " + filename);
-				}
-
-				if ((sliceID < 10) && (sliceID > 0) && !(slice.substring(0,1).equals("0"))) {
-					errors.add("Invalid zero-pad on geocell directory name: " + filename);
-				}
-
-			} else if (filename.substring(0, 1).equals("N")) {
-				Integer sliceID = Integer.parseInt(slice);
-				if ((sliceID > 89) || (sliceID < 0)) {
-					errors.add("Invalid latitude for geocell directory name: " + filename);
-				}
-
-				if ((sliceID < 10) && (sliceID >= 0) && !(slice.substring(0,1).equals("0"))) {
-					errors.add("Invalid zero-pad on geocell directory name: " + filename);
-				}
-			}
+		ErrorCollector errors = rules.getErrors(name);
+		String message = errors.getMessage();
+		if (this.treeSampler != null) {
+			String estimate = this.treeSampler.describeErrorRate(rules.getFailedCount(name),
+					rules.getCheckedCount(name));
+			TestSuiteLogger.log(Level.INFO, name + ": " + estimate);
+			message = estimate + "\n" + message;
 		}
+		Assert.assertTrue(errors.isEmpty(), message);
+	}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+	private static Integer lodLevel(String lodFilename) {
+		if (lodFilename.equals("LC")) {
+			return 0;
+		}
+		return Integer.parseInt(lodFilename.substring(1, lodFilename.length()));
 	}
 
 	/**
-	 * Validates that longitude geocell directories start with "E" or "W".
-	 * Test based on Section 3.6, Volume 1, OGC CDB Core Standard (Version 1.0)
+	 * Registers the checks behind each test of this class against the level of
+	 * the Tiles hierarchy they inspect: 1 latitude geocell, 2 longitude geocell,
+	 * 3 dataset, 4 LOD, 5 UREF and 6 dataset file. The tile pyramid is not
+	 * checked in a sampled run, which drops UREF directories.
 	 *
-	 * @throws IOException
+	 * @param rules
+	 *            The dispatcher to register with.
 	 */
-	@Test
-	public void verifyGeocellLongitudeDirNamePrefix() throws IOException {
-		Path tilesPath = Paths.get(this.path, "Tiles");
+	void registerRules(TreeRuleDispatcher rules) {
+		rules.register(LATITUDE_PREFIX, 1, new TreeRule() {
+			@Override
+			public void check(CdbTreeEntry file, List<String> errors) {
+				String filename = file.getName();
+
+				if (!filename.substring(0, 1).equals("S") && !filename.substring(0, 1).equals("N")) {
+					errors.add("Invalid prefix on directory name in Tiles directory: " + filename);
+				}
+			}
+		});
 
-		if (Files.notExists(tilesPath)) {
-			return;
-		}
+		rules.register(LATITUDE_SLICE, 1, new TreeRule() {
+			@Override
+			public void check(CdbTreeEntry file, List<String> errors) {
+				String filename = file.getName();
+				String slice = filename.substring(1, filename.length());
 
-		ArrayList<String> errors = new ArrayList<String>();
+				if (filename.length() != 3) {
+					errors.add("Invalid padding/length on geocell directory name: " + filename);
+				} else if (filename.substring(0, 1).equals("S")) {
+					Integer sliceID = Integer.parseInt(slice);
+					if ((sliceID > 90) || (sliceID <= 0)) {
+						errors.add("Invalid latitude for geocell directory name: " + filename);
+					}
+
+					if ((sliceID < 10) && (sliceID > 0) && !(slice.substring(0,1).equals("0"))) {
+						errors.add("Invalid zero-pad on geocell directory name: " + filename);
+					}
 
-		DirectoryStream<Path> latitudeCells = Files.newDirectoryStream(tilesPath);
+				} else if (filename.substring(0, 1).equals("N")) {
+					Integer sliceID = Integer.parseInt(slice);
+					if ((sliceID > 89) || (sliceID < 0)) {
+						errors.add("Invalid latitude for geocell directory name: " + filename);
+					}
 
-		for (Path latCell : latitudeCells) {
-			DirectoryStream<Path> longitudeCells = Files.newDirectoryStream(latCell);
+					if ((sliceID < 10) && (sliceID >= 0) && !(slice.substring(0,1).equals("0"))) {
+						errors.add("Invalid zero-pad on geocell directory name: " + filename);
+					}
+				}
+			}
+		});
 
-			for (Path lonCell : longitudeCells) {
-				String filename = lonCell.getFileName().toString();
+		rules.register(LONGITUDE_PREFIX, 2, new TreeRule() {
+			@Override
+			public void check(CdbTreeEntry lonCell, List<String> errors) {
+				String filename = lonCell.getName();
 
 				if (!filename.substring(0, 1).equals("E") && !filename.substring(0, 1).equals("W")) {
 					errors.add("Invalid prefix on longitude geocell directory: " + filename);
 				}
 			}
-		}
-
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
-	}
+		});
 
-	/**
-	 * Validates that longitude geocell directories end with a valid slice longitude.
-	 * longitudes should be zero-padded to 3 width.
-	 * Test based on Section 3.6, Volume 1, OGC CDB Core Standard (Version 1.0)
-	 *
-	 * @throws IOException
-	 */
-	@Test
-	public void verifyGeocellLongitudeDirNameSlice() throws IOException {
-		Path tilesPath = Paths.get(this.path, "Tiles");
-
-		if (Files.notExists(tilesPath)) {
-			return;
-		}
-
-		ArrayList<String> errors = new ArrayList<String>();
-
-		DirectoryStream<Path> latitudeCells = Files.newDirectoryStream(tilesPath);
-
-		for (Path latCell : latitudeCells) {
-			DirectoryStream<Path> longitudeCells = Files.newDirectoryStream(latCell);
-			String latFilename = latCell.getFileName().toString();
-			String latSlice = latFilename.substring(1, latFilename.length());
-			Integer latSliceID = null;
-			try {
-				latSliceID = Integer.parseInt(latSlice);
-			}
-			catch (NumberFormatException e) {
-				errors.add("Invalid numeric format on geocell slice: " + latFilename);
+		rules.register(LONGITUDE_SLICE, 1, new TreeRule() {
+			@Override
+			public void check(CdbTreeEntry latCell, List<String> errors) {
+				String latFilename = latCell.getName();
+				try {
+					Integer.parseInt(latFilename.substring(1, latFilename.length()));
+				}
+				catch (NumberFormatException e) {
+					errors.add("Invalid numeric format on geocell slice: " + latFilename);
+				}
 			}
+		});
+
+		rules.register(LONGITUDE_SLICE, 2, new TreeRule() {
+			@Override
+			public void check(CdbTreeEntry lonCell, List<String> errors) {
+				// an invalid latitude is reported once, against the latitude geocell
+				String latFilename = lonCell.getParent().getName();
+				Integer latSliceID = null;
+				try {
+					latSliceID = Integer.parseInt(latFilename.substring(1, latFilename.length()));
+				}
+				catch (NumberFormatException e) {
+					latSliceID = null;
+				}
 
-			for (Path lonCell : longitudeCells) {
-				String filename = lonCell.getFileName().toString();
+				String filename = lonCell.getName();
 				String slice = filename.substring(1, filename.length());
 				Integer sliceID = 0;
 				try {
@@ -197,7 +215,7 @@ public class TilesStructureTests extends CommonFixture {
 						errors.add("Invalid longitude for geocell directory name: " + filename);
 					}
 
-					if ((sliceID % this.sliceWidthForLatitude(latSliceID)) != 0) {
+					if ((latSliceID != null) && ((sliceID % sliceWidthForLatitude(latSliceID)) != 0)) {
 						errors.add("Invalid slice width for geocell directory name: " + filename);
 					}
 
@@ -211,7 +229,7 @@ public class TilesStructureTests extends CommonFixture {
 						errors.add("Invalid longitude for geocell directory name: " + filename);
 					}
 
-					if ((sliceID % this.sliceWidthForLatitude(latSliceID)) != 0) {
+					if ((latSliceID != null) && ((sliceID % sliceWidthForLatitude(latSliceID)) != 0)) {
 						errors.add("Invalid slice width for geocell directory name: " + filename);
 					}
 
@@ -222,121 +240,267 @@ public class TilesStructureTests extends CommonFixture {
 					}
 				}
 			}
-		}
+		});
+
+		rules.register(DATASET_PREFIX, 3, new TreeRule() {
+			@Override
+			public void check(CdbTreeEntry dataset, List<String> errors) {
+				String filename = dataset.getName();
+				String prefix = null;
+				Integer prefixID = null;
+				try {
+					prefix = filename.substring(0, 3);
+					prefixID = Integer.parseInt(prefix);
+				}
+				catch (StringIndexOutOfBoundsException e) {
+					errors.add("Invalid prefix length: " + filename);
+				}
+				catch (NumberFormatException e) {
+					errors.add("Invalid number format: " + filename);
+				}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
-	}
+				if ((prefixID != null) && (prefixID < 1)) {
+					errors.add("Invalid prefix cannot be below 001: " + filename);
+				}
+			}
+		});
 
-	/**
-	 * Validates that dataset directories begin with a 3-digit prefix.
-	 * Test based on Section 3.6, Volume 1, OGC CDB Core Standard (Version 1.0)
-	 *
-	 * @throws IOException
-	 */
-	@Test
-	public void verifyDatasetPrefix() throws IOException {
-		Path tilesPath = Paths.get(this.path, "Tiles");
+		rules.register(DATASET_CODE_NAME, 3, new TreeRule() {
+			private DatasetsXml datasetDefs;
 
-		if (Files.notExists(tilesPath)) {
-			return;
-		}
+			@Override
+			public void check(CdbTreeEntry dataset, List<String> errors) {
+				if (datasetDefs == null) {
+					datasetDefs = getMetadata(DatasetsXml.class);
+				}
+
+				String filename = dataset.getName();
+				String prefix = null;
+				Integer prefixID = null;
+				String datasetName = null;
+				try {
+					prefix = filename.substring(0, 3);
+					prefixID = Integer.parseInt(prefix);
+					datasetName = filename.split("_")[1];
+				}
+				catch (StringIndexOutOfBoundsException e) {
+					errors.add("Invalid prefix length: " + filename);
+				}
+				catch (NumberFormatException e) {
+					errors.add("Invalid number format: " + filename);
+				}
+				catch (ArrayIndexOutOfBoundsException e) {
+					errors.add("Missing dataset name: " + filename);
+				}
+
+				if ((prefixID != null) && (datasetName != null)) {
+					if (!datasetDefs.isValidCode(prefixID)) {
+						errors.add("Invalid dataset code: " + filename);
+					} else if (!datasetDefs.isValidName(datasetName)) {
+						errors.add("Invalid dataset name: " + filename);
+					} else if (!datasetDefs.datasetNameForCode(prefixID).equals(datasetName)) {
+						errors.add("Invalid dataset code/name combination: " + filename);
+					}
+				}
+			}
+		});
+
+		rules.register(LOD_NAME, 4, new TreeRule() {
+			@Override
+			public void check(CdbTreeEntry lod, List<String> errors) {
+				String filename = lod.getName();
+				Matcher match = LOD_PATTERN.matcher(filename);
+				if (!match.find()) {
+					errors.add("Invalid LOD name: " + filename);
+				}
+			}
+		});
 
-		ArrayList<String> errors = new ArrayList<String>();
-		DirectoryStream<Path> latitudeCells = Files.newDirectoryStream(tilesPath);
+		rules.register(UREF_NAME, 5, new TreeRule() {
+			@Override
+			public void check(CdbTreeEntry uref, List<String> errors) {
+				Integer lodLevel = lodLevel(uref.getParent().getName());
+				String filename = uref.getName();
 
-		for (Path latCell : latitudeCells) {
-			DirectoryStream<Path> longitudeCells = Files.newDirectoryStream(latCell);
+				if (!filename.substring(0, 1).equals("U")) {
+					errors.add("Invalid prefix for UREF directory: " + filename);
+				} else {
+					Integer urefValue = Integer.parseInt(filename.substring(1, filename.length()));
 
-			for (Path lonCell : longitudeCells) {
-				DirectoryStream<Path> datasets = Files.newDirectoryStream(lonCell);
+					if ((urefValue < 0) || (urefValue > (Math.pow(2, lodLevel) - 1))) {
+						errors.add("UREF value out of bounds: " + filename);
+					}
+				}
+			}
+		});
+
+		rules.register(DATASET_FILE_NAME, 6, new TreeRule() {
+			// Rules run one at a time, so a single decoder serves every file
+			private final TileFileName tileFileName = new TileFileName();
+
+			@Override
+			public void check(CdbTreeEntry datasetFile, List<String> errors) {
+				CdbTreeEntry uref = datasetFile.getParent();
+				CdbTreeEntry lod = uref.getParent();
+				CdbTreeEntry dataset = lod.getParent();
+				CdbTreeEntry lonCell = dataset.getParent();
+				CdbTreeEntry latCell = lonCell.getParent();
+				String lodFilename = lod.getName();
+
+				String filename = datasetFile.getName();
+				if (!tileFileName.parse(filename)) {
+					errors.add("Invalid dataset file name: " + filename);
+				} else {
+					if (!tileFileName.latitudeEquals(latCell.getName())) {
+						errors.add("Latitude geocell prefix does not match parent directory: "
+								+ filename);
+					}
 
-				for (Path dataset : datasets) {
-					String filename = dataset.getFileName().toString();
-					String prefix = null;
-					Integer prefixID = null;
-					try {
-						prefix = filename.substring(0, 3);
-						prefixID = Integer.parseInt(prefix);
+					if (!tileFileName.longitudeEquals(lonCell.getName())) {
+						errors.add("Longitude geocell prefix does not match parent directory: "
+								+ filename);
 					}
-					catch (StringIndexOutOfBoundsException e) {
-						errors.add("Invalid prefix length: " + filename);
+
+					if (!tileFileName.datasetCodeEquals(dataset.getName())) {
+						errors.add("Dataset code does not match parent directory: "
+								+ filename);
 					}
-					catch (NumberFormatException e) {
-						errors.add("Invalid number format: " + filename);
+
+					if (!tileFileName.lodEquals(lodFilename)) {
+						errors.add("LOD does not match parent directory: " + filename);
 					}
 
-					if ((prefixID != null) && (prefixID < 1)) {
-						errors.add("Invalid prefix cannot be below 001: " + filename);
+					if (!tileFileName.urefEquals(uref.getName())) {
+						errors.add("UREF does not match parent directory: " + filename);
 					}
 
-				}
+					int lodLevel = TileFileName.lodLevel(lodFilename);
 
+					if (lodLevel >= 0 && tileFileName.getRref() > TileFileName.maxRref(lodLevel)) {
+						errors.add("RREF out of bounds for LOD: " + filename);
+					}
+				}
 			}
+		});
+
+		if (this.treeSampler == null) {
+			registerPyramidRules(rules);
 		}
+	}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+	/**
+	 * Gathers the tiles of each dataset into a {@link TilePyramid} from the
+	 * names of its files, then checks the pyramid once every file of the
+	 * dataset has been seen. With an LOD range, tiles at the lowest LOD kept
+	 * are not checked for a parent.
+	 */
+	private void registerPyramidRules(TreeRuleDispatcher rules) {
+		final TilePyramid pyramid = new TilePyramid();
+		final int minLod = TraversalFilter.parse(directories, latlong, minmaxlod).getMinLod();
+
+		rules.register(TILE_PYRAMID, 6, new TreeRule() {
+			private final TileFileName tileFileName = new TileFileName();
+
+			@Override
+			public void check(CdbTreeEntry datasetFile, List<String> errors) {
+				if (tileFileName.parse(datasetFile.getName()) && !tileFileName.isCoarse()
+						&& tileFileName.lodEquals(datasetFile.getParent().getParent().getName())) {
+					pyramid.add(tileFileName.getLod(), tileFileName.getUref(), tileFileName.getRref());
+				}
+			}
+		});
+
+		rules.registerAfter(TILE_PYRAMID, 3, new TreeRule() {
+			@Override
+			public void check(CdbTreeEntry dataset, List<String> errors) {
+				try {
+					for (int lod = 1; lod <= pyramid.getMaxLod(); lod++) {
+						if (lod > minLod) {
+							for (long tile : pyramid.findOrphans(lod)) {
+								errors.add(String.format("Tile has no parent at L%02d: %s/L%02d/U%d R%d",
+										lod - 1, dataset.getRelativePath(), lod, TilePyramid.uref(tile),
+										TilePyramid.rref(tile)));
+							}
+						}
+						for (long tile : pyramid.findIncompleteParents(lod)) {
+							errors.add(String.format("Tile is missing some of its children at L%02d: %s/L%02d/U%d R%d",
+									lod, dataset.getRelativePath(), lod - 1, TilePyramid.uref(tile),
+									TilePyramid.rref(tile)));
+						}
+					}
+				} finally {
+					pyramid.clear();
+				}
+			}
+		});
 	}
 
 	/**
-	 * Validates that dataset directories prefix code and name match and are valid values.
+	 * Validates that latitude geocell directories start with "S" or "N".
 	 * Test based on Section 3.6, Volume 1, OGC CDB Core Standard (Version 1.0)
 	 *
 	 * @throws IOException
 	 */
 	@Test
-	public void verifyDatasetCodeName() throws IOException {
-		Path tilesPath = Paths.get(this.path, "Tiles");
-
-		if (Files.notExists(tilesPath)) {
-			return;
-		}
+	public void verifyGeocellLatitudeDirNamePrefix() throws IOException {
+		assertRule(LATITUDE_PREFIX);
+	}
 
-		ArrayList<String> errors = new ArrayList<String>();
-		DirectoryStream<Path> latitudeCells = Files.newDirectoryStream(tilesPath);
-		DatasetsXml datasetDefs = new DatasetsXml(this.path);
-
-		for (Path latCell : latitudeCells) {
-			DirectoryStream<Path> longitudeCells = Files.newDirectoryStream(latCell);
-
-			for (Path lonCell : longitudeCells) {
-				DirectoryStream<Path> datasets = Files.newDirectoryStream(lonCell);
-
-				for (Path dataset : datasets) {
-					String filename = dataset.getFileName().toString();
-					String prefix = null;
-					Integer prefixID = null;
-					String datasetName = null;
-					try {
-						prefix = filename.substring(0, 3);
-						prefixID = Integer.parseInt(prefix);
-						datasetName = filename.split("_")[1];
-					}
-					catch (StringIndexOutOfBoundsException e) {
-						errors.add("Invalid prefix length: " + filename);
-					}
-					catch (NumberFormatException e) {
-						errors.add("Invalid number format: " + filename);
-					}
-					catch (ArrayIndexOutOfBoundsException e) {
-						errors.add("Missing dataset name: " + filename);
-					}
+	/**
+	 * Validates that latitude geocell directories end with a valid slice latitude.
+	 * latitudes should be zero-padded to 2 width.
+	 * Test based on Section 3.6, Volume 1, OGC CDB Core Standard (Version 1.0)
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void verifyGeocellLatitudeDirNameSlice() throws IOException {
+		assertRule(LATITUDE_SLICE);
+	}
 
-					if ((prefixID != null) && (datasetName != null)) {
-						if (!datasetDefs.isValidCode(prefixID)) {
-							errors.add("Invalid dataset code: " + filename);
-						} else if (!datasetDefs.isValidName(datasetName)) {
-							errors.add("Invalid dataset name: " + filename);
-						} else if (!datasetDefs.datasetNameForCode(prefixID).equals(datasetName)) {
-							errors.add("Invalid dataset code/name combination: " + filename);
-						}
-					}
+	/**
+	 * Validates that longitude geocell directories start with "E" or "W".
+	 * Test based on Section 3.6, Volume 1, OGC CDB Core Standard (Version 1.0)
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void verifyGeocellLongitudeDirNamePrefix() throws IOException {
+		assertRule(LONGITUDE_PREFIX);
+	}
 
-				}
+	/**
+	 * Validates that longitude geocell directories end with a valid slice longitude.
+	 * longitudes should be zero-padded to 3 width.
+	 * Test based on Section 3.6, Volume 1, OGC CDB Core Standard (Version 1.0)
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void verifyGeocellLongitudeDirNameSlice() throws IOException {
+		assertRule(LONGITUDE_SLICE);
+	}
 
-			}
-		}
+	/**
+	 * Validates that dataset directories begin with a 3-digit prefix.
+	 * Test based on Section 3.6, Volume 1, OGC CDB Core Standard (Version 1.0)
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void verifyDatasetPrefix() throws IOException {
+		assertRule(DATASET_PREFIX);
+	}
 
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+	/**
+	 * Validates that dataset directories prefix code and name match and are valid values.
+	 * Test based on Section 3.6, Volume 1, OGC CDB Core Standard (Version 1.0)
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void verifyDatasetCodeName() throws IOException {
+		assertRule(DATASET_CODE_NAME);
 	}
 
 	/**
@@ -347,39 +511,7 @@ public class TilesStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyLODName() throws IOException {
-		Path tilesPath = Paths.get(this.path, "Tiles");
-
-		if (Files.notExists(tilesPath)) {
-			return;
-		}
-
-		ArrayList<String> errors = new ArrayList<String>();
-		DirectoryStream<Path> latitudeCells = Files.newDirectoryStream(tilesPath);
-		Pattern LODPattern = Pattern.compile("LC|L0[0-9]|L1[0-9]|L2[0-3]");
-
-		for (Path latCell : latitudeCells) {
-			DirectoryStream<Path> longitudeCells = Files.newDirectoryStream(latCell);
-
-			for (Path lonCell : longitudeCells) {
-				DirectoryStream<Path> datasets = Files.newDirectoryStream(lonCell);
-
-				for (Path dataset : datasets) {
-					DirectoryStream<Path> lods = Files.newDirectoryStream(dataset);
-
-					for (Path lod : lods) {
-						String filename = lod.getFileName().toString();
-						Matcher match = LODPattern.matcher(filename);
-						if (!match.find()) {
-							errors.add("Invalid LOD name: " + filename);
-						}
-					}
-
-				}
-
-			}
-		}
-
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		assertRule(LOD_NAME);
 	}
 
 	/**
@@ -390,56 +522,7 @@ public class TilesStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyUREFName() throws IOException {
-		Path tilesPath = Paths.get(this.path, "Tiles");
-
-		if (Files.notExists(tilesPath)) {
-			return;
-		}
-
-		ArrayList<String> errors = new ArrayList<String>();
-		DirectoryStream<Path> latitudeCells = Files.newDirectoryStream(tilesPath);
-
-		for (Path latCell : latitudeCells) {
-			DirectoryStream<Path> longitudeCells = Files.newDirectoryStream(latCell);
-
-			for (Path lonCell : longitudeCells) {
-				DirectoryStream<Path> datasets = Files.newDirectoryStream(lonCell);
-
-				for (Path dataset : datasets) {
-					DirectoryStream<Path> lods = Files.newDirectoryStream(dataset);
-
-					for (Path lod : lods) {
-						String lodFilename = lod.getFileName().toString();
-						Integer lodLevel = null;
-						if (lodFilename.equals("LC")) {
-							lodLevel = 0;
-						} else {
-							lodLevel = Integer.parseInt(lodFilename.substring(1, lodFilename.length()));
-						}
-
-						DirectoryStream<Path> urefs = Files.newDirectoryStream(lod);
-
-						for (Path uref : urefs) {
-							String filename = uref.getFileName().toString();
-
-							if (!filename.substring(0, 1).equals("U")) {
-								errors.add("Invalid prefix for UREF directory: " + filename);
-							} else {
-								Integer urefValue = Integer.parseInt(filename.substring(1, filename.length()));
-
-								if ((urefValue < 0) || (urefValue > (Math.pow(2, lodLevel) - 1))) {
-									errors.add("UREF value out of bounds: " + filename);
-								}
-							}
-						}
-					}
-
-				}
-
-			}
-		}
-
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		assertRule(UREF_NAME);
 	}
 
 	/**
@@ -450,87 +533,22 @@ public class TilesStructureTests extends CommonFixture {
 	 */
 	@Test
 	public void verifyDatasetFileName() throws IOException {
-		Path tilesPath = Paths.get(this.path, "Tiles");
-
-		if (Files.notExists(tilesPath)) {
-			return;
-		}
-
-		ArrayList<String> errors = new ArrayList<String>();
-		DirectoryStream<Path> latitudeCells = Files.newDirectoryStream(tilesPath);
-		Pattern filePattern = Pattern.compile("^(?<lat>(S|N)[0-9]{2})(?<lon>(E|W)[0-9]{3})_D(?<datasetCode>[0-9]{3})_S(?<CS1>[0-9]{3})_T(?<CS2>[0-9]{3})_(?<lod>LC|L[0-9]{2})_(?<uref>U[0-9]+)_R(?<rref>[0-9]+)\\.(?<ext>.+)$");
-
-		for (Path latCell : latitudeCells) {
-			String latFilename = latCell.getFileName().toString();
-			DirectoryStream<Path> longitudeCells = Files.newDirectoryStream(latCell);
-
-			for (Path lonCell : longitudeCells) {
-				String lonFilename = lonCell.getFileName().toString();
-				DirectoryStream<Path> datasets = Files.newDirectoryStream(lonCell);
-
-				for (Path dataset : datasets) {
-					String datasetFilename = dataset.getFileName().toString();
-					DirectoryStream<Path> lods = Files.newDirectoryStream(dataset);
-
-					for (Path lod : lods) {
-						String lodFilename = lod.getFileName().toString();
-						DirectoryStream<Path> urefs = Files.newDirectoryStream(lod);
-
-						for (Path uref : urefs) {
-							String urefFilename = uref.getFileName().toString();
-							DirectoryStream<Path> datasetFiles = Files.newDirectoryStream(uref);
-
-							for (Path datasetFile : datasetFiles) {
-								String filename = datasetFile.getFileName().toString();
-								Matcher match = filePattern.matcher(filename);
-								if (!match.find()) {
-									errors.add("Invalid dataset file name: " + filename);
-								} else {
-									if (!match.group("lat").equals(latFilename)) {
-										errors.add("Latitude geocell prefix does not match parent directory: "
-												+ filename);
-									}
-
-									if (!match.group("lon").equals(lonFilename)) {
-										errors.add("Longitude geocell prefix does not match parent directory: "
-												+ filename);
-									}
-
-									if (!match.group("datasetCode").equals(datasetFilename.substring(0, 3))) {
-										errors.add("Dataset code does not match parent directory: "
-												+ filename);
-									}
-
-									if (!match.group("lod").equals(lodFilename)) {
-										errors.add("LOD does not match parent directory: " + filename);
-									}
-
-									if (!match.group("uref").equals(urefFilename)) {
-										errors.add("UREF does not match parent directory: " + filename);
-									}
-
-									Integer lodLevel = null;
-									if (lodFilename.equals("LC")) {
-										lodLevel = 0;
-									} else {
-										lodLevel = Integer.parseInt(lodFilename.substring(1, lodFilename.length()));
-									}
-
-									if (Integer.parseInt(match.group("rref")) > (Math.pow(2, lodLevel) - 1)) {
-										errors.add("RREF out of bounds for LOD: " + filename);
-									}
-
-								}
-							}
-
-						}
-					}
-
-				}
+		assertRule(DATASET_FILE_NAME);
+	}
 
-			}
+	/**
+	 * Validates that every tile above LOD 0 has its parent tile at the LOD
+	 * above, and that a tile with children at the next LOD has all four of
+	 * them.
+	 * Test based on Section 3.6, Volume 1, OGC CDB Core Standard (Version 1.0)
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void verifyTilePyramid() throws IOException {
+		if (this.treeSampler != null) {
+			throw new SkipException("The tile pyramid is not checked in a sampled run.");
 		}
-
-		Assert.assertTrue(errors.size() == 0, StringUtils.join(errors, "\n"));
+		assertRule(TILE_PYRAMID);
 	}
 }
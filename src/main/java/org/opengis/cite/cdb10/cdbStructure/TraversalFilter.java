@@ -0,0 +1,328 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Restricts the part of a CDB that is enumerated, so that validating one
+ * region or dataset of a large CDB only costs the I/O for that part. Pruned
+ * directories are neither listed nor included in the {@link CdbTreeSnapshot},
+ * and so are not checked by the structure tests.
+ *
+ * <p>
+ * The filter is built from three optional test run arguments:
+ * </p>
+ * <ul>
+ * <li>directories: a comma-separated list of top-level directories (e.g.
+ * "Tiles,GTModel") and/or Tiles dataset directories (e.g. "001_Elevation" or
+ * just "001"). Listing a dataset implies Tiles. The Metadata directory is
+ * always kept.</li>
+ * <li>latlong: "minLat,minLon,maxLat,maxLon" in degrees; only Tiles geocells
+ * intersecting the box are kept.</li>
+ * <li>minmaxlod: "min,max"; only Tiles LOD directories in the range are kept.
+ * Each bound is a level number or an LOD name such as "LC" or "L05"; LC counts
+ * as level -1.</li>
+ * </ul>
+ * <p>
+ * Directory names that cannot be interpreted are always kept, so that the
+ * structure tests still report them.
+ * </p>
+ */
+public class TraversalFilter {
+
+	private static final Pattern DATASET_PATTERN = Pattern.compile("^(\\d{3})(_.*)?$");
+	private static final Pattern LOD_PATTERN = Pattern.compile("^L(C|\\d{1,2})$");
+
+	private final Set<String> topLevel = new HashSet<String>();
+	private final Set<String> datasets = new HashSet<String>();
+	private final Set<String> datasetCodes = new HashSet<String>();
+	private double minLat = -90;
+	private double minLon = -180;
+	private double maxLat = 90;
+	private double maxLon = 180;
+	private boolean boxed;
+	private int minLod = Integer.MIN_VALUE;
+	private int maxLod = Integer.MAX_VALUE;
+	private TreeSampler sampler;
+
+	private TraversalFilter() {
+	}
+
+	/**
+	 * Builds a filter from the test run arguments. Any argument may be null or
+	 * empty.
+	 *
+	 * @param directories
+	 *            The value of the directories argument.
+	 * @param latlong
+	 *            The value of the latlong argument.
+	 * @param minmaxlod
+	 *            The value of the minmaxlod argument.
+	 * @return The filter.
+	 * @throws IllegalArgumentException
+	 *             If an argument is malformed.
+	 */
+	public static TraversalFilter parse(String directories, String latlong, String minmaxlod) {
+		TraversalFilter filter = new TraversalFilter();
+
+		if (null != directories && !directories.trim().isEmpty()) {
+			for (String item : directories.split(",")) {
+				String name = item.trim();
+				if (name.isEmpty()) {
+					continue;
+				}
+				Matcher match = DATASET_PATTERN.matcher(name);
+				if (match.matches()) {
+					filter.topLevel.add("Tiles");
+					if (null == match.group(2)) {
+						filter.datasetCodes.add(match.group(1));
+					} else {
+						filter.datasets.add(name);
+					}
+				} else {
+					filter.topLevel.add(name);
+				}
+			}
+		}
+
+		if (null != latlong && !latlong.trim().isEmpty()) {
+			String[] bounds = latlong.split(",");
+			if (bounds.length != 4) {
+				throw new IllegalArgumentException("latlong must be minLat,minLon,maxLat,maxLon: " + latlong);
+			}
+			try {
+				filter.minLat = Double.parseDouble(bounds[0].trim());
+				filter.minLon = Double.parseDouble(bounds[1].trim());
+				filter.maxLat = Double.parseDouble(bounds[2].trim());
+				filter.maxLon = Double.parseDouble(bounds[3].trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("latlong must be minLat,minLon,maxLat,maxLon: " + latlong, e);
+			}
+			if (filter.minLat > filter.maxLat || filter.minLon > filter.maxLon) {
+				throw new IllegalArgumentException("latlong minimum exceeds maximum: " + latlong);
+			}
+			filter.boxed = true;
+		}
+
+		if (null != minmaxlod && !minmaxlod.trim().isEmpty()) {
+			String[] bounds = minmaxlod.split(",");
+			if (bounds.length != 2) {
+				throw new IllegalArgumentException("minmaxlod must be min,max: " + minmaxlod);
+			}
+			filter.minLod = parseLod(bounds[0].trim(), minmaxlod);
+			filter.maxLod = parseLod(bounds[1].trim(), minmaxlod);
+			if (filter.minLod > filter.maxLod) {
+				throw new IllegalArgumentException("minmaxlod minimum exceeds maximum: " + minmaxlod);
+			}
+		}
+
+		return filter;
+	}
+
+	private static int parseLod(String bound, String argument) {
+		Matcher match = LOD_PATTERN.matcher(bound);
+		if (match.matches()) {
+			return match.group(1).equals("C") ? -1 : Integer.parseInt(match.group(1));
+		}
+		try {
+			return Integer.parseInt(bound);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid LOD in minmaxlod: " + argument, e);
+		}
+	}
+
+	/**
+	 * Further restricts the traversal to a random sample of the CDB.
+	 *
+	 * @param sampler
+	 *            Draws the sample.
+	 * @return This filter.
+	 */
+	public TraversalFilter withSampler(TreeSampler sampler) {
+		this.sampler = sampler;
+		return this;
+	}
+
+	/**
+	 * @return The lowest LOD kept, -1 for LC, or Integer.MIN_VALUE if LODs are
+	 *         not restricted.
+	 */
+	int getMinLod() {
+		return minLod;
+	}
+
+	/**
+	 * @return true if the filter keeps every directory.
+	 */
+	public boolean isEmpty() {
+		return topLevel.isEmpty() && !boxed && minLod == Integer.MIN_VALUE && maxLod == Integer.MAX_VALUE
+				&& null == sampler;
+	}
+
+	/**
+	 * @param parent
+	 *            The directory containing the entry.
+	 * @param name
+	 *            The name of the entry.
+	 * @return true if the entry is to be enumerated.
+	 */
+	boolean accept(CdbTreeEntry parent, String name) {
+		if (!acceptSelection(parent, name)) {
+			return false;
+		}
+		return null == sampler || sampler.accept(parent, name);
+	}
+
+	private boolean acceptSelection(CdbTreeEntry parent, String name) {
+		int depth = parent.getDepth() + 1;
+		if (depth == 1) {
+			return topLevel.isEmpty() || topLevel.contains(name) || name.equals("Metadata");
+		}
+
+		CdbTreeEntry top = parent;
+		while (top.getDepth() > 1) {
+			top = top.getParent();
+		}
+		if (!top.getName().equals("Tiles")) {
+			return true;
+		}
+
+		switch (depth - 1) {
+		case 1:
+			return acceptLatitude(name);
+		case 2:
+			return acceptLongitude(parent.getName(), name);
+		case 3:
+			return acceptDataset(name);
+		case 4:
+			return acceptLod(name);
+		default:
+			return true;
+		}
+	}
+
+	private boolean acceptLatitude(String name) {
+		Integer lat = geocellSlice(name, 'N', 'S', 3);
+		return null == lat || (lat <= maxLat && lat + 1 > minLat);
+	}
+
+	private boolean acceptLongitude(String latName, String name) {
+		Integer lat = geocellSlice(latName, 'N', 'S', 3);
+		Integer lon = geocellSlice(name, 'E', 'W', 4);
+		if (null == lat || null == lon) {
+			return true;
+		}
+		return lon <= maxLon && lon + sliceWidth(lat) > minLon;
+	}
+
+	private boolean acceptDataset(String name) {
+		if (datasets.isEmpty() && datasetCodes.isEmpty()) {
+			return true;
+		}
+		Matcher match = DATASET_PATTERN.matcher(name);
+		if (!match.matches()) {
+			return true;
+		}
+		return datasets.contains(name) || datasetCodes.contains(match.group(1));
+	}
+
+	private boolean acceptLod(String name) {
+		Matcher match = LOD_PATTERN.matcher(name);
+		if (!match.matches()) {
+			return true;
+		}
+		int level = match.group(1).equals("C") ? -1 : Integer.parseInt(match.group(1));
+		return level >= minLod && level <= maxLod;
+	}
+
+	/**
+	 * Parses a geocell directory name such as "N62" or "W162".
+	 *
+	 * @return The signed slice in degrees, or null if the name is malformed.
+	 */
+	private static Integer geocellSlice(String name, char positive, char negative, int length) {
+		if (name.length() != length) {
+			return null;
+		}
+		char hemisphere = name.charAt(0);
+		if (hemisphere != positive && hemisphere != negative) {
+			return null;
+		}
+		int value = 0;
+		for (int i = 1; i < length; i++) {
+			char c = name.charAt(i);
+			if (c < '0' || c > '9') {
+				return null;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return hemisphere == positive ? value : -value;
+	}
+
+	/**
+	 * @return The width in degrees of the geocells in the given latitude slice.
+	 */
+	static int sliceWidth(int latitude) {
+		int lat = latitude >= 0 ? latitude : -latitude - 1;
+		if (lat >= 89) {
+			return 12;
+		} else if (lat >= 80) {
+			return 6;
+		} else if (lat >= 75) {
+			return 4;
+		} else if (lat >= 70) {
+			return 3;
+		} else if (lat >= 50) {
+			return 2;
+		}
+		return 1;
+	}
+
+	/**
+	 * Wraps a directory lister so that entries rejected by this filter are
+	 * dropped before they are listed in turn.
+	 */
+	DirectoryLister lister(final DirectoryLister delegate) {
+		return new DirectoryLister() {
+			@Override
+			public List<CdbTreeEntry> list(CdbTreeEntry dir, Path dirPath) throws IOException {
+				List<CdbTreeEntry> children = new ArrayList<CdbTreeEntry>(delegate.list(dir, dirPath));
+				for (Iterator<CdbTreeEntry> it = children.iterator(); it.hasNext();) {
+					CdbTreeEntry child = it.next();
+					if (child.isDirectory() && !accept(dir, child.getName())) {
+						it.remove();
+						dir.setPruned(true);
+					}
+				}
+				return children;
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("TraversalFilter[");
+		sb.append("directories=").append(topLevel);
+		if (!datasets.isEmpty() || !datasetCodes.isEmpty()) {
+			sb.append(", datasets=").append(datasets).append(datasetCodes);
+		}
+		if (boxed) {
+			sb.append(", latlong=").append(minLat).append(',').append(minLon).append(',').append(maxLat).append(',')
+					.append(maxLon);
+		}
+		if (minLod != Integer.MIN_VALUE || maxLod != Integer.MAX_VALUE) {
+			sb.append(", lod=").append(minLod).append("..").append(maxLod);
+		}
+		if (null != sampler) {
+			sb.append(", sample=").append(sampler);
+		}
+		return sb.append(']').toString();
+	}
+}
@@ -0,0 +1,39 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+/**
+ * The strategies available for enumerating the CDB directory tree.
+ */
+public enum TraversalMode {
+
+	/**
+	 * Walks the tree depth-first on the calling thread.
+	 */
+	SEQUENTIAL,
+	/**
+	 * Splits the walk per geocell and dataset over a work-stealing fork/join
+	 * pool; suited to CPU-bound or local file systems.
+	 */
+	FORKJOIN,
+	/**
+	 * Issues every directory listing as soon as its parent has been read, with
+	 * a large number of listings in flight; suited to network file systems
+	 * where each listing is dominated by round-trip latency.
+	 */
+	CONCURRENT;
+
+	/**
+	 * @param name
+	 *            The name of a traversal mode, in any case.
+	 * @return The matching traversal mode.
+	 * @throws IllegalArgumentException
+	 *             If name does not denote a traversal mode.
+	 */
+	public static TraversalMode fromString(String name) {
+		return valueOf(name.trim().toUpperCase());
+	}
+
+	@Override
+	public String toString() {
+		return name().toLowerCase();
+	}
+}
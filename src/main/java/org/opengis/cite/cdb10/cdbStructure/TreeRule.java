@@ -0,0 +1,19 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import java.util.List;
+
+/**
+ * A check applied to every entry found at one level of the CDB hierarchy.
+ * Rules are registered with a {@link TreeRuleDispatcher}, which calls them
+ * during a single traversal of the tree.
+ */
+interface TreeRule {
+
+	/**
+	 * @param entry
+	 *            A file or directory at the level the rule was registered for.
+	 * @param errors
+	 *            The list to which any violations found are added.
+	 */
+	void check(CdbTreeEntry entry, List<String> errors);
+}
@@ -0,0 +1,245 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.opengis.cite.cdb10.util.ErrorCollector;
+import org.opengis.cite.cdb10.util.TestSuiteLogger;
+
+/**
+ * Runs a set of {@link TreeRule}s over a CDB directory in a single
+ * depth-first traversal. Each rule is registered under a name and a depth
+ * below the base directory (e.g. for Tiles: 1 for latitude geocells, 2 for
+ * longitude geocells, 3 for datasets, 4 for LODs, 5 for UREFs and 6 for
+ * dataset files), and every entry is handed to all rules registered for its
+ * depth. Violations are collected per rule name, in traversal order, so that
+ * each rule can still be reported as a test of its own. Rules registered with
+ * {@link #registerAfter(String, int, TreeRule)} see an entry after every entry
+ * below it, so they can check what the rules below gathered. Only a bounded
+ * number of violations per rule is kept in memory; see {@link ErrorCollector}.
+ */
+class TreeRuleDispatcher {
+
+	private final List<List<TreeRule>> rulesByDepth = new ArrayList<List<TreeRule>>();
+	private final List<List<String>> namesByDepth = new ArrayList<List<String>>();
+	private final List<List<TreeRule>> afterRulesByDepth = new ArrayList<List<TreeRule>>();
+	private final List<List<String>> afterNamesByDepth = new ArrayList<List<String>>();
+	private final Map<String, ErrorCollector> errors = new LinkedHashMap<String, ErrorCollector>();
+	private final Map<String, int[]> counts = new LinkedHashMap<String, int[]>();
+	private ScanManifest manifest;
+	private int unitDepth;
+
+	/**
+	 * Registers a rule. Several rules may share a name, for instance when one
+	 * check needs to inspect more than one level; their violations are then
+	 * reported together.
+	 *
+	 * @param name
+	 *            The name under which violations are reported.
+	 * @param depth
+	 *            The depth, relative to the base directory, of the entries to
+	 *            check; children of the base directory are at depth 1.
+	 * @param rule
+	 *            The check to apply.
+	 */
+	void register(String name, int depth, TreeRule rule) {
+		addRule(name, depth);
+		rulesByDepth.get(depth - 1).add(rule);
+		namesByDepth.get(depth - 1).add(name);
+	}
+
+	/**
+	 * Registers a rule applied to each entry at a depth once every entry below
+	 * it has been visited.
+	 *
+	 * @param name
+	 *            The name under which violations are reported.
+	 * @param depth
+	 *            The depth, relative to the base directory, of the entries to
+	 *            check.
+	 * @param rule
+	 *            The check to apply.
+	 */
+	void registerAfter(String name, int depth, TreeRule rule) {
+		addRule(name, depth);
+		afterRulesByDepth.get(depth - 1).add(rule);
+		afterNamesByDepth.get(depth - 1).add(name);
+	}
+
+	private void addRule(String name, int depth) {
+		if (depth < 1) {
+			throw new IllegalArgumentException("Rule depth must be positive: " + depth);
+		}
+		while (rulesByDepth.size() < depth) {
+			rulesByDepth.add(new ArrayList<TreeRule>());
+			namesByDepth.add(new ArrayList<String>());
+			afterRulesByDepth.add(new ArrayList<TreeRule>());
+			afterNamesByDepth.add(new ArrayList<String>());
+		}
+		if (!errors.containsKey(name)) {
+			errors.put(name, new ErrorCollector());
+			counts.put(name, new int[2]);
+		}
+	}
+
+	/**
+	 * Enables incremental checking against a scan manifest. Each entry at the
+	 * given depth (e.g. 2 for a Tiles geocell) is a unit of work: if its
+	 * subtree is unchanged since the previous run, the violations stored in
+	 * the manifest are reused instead of checking the subtree again. The
+	 * violations of every unit are recorded in the manifest for the next run.
+	 *
+	 * @param manifest
+	 *            The manifest left by the previous run.
+	 * @param unitDepth
+	 *            The depth of the entries forming units of work.
+	 */
+	void setManifest(ScanManifest manifest, int unitDepth) {
+		this.manifest = manifest;
+		this.unitDepth = unitDepth;
+	}
+
+	/**
+	 * Traverses the base directory once, applying every registered rule. The
+	 * traversal does not descend below the deepest registered rule. The
+	 * collectors of the rules, including the violations reused from a scan
+	 * manifest, are closed at the end.
+	 *
+	 * @param base
+	 *            The directory whose descendants are checked.
+	 */
+	void run(CdbTreeEntry base) {
+		try {
+			visitChildren(base, 1, null);
+		} finally {
+			// complete the spill files, whether or not a test reports the rule
+			for (ErrorCollector ruleErrors : errors.values()) {
+				ruleErrors.close();
+			}
+		}
+	}
+
+	private void visitChildren(CdbTreeEntry dir, int depth, String unit) {
+		if (depth > rulesByDepth.size()) {
+			return;
+		}
+		for (CdbTreeEntry entry : dir.getChildren()) {
+			if (null != manifest && null == unit && depth == unitDepth) {
+				visitUnit(entry, depth);
+			} else {
+				visit(entry, depth, unit);
+			}
+		}
+	}
+
+	/**
+	 * Applies the rules registered for the entry's depth, descends, then
+	 * applies the rules registered to run after the entries below.
+	 *
+	 * @param unit
+	 *            If not null, the unit of work the entry belongs to; the
+	 *            violations found are also recorded in the manifest for it.
+	 */
+	private void visit(CdbTreeEntry entry, int depth, String unit) {
+		apply(rulesByDepth.get(depth - 1), namesByDepth.get(depth - 1), entry, unit);
+		visitChildren(entry, depth + 1, unit);
+		apply(afterRulesByDepth.get(depth - 1), afterNamesByDepth.get(depth - 1), entry, unit);
+	}
+
+	private void apply(List<TreeRule> rules, List<String> names, CdbTreeEntry entry, String unit) {
+		if (rules.isEmpty()) {
+			return;
+		}
+		List<String> found = new ArrayList<String>();
+		for (int i = 0; i < rules.size(); i++) {
+			String name = names.get(i);
+			found.clear();
+			try {
+				rules.get(i).check(entry, found);
+			} catch (RuntimeException e) {
+				found.add("Unable to check " + entry.getRelativePath() + ": " + e);
+			}
+			int[] ruleCounts = counts.get(name);
+			ruleCounts[0]++;
+			if (!found.isEmpty()) {
+				ruleCounts[1]++;
+				errors.get(name).addAll(found);
+				if (null != unit) {
+					for (String error : found) {
+						manifest.recordVerdict(unit, name, error);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks a unit of work, or reuses the violations stored for it.
+	 */
+	private void visitUnit(CdbTreeEntry entry, int depth) {
+		List<String> unitRules = new ArrayList<String>();
+		for (int d = depth - 1; d < namesByDepth.size(); d++) {
+			for (String name : namesByDepth.get(d)) {
+				if (!unitRules.contains(name)) {
+					unitRules.add(name);
+				}
+			}
+			for (String name : afterNamesByDepth.get(d)) {
+				if (!unitRules.contains(name)) {
+					unitRules.add(name);
+				}
+			}
+		}
+
+		String unit = entry.getRelativePath();
+		List<String> storedRules = manifest.getPreviousRules(unit);
+		if (null != storedRules && storedRules.containsAll(unitRules) && manifest.isUnchanged(entry)) {
+			try {
+				manifest.reuseVerdicts(unit, errors);
+				return;
+			} catch (IOException e) {
+				TestSuiteLogger.log(Level.WARNING, "Unable to reuse stored violations of " + unit, e);
+			}
+		}
+
+		manifest.beginUnit(unit, unitRules);
+		visit(entry, depth, unit);
+	}
+
+	/**
+	 * @param name
+	 *            The name the rule was registered under.
+	 * @return The number of entries the rule checked during this traversal;
+	 *         entries whose stored violations were reused are not counted.
+	 */
+	int getCheckedCount(String name) {
+		return counts.get(name)[0];
+	}
+
+	/**
+	 * @param name
+	 *            The name the rule was registered under.
+	 * @return The number of checked entries for which the rule found at least
+	 *         one violation.
+	 */
+	int getFailedCount(String name) {
+		return counts.get(name)[1];
+	}
+
+	/**
+	 * @param name
+	 *            The name the rule was registered under.
+	 * @return The violations found by the rule, in traversal order.
+	 */
+	ErrorCollector getErrors(String name) {
+		ErrorCollector ruleErrors = errors.get(name);
+		if (null == ruleErrors) {
+			throw new IllegalArgumentException("No rule registered as " + name);
+		}
+		return ruleErrors;
+	}
+}
@@ -0,0 +1,204 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Selects a seeded random sample of a CDB for quick, non-exhaustive
+ * validation. Sampling is applied in stages while the tree is enumerated:
+ * Tiles geocells, the datasets within a sampled geocell and the UREF
+ * directories within a sampled dataset, as well as the feature categories of
+ * GTModel datasets and the entity kinds of MModel datasets. Each stage keeps
+ * the given fraction of its directories, so with a rate of 0.1 about 1% of the
+ * datasets and 0.1% of the UREF directories of a CDB are checked.
+ *
+ * <p>
+ * Whether a directory is drawn depends only on the seed and its path relative
+ * to the CDB root, so the same seed draws the same sample on every run,
+ * regardless of traversal order or thread count.
+ * </p>
+ */
+public class TreeSampler {
+
+	private static final double Z_95 = 1.959964;
+
+	private final double rate;
+	private final long seed;
+	private final Map<String, int[]> stages = new TreeMap<String, int[]>();
+	private final List<String> sample = new ArrayList<String>();
+
+	/**
+	 * @param rate
+	 *            The fraction of directories to keep at each stage, in (0, 1].
+	 * @param seed
+	 *            The seed of the sample.
+	 */
+	public TreeSampler(double rate, long seed) {
+		if (!(rate > 0 && rate <= 1)) {
+			throw new IllegalArgumentException("The sample rate must be in (0, 1]: " + rate);
+		}
+		this.rate = rate;
+		this.seed = seed;
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @param parent
+	 *            The directory containing the entry.
+	 * @param name
+	 *            The name of a directory.
+	 * @return The sampling stage the directory belongs to, or null if it is
+	 *         always kept.
+	 */
+	static String stage(CdbTreeEntry parent, String name) {
+		int depth = parent.getDepth() + 1;
+		if (depth < 3) {
+			return null;
+		}
+		CdbTreeEntry top = parent;
+		while (top.getDepth() > 1) {
+			top = top.getParent();
+		}
+		String topName = top.getName();
+		if (topName.equals("Tiles")) {
+			switch (depth) {
+			case 3:
+				return "geocell";
+			case 4:
+				return "dataset";
+			case 6:
+				return "uref";
+			default:
+				return null;
+			}
+		} else if (depth == 3 && (topName.equals("GTModel") || topName.equals("MModel"))) {
+			return "category";
+		}
+		return null;
+	}
+
+	/**
+	 * Decides whether a directory is part of the sample, recording the draw.
+	 *
+	 * @param parent
+	 *            The directory containing the entry.
+	 * @param name
+	 *            The name of a directory.
+	 * @return true if the directory is to be enumerated.
+	 */
+	boolean accept(CdbTreeEntry parent, String name) {
+		String stage = stage(parent, name);
+		if (null == stage) {
+			return true;
+		}
+		String path = parent.getDepth() == 0 ? name : parent.getRelativePath() + "/" + name;
+		boolean drawn = draw(path);
+		synchronized (this) {
+			int[] counts = stages.get(stage);
+			if (null == counts) {
+				counts = new int[2];
+				stages.put(stage, counts);
+			}
+			counts[0]++;
+			if (drawn) {
+				counts[1]++;
+				sample.add(path);
+			}
+		}
+		return drawn;
+	}
+
+	/**
+	 * Hashes the seed and path to a uniform value in [0, 1).
+	 */
+	boolean draw(String path) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < path.length(); i++) {
+			h ^= path.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= seed;
+		h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+		h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+		h = h ^ (h >>> 31);
+		return (h >>> 11) * 0x1.0p-53 < rate;
+	}
+
+	/**
+	 * @return The paths of the directories drawn, relative to the CDB root, in
+	 *         name order.
+	 */
+	public synchronized List<String> getSample() {
+		List<String> sorted = new ArrayList<String>(sample);
+		Collections.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * @return A one-line summary of the sample, e.g. "geocell 12/118,
+	 *         dataset 30/296".
+	 */
+	public synchronized String describeSample() {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, int[]> stage : stages.entrySet()) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(stage.getKey()).append(' ').append(stage.getValue()[1]).append('/')
+					.append(stage.getValue()[0]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Describes the error rate estimated from a sample, with its 95% Wilson
+	 * score interval.
+	 *
+	 * @param failed
+	 *            The number of sampled entries with at least one violation.
+	 * @param checked
+	 *            The number of sampled entries checked.
+	 * @return A description of the estimate, naming the rate and seed of the
+	 *         sample so that it can be reproduced.
+	 */
+	public String describeErrorRate(int failed, int checked) {
+		StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+				"Sampled run (rate %s, seed %d): %d of %d checked entries invalid", rate, seed, failed, checked));
+		if (checked > 0) {
+			double[] interval = wilsonInterval(failed, checked);
+			sb.append(String.format(Locale.ROOT, ", estimated error rate %.2f%% (95%% CI %.2f%% - %.2f%%)",
+					100.0 * failed / checked, 100 * interval[0], 100 * interval[1]));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return The lower and upper bounds of the 95% Wilson score interval for
+	 *         a proportion of successes out of trials.
+	 */
+	static double[] wilsonInterval(int successes, int trials) {
+		double n = trials;
+		double p = successes / n;
+		double z2 = Z_95 * Z_95;
+		double denominator = 1 + z2 / n;
+		double center = (p + z2 / (2 * n)) / denominator;
+		double half = Z_95 * Math.sqrt(p * (1 - p) / n + z2 / (4 * n * n)) / denominator;
+		return new double[] { Math.max(0, center - half), Math.min(1, center + half) };
+	}
+
+	@Override
+	public String toString() {
+		return "rate=" + rate + ", seed=" + seed;
+	}
+}
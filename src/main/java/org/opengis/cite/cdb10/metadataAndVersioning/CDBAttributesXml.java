@@ -1,13 +1,8 @@
 package org.opengis.cite.cdb10.metadataAndVersioning;
 
-import org.opengis.cite.cdb10.util.XMLUtils;
+import org.opengis.cite.cdb10.util.XmlConstraints;
 import org.testng.Assert;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -15,91 +10,53 @@ import java.util.List;
  */
 public class CDBAttributesXml extends MetadataXmlFile {
 
+    private final XmlConstraints.Constraint codes = constraints.matches("//Attribute/@code", "^\\d+$");
+    private final XmlConstraints.Constraint symbols = constraints.unique("//Attribute/@symbol");
+    private final XmlConstraints.Constraint types = constraints.oneOf("//Value/Type", "Text", "Numeric", "Boolean");
+    private final XmlConstraints.Constraint scalerCodes = constraints.matches("//Scalers/Scaler/@code", "^[1-9]\\d*$");
+    private final XmlConstraints.Constraint unitCodes = constraints.matches("//Units/Unit/@code", "^[1-9]\\d*$");
+
     public CDBAttributesXml(String path) {
         super(path, "CDB_Attributes.xml", "Vector_Attributes.xsd");
     }
 
     public void verifyCodeIsAnInteger() {
-        NodeList nodeList = XMLUtils.getNodeList("//Attribute", xmlFile.toPath());
-
-        ArrayList<String> values = new ArrayList<>();
-
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Node currentItem = nodeList.item(i);
-            values.add(currentItem.getAttributes().getNamedItem("code").getNodeValue());
-        }
+        List<XmlConstraints.Violation> violations = getViolations(codes);
 
-        for (String value : values) {
-            Assert.assertTrue(value.matches("^\\d+$"),
-                    String.format("CDB_Attributes.xml attribute code " +
-                            "should be an integer. Code '%s' is not valid.", value));
-        }
+        Assert.assertTrue(violations.isEmpty(),
+                describeViolations("CDB_Attributes.xml attribute code should be an integer.",
+                        "Code '%s' is not valid.", violations));
     }
 
     public void verifySymbolIsUnique() {
-        NodeList nodeList = XMLUtils.getNodeList("//Attribute", xmlFile.toPath());
+        List<XmlConstraints.Violation> violations = getViolations(symbols);
 
-        ArrayList<String> symbols = new ArrayList<>();
-
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Node currentItem = nodeList.item(i);
-            symbols.add(currentItem.getAttributes().getNamedItem("symbol").getNodeValue());
-        }
-
-        for (String symbol : symbols) {
-            Assert.assertEquals(Collections.frequency(symbols, symbol), 1,
-                    String.format("CDB_Attributes.xml element Attribute should " +
-                            "have unique symbols. Symbol '%s' is not unique.", symbol));
-        }
+        Assert.assertTrue(violations.isEmpty(),
+                describeViolations("CDB_Attributes.xml element Attribute should have unique symbols.",
+                        "Symbol '%s' is not unique.", violations));
     }
 
     public void verifyValueHasAValidType() {
-        NodeList nodeList = XMLUtils.getNodeList("//Value/Type", xmlFile.toPath());
-
-        ArrayList<String> types = new ArrayList<>();
-        List<String> VALID_TYPES = Arrays.asList("Text", "Numeric", "Boolean");
+        List<XmlConstraints.Violation> violations = getViolations(types);
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Node currentItem = nodeList.item(i);
-            types.add(currentItem.getTextContent());
-        }
-
-        for (String type : types) {
-            Assert.assertTrue(VALID_TYPES.contains(type),
-                    String.format("CDB_Attributes.xml element Type should have a value of " +
-                            "'Text', 'Numeric' or 'Boolean'. Type '%s' is not valid.", type));
-        }
+        Assert.assertTrue(violations.isEmpty(),
+                describeViolations("CDB_Attributes.xml element Type should have a value of " +
+                        "'Text', 'Numeric' or 'Boolean'.", "Type '%s' is not valid.", violations));
     }
 
     public void verifyScalerCodeIsValid() {
-        NodeList nodeList = XMLUtils.getNodeList("//Scalers/Scaler", xmlFile.toPath());
-
-        ArrayList<String> values = new ArrayList<>();
-
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Node currentItem = nodeList.item(i);
-            values.add(currentItem.getAttributes().getNamedItem("code").getNodeValue());
-        }
+        List<XmlConstraints.Violation> violations = getViolations(scalerCodes);
 
-        for (String value : values) {
-            Assert.assertTrue(value.matches("^[1-9]\\d*$"),
-                    String.format("CDB_Attributes.xml Scaler code should be a positive integer. Code '%s' is not valid.", value));
-        }
+        Assert.assertTrue(violations.isEmpty(),
+                describeViolations("CDB_Attributes.xml Scaler code should be a positive integer.",
+                        "Code '%s' is not valid.", violations));
     }
 
     public void verifyUnitCodeIsValid() {
-        NodeList nodeList = XMLUtils.getNodeList("//Units/Unit", xmlFile.toPath());
-
-        ArrayList<String> values = new ArrayList<>();
-
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Node currentItem = nodeList.item(i);
-            values.add(currentItem.getAttributes().getNamedItem("code").getNodeValue());
-        }
+        List<XmlConstraints.Violation> violations = getViolations(unitCodes);
 
-        for (String value : values) {
-            Assert.assertTrue(value.matches("^[1-9]\\d*$"),
-                    String.format("CDB_Attributes.xml Unit code should be a positive integer. Code '%s' is not valid.", value));
-        }
+        Assert.assertTrue(violations.isEmpty(),
+                describeViolations("CDB_Attributes.xml Unit code should be a positive integer.",
+                        "Code '%s' is not valid.", violations));
     }
 }
@@ -13,36 +13,36 @@ public class CDBAttributesXmlStructureTests extends Capability2Tests {
 
     @Test
     public void verifyCDBAttributesXmlFileExists() {
-        new CDBAttributesXml(path);
+        getMetadata(CDBAttributesXml.class);
     }
 
     @Test
     public void verifyCDBAttributesXmlAgainstSchema() throws IOException, SAXException {
-        new CDBAttributesXml(path).verifyXmlAgainstSchema();
+        getMetadata(CDBAttributesXml.class).verifyXmlAgainstSchema();
     }
 
     @Test
     public void verifyCDBAttributesXmlCodeIsAnInteger() {
-        new CDBAttributesXml(path).verifyCodeIsAnInteger();
+        getMetadata(CDBAttributesXml.class).verifyCodeIsAnInteger();
     }
 
     @Test
     public void verifyCDBAttributesXmlSymbolIsUnique() {
-        new CDBAttributesXml(path).verifySymbolIsUnique();
+        getMetadata(CDBAttributesXml.class).verifySymbolIsUnique();
     }
 
     @Test
     public void verifyCDBAttributesXmlValueHasAValidType() {
-        new CDBAttributesXml(path).verifyValueHasAValidType();
+        getMetadata(CDBAttributesXml.class).verifyValueHasAValidType();
     }
 
     @Test
     public void verifyCDBAttributesXmlScalerCodeIsValid() {
-        new CDBAttributesXml(path).verifyScalerCodeIsValid();
+        getMetadata(CDBAttributesXml.class).verifyScalerCodeIsValid();
     }
 
     @Test
     public void verifyCDBAttributesXmlUnitCodeIsValid() {
-        new CDBAttributesXml(path).verifyUnitCodeIsValid();
+        getMetadata(CDBAttributesXml.class).verifyUnitCodeIsValid();
     }
 }
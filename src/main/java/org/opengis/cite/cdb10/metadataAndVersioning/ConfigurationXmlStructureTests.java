@@ -13,11 +13,11 @@ public class ConfigurationXmlStructureTests extends Capability2Tests {
 
     @Test
     public void verifyConfigurationXmlFileExists() {
-        new ConfigurationXml(path);
+        getMetadata(ConfigurationXml.class);
     }
 
     @Test
     public void verifyConfigurationXmlAgainstSchema() throws IOException, SAXException {
-        new ConfigurationXml(path).verifyXmlAgainstSchema();
+        getMetadata(ConfigurationXml.class).verifyXmlAgainstSchema();
     }
 }
@@ -12,26 +12,26 @@ import java.io.IOException;
 public class DefaultsXmlStructureTests extends Capability2Tests {
     @Test
     public void verifyDefaultsXmlFileExists() {
-        new DefaultsXml(path);
+        getMetadata(DefaultsXml.class);
     }
 
     @Test
     public void verifyDefaultsXmlAgainstSchema() throws IOException, SAXException {
-        new DefaultsXml(path).verifyXmlAgainstSchema();
+        getMetadata(DefaultsXml.class).verifyXmlAgainstSchema();
     }
 
     @Test
     public void verifyDefaultsXmlElementR_W_TypeHasValidValues() {
-        new DefaultsXml(path).verifyElementR_W_TypeHasValidValues();
+        getMetadata(DefaultsXml.class).verifyElementR_W_TypeHasValidValues();
     }
 
     @Test
     public void verifyDefaultsXmlNameIsUniqueForEachDataset() {
-        new DefaultsXml(path).verifyNameIsUniqueForEachDataset();
+        getMetadata(DefaultsXml.class).verifyNameIsUniqueForEachDataset();
     }
 
     @Test
     public void verifyDefaultsXmlElementTypeHasValidValue() {
-        new DefaultsXml(path).verifyElementTypeHasValidValue();
+        getMetadata(DefaultsXml.class).verifyElementTypeHasValidValue();
     }
 }
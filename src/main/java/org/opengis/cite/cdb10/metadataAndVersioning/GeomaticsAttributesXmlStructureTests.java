@@ -13,16 +13,16 @@ public class GeomaticsAttributesXmlStructureTests extends Capability2Tests {
 
     @Test
     public void verifyGeomaticsAttributesXmlFileExists() {
-        new GeomaticsAttributesXml(path);
+        getMetadata(GeomaticsAttributesXml.class);
     }
 
     @Test
     public void verifyGeomaticsAttributesXsdFileExists() {
-        new GeomaticsAttributesXml(path).verifyGeomaticsAttributesXsdFileExists();
+        getMetadata(GeomaticsAttributesXml.class).verifyGeomaticsAttributesXsdFileExists();
     }
 
     @Test
     public void verifyGeomaticsAttributesXmlAgainstSchema() throws IOException, SAXException {
-        new GeomaticsAttributesXml(path).verifyXmlAgainstSchema();
+        getMetadata(GeomaticsAttributesXml.class).verifyXmlAgainstSchema();
     }
 }
@@ -0,0 +1,196 @@
+package org.opengis.cite.cdb10.metadataAndVersioning;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The invalid values of a Lights_xxx.xml tuning file, found in a single
+ * streaming pass over the file. Every range and enumeration check of the
+ * tuning elements is made during the same pass, so the cost is proportional
+ * to the size of the file rather than to the number of checks.
+ */
+public class LightsTuningEvaluation {
+
+    static final List<String> DIRECTIONALITY_VALUES = Collections.unmodifiableList(
+            Arrays.asList("Omnidirectional", "Directional", "Bidirectional"));
+
+    private static final XMLInputFactory STAX_FACTORY = initXMLInputFactory();
+
+    private final List<String> invalidDirectionality = new ArrayList<String>();
+    private final List<String> invalidIntensity = new ArrayList<String>();
+    private final List<String> invalidResidualIntensity = new ArrayList<String>();
+    private final List<String> invalidDutyCycle = new ArrayList<String>();
+    private final List<String> invalidFrequency = new ArrayList<String>();
+    private final List<String> invalidColor = new ArrayList<String>();
+
+    private static XMLInputFactory initXMLInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        return factory;
+    }
+
+    private LightsTuningEvaluation() {
+    }
+
+    /**
+     * Reads a tuning file and checks the values of its Directionality,
+     * Intensity, Residual_Intensity, Duty_Cycle, Frequency and Color elements.
+     *
+     * @param xmlFile The Lights_xxx.xml file.
+     * @return The invalid values found in the file.
+     * @throws IOException If the file cannot be read or is not well-formed.
+     */
+    public static LightsTuningEvaluation evaluate(File xmlFile) throws IOException {
+        LightsTuningEvaluation evaluation = new LightsTuningEvaluation();
+        try (InputStream in = Files.newInputStream(xmlFile.toPath())) {
+            XMLStreamReader reader = STAX_FACTORY.createXMLStreamReader(in);
+            try {
+                evaluation.read(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(xmlFile.getName() + " is not well-formed: " + e.getMessage(), e);
+        }
+        return evaluation;
+    }
+
+    private void read(XMLStreamReader reader) throws XMLStreamException {
+        String element = null;
+        StringBuilder text = new StringBuilder();
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+                element = reader.getLocalName();
+                text.setLength(0);
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                if (null != element) {
+                    text.append(reader.getText());
+                }
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                if (reader.getLocalName().equals(element)) {
+                    check(element, text.toString().trim());
+                }
+                element = null;
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    private void check(String element, String value) {
+        switch (element) {
+        case "Directionality":
+            if (!DIRECTIONALITY_VALUES.contains(value)) {
+                invalidDirectionality.add(value);
+            }
+            break;
+        case "Intensity":
+            checkFraction(value, invalidIntensity);
+            break;
+        case "Residual_Intensity":
+            checkFraction(value, invalidResidualIntensity);
+            break;
+        case "Duty_Cycle":
+            checkFraction(value, invalidDutyCycle);
+            break;
+        case "Frequency":
+            Float frequency = parse(value);
+            if (null == frequency || frequency < 0.0) {
+                invalidFrequency.add(value);
+            }
+            break;
+        case "Color":
+            for (String component : value.split("\\s+")) {
+                Float floatValue = parse(component);
+                if (null == floatValue) {
+                    invalidColor.add(component);
+                } else if (isOutOfRange(floatValue)) {
+                    invalidColor.add(floatValue.toString());
+                }
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    private static void checkFraction(String value, List<String> invalid) {
+        Float floatValue = parse(value);
+        if (null == floatValue || isOutOfRange(floatValue)) {
+            invalid.add(value);
+        }
+    }
+
+    private static Float parse(String value) {
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean isOutOfRange(float value) {
+        return value < 0.0 || value > 1.0;
+    }
+
+    /**
+     * @return The Directionality values that are not Omnidirectional,
+     *         Directional or Bidirectional, in document order.
+     */
+    public List<String> getInvalidDirectionalityValues() {
+        return Collections.unmodifiableList(invalidDirectionality);
+    }
+
+    /**
+     * @return The Intensity values outside 0.0 to 1.0.
+     */
+    public List<String> getInvalidIntensityValues() {
+        return Collections.unmodifiableList(invalidIntensity);
+    }
+
+    /**
+     * @return The Residual_Intensity values outside 0.0 to 1.0.
+     */
+    public List<String> getInvalidResidualIntensityValues() {
+        return Collections.unmodifiableList(invalidResidualIntensity);
+    }
+
+    /**
+     * @return The Duty_Cycle values outside 0.0 to 1.0.
+     */
+    public List<String> getInvalidDutyCycleValues() {
+        return Collections.unmodifiableList(invalidDutyCycle);
+    }
+
+    /**
+     * @return The negative Frequency values.
+     */
+    public List<String> getInvalidFrequencyValues() {
+        return Collections.unmodifiableList(invalidFrequency);
+    }
+
+    /**
+     * @return The Color components outside 0.0 to 1.0.
+     */
+    public List<String> getInvalidColorValues() {
+        return Collections.unmodifiableList(invalidColor);
+    }
+}
@@ -1,45 +1,35 @@
 package org.opengis.cite.cdb10.metadataAndVersioning;
 
-import org.opengis.cite.cdb10.util.XMLUtils;
+import org.opengis.cite.cdb10.util.XmlConstraints;
 import org.testng.Assert;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.List;
 
 /**
  * Created by martin on 2016-09-20.
  */
 public class LightsXml extends MetadataXmlFile {
+
+    private final XmlConstraints.Constraint uniqueCodes = constraints.unique("//Light/@code");
+    private final XmlConstraints.Constraint codeRange = constraints.range("//Light/@code", 0, 9999);
+
     public LightsXml(String path) {
         super(path, "Lights.xml", "Lights.xsd");
     }
 
     public void verifyHasUniqueCodes() {
-        NodeList nodeList = XMLUtils.getNodeList("//Light", xmlFile.toPath());
-
-        ArrayList<String> codes = new ArrayList<>();
+        List<XmlConstraints.Violation> violations = getViolations(uniqueCodes);
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Node currentItem = nodeList.item(i);
-            codes.add(currentItem.getAttributes().getNamedItem("code").getNodeValue());
-        }
-
-        for (String code : codes) {
-            Assert.assertEquals(Collections.frequency(codes, code), 1,
-                    String.format("Lights.xml element Light should have unique codes. Code '%s' is not unique.", code));
-        }
+        Assert.assertTrue(violations.isEmpty(),
+                describeViolations("Lights.xml element Light should have unique codes.",
+                        "Code '%s' is not unique.", violations));
     }
 
     public void verifyCodesAreWithinRange() {
-        NodeList nodeList = XMLUtils.getNodeList("//Light", xmlFile.toPath());
-
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Node currentItem = nodeList.item(i);
-            int key = Integer.parseInt(currentItem.getAttributes().getNamedItem("code").getNodeValue());
+        List<XmlConstraints.Violation> violations = getViolations(codeRange);
 
-            Assert.assertTrue((key >= 0) && (key <= 9999), "Lights.xml element Light should have a code from 0 - 9999 inclusive.");
-        }
+        Assert.assertTrue(violations.isEmpty(),
+                describeViolations("Lights.xml element Light should have a code from 0 - 9999 inclusive.",
+                        "Code '%s' is not valid.", violations));
     }
 }
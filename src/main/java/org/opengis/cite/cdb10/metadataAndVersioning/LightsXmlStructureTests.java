@@ -13,21 +13,21 @@ public class LightsXmlStructureTests extends Capability2Tests {
 
     @Test
     public void verifyLightsXmlFileExists() {
-        new LightsXml(path);
+        getMetadata(LightsXml.class);
     }
 
     @Test
     public void verifyLightsXmlFileAgainstSchema() throws IOException, SAXException {
-        new LightsXml(path).verifyXmlAgainstSchema();
+        getMetadata(LightsXml.class).verifyXmlAgainstSchema();
     }
 
     @Test
     public void verifyLightsXmlHasUniqueCodes() {
-        new LightsXml(path).verifyHasUniqueCodes();
+        getMetadata(LightsXml.class).verifyHasUniqueCodes();
     }
 
     @Test
     public void verifyLightsXmlCodesAreWithinRange() {
-        new LightsXml(path).verifyCodesAreWithinRange();
+        getMetadata(LightsXml.class).verifyCodesAreWithinRange();
     }
 }
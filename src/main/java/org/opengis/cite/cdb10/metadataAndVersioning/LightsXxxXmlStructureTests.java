@@ -6,23 +6,25 @@ import org.opengis.cite.cdb10.util.XMLUtils;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by martin on 2016-09-12.
  */
 public class LightsXxxXmlStructureTests extends Capability2Tests {
 
-    private static final List<String> DIRECTIONALITY_VALUES = Arrays.asList("Omnidirectional", "Directional", "Bidirectional");
+    /**
+     * The evaluation of each tuning file, made on its first check.
+     */
+    private final Map<File, LightsTuningEvaluation> evaluations = new HashMap<>();
 
     @BeforeClass
     public void checkFilesExist() {
@@ -66,7 +68,9 @@ public class LightsXxxXmlStructureTests extends Capability2Tests {
         for (File xmlFile : getCustomLightsXmlFiles()) {
             File xsdFile = Paths.get(path, "Metadata", "Schema", "Lights_Tuning.xsd").toFile();
 
-            SchemaValidatorErrorHandler errorHandler = XMLUtils.validateXmlFileIsValid(xmlFile, xsdFile);
+            SchemaValidatorErrorHandler errorHandler = (null != schemaValidations)
+                    ? schemaValidations.validate(xmlFile, xsdFile)
+                    : XMLUtils.validateXmlFileIsValid(xmlFile, xsdFile);
 
             if (!errorHandler.noErrors()) {
                 Assert.fail(xmlFile.getName() + " does not contain valid XML. Errors: " + errorHandler.getMessages());
@@ -77,20 +81,19 @@ public class LightsXxxXmlStructureTests extends Capability2Tests {
     @Test
     public void verifyLightsXxxXmlDirectionalityValueIsValid() {
         for (File xmlFile : getCustomLightsXmlFiles()) {
-            ArrayList<String> directionalityValues = getDirectionalityValues(xmlFile);
+            List<String> invalidDirectionalityValues = getEvaluation(xmlFile).getInvalidDirectionalityValues();
 
-            for (String value : directionalityValues) {
-                Assert.assertTrue(DIRECTIONALITY_VALUES.contains(value),
-                        String.format("'%s' element Directionality should have a value of 'Omnidirectional', " +
-                                "'Directional' or 'Bidirectional'. Value '%s' is not valid.", xmlFile.getName(), value));
-            }
+            Assert.assertTrue(invalidDirectionalityValues.isEmpty(),
+                    String.format("'%s' element Directionality should have a value of 'Omnidirectional', " +
+                            "'Directional' or 'Bidirectional'. Value '%s' is not valid.", xmlFile.getName(),
+                            invalidDirectionalityValues.isEmpty() ? "" : invalidDirectionalityValues.get(0)));
         }
     }
 
     @Test
     public void verifyLightsXxxXmlElementIntensityIsInRange() {
         for (File xmlFile : getCustomLightsXmlFiles()) {
-            ArrayList<String> invalidIntensityValues = getInvalidPercentageValues(xmlFile, "//Intensity");
+            List<String> invalidIntensityValues = getEvaluation(xmlFile).getInvalidIntensityValues();
 
             Assert.assertEquals(invalidIntensityValues.size(), 0,
                     String.format("'%s' Intensity elements value can range from 0.0 to 1.0. Values %s are not valid.",
@@ -101,7 +104,7 @@ public class LightsXxxXmlStructureTests extends Capability2Tests {
     @Test
     public void verifyLightsXxxXmlElementResidualIntensityIsInRange() {
         for (File xmlFile : getCustomLightsXmlFiles()) {
-            ArrayList<String> invalidResidualIntensityValues = getInvalidPercentageValues(xmlFile, "//Residual_Intensity");
+            List<String> invalidResidualIntensityValues = getEvaluation(xmlFile).getInvalidResidualIntensityValues();
 
             Assert.assertEquals(invalidResidualIntensityValues.size(), 0,
                     String.format("'%s' Residual_Intensity elements value can range from 0.0 to 1.0. Values %s are not valid.",
@@ -112,7 +115,7 @@ public class LightsXxxXmlStructureTests extends Capability2Tests {
     @Test
     public void verifyLightsXxxXmlElementDuty_CycleIsInRange() {
         for (File xmlFile : getCustomLightsXmlFiles()) {
-            ArrayList<String> invalidResidualIntensityValues = getInvalidPercentageValues(xmlFile, "//Duty_Cycle");
+            List<String> invalidResidualIntensityValues = getEvaluation(xmlFile).getInvalidDutyCycleValues();
 
             Assert.assertEquals(invalidResidualIntensityValues.size(), 0,
                     String.format("'%s' Duty_Cycle elements value can range from 0.0 to 1.0. Values %s are not valid.",
@@ -123,7 +126,7 @@ public class LightsXxxXmlStructureTests extends Capability2Tests {
     @Test
     public void verifyLightsXxxXmlFrequencyValueIsValid() {
         for (File xmlFile : getCustomLightsXmlFiles()) {
-            ArrayList<String> invalidFrequencyValues = getInvalidFrequencyValues(xmlFile);
+            List<String> invalidFrequencyValues = getEvaluation(xmlFile).getInvalidFrequencyValues();
 
             Assert.assertEquals(invalidFrequencyValues.size(), 0,
                     String.format("'%s' Duty_Cycle elements value can range from 0.0 to 1.0. Values %s are not valid.",
@@ -134,7 +137,7 @@ public class LightsXxxXmlStructureTests extends Capability2Tests {
     @Test
     public void verifyLightsXxxXmlColorIsInRange() {
         for (File xmlFile : getCustomLightsXmlFiles()) {
-            ArrayList<String> invalidColorValues = getInvalidColorValues(xmlFile);
+            List<String> invalidColorValues = getEvaluation(xmlFile).getInvalidColorValues();
 
             Assert.assertEquals(invalidColorValues.size(), 0,
                     String.format("'%s' Duty_Cycle elements value can range from 0.0 to 1.0. Values %s are not valid.",
@@ -164,70 +167,20 @@ public class LightsXxxXmlStructureTests extends Capability2Tests {
         return lightsXmlFiles;
     }
 
-    private boolean valueIsOutOfRange(Float value) {
-        return value < 0.0 || value > 1.0;
-    }
-
-    private ArrayList<String> getDirectionalityValues(File xmlFile) {
-        NodeList nodeList = XMLUtils.getNodeList("//Directionality", Paths.get(path, "Metadata", xmlFile.getName()));
-
-        ArrayList<String> directionalityValues = new ArrayList<>();
-
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Node currentItem = nodeList.item(i);
-            directionalityValues.add(currentItem.getTextContent());
-        }
-        return directionalityValues;
-    }
-
-    private ArrayList<String> getInvalidColorValues(File xmlFile) {
-        NodeList frequencyNodes = XMLUtils.getNodeList("//Color", Paths.get(path, "Metadata", xmlFile.getName()));
-
-        ArrayList<String> invalidColorValues = new ArrayList<>();
-
-        for (int i = 0; i < frequencyNodes.getLength(); i++) {
-            Node currentItem = frequencyNodes.item(i);
-            String[] values = currentItem.getTextContent().split("\\s+");
-
-            for (String value : values) {
-                Float floatValue = Float.parseFloat(value);
-                if (valueIsOutOfRange(floatValue)) {
-                    invalidColorValues.add(floatValue.toString());
-                }
-            }
-        }
-        return invalidColorValues;
-    }
-
-    private ArrayList<String> getInvalidPercentageValues(File xmlFile, String nodeToSearchFor) {
-        NodeList nodes = XMLUtils.getNodeList(nodeToSearchFor, Paths.get(path, "Metadata", xmlFile.getName()));
-
-        ArrayList<String> invalidValues = new ArrayList<>();
-
-        for (int i = 0; i < nodes.getLength(); i++) {
-            Node currentItem = nodes.item(i);
-            Float value = Float.parseFloat(currentItem.getTextContent());
-
-            if (valueIsOutOfRange(value)) {
-                invalidValues.add(currentItem.getTextContent());
-            }
-        }
-        return invalidValues;
-    }
-
-    private ArrayList<String> getInvalidFrequencyValues(File xmlFile) {
-        NodeList frequencyNodes = XMLUtils.getNodeList("//Frequency", Paths.get(path, "Metadata", xmlFile.getName()));
-
-        ArrayList<String> invalidFrequencyValues = new ArrayList<>();
-
-        for (int i = 0; i < frequencyNodes.getLength(); i++) {
-            Node currentItem = frequencyNodes.item(i);
-            Float value = Float.parseFloat(currentItem.getTextContent());
-
-            if (value < 0.0) {
-                invalidFrequencyValues.add(currentItem.getTextContent());
+    /**
+     * Returns the evaluation of a tuning file, reading the file on the first
+     * call only.
+     */
+    private synchronized LightsTuningEvaluation getEvaluation(File xmlFile) {
+        LightsTuningEvaluation evaluation = evaluations.get(xmlFile);
+        if (null == evaluation) {
+            try {
+                evaluation = LightsTuningEvaluation.evaluate(xmlFile);
+            } catch (IOException e) {
+                Assert.fail(String.format("Unable to read '%s': %s", xmlFile.getName(), e.getMessage()));
             }
+            evaluations.put(xmlFile, evaluation);
         }
-        return invalidFrequencyValues;
+        return evaluation;
     }
 }
@@ -23,26 +23,26 @@ public class MaterialsXmlStructureTests extends Capability2Tests {
 
     @Test
     public void verifyMaterialsXmlFileExists() {
-        new MaterialsXml(path);
+        getMetadata(MaterialsXml.class);
     }
 
     @Test
     public void verifyMaterialsXmlAgainstSchema() throws IOException, SAXException {
-        new MaterialsXml(path).verifyXmlAgainstSchema();
+        getMetadata(MaterialsXml.class).verifyXmlAgainstSchema();
     }
 
     @Test
     public void verifyMaterialsXmlElementNameIsUnique() {
-        new MaterialsXml(path).verifyElementNameIsUnique();
+        getMetadata(MaterialsXml.class).verifyElementNameIsUnique();
     }
 
     @Test
     public void verifyMaterialsXmlAllBaseMaterialElementsHaveAChildNodeName() {
-        new MaterialsXml(path).verifyAllBaseMaterialElementsHaveAChildNodeName();
+        getMetadata(MaterialsXml.class).verifyAllBaseMaterialElementsHaveAChildNodeName();
     }
 
     @Test
     public void verifyMaterialsXmlBaseMaterialNameIsValid() {
-        new MaterialsXml(path).verifyBaseMaterialNameIsValid();
+        getMetadata(MaterialsXml.class).verifyBaseMaterialNameIsValid();
     }
 }
@@ -2,6 +2,7 @@ package org.opengis.cite.cdb10.metadataAndVersioning;
 
 import org.opengis.cite.cdb10.util.SchemaValidatorErrorHandler;
 import org.opengis.cite.cdb10.util.XMLUtils;
+import org.opengis.cite.cdb10.util.XmlConstraints;
 import org.testng.Assert;
 import org.xml.sax.SAXException;
 
@@ -9,6 +10,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.List;
 
 /**
  * Created by martin on 2016-09-20.
@@ -16,6 +18,12 @@ import java.nio.file.Paths;
 public abstract class MetadataXmlFile {
 	protected File xmlFile;
 	protected File xsdFile;
+	/**
+	 * The constraints on the values of the file, evaluated together in one
+	 * pass over the file on the first check.
+	 */
+	protected final XmlConstraints constraints = new XmlConstraints();
+	private SchemaValidations schemaValidations;
 
 	public MetadataXmlFile(String path, String xmlFileName, String xsdFileName) {
 		Assert.assertTrue(Files.exists(Paths.get(path, "Metadata")), String.format("Metadata directory is missing, needed for " + xmlFileName));
@@ -26,14 +34,75 @@ public abstract class MetadataXmlFile {
 		this.verifyXmlFileExists();
 	}
 
+	/**
+	 * Reads the content used by the lookups of this file into memory, so that
+	 * the cost is paid once, ahead of the tests. Files that are only checked
+	 * against their schema have nothing to read.
+	 */
+	public void load() {
+	}
+
+	/**
+	 * Makes {@link #verifyXmlAgainstSchema()} use the result of a validation
+	 * started with the suite.
+	 *
+	 * @param schemaValidations
+	 *            The validations of the Metadata files of the CDB.
+	 */
+	public void setSchemaValidations(SchemaValidations schemaValidations) {
+		this.schemaValidations = schemaValidations;
+	}
+
+	public File getXmlFile() {
+		return this.xmlFile;
+	}
+
 	public void verifyXmlAgainstSchema() throws IOException, SAXException {
-		SchemaValidatorErrorHandler errorHandler = XMLUtils.validateXmlFileIsValid(this.xmlFile, this.xsdFile);
+		SchemaValidatorErrorHandler errorHandler = (null != this.schemaValidations)
+				? this.schemaValidations.validate(this.xmlFile, this.xsdFile)
+				: XMLUtils.validateXmlFileIsValid(this.xmlFile, this.xsdFile);
 
 		if (!errorHandler.noErrors()) {
 			Assert.fail(this.xmlFile.getName() + " does not contain valid XML. Errors: " + errorHandler.getMessages());
 		}
 	}
 
+	/**
+	 * Returns the violations of one of the {@link #constraints} of this file.
+	 *
+	 * @param constraint
+	 *            A constraint declared on this file.
+	 * @return The violations found, in document order.
+	 */
+	protected List<XmlConstraints.Violation> getViolations(XmlConstraints.Constraint constraint) {
+		try {
+			this.constraints.evaluate(this.xmlFile.toPath());
+		} catch (IOException e) {
+			Assert.fail(String.format("Unable to read %s: %s", this.xmlFile.getName(), e.getMessage()));
+		}
+		return constraint.getViolations();
+	}
+
+	/**
+	 * Describes every violation of a rule, for example "Code 'a' is not valid.
+	 * Code 'b' is not valid."
+	 *
+	 * @param rule
+	 *            The rule, as the first sentence of the description.
+	 * @param format
+	 *            The description of a single violation, with a %s for its value.
+	 * @param violations
+	 *            The violations found.
+	 * @return The description.
+	 */
+	protected static String describeViolations(String rule, String format, List<XmlConstraints.Violation> violations) {
+		StringBuilder description = new StringBuilder(rule);
+		for (XmlConstraints.Violation violation : violations) {
+			description.append(' ').append(String.format(format, violation.getValue()));
+		}
+		return description.toString();
+	}
+
 	private void verifyXmlFileExists() {
 		Assert.assertTrue(Files.exists(this.xmlFile.toPath()), String.format("Metadata directory should contain %s file.", this.xmlFile.getName()));
 		Assert.assertTrue(Files.exists(this.xsdFile.toPath()), String.format("Metadata directory should contain %s file.", this.xsdFile.getName()));
@@ -13,11 +13,11 @@ public class ModelComponentsXmlStructureTests extends Capability2Tests {
 
     @Test
     public void verifyModelComponentsXmlFileExists() {
-        new ModelComponentsXml(path);
+        getMetadata(ModelComponentsXml.class);
     }
 
     @Test
     public void verifyModelComponentsXmlAgainstSchema() throws IOException, SAXException {
-        new ModelComponentsXml(path).verifyXmlAgainstSchema();
+        getMetadata(ModelComponentsXml.class).verifyXmlAgainstSchema();
     }
 }
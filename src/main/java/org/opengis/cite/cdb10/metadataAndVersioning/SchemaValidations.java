@@ -0,0 +1,167 @@
+package org.opengis.cite.cdb10.metadataAndVersioning;
+
+import org.opengis.cite.cdb10.util.SchemaValidatorErrorHandler;
+import org.opengis.cite.cdb10.util.TestSuiteLogger;
+import org.opengis.cite.cdb10.util.XMLUtils;
+import org.xml.sax.SAXException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+
+/**
+ * The schema validation of every Metadata file of a CDB, started in parallel
+ * when the suite starts. The tests that validate a file against its schema
+ * read the precomputed result instead of validating the file themselves, so
+ * the time taken by the validations is roughly that of the largest file.
+ */
+public class SchemaValidations {
+
+    /**
+     * The schema of each Metadata file with a fixed name.
+     */
+    static final Map<String, String> SCHEMAS = initSchemas();
+
+    /**
+     * The schema of the custom Lights_xxx.xml tuning files.
+     */
+    static final String LIGHTS_TUNING_SCHEMA = "Lights_Tuning.xsd";
+
+    private final Map<String, Future<SchemaValidatorErrorHandler>> results;
+
+    private static Map<String, String> initSchemas() {
+        Map<String, String> schemas = new LinkedHashMap<>();
+        schemas.put("CDB_Attributes.xml", "Vector_Attributes.xsd");
+        schemas.put("Configuration.xml", "Configuration.xsd");
+        schemas.put("Datasets.xml", "Datasets.xsd");
+        schemas.put("Defaults.xml", "Defaults.xsd");
+        schemas.put("DIS_Country_Codes.xml", "DIS_Country_Codes.xsd");
+        schemas.put("Feature_Data_Dictionary.xml", "Feature_Data_Dictionary.xsd");
+        schemas.put("Geomatics_Attributes.xml", "Geomatics_Attributes.xsd");
+        schemas.put("Lights.xml", "Lights.xsd");
+        schemas.put("Materials.xml", "Base_Material_Table.xsd");
+        schemas.put("Model_Components.xml", "Model_Components.xsd");
+        schemas.put("Moving_Model_Codes.xml", "Moving_Model_Codes.xsd");
+        schemas.put("Vendor_Attributes.xml", "Vendor_Attributes.xsd");
+        schemas.put("Version.xml", "Version.xsd");
+        return Collections.unmodifiableMap(schemas);
+    }
+
+    private SchemaValidations(Map<String, Future<SchemaValidatorErrorHandler>> results) {
+        this.results = results;
+    }
+
+    /**
+     * Starts validating the Metadata files of a CDB that have a schema in
+     * the Metadata/Schema directory. Files or schemas that are missing are
+     * skipped; the tests report them.
+     *
+     * @param path    The CDB root directory.
+     * @param threads The number of files validated at the same time.
+     * @return The validations, which may still be running.
+     */
+    public static SchemaValidations start(String path, int threads) {
+        Path metadata = Paths.get(path, "Metadata");
+        Map<File, File> pairs = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : SCHEMAS.entrySet()) {
+            addPair(pairs, metadata, entry.getKey(), entry.getValue());
+        }
+        if (Files.isDirectory(metadata)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(metadata, "Lights_*.xml")) {
+                for (Path entry : stream) {
+                    addPair(pairs, metadata, entry.getFileName().toString(), LIGHTS_TUNING_SCHEMA);
+                }
+            } catch (IOException e) {
+                TestSuiteLogger.log(Level.WARNING, "Unable to list the Lights_xxx.xml files in " + metadata, e);
+            }
+        }
+
+        Map<String, Future<SchemaValidatorErrorHandler>> results = new HashMap<>();
+        if (!pairs.isEmpty()) {
+            int poolSize = Math.max(1, Math.min(threads, pairs.size()));
+            ExecutorService executor = Executors.newFixedThreadPool(poolSize, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "metadata-validation");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            for (final Map.Entry<File, File> pair : pairs.entrySet()) {
+                results.put(key(pair.getKey(), pair.getValue()),
+                        executor.submit(new Callable<SchemaValidatorErrorHandler>() {
+                            @Override
+                            public SchemaValidatorErrorHandler call() throws SAXException, IOException {
+                                return XMLUtils.validateXmlFileIsValid(pair.getKey(), pair.getValue());
+                            }
+                        }));
+            }
+            executor.shutdown();
+            TestSuiteLogger.log(Level.CONFIG, String.format("Validating %d Metadata file(s) on %d thread(s)",
+                    pairs.size(), poolSize));
+        }
+        return new SchemaValidations(results);
+    }
+
+    private static void addPair(Map<File, File> pairs, Path metadata, String xmlFileName, String xsdFileName) {
+        Path xmlFile = metadata.resolve(xmlFileName);
+        Path xsdFile = metadata.resolve(Paths.get("Schema", xsdFileName));
+        if (Files.isRegularFile(xmlFile) && Files.isRegularFile(xsdFile)) {
+            pairs.put(xmlFile.toFile(), xsdFile.toFile());
+        }
+    }
+
+    private static String key(File xmlFile, File xsdFile) {
+        return xmlFile.getAbsoluteFile().toPath().normalize() + File.pathSeparator
+                + xsdFile.getAbsoluteFile().toPath().normalize();
+    }
+
+    /**
+     * Validates a file against a schema, waiting for the result if the
+     * validation was started with the suite and validating the file now
+     * otherwise.
+     *
+     * @param xmlFile The XML file.
+     * @param xsdFile The schema.
+     * @return The errors found.
+     * @throws SAXException If the schema cannot be read.
+     * @throws IOException  If the file cannot be read.
+     */
+    public SchemaValidatorErrorHandler validate(File xmlFile, File xsdFile) throws SAXException, IOException {
+        Future<SchemaValidatorErrorHandler> result = results.get(key(xmlFile, xsdFile));
+        if (null != result) {
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SAXException) {
+                    throw (SAXException) cause;
+                }
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+        return XMLUtils.validateXmlFileIsValid(xmlFile, xsdFile);
+    }
+}
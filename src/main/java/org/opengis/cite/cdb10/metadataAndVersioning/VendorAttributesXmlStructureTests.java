@@ -13,16 +13,16 @@ public class VendorAttributesXmlStructureTests extends Capability2Tests {
 
     @Test
     public void verifyVendorAttributesXmlFileExists() {
-        new VendorAttributesXml(path);
+        getMetadata(VendorAttributesXml.class);
     }
 
     @Test
     public void verifyVendorAttributesXsdFileExists() {
-        new VendorAttributesXml(path).verifyVendorAttributesXsdFileExists();
+        getMetadata(VendorAttributesXml.class).verifyVendorAttributesXsdFileExists();
     }
 
     @Test
     public void verifyVendorAttributesXmlAgainstSchema() throws IOException, SAXException {
-        new VendorAttributesXml(path).verifyXmlAgainstSchema();
+        getMetadata(VendorAttributesXml.class).verifyXmlAgainstSchema();
     }
 }
@@ -13,21 +13,21 @@ public class VersionXmlStructureTests extends Capability2Tests {
 
     @Test
     public void verifyVersionXmlFileExists() {
-        new VersionXml(path);
+        getMetadata(VersionXml.class);
     }
 
     @Test
     public void verifyVersionXmlAgainstSchema() throws IOException, SAXException {
-        new VersionXml(path).verifyXmlAgainstSchema();
+        getMetadata(VersionXml.class).verifyXmlAgainstSchema();
     }
 
     @Test
     public void verifyVersionXmlHasSpecificationElement() {
-        new VersionXml(path).verifyHasSpecificationElement();
+        getMetadata(VersionXml.class).verifyHasSpecificationElement();
     }
 
     @Test
     public void verifyVersionXmlSpecificationVersionIsValid() {
-        new VersionXml(path).verifySpecificationVersionIsValid();
+        getMetadata(VersionXml.class).verifySpecificationVersionIsValid();
     }
 }
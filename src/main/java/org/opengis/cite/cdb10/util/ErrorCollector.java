@@ -0,0 +1,245 @@
+package org.opengis.cite.cdb10.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Collects the violations found by a test with bounded memory use. Only the
+ * first examples and a count per kind of violation are kept in memory; once
+ * there are more violations than examples, the full list is written to a
+ * gzipped temporary file that is referenced from the assertion message. The
+ * file is complete once the collector is closed, which building the message
+ * also does.
+ *
+ * <p>
+ * The kind of a violation is the part of its message before the first ": ",
+ * e.g. "Invalid LOD name" for "Invalid LOD name: L99".
+ * </p>
+ */
+public class ErrorCollector implements Closeable {
+
+    /**
+     * The default number of violations kept in memory.
+     */
+    public static final int DEFAULT_EXAMPLES = 100;
+
+    /**
+     * The maximum number of distinct kinds counted; any further kinds are
+     * counted together.
+     */
+    static final int MAX_KINDS = 1000;
+
+    static final String OTHER_KIND = "(other)";
+
+    private final int maxExamples;
+    private final List<String> examples = new ArrayList<String>();
+    private final Map<String, Integer> kinds = new LinkedHashMap<String, Integer>();
+    private long count;
+    private long failedEntries;
+    private boolean byEntry;
+    private boolean entryFailed;
+    private File spillFile;
+    private Writer spill;
+
+    public ErrorCollector() {
+        this(DEFAULT_EXAMPLES);
+    }
+
+    /**
+     * @param maxExamples The number of violations kept in memory.
+     */
+    public ErrorCollector(int maxExamples) {
+        this.maxExamples = maxExamples;
+    }
+
+    /**
+     * Records a violation.
+     *
+     * @param error A description of the violation.
+     */
+    public void add(String error) {
+        count++;
+        if (!byEntry || !entryFailed) {
+            failedEntries++;
+            entryFailed = true;
+        }
+        String kind = kindOf(error);
+        Integer kindCount = kinds.get(kind);
+        if (null == kindCount && kinds.size() >= MAX_KINDS) {
+            kind = OTHER_KIND;
+            kindCount = kinds.get(kind);
+        }
+        kinds.put(kind, (null == kindCount) ? 1 : kindCount + 1);
+
+        if (examples.size() < maxExamples) {
+            examples.add(error);
+        } else {
+            spill(error);
+        }
+    }
+
+    /**
+     * Records several violations.
+     *
+     * @param errors Descriptions of the violations.
+     */
+    public void addAll(Collection<String> errors) {
+        for (String error : errors) {
+            add(error);
+        }
+    }
+
+    /**
+     * Marks the start of the checks on another entry, so that the violations
+     * recorded until the next call count as one failed entry. If this method
+     * is never called, each violation counts as a failed entry.
+     */
+    public void beginEntry() {
+        byEntry = true;
+        entryFailed = false;
+    }
+
+    static String kindOf(String error) {
+        int colon = error.indexOf(": ");
+        return (colon < 0) ? error : error.substring(0, colon);
+    }
+
+    private void spill(String error) {
+        try {
+            if (null == spill) {
+                boolean append = (null != spillFile);
+                if (!append) {
+                    spillFile = File.createTempFile("cdb-errors-", ".txt.gz");
+                }
+                spill = new BufferedWriter(new OutputStreamWriter(
+                        new GZIPOutputStream(new FileOutputStream(spillFile, append)), StandardCharsets.UTF_8));
+                if (!append) {
+                    for (String example : examples) {
+                        spill.write(example);
+                        spill.write('\n');
+                    }
+                }
+            }
+            spill.write(error);
+            spill.write('\n');
+        } catch (IOException e) {
+            TestSuiteLogger.log(Level.WARNING, "Unable to write violations to " + spillFile, e);
+        }
+    }
+
+    /**
+     * @return The total number of violations recorded.
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * @return The number of entries with at least one violation, as delimited
+     *         by {@link #beginEntry()}.
+     */
+    public long getFailedEntries() {
+        return failedEntries;
+    }
+
+    /**
+     * @return true if no violation has been recorded.
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @return The violations kept in memory, in the order they were recorded.
+     */
+    public List<String> getExamples() {
+        return Collections.unmodifiableList(examples);
+    }
+
+    /**
+     * @return The number of violations recorded per kind.
+     */
+    public Map<String, Integer> getCountsByKind() {
+        return Collections.unmodifiableMap(kinds);
+    }
+
+    /**
+     * @return The file holding every violation, or null if all of them fit in
+     *         memory.
+     */
+    public File getSpillFile() {
+        return spillFile;
+    }
+
+    /**
+     * Builds the assertion message. If every violation fits in memory this is
+     * the violations, one per line; otherwise it is a summary with the counts
+     * per kind, the first violations and the location of the full list.
+     *
+     * @return A description of the violations recorded.
+     */
+    public String getMessage() {
+        if (count <= maxExamples) {
+            return join(examples);
+        }
+        close();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(count).append(" violations");
+        for (Map.Entry<String, Integer> kind : kinds.entrySet()) {
+            sb.append("\n  ").append(kind.getValue()).append(" x ").append(kind.getKey());
+        }
+        sb.append("\nFirst ").append(examples.size()).append(":\n").append(join(examples));
+        if (null != spillFile) {
+            sb.append("\nFull list: ").append(spillFile.getAbsolutePath());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Flushes and closes the file holding every violation, if there is one.
+     * Recording further violations appends them to the file.
+     */
+    @Override
+    public void close() {
+        if (null == spill) {
+            return;
+        }
+        try {
+            spill.close();
+        } catch (IOException e) {
+            TestSuiteLogger.log(Level.WARNING, "Unable to write violations to " + spillFile, e);
+        }
+        spill = null;
+    }
+
+    private static String join(List<String> lines) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(line);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getMessage();
+    }
+}
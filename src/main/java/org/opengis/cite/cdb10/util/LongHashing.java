@@ -0,0 +1,47 @@
+package org.opengis.cite.cdb10.util;
+
+/**
+ * The slot arithmetic shared by {@link LongSet} and {@link LongMap}. Keys are
+ * mixed with the finalizer of MurmurHash3 and mapped to a slot by a
+ * multiply-shift, so a table can have any capacity rather than a power of
+ * two, which keeps a table sized for a given number of values close to
+ * that number divided by the load factor.
+ */
+final class LongHashing {
+
+    private LongHashing() {
+    }
+
+    static int slot(long key, int capacity) {
+        long hash = key;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) (((hash >>> 32) * capacity) >>> 32);
+    }
+
+    static int next(int slot, int capacity) {
+        return (slot + 1 == capacity) ? 0 : slot + 1;
+    }
+
+    static int threshold(int capacity) {
+        return (int) Math.min(capacity - 1L, (long) (capacity * (double) LongSet.LOAD_FACTOR));
+    }
+
+    static int capacityFor(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Negative size: " + expectedSize);
+        }
+        long capacity = (long) Math.ceil(expectedSize / (double) LongSet.LOAD_FACTOR) + 1;
+        return (int) Math.min(LongSet.MAX_CAPACITY, Math.max(LongSet.DEFAULT_CAPACITY, capacity));
+    }
+
+    static int grow(int capacity) {
+        if (capacity >= LongSet.MAX_CAPACITY) {
+            throw new IllegalStateException("Table is full: " + capacity + " slots");
+        }
+        return (int) Math.min(LongSet.MAX_CAPACITY, 2L * capacity);
+    }
+}
@@ -0,0 +1,186 @@
+package org.opengis.cite.cdb10.util;
+
+import java.util.Arrays;
+
+/**
+ * A map from long keys to long values stored in two parallel open-addressing
+ * tables with linear probing, about 22 bytes per entry when created for its
+ * expected size. Not safe to share between threads.
+ */
+public class LongMap {
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private boolean containsZero;
+    private long zeroValue;
+
+    public LongMap() {
+        this(LongSet.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize The number of entries the map should hold without
+     *                     growing.
+     */
+    public LongMap(int expectedSize) {
+        int capacity = LongHashing.capacityFor(expectedSize);
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+    }
+
+    /**
+     * @param key          A key.
+     * @param defaultValue The value returned if the key is not in the map.
+     * @return The value of the key, or the default value.
+     */
+    public long get(long key, long defaultValue) {
+        if (0 == key) {
+            return containsZero ? zeroValue : defaultValue;
+        }
+        int slot = find(key);
+        return (slot < 0) ? defaultValue : values[slot];
+    }
+
+    /**
+     * @param key A key.
+     * @return true if the key is in the map.
+     */
+    public boolean containsKey(long key) {
+        return (0 == key) ? containsZero : find(key) >= 0;
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key   A key.
+     * @param value The new value.
+     * @return true if the key was not in the map.
+     */
+    public boolean put(long key, long value) {
+        if (0 == key) {
+            zeroValue = value;
+            return addZero();
+        }
+        int slot = slotFor(key);
+        values[slot] = value;
+        return afterInsert(slot, key);
+    }
+
+    /**
+     * Adds to the value of a key, starting from 0 if the key is not in the
+     * map; useful to count occurrences.
+     *
+     * @param key   A key.
+     * @param delta The amount to add.
+     * @return The new value.
+     */
+    public long addTo(long key, long delta) {
+        if (0 == key) {
+            zeroValue = containsZero ? zeroValue + delta : delta;
+            addZero();
+            return zeroValue;
+        }
+        int slot = slotFor(key);
+        long value = (0 == keys[slot]) ? delta : values[slot] + delta;
+        values[slot] = value;
+        afterInsert(slot, key);
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return 0 == size;
+    }
+
+    /**
+     * Removes every entry, keeping the tables.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(values, 0L);
+        containsZero = false;
+        zeroValue = 0L;
+        size = 0;
+    }
+
+    /**
+     * @return The keys of the map, in no particular order.
+     */
+    public long[] keys() {
+        long[] result = new long[size];
+        int count = 0;
+        if (containsZero) {
+            result[count++] = 0L;
+        }
+        for (long key : keys) {
+            if (0 != key) {
+                result[count++] = key;
+            }
+        }
+        return result;
+    }
+
+    private boolean addZero() {
+        if (containsZero) {
+            return false;
+        }
+        containsZero = true;
+        size++;
+        return true;
+    }
+
+    private int find(long key) {
+        int slot = LongHashing.slot(key, keys.length);
+        while (0 != keys[slot]) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = LongHashing.next(slot, keys.length);
+        }
+        return -1;
+    }
+
+    /**
+     * @return The slot of the key, or the empty slot where it belongs.
+     */
+    private int slotFor(long key) {
+        int slot = LongHashing.slot(key, keys.length);
+        while (0 != keys[slot] && keys[slot] != key) {
+            slot = LongHashing.next(slot, keys.length);
+        }
+        return slot;
+    }
+
+    private boolean afterInsert(int slot, long key) {
+        if (0 != keys[slot]) {
+            return false;
+        }
+        keys[slot] = key;
+        size++;
+        if (size > LongHashing.threshold(keys.length)) {
+            rehash(LongHashing.grow(keys.length));
+        }
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[capacity];
+        values = new long[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (0 != oldKeys[i]) {
+                int slot = LongHashing.slot(oldKeys[i], capacity);
+                while (0 != keys[slot]) {
+                    slot = LongHashing.next(slot, capacity);
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
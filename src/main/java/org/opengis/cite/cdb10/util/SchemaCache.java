@@ -0,0 +1,101 @@
+package org.opengis.cite.cdb10.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.XMLConstants;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Keeps compiled XML schemas so that each schema file is compiled once and a
+ * Validator can be created cheaply for every file checked against it.
+ * Schemas are keyed by the canonical path of the schema file and compiled
+ * again if its modification time changes; changes to schemas it includes or
+ * imports are not detected.
+ */
+public class SchemaCache {
+
+    private static final ConcurrentMap<String, Entry> SCHEMAS = new ConcurrentHashMap<String, Entry>();
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private SchemaCache() {
+    }
+
+    /**
+     * Returns the compiled schema of an XSD file, compiling it if it is not
+     * cached or has changed. A schema that fails to compile is not cached.
+     *
+     * @param xsdFile
+     *            The schema file.
+     * @return The compiled schema, which is safe to share between threads.
+     * @throws SAXException
+     *             If the schema cannot be compiled.
+     * @throws IOException
+     *             If the canonical path of the file cannot be determined.
+     */
+    public static Schema getSchema(File xsdFile) throws SAXException, IOException {
+        File canonical = xsdFile.getCanonicalFile();
+        Entry entry = SCHEMAS.get(canonical.getPath());
+        if (null == entry) {
+            Entry created = new Entry();
+            entry = SCHEMAS.putIfAbsent(canonical.getPath(), created);
+            if (null == entry) {
+                entry = created;
+            }
+        }
+        return entry.get(canonical);
+    }
+
+    /**
+     * @return The number of requests answered from the cache.
+     */
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    /**
+     * @return The number of requests that compiled a schema.
+     */
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    /**
+     * Discards every cached schema and resets the counters.
+     */
+    public static void clear() {
+        SCHEMAS.clear();
+        HITS.set(0);
+        MISSES.set(0);
+    }
+
+    /**
+     * The compiled schema of one file, and the modification time of the file
+     * when it was compiled.
+     */
+    private static class Entry {
+
+        private Schema schema;
+        private long lastModified;
+
+        synchronized Schema get(File xsdFile) throws SAXException {
+            long modified = xsdFile.lastModified();
+            if (null != schema && modified == lastModified) {
+                HITS.incrementAndGet();
+                return schema;
+            }
+            MISSES.incrementAndGet();
+            SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            schema = schemaFactory.newSchema(xsdFile);
+            lastModified = modified;
+            return schema;
+        }
+    }
+}
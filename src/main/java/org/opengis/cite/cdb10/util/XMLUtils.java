@@ -1,15 +1,23 @@
 package org.opengis.cite.cdb10.util;
 
 import java.io.*;
+import java.net.URI;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -25,7 +33,6 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
 import javax.xml.xpath.*;
 
@@ -34,13 +41,13 @@ import net.sf.saxon.s9api.DocumentBuilder;
 import net.sf.saxon.s9api.Processor;
 import net.sf.saxon.s9api.SaxonApiException;
 import net.sf.saxon.s9api.XPathCompiler;
+import net.sf.saxon.s9api.XPathExecutable;
 import net.sf.saxon.s9api.XPathSelector;
 import net.sf.saxon.s9api.XQueryCompiler;
 import net.sf.saxon.s9api.XQueryEvaluator;
 import net.sf.saxon.s9api.XQueryExecutable;
 import net.sf.saxon.s9api.XdmNode;
 import net.sf.saxon.s9api.XdmValue;
-import net.sf.saxon.s9api.XsltCompiler;
 import net.sf.saxon.s9api.XsltExecutable;
 import net.sf.saxon.s9api.XsltTransformer;
 
@@ -59,12 +66,67 @@ public class XMLUtils {
     private static final Logger LOGR = Logger.getLogger(XMLUtils.class.getPackage().getName());
     private static final XMLInputFactory STAX_FACTORY = initXMLInputFactory();
     private static final XPathFactory XPATH_FACTORY = initXPathFactory();
+    /**
+     * The number of parsed files kept by {@link #getNodeList}.
+     */
+    static final int MAX_CACHED_DOCUMENTS = 32;
+    /**
+     * The number of compiled expressions kept per thread by
+     * {@link #getNodeList}.
+     */
+    static final int MAX_CACHED_EXPRESSIONS = 256;
+    /**
+     * The number of compiled XPath 2.0 expressions, XQuery expressions and
+     * stylesheets each kept by the Saxon-based methods.
+     */
+    static final int MAX_CACHED_EXECUTABLES = 128;
+    /**
+     * The Saxon processor shared by the XPath 2.0, XQuery and XSLT methods;
+     * it and the executables it compiles are thread-safe.
+     */
+    private static final Processor SAXON_PROCESSOR = new Processor(false);
+    private static final Map<String, XPathExecutable> XPATH2_EXECUTABLES = Collections.synchronizedMap(
+            new LruMap<String, XPathExecutable>(MAX_CACHED_EXECUTABLES));
+    private static final Map<String, XQueryExecutable> XQUERY_EXECUTABLES = Collections.synchronizedMap(
+            new LruMap<String, XQueryExecutable>(MAX_CACHED_EXECUTABLES));
+    private static final Map<Path, CachedStylesheet> XSLT_EXECUTABLES = Collections.synchronizedMap(
+            new LruMap<Path, CachedStylesheet>(MAX_CACHED_EXECUTABLES));
+    private static final Map<Path, CachedDocument> DOCUMENT_CACHE = new LruMap<Path, CachedDocument>(
+            MAX_CACHED_DOCUMENTS);
+    private static final ThreadLocal<javax.xml.parsers.DocumentBuilder> DOCUMENT_BUILDER = new ThreadLocal<javax.xml.parsers.DocumentBuilder>() {
+        @Override
+        protected javax.xml.parsers.DocumentBuilder initialValue() {
+            try {
+                return initDocumentBuilderFactory().newDocumentBuilder();
+            } catch (ParserConfigurationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+    private static final ThreadLocal<Map<String, XPathExpression>> XPATH_EXPRESSIONS = new ThreadLocal<Map<String, XPathExpression>>() {
+        @Override
+        protected Map<String, XPathExpression> initialValue() {
+            return new LruMap<String, XPathExpression>(MAX_CACHED_EXPRESSIONS);
+        }
+    };
 
     private static XPathFactory initXPathFactory() {
         XPathFactory factory = XPathFactory.newInstance();
         return factory;
     }
 
+    private static DocumentBuilderFactory initDocumentBuilderFactory() {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        try {
+            // Cached documents are read from several threads; a fully built
+            // tree is not modified by reading it.
+            factory.setFeature("http://apache.org/xml/features/dom/defer-node-expansion", false);
+        } catch (ParserConfigurationException e) {
+            LOGR.log(Level.FINE, "Deferred node expansion cannot be disabled", e);
+        }
+        return factory;
+    }
+
     private static XMLInputFactory initXMLInputFactory() {
         XMLInputFactory factory = XMLInputFactory.newInstance();
         factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
@@ -212,15 +274,20 @@ public class XMLUtils {
      */
     public static XdmValue evaluateXPath2(Source xmlSource, String expr, Map<String, String> nsBindings)
             throws SaxonApiException {
-        Processor proc = new Processor(false);
-        XPathCompiler compiler = proc.newXPathCompiler();
-        if (null != nsBindings) {
-            for (String nsURI : nsBindings.keySet()) {
-                compiler.declareNamespace(nsBindings.get(nsURI), nsURI);
+        String key = executableKey(expr, nsBindings);
+        XPathExecutable exec = XPATH2_EXECUTABLES.get(key);
+        if (null == exec) {
+            XPathCompiler compiler = SAXON_PROCESSOR.newXPathCompiler();
+            if (null != nsBindings) {
+                for (String nsURI : nsBindings.keySet()) {
+                    compiler.declareNamespace(nsBindings.get(nsURI), nsURI);
+                }
             }
+            exec = compiler.compile(expr);
+            XPATH2_EXECUTABLES.put(key, exec);
         }
-        XPathSelector xpath = compiler.compile(expr).load();
-        DocumentBuilder builder = proc.newDocumentBuilder();
+        XPathSelector xpath = exec.load();
+        DocumentBuilder builder = SAXON_PROCESSOR.newDocumentBuilder();
         XdmNode node = null;
         if (DOMSource.class.isInstance(xmlSource)) {
             DOMSource domSource = (DOMSource) xmlSource;
@@ -250,19 +317,83 @@ public class XMLUtils {
      */
     public static XdmValue evaluateXQuery(Source source, String query, Map<String, String> nsBindings)
             throws SaxonApiException {
-        Processor proc = new Processor(false);
-        XQueryCompiler xqCompiler = proc.newXQueryCompiler();
-        if (null != nsBindings) {
-            for (String nsURI : nsBindings.keySet()) {
-                xqCompiler.declareNamespace(nsBindings.get(nsURI), nsURI);
+        String key = executableKey(query, nsBindings);
+        XQueryExecutable xqExec = XQUERY_EXECUTABLES.get(key);
+        if (null == xqExec) {
+            XQueryCompiler xqCompiler = SAXON_PROCESSOR.newXQueryCompiler();
+            if (null != nsBindings) {
+                for (String nsURI : nsBindings.keySet()) {
+                    xqCompiler.declareNamespace(nsBindings.get(nsURI), nsURI);
+                }
             }
+            xqExec = xqCompiler.compile(query);
+            XQUERY_EXECUTABLES.put(key, xqExec);
         }
-        XQueryExecutable xqExec = xqCompiler.compile(query);
         XQueryEvaluator xqEval = xqExec.load();
         xqEval.setSource(source);
         return xqEval.evaluate();
     }
 
+    /**
+     * Returns the cache key of a compiled expression: the expression text
+     * followed by its namespace bindings in a fixed order.
+     */
+    private static String executableKey(String expr, Map<String, String> nsBindings) {
+        StringBuilder key = new StringBuilder(expr);
+        if (null != nsBindings) {
+            for (Map.Entry<String, String> binding : new TreeMap<String, String>(nsBindings).entrySet()) {
+                key.append('\u0000').append(binding.getValue()).append('=').append(binding.getKey());
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Compiles a stylesheet. The compiled form of a stylesheet read from a
+     * file is reused until the size or modification time of that file
+     * changes; any other source, including a stream or reader that merely
+     * carries a system identifier, is compiled on every call.
+     */
+    private static XsltExecutable compileXslt(Source xslt) throws SaxonApiException {
+        Path file = stylesheetFile(xslt);
+        if (null == file) {
+            return SAXON_PROCESSOR.newXsltCompiler().compile(xslt);
+        }
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return SAXON_PROCESSOR.newXsltCompiler().compile(xslt);
+        }
+        CachedStylesheet cached = XSLT_EXECUTABLES.get(file);
+        if (null == cached || !cached.matches(attrs)) {
+            cached = new CachedStylesheet(SAXON_PROCESSOR.newXsltCompiler().compile(xslt), attrs);
+            XSLT_EXECUTABLES.put(file, cached);
+        }
+        return cached.executable;
+    }
+
+    /**
+     * Returns the file a stylesheet is read from, or null if the source is
+     * not a stream source naming a local file and nothing else.
+     */
+    private static Path stylesheetFile(Source xslt) {
+        if (!(xslt instanceof StreamSource)) {
+            return null;
+        }
+        StreamSource stream = (StreamSource) xslt;
+        String systemId = stream.getSystemId();
+        if (null != stream.getInputStream() || null != stream.getReader()
+                || null == systemId || !systemId.startsWith("file:")) {
+            return null;
+        }
+        try {
+            return Paths.get(URI.create(systemId)).toAbsolutePath().normalize();
+        } catch (IllegalArgumentException | FileSystemNotFoundException e) {
+            return null;
+        }
+    }
+
     /**
      * Creates a new Element having the specified qualified name. The element
      * must be {@link Document#adoptNode(Node) adopted} when inserted into
@@ -307,6 +438,26 @@ public class XMLUtils {
         return list;
     }
 
+    /**
+     * Returns the child elements of a node that have the given name.
+     *
+     * @param node
+     *            The parent node.
+     * @param name
+     *            The node name of the elements to return.
+     * @return A List containing the matching child elements in document order;
+     *         the list is empty if there are none.
+     */
+    public static List<Node> getChildElements(Node node, String name) {
+        List<Node> list = new ArrayList<Node>();
+        for (Node child = node.getFirstChild(); null != child; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE && child.getNodeName().equals(name)) {
+                list.add(child);
+            }
+        }
+        return list;
+    }
+
     /**
      * Transforms the content of a DOM Node using a specified XSLT stylesheet.
      * 
@@ -331,10 +482,8 @@ public class XMLUtils {
         } catch (ParserConfigurationException pce) {
             throw new RuntimeException(pce);
         }
-        Processor processor = new Processor(false);
-        XsltCompiler compiler = processor.newXsltCompiler();
         try {
-            XsltExecutable exec = compiler.compile(xslt);
+            XsltExecutable exec = compileXslt(xslt);
             XsltTransformer transformer = exec.load();
             transformer.setSource(new DOMSource(sourceDoc));
             transformer.setDestination(new DOMDestination(resultDoc));
@@ -409,7 +558,8 @@ public class XMLUtils {
     }
 
     /**
-     * Returns a errors from schema validation.
+     * Returns a errors from schema validation. The schema is compiled once
+     * and reused through {@link SchemaCache}.
      *
      * @param xmlFile
      *              An xml file to be validated
@@ -420,8 +570,7 @@ public class XMLUtils {
      */
     public static SchemaValidatorErrorHandler validateXmlFileIsValid(File xmlFile, File xsdFile) throws SAXException, IOException {
         SchemaValidatorErrorHandler errorHandler = new SchemaValidatorErrorHandler();
-        SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        Schema schema = schemaFactory.newSchema(xsdFile);
+        Schema schema = SchemaCache.getSchema(xsdFile);
 
         Validator validator = schema.newValidator();
         validator.setErrorHandler(errorHandler);
@@ -432,23 +581,155 @@ public class XMLUtils {
     }
 
     /**
-     * Returns a list of nodes based on an xPath query
+     * Returns a list of nodes based on an xPath query. Parsed files are cached
+     * and reused for as long as their size and modification time are
+     * unchanged, and compiled expressions are cached per thread, so repeated
+     * queries against the same file only cost the evaluation. The returned
+     * list is a copy and is not affected by later queries.
      *
      * @param xpathQuery
      *              xPath search query
      * @param xmlFile
      *              xml file to be searched
      *
-     * @return A list of nodes if found in the xml file.
+     * @return A list of nodes if found in the xml file, or null if the file
+     *         cannot be read or the query is not valid.
      * */
     public static NodeList getNodeList(String xpathQuery, Path xmlFile) {
         try {
-            Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(String.valueOf(xmlFile));
-            XPath xPath = XPathFactory.newInstance().newXPath();
-            XPathExpression exp = xPath.compile(xpathQuery);
-            return (NodeList) exp.evaluate(doc, XPathConstants.NODESET);
+            Document doc = getCachedDocument(xmlFile);
+            XPathExpression exp = compileCached(xpathQuery);
+            synchronized (doc) {
+                return new NodeArrayList(asList((NodeList) exp.evaluate(doc, XPathConstants.NODESET)));
+            }
         } catch (ParserConfigurationException | SAXException | IOException | XPathExpressionException ex) {
+            TestSuiteLogger.log(Level.WARNING, String.format("Unable to evaluate %s against %s", xpathQuery, xmlFile), ex);
             return null;
         }
     }
+
+    /**
+     * Returns the parsed content of an XML file, parsing it only if it is not
+     * cached or has changed since it was cached. The parser is not namespace
+     * aware, so unprefixed expressions match elements in any namespace.
+     * The document is shared and must not be modified. Indexed child lists
+     * share a cache in the document, so XPath evaluation synchronizes on it;
+     * walking nodes by their sibling links needs no lock.
+     *
+     * @param xmlFile
+     *              The XML file to read.
+     * @return The parsed document.
+     * @throws IOException If the file cannot be read.
+     * @throws SAXException If the file is not well-formed.
+     * @throws ParserConfigurationException If no parser is available.
+     */
+    static Document getCachedDocument(Path xmlFile) throws IOException, SAXException, ParserConfigurationException {
+        Path key = xmlFile.toAbsolutePath().normalize();
+        BasicFileAttributes attrs = Files.readAttributes(key, BasicFileAttributes.class);
+        synchronized (DOCUMENT_CACHE) {
+            CachedDocument cached = DOCUMENT_CACHE.get(key);
+            if (null != cached && cached.matches(attrs)) {
+                return cached.document;
+            }
+        }
+        Document doc = DOCUMENT_BUILDER.get().parse(key.toFile());
+        synchronized (DOCUMENT_CACHE) {
+            DOCUMENT_CACHE.put(key, new CachedDocument(doc, attrs));
+        }
+        return doc;
+    }
+
+    private static XPathExpression compileCached(String xpathQuery) throws XPathExpressionException {
+        Map<String, XPathExpression> expressions = XPATH_EXPRESSIONS.get();
+        XPathExpression exp = expressions.get(xpathQuery);
+        if (null == exp) {
+            exp = XPATH_FACTORY.newXPath().compile(xpathQuery);
+            expressions.put(xpathQuery, exp);
+        }
+        return exp;
+    }
+
+    /**
+     * A parsed file, and the size and modification time of the file when it
+     * was parsed.
+     */
+    private static class CachedDocument {
+
+        final Document document;
+        final long size;
+        final FileTime lastModified;
+
+        CachedDocument(Document document, BasicFileAttributes attrs) {
+            this.document = document;
+            this.size = attrs.size();
+            this.lastModified = attrs.lastModifiedTime();
+        }
+
+        boolean matches(BasicFileAttributes attrs) {
+            return size == attrs.size() && lastModified.equals(attrs.lastModifiedTime());
+        }
+    }
+
+    /**
+     * A compiled stylesheet together with the size and modification time of
+     * the file it was compiled from.
+     */
+    private static class CachedStylesheet {
+
+        final XsltExecutable executable;
+        final long size;
+        final FileTime lastModified;
+
+        CachedStylesheet(XsltExecutable executable, BasicFileAttributes attrs) {
+            this.executable = executable;
+            this.size = attrs.size();
+            this.lastModified = attrs.lastModifiedTime();
+        }
+
+        boolean matches(BasicFileAttributes attrs) {
+            return size == attrs.size() && lastModified.equals(attrs.lastModifiedTime());
+        }
+    }
+
+    /**
+     * A NodeList holding a fixed sequence of nodes.
+     */
+    private static class NodeArrayList implements NodeList {
+
+        private final List<Node> nodes;
+
+        NodeArrayList(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public Node item(int index) {
+            return (index >= 0 && index < nodes.size()) ? nodes.get(index) : null;
+        }
+
+        @Override
+        public int getLength() {
+            return nodes.size();
+        }
+    }
+
+    /**
+     * A map that evicts its least recently used entry once it holds more
+     * than a given number of entries.
+     */
+    private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = 1L;
+        private final int maxEntries;
+
+        LruMap(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxEntries;
+        }
+    }
 }
@@ -0,0 +1,491 @@
+package org.opengis.cite.cdb10.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A set of constraints on the values of an XML document, all evaluated in a
+ * single streaming pass. Values are selected with a subset of XPath: a
+ * location path of element names, absolute ("/A/B") or starting anywhere
+ * ("//A/B"), optionally ending with an attribute ("//A/@b"). The value of an
+ * element is its text content, and element names are matched without regard
+ * to namespace.
+ * <p>
+ * Every violation is recorded rather than only the first. Uniqueness is
+ * checked with a hash map, so the cost of a pass is proportional to the size
+ * of the document.
+ * </p>
+ */
+public class XmlConstraints {
+
+    private static final XMLInputFactory STAX_FACTORY = initXMLInputFactory();
+
+    private final List<Constraint> constraints = new ArrayList<Constraint>();
+    private Path evaluated;
+
+    private static XMLInputFactory initXMLInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        return factory;
+    }
+
+    /**
+     * Declares that the selected values are unique in the document.
+     *
+     * @param selector The values to check.
+     * @return The constraint, holding its violations once evaluated.
+     */
+    public Constraint unique(String selector) {
+        return add(new UniqueConstraint(selector, null));
+    }
+
+    /**
+     * Declares that the selected values are unique among the elements that
+     * share a value of a scope field. The scope of a value is its parent
+     * element, and the scope field is a child element of the parent.
+     *
+     * @param selector   The values to check, with at least two element steps.
+     * @param scopeField The name of the child element of the parent that
+     *                   defines the scope, for example "Dataset".
+     * @return The constraint, holding its violations once evaluated.
+     */
+    public Constraint uniqueWithin(String selector, String scopeField) {
+        return add(new UniqueConstraint(selector, scopeField));
+    }
+
+    /**
+     * Declares that the selected values are one of a set of values.
+     *
+     * @param selector The values to check.
+     * @param values   The valid values.
+     * @return The constraint, holding its violations once evaluated.
+     */
+    public Constraint oneOf(String selector, String... values) {
+        final Set<String> valid = new HashSet<String>(Arrays.asList(values));
+        return add(new Constraint(selector) {
+            @Override
+            boolean isValid(String value) {
+                return valid.contains(value);
+            }
+        });
+    }
+
+    /**
+     * Declares that the selected values match a regular expression.
+     *
+     * @param selector The values to check.
+     * @param regex    The regular expression the whole value must match.
+     * @return The constraint, holding its violations once evaluated.
+     */
+    public Constraint matches(String selector, String regex) {
+        final Pattern pattern = Pattern.compile(regex);
+        return add(new Constraint(selector) {
+            @Override
+            boolean isValid(String value) {
+                return pattern.matcher(value).matches();
+            }
+        });
+    }
+
+    /**
+     * Declares that the selected values are integers within a range.
+     *
+     * @param selector The values to check.
+     * @param min      The smallest valid value.
+     * @param max      The largest valid value.
+     * @return The constraint, holding its violations once evaluated.
+     */
+    public Constraint range(String selector, final long min, final long max) {
+        return add(new Constraint(selector) {
+            @Override
+            boolean isValid(String value) {
+                try {
+                    long number = Long.parseLong(value);
+                    return number >= min && number <= max;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        });
+    }
+
+    private Constraint add(Constraint constraint) {
+        constraints.add(constraint);
+        return constraint;
+    }
+
+    /**
+     * Evaluates every constraint against a document. The results are kept,
+     * and later calls for the same document return at once.
+     *
+     * @param xmlFile The XML document.
+     * @throws IOException If the document cannot be read or is not
+     *                     well-formed.
+     */
+    public synchronized void evaluate(Path xmlFile) throws IOException {
+        if (xmlFile.equals(evaluated)) {
+            return;
+        }
+        for (Constraint constraint : constraints) {
+            constraint.reset();
+        }
+        try (InputStream in = Files.newInputStream(xmlFile)) {
+            XMLStreamReader reader = STAX_FACTORY.createXMLStreamReader(in);
+            try {
+                new Pass(reader).run();
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(xmlFile.getFileName() + " is not well-formed: " + e.getMessage(), e);
+        }
+        for (Constraint constraint : constraints) {
+            constraint.finish();
+        }
+        evaluated = xmlFile;
+    }
+
+    /**
+     * A value, or a set of equal values, that breaks a constraint.
+     */
+    public static class Violation {
+
+        private final String value;
+        private final String scope;
+        private final int count;
+
+        Violation(String value, String scope, int count) {
+            this.value = value;
+            this.scope = scope;
+            this.count = count;
+        }
+
+        /**
+         * @return The value that breaks the constraint.
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * @return The value of the scope field, or null if the constraint is
+         *         not scoped.
+         */
+        public String getScope() {
+            return scope;
+        }
+
+        /**
+         * @return The number of times the value occurs; 1 except for
+         *         uniqueness constraints.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+
+    /**
+     * A constraint on the values selected by a location path.
+     */
+    public abstract static class Constraint {
+
+        final String[] steps;
+        final boolean anywhere;
+        final String attribute;
+        List<Violation> violations = new ArrayList<Violation>();
+
+        Constraint(String selector) {
+            this.anywhere = selector.startsWith("//");
+            String path = selector.substring(anywhere ? 2 : 1);
+            List<String> names = new ArrayList<String>(Arrays.asList(path.split("/")));
+            String last = names.get(names.size() - 1);
+            if (last.startsWith("@")) {
+                names.remove(names.size() - 1);
+                this.attribute = last.substring(1);
+            } else {
+                this.attribute = null;
+            }
+            if (!selector.startsWith("/") || names.isEmpty() || names.contains("")) {
+                throw new IllegalArgumentException("Unsupported selector: " + selector);
+            }
+            this.steps = names.toArray(new String[names.size()]);
+        }
+
+        /**
+         * @return The violations found in the last evaluation, in document
+         *         order.
+         */
+        public List<Violation> getViolations() {
+            return Collections.unmodifiableList(violations);
+        }
+
+        /**
+         * @return The values of the violations, in document order.
+         */
+        public List<String> getInvalidValues() {
+            List<String> values = new ArrayList<String>();
+            for (Violation violation : violations) {
+                values.add(violation.getValue());
+            }
+            return values;
+        }
+
+        void reset() {
+            violations = new ArrayList<Violation>();
+        }
+
+        /**
+         * Checks the path from the document element down to the current
+         * element.
+         */
+        boolean matches(List<Frame> stack, int depth) {
+            if (anywhere ? depth < steps.length : depth != steps.length) {
+                return false;
+            }
+            for (int i = 0; i < steps.length; i++) {
+                if (!steps[steps.length - 1 - i].equals(stack.get(depth - 1 - i).name)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void accept(String value, Frame element, List<Frame> stack, int depth) {
+            if (!isValid(value)) {
+                violations.add(new Violation(value, null, 1));
+            }
+        }
+
+        void finish() {
+        }
+
+        abstract boolean isValid(String value);
+    }
+
+    /**
+     * A constraint that the selected values are unique, in the document or
+     * within a scope.
+     */
+    private static class UniqueConstraint extends Constraint {
+
+        private final String scopeField;
+        private Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+
+        UniqueConstraint(String selector, String scopeField) {
+            super(selector);
+            if (null != scopeField && steps.length < 2) {
+                throw new IllegalArgumentException("A scoped selector needs a parent element: " + selector);
+            }
+            this.scopeField = scopeField;
+        }
+
+        @Override
+        void reset() {
+            super.reset();
+            counts = new LinkedHashMap<String, Integer>();
+        }
+
+        @Override
+        void accept(String value, Frame element, List<Frame> stack, int depth) {
+            if (null == scopeField) {
+                count(key(null, value));
+                return;
+            }
+            stack.get(depth - 2).pending(this).add(value);
+        }
+
+        /**
+         * Counts the values held by a scope element once its scope field is
+         * known.
+         */
+        void closeScope(Frame scope, List<String> values) {
+            String key = scope.fieldValues.get(scopeField);
+            for (String value : values) {
+                count(key(null == key ? "" : key, value));
+            }
+        }
+
+        private void count(String key) {
+            Integer count = counts.get(key);
+            counts.put(key, (null == count) ? 1 : count + 1);
+        }
+
+        private static String key(String scope, String value) {
+            return (null == scope) ? value : scope + '\u0000' + value;
+        }
+
+        @Override
+        void finish() {
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                if (entry.getValue() > 1) {
+                    String key = entry.getKey();
+                    int separator = (null == scopeField) ? -1 : key.indexOf('\u0000');
+                    String scope = (separator < 0) ? null : key.substring(0, separator);
+                    violations.add(new Violation(key.substring(separator + 1), scope, entry.getValue()));
+                }
+            }
+            counts = new LinkedHashMap<String, Integer>();
+        }
+
+        @Override
+        boolean isValid(String value) {
+            return true;
+        }
+    }
+
+    /**
+     * An open element.
+     */
+    private static class Frame {
+
+        final String name;
+        /**
+         * The text of the element, collected only if it is a selected value
+         * or a scope field.
+         */
+        StringBuilder text;
+        List<Constraint> selectedBy;
+        boolean scopeField;
+        Map<String, String> fieldValues = Collections.emptyMap();
+        Map<UniqueConstraint, List<String>> pending;
+
+        Frame(String name) {
+            this.name = name;
+        }
+
+        List<String> pending(UniqueConstraint constraint) {
+            if (null == pending) {
+                pending = new LinkedHashMap<UniqueConstraint, List<String>>();
+            }
+            List<String> values = pending.get(constraint);
+            if (null == values) {
+                values = new ArrayList<String>();
+                pending.put(constraint, values);
+            }
+            return values;
+        }
+
+        void setFieldValue(String field, String value) {
+            if (fieldValues.isEmpty()) {
+                fieldValues = new LinkedHashMap<String, String>();
+            }
+            if (!fieldValues.containsKey(field)) {
+                fieldValues.put(field, value);
+            }
+        }
+    }
+
+    /**
+     * One streaming pass over a document.
+     */
+    private class Pass {
+
+        private final XMLStreamReader reader;
+        private final List<Frame> stack = new ArrayList<Frame>();
+        private final Set<String> scopeFields = new HashSet<String>();
+
+        Pass(XMLStreamReader reader) {
+            this.reader = reader;
+            for (Constraint constraint : constraints) {
+                if (constraint instanceof UniqueConstraint && null != ((UniqueConstraint) constraint).scopeField) {
+                    scopeFields.add(((UniqueConstraint) constraint).scopeField);
+                }
+            }
+        }
+
+        void run() throws XMLStreamException {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    startElement();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    for (Frame frame : stack) {
+                        if (null != frame.text) {
+                            frame.text.append(reader.getText());
+                        }
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    endElement();
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+
+        private void startElement() {
+            Frame frame = new Frame(reader.getLocalName());
+            stack.add(frame);
+            int depth = stack.size();
+            for (Constraint constraint : constraints) {
+                if (!constraint.matches(stack, depth)) {
+                    continue;
+                }
+                if (null != constraint.attribute) {
+                    String value = reader.getAttributeValue(null, constraint.attribute);
+                    if (null != value) {
+                        constraint.accept(value, frame, stack, depth);
+                    }
+                } else {
+                    if (null == frame.selectedBy) {
+                        frame.selectedBy = new ArrayList<Constraint>();
+                    }
+                    frame.selectedBy.add(constraint);
+                    frame.text = new StringBuilder();
+                }
+            }
+            if (depth > 1 && scopeFields.contains(frame.name)) {
+                frame.scopeField = true;
+                if (null == frame.text) {
+                    frame.text = new StringBuilder();
+                }
+            }
+        }
+
+        private void endElement() {
+            int depth = stack.size();
+            Frame frame = stack.get(depth - 1);
+            if (null != frame.selectedBy) {
+                String value = frame.text.toString();
+                for (Constraint constraint : frame.selectedBy) {
+                    constraint.accept(value, frame, stack, depth);
+                }
+            }
+            if (frame.scopeField) {
+                stack.get(depth - 2).setFieldValue(frame.name, frame.text.toString());
+            }
+            if (null != frame.pending) {
+                for (Map.Entry<UniqueConstraint, List<String>> entry : frame.pending.entrySet()) {
+                    entry.getKey().closeScope(frame, entry.getValue());
+                }
+            }
+            stack.remove(depth - 1);
+        }
+    }
+}
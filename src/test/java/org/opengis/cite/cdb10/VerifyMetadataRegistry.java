@@ -0,0 +1,49 @@
+package org.opengis.cite.cdb10;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.opengis.cite.cdb10.cdbStructure.DatasetsXml;
+import org.opengis.cite.cdb10.metadataAndVersioning.LightsXml;
+
+public class VerifyMetadataRegistry {
+
+    @Test
+    public void get_ReturnsSharedInstance() {
+        MetadataRegistry registry = new MetadataRegistry("src/test/resources/CDB");
+
+        DatasetsXml datasets = registry.get(DatasetsXml.class);
+
+        assertSame(datasets, registry.get(DatasetsXml.class));
+        assertTrue(datasets.isValidName("Elevation"));
+        assertSame(registry.get(LightsXml.class), registry.get(LightsXml.class));
+    }
+
+    @Test
+    public void get_MissingFileFailsOnEveryRequest() throws IOException {
+        Path cdb = Files.createTempDirectory("cdbTest-");
+        try {
+            Files.createDirectories(cdb.resolve("Metadata"));
+            MetadataRegistry registry = new MetadataRegistry(cdb.toString());
+            for (int i = 0; i < 2; i++) {
+                AssertionError error = null;
+                try {
+                    registry.get(DatasetsXml.class);
+                } catch (AssertionError e) {
+                    error = e;
+                }
+                assertNotNull(error);
+                assertTrue(error.getMessage().contains("Datasets.xml"));
+            }
+        } finally {
+            FileUtils.deleteDirectory(cdb.toFile());
+        }
+    }
+}
@@ -4,7 +4,9 @@ import static org.junit.Assert.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.net.URL;
 import java.util.InvalidPropertiesFormatException;
 import java.util.Properties;
@@ -16,9 +18,13 @@ import javax.xml.transform.Source;
 
 import net.sf.saxon.s9api.XdmValue;
 
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
+
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.opengis.cite.cdb10.cdbStructure.CoverageIndex;
 import org.opengis.cite.cdb10.util.XMLUtils;
 import org.w3c.dom.Document;
 
@@ -68,4 +74,44 @@ public class VerifyTestNGController {
 //                .getStringValue());
 //        assertEquals("Unexpected number of fail verdicts.", 3, numFailed);
 //    }
+
+    @Test
+    public void queryCoverage() throws IOException {
+        CoverageIndex index = new CoverageIndex();
+        index.add(62, -162, 1, 1, 1, 0);
+        index.add(62, -162, 1, 1, 0, 0);
+        index.add(62, -162, 4, 2, 0, 0);
+        File file = File.createTempFile("coverage", ".idx");
+        try {
+            index.write(file.toPath());
+            String[] lines = queryCoverage("--index", file.getPath(), "--dataset", "001_Elevation",
+                    "--bbox", "62.5,-162,63,-160");
+            assertArrayEquals(new String[] { "N62W162_D001_L01_U1_R0", lines[1] }, lines);
+            assertTrue(lines[1], lines[1].startsWith("1 tile(s) in "));
+
+            lines = queryCoverage("--index", file.getPath(), "--lod", "L01,2", "--count");
+            assertEquals("L01 2", lines[0]);
+            assertEquals("L02 1", lines[1]);
+            assertTrue(lines[2], lines[2].startsWith("3 tile(s) in "));
+
+            lines = queryCoverage("--index", file.getPath(), "--limit", "1");
+            assertEquals(2, lines.length);
+            assertTrue(lines[1], lines[1].startsWith("3 tile(s), 1 listed in "));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = ParameterException.class)
+    public void queryCoverageRejectsInvalidBoundingBox() throws IOException {
+        queryCoverage("--index", "coverage.idx", "--bbox", "10,0,5,1");
+    }
+
+    private static String[] queryCoverage(String... args) throws IOException {
+        CoverageArguments coverageArgs = new CoverageArguments();
+        new JCommander(coverageArgs).parse(args);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TestNGController.queryCoverage(coverageArgs, new PrintStream(out, true));
+        return out.toString().split("\\r?\\n");
+    }
 }
@@ -0,0 +1,196 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VerifyCdbArchive {
+
+	private static final byte[] DATASETS = "<Datasets/>".getBytes(StandardCharsets.UTF_8);
+
+	private Path workDir;
+
+	@Before
+	public void createWorkDir() throws IOException {
+		this.workDir = Files.createTempDirectory("cdbArchive");
+	}
+
+	@After
+	public void deleteWorkDir() throws IOException {
+		FileUtils.deleteDirectory(this.workDir.toFile());
+	}
+
+	private Path writeZip(String prefix) throws IOException {
+		Path zip = this.workDir.resolve("cdb.zip");
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+			out.putNextEntry(new ZipEntry(prefix + "Metadata/"));
+			out.putNextEntry(new ZipEntry(prefix + "Metadata/Datasets.xml"));
+			out.write(DATASETS);
+			out.putNextEntry(new ZipEntry(prefix + "Tiles/N12/W018/001_Elevation/L00/U0/"));
+			out.putNextEntry(new ZipEntry(prefix + "Tiles/N62/W162/001_Elevation/LC/"));
+		}
+		return zip;
+	}
+
+	private static void tarEntry(OutputStream out, String name, byte[] data, char type) throws IOException {
+		byte[] header = new byte[512];
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+		byte[] size = String.format("%011o", data.length).getBytes(StandardCharsets.US_ASCII);
+		System.arraycopy(size, 0, header, 124, size.length);
+		header[156] = (byte) type;
+		System.arraycopy("ustar".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 5);
+		out.write(header);
+		out.write(data);
+		out.write(new byte[(512 - data.length % 512) % 512]);
+	}
+
+	private Path writeTar(String fileName, String prefix) throws IOException {
+		ByteArrayOutputStream tar = new ByteArrayOutputStream();
+		tarEntry(tar, prefix, new byte[0], '5');
+		tarEntry(tar, prefix + "Metadata/", new byte[0], '5');
+		tarEntry(tar, prefix + "Metadata/Datasets.xml", DATASETS, '0');
+		String longName = prefix + "Tiles/N12/W018/001_Elevation/L00/U0/"
+				+ "N12W018_D001_S001_T001_L00_U0_R0_with_a_name_longer_than_one_hundred_characters.tif";
+		tarEntry(tar, "././@LongLink", (longName + "\0").getBytes(StandardCharsets.UTF_8), 'L');
+		tarEntry(tar, longName.substring(0, 99), new byte[1000], '0');
+		tarEntry(tar, prefix + "Tiles/N62/W162/001_Elevation/LC/", new byte[0], '5');
+		tar.write(new byte[1024]);
+
+		Path file = this.workDir.resolve(fileName);
+		OutputStream out = Files.newOutputStream(file);
+		if (fileName.endsWith(".gz")) {
+			out = new GZIPOutputStream(out);
+		}
+		try {
+			tar.writeTo(out);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private static List<String> describe(CdbTreeSnapshot snapshot) {
+		List<String> paths = new ArrayList<String>();
+		describe(snapshot.getRootEntry(), paths);
+		return paths;
+	}
+
+	private static void describe(CdbTreeEntry dir, List<String> paths) {
+		for (CdbTreeEntry entry : dir.getChildren()) {
+			paths.add(entry.getRelativePath() + (entry.isDirectory() ? "/" : ""));
+			describe(entry, paths);
+		}
+	}
+
+	@Test
+	public void isArchive() throws IOException {
+		assertTrue(CdbArchive.isArchive(writeZip("")));
+		assertTrue(CdbArchive.isArchive(writeTar("cdb.tgz", "")));
+		assertFalse(CdbArchive.isArchive(this.workDir));
+		assertFalse(CdbArchive.isArchive(this.workDir.resolve("missing.zip")));
+	}
+
+	@Test
+	public void open_Zip() throws IOException {
+		CdbArchive archive = CdbArchive.open(writeZip(""), TraversalMode.SEQUENTIAL, 1, null);
+		try {
+			CdbTreeSnapshot snapshot = archive.getSnapshot();
+			assertNotNull(snapshot.find("Tiles", "N12", "W018", "001_Elevation", "L00", "U0"));
+			assertEquals("Datasets.xml", snapshot.find("Metadata", "Datasets.xml").getName());
+			assertArrayEquals(DATASETS,
+					Files.readAllBytes(archive.getMetadataRoot().resolve(Paths.get("Metadata", "Datasets.xml"))));
+		} finally {
+			archive.close();
+		}
+		assertFalse(Files.exists(archive.getMetadataRoot()));
+	}
+
+	@Test
+	public void unmount_KeepsMetadataCopy() throws IOException {
+		CdbArchive archive = CdbArchive.open(writeZip(""), TraversalMode.SEQUENTIAL, 1, null);
+		try {
+			archive.unmount();
+			archive.unmount();
+			assertTrue(Files.exists(archive.getMetadataRoot().resolve(Paths.get("Metadata", "Datasets.xml"))));
+		} finally {
+			archive.close();
+		}
+		assertFalse(Files.exists(archive.getMetadataRoot()));
+	}
+
+	@Test
+	public void open_ZipWithTopLevelDirectory() throws IOException {
+		CdbArchive archive = CdbArchive.open(writeZip("CDB/"), TraversalMode.FORKJOIN, 2, null);
+		try {
+			assertNotNull(archive.getSnapshot().find("Tiles", "N62", "W162", "001_Elevation", "LC"));
+			assertTrue(Files.exists(archive.getMetadataRoot().resolve(Paths.get("Metadata", "Datasets.xml"))));
+		} finally {
+			archive.close();
+		}
+	}
+
+	@Test
+	public void open_TarMatchesZip() throws IOException {
+		CdbArchive tar = CdbArchive.open(writeTar("cdb.tar", "CDB/"), TraversalMode.SEQUENTIAL, 1, null);
+		try {
+			CdbTreeSnapshot snapshot = tar.getSnapshot();
+			assertTrue(snapshot.find("Tiles", "N62", "W162", "001_Elevation", "LC").isDirectory());
+			assertEquals(1, snapshot.list("Tiles", "N12", "W018", "001_Elevation", "L00", "U0").size());
+			assertTrue(snapshot.list("Tiles", "N12", "W018", "001_Elevation", "L00", "U0").get(0).getName()
+					.endsWith("_longer_than_one_hundred_characters.tif"));
+			assertArrayEquals(DATASETS,
+					Files.readAllBytes(tar.getMetadataRoot().resolve(Paths.get("Metadata", "Datasets.xml"))));
+		} finally {
+			tar.close();
+		}
+	}
+
+	@Test
+	public void open_GzippedTarWithFilter() throws IOException {
+		CdbArchive tar = CdbArchive.open(writeTar("cdb.tar.gz", ""), TraversalMode.SEQUENTIAL, 1,
+				TraversalFilter.parse(null, "60,-170,70,-160", null));
+		try {
+			List<String> paths = describe(tar.getSnapshot());
+			assertTrue(paths.contains("Tiles/N62/W162/001_Elevation/LC/"));
+			assertFalse(paths.contains("Tiles/N12/"));
+			assertNull(tar.getSnapshot().find("Tiles", "N12"));
+		} finally {
+			tar.close();
+		}
+	}
+
+	@Test
+	public void parseSize() {
+		byte[] header = new byte[512];
+		System.arraycopy("00000001750 ".getBytes(StandardCharsets.US_ASCII), 0, header, 124, 12);
+		assertEquals(1000, CdbArchive.parseSize(header, 124, 12));
+
+		header = new byte[512];
+		header[124] = (byte) 0x80;
+		header[131] = 0x02;
+		header[135] = 0x01;
+		assertEquals((2L << 32) + 1, CdbArchive.parseSize(header, 124, 12));
+	}
+}
@@ -0,0 +1,61 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.apache.commons.io.FileUtils;
+
+public class VerifyCdbTreeSnapshot {
+
+	private Path cdb_root;
+
+	@Before
+	public void createRoot() throws IOException {
+		this.cdb_root = Files.createTempDirectory("cdbTree");
+	}
+
+	@After
+	public void deleteRoot() throws IOException {
+		FileUtils.deleteDirectory(this.cdb_root.toFile());
+	}
+
+	@Test
+	public void build_ListsChildrenInNameOrder() throws IOException {
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("Tiles", "N62", "W162")));
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("Tiles", "N12", "W018")));
+		Files.createFile(this.cdb_root.resolve(Paths.get("Tiles", "N62", "readme.txt")));
+
+		CdbTreeSnapshot snapshot = CdbTreeSnapshot.build(this.cdb_root);
+		List<CdbTreeEntry> latitudes = snapshot.list("Tiles");
+
+		assertEquals(2, latitudes.size());
+		assertEquals("N12", latitudes.get(0).getName());
+		assertEquals("N62", latitudes.get(1).getName());
+		assertTrue(snapshot.find("Tiles", "N62", "W162").isDirectory());
+		assertFalse(snapshot.find("Tiles", "N62", "readme.txt").isDirectory());
+		assertEquals("Tiles/N62/W162", snapshot.find("Tiles", "N62", "W162").getRelativePath());
+		assertEquals(3, snapshot.find("Tiles", "N62", "W162").getDepth());
+	}
+
+	@Test
+	public void find_MissingEntry() throws IOException {
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("Tiles")));
+
+		CdbTreeSnapshot snapshot = CdbTreeSnapshot.build(this.cdb_root);
+
+		assertNull(snapshot.find("Tiles", "N00"));
+		assertFalse(snapshot.exists("GTModel"));
+		assertTrue(snapshot.list("GTModel").isEmpty());
+	}
+}
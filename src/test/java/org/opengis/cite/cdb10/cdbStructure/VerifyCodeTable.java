@@ -0,0 +1,36 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class VerifyCodeTable {
+
+	private final MovingModelCodesXml mmcDefs = new MovingModelCodesXml("src/test/resources/CDB");
+	private final DISCountryCodesXml dccDefs = new DISCountryCodesXml("src/test/resources/CDB");
+
+	@Test
+	public void movingModelCodes() {
+		assertTrue(mmcDefs.isValidKindCode(1));
+		assertEquals("Platform", mmcDefs.kindNameForCode(1));
+		assertEquals("Other", mmcDefs.domainNameForCode(0));
+		assertEquals("Land", mmcDefs.domainNameForCode(1));
+		assertEquals("Other", mmcDefs.categoryNameForCode(0));
+		assertTrue(mmcDefs.isValidCategoryName("Tank"));
+		assertFalse(mmcDefs.isValidKindCode(-1));
+		assertFalse(mmcDefs.isValidKindCode(100000));
+		assertNull(mmcDefs.kindNameForCode(255));
+	}
+
+	@Test
+	public void countryCodes() {
+		assertTrue(dccDefs.isValidCountryCode(1));
+		assertEquals("Afghanistan", dccDefs.countryNameForCode(1));
+		assertTrue(dccDefs.isValidCountryName("Albania"));
+		assertFalse(dccDefs.isValidCountryName("Atlantis"));
+		assertNull(dccDefs.countryNameForCode(65535));
+	}
+}
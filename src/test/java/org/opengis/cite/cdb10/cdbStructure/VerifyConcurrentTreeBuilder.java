@@ -0,0 +1,131 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VerifyConcurrentTreeBuilder {
+
+	/**
+	 * Counts the listings in flight and records the peak. Listings of the
+	 * latitude directories wait, up to a timeout, until a given number of them
+	 * have started, so a walk that lists siblings in parallel is bound to
+	 * overlap them while a sequential walk is not held up.
+	 */
+	private static class CountingLister implements DirectoryLister {
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private final AtomicInteger peak = new AtomicInteger();
+		private final CountDownLatch siblings;
+
+		CountingLister(int siblings) {
+			this.siblings = new CountDownLatch(siblings);
+		}
+
+		@Override
+		public List<CdbTreeEntry> list(CdbTreeEntry dir, Path dirPath) throws IOException {
+			int current = this.inFlight.incrementAndGet();
+			try {
+				int max = this.peak.get();
+				while (current > max && !this.peak.compareAndSet(max, current)) {
+					max = this.peak.get();
+				}
+				if (dirPath.getParent().endsWith("Tiles")) {
+					this.siblings.countDown();
+					this.siblings.await(10, TimeUnit.SECONDS);
+				}
+				return DirectoryLister.FILE_SYSTEM.list(dir, dirPath);
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			} finally {
+				this.inFlight.decrementAndGet();
+			}
+		}
+
+		int getPeak() {
+			return this.peak.get();
+		}
+	}
+
+	private Path cdb_root;
+
+	@Before
+	public void createRoot() throws IOException {
+		this.cdb_root = Files.createTempDirectory("cdbTree");
+	}
+
+	@After
+	public void deleteRoot() throws IOException {
+		FileUtils.deleteDirectory(this.cdb_root.toFile());
+	}
+
+	private static void flatten(CdbTreeEntry entry, List<String> paths) {
+		paths.add(entry.getRelativePath() + (entry.isDirectory() ? "/" : ""));
+		for (CdbTreeEntry child : entry.getChildren()) {
+			flatten(child, paths);
+		}
+	}
+
+	private static List<String> flatten(CdbTreeSnapshot snapshot) {
+		List<String> paths = new ArrayList<String>();
+		flatten(snapshot.getRootEntry(), paths);
+		return paths;
+	}
+
+	private void createGeocells() throws IOException {
+		for (String lat : new String[] { "N12", "N62", "S01", "S45" }) {
+			for (String lon : new String[] { "W018", "W162", "E001", "E120" }) {
+				Path lod = this.cdb_root.resolve(Paths.get("Tiles", lat, lon, "001_Elevation", "L00"));
+				Files.createDirectories(lod);
+				Files.createFile(lod.resolve(lat + lon + "_D001_S001_T001_L00_U0_R0.tif"));
+			}
+		}
+	}
+
+	@Test
+	public void build_MatchesSequentialSnapshot() throws IOException {
+		createGeocells();
+
+		List<String> sequential = flatten(CdbTreeSnapshot.build(this.cdb_root));
+		List<String> concurrent = flatten(CdbTreeSnapshot.build(this.cdb_root, TraversalMode.CONCURRENT, 8));
+
+		assertEquals(sequential, concurrent);
+	}
+
+	@Test
+	public void build_OverlapsListings() throws IOException {
+		createGeocells();
+
+		CountingLister sequentialLister = new CountingLister(1);
+		List<String> sequential = flatten(
+				CdbTreeSnapshot.build(this.cdb_root, TraversalMode.SEQUENTIAL, 1, sequentialLister));
+		CountingLister concurrentLister = new CountingLister(2);
+		List<String> concurrent = flatten(CdbTreeSnapshot.build(this.cdb_root, TraversalMode.CONCURRENT,
+				CdbTreeSnapshot.DEFAULT_IN_FLIGHT, concurrentLister));
+
+		assertEquals(sequential, concurrent);
+		assertEquals(1, sequentialLister.getPeak());
+		assertTrue("Peak listings in flight: " + concurrentLister.getPeak(), concurrentLister.getPeak() >= 2);
+	}
+
+	@Test(expected = NoSuchFileException.class)
+	public void build_MissingRoot() throws IOException {
+		CdbTreeSnapshot.build(this.cdb_root.resolve("missing"), TraversalMode.CONCURRENT, 8);
+	}
+}
@@ -0,0 +1,141 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VerifyCoverageIndex {
+
+	private Path cdb_root;
+
+	@Before
+	public void createRoot() throws IOException {
+		this.cdb_root = Files.createTempDirectory("coverageIndex");
+	}
+
+	@After
+	public void deleteRoot() throws IOException {
+		FileUtils.deleteDirectory(this.cdb_root.toFile());
+	}
+
+	private void createTiles(String... names) throws IOException {
+		for (String name : names) {
+			String[] parts = name.split("_");
+			Path dir = Files.createDirectories(this.cdb_root.resolve(Paths.get("Tiles", parts[0].substring(0, 3),
+					parts[0].substring(3), parts[1].substring(1) + "_Dataset", parts[4], parts[5])));
+			Files.createFile(dir.resolve(name + ".tif"));
+		}
+	}
+
+	@Test
+	public void buildsFromSnapshot() throws IOException {
+		createTiles("N62W162_D001_S001_T001_L00_U0_R0", "N62W162_D001_S001_T001_L01_U1_R0",
+				"N62W162_D001_S002_T001_L01_U1_R0", "N62W162_D001_S001_T001_LC_U0_R0",
+				"N62W160_D004_S001_T001_L01_U0_R1", "S01E000_D001_S001_T001_L02_U3_R3");
+		Files.createFile(this.cdb_root.resolve(Paths.get("Tiles", "N62", "W162", "001_Dataset", "L00", "U0",
+				"N62W160_D001_S001_T001_L00_U0_R0.tif")));
+
+		CoverageIndex index = CoverageIndex.build(CdbTreeSnapshot.build(this.cdb_root).find("Tiles"));
+
+		assertEquals(4, index.size());
+		assertArrayEquals(new int[] { 1, 4 }, index.getDatasetCodes());
+		assertEquals(2, index.getMaxLod());
+		assertEquals(2, index.count(CoverageIndex.ANY_DATASET, 1, -90, -180, 90, 180));
+		assertEquals(Arrays.asList("N62W162_D001_L01_U1_R0"), index.find(1, 1, 62.5, -162, 63, -161, 10));
+		assertEquals(Arrays.asList("N62W162_D001_L01_U1_R0", "N62W160_D004_L01_U0_R1"),
+				index.find(CoverageIndex.ANY_DATASET, 1, 62, -163, 63, -158, 10));
+		assertEquals(0, index.count(1, 1, 62, -162, 62.5, -160));
+		assertEquals(1, index.count(1, 2, -0.1, 0.9, -0.1, 0.9));
+		assertEquals(0, index.count(1, 2, -0.1, 0.7, -0.1, 0.7));
+		assertTrue(CoverageIndex.build(null).find(CoverageIndex.ANY_DATASET, 0, -90, -180, 90, 180, 10).isEmpty());
+	}
+
+	@Test
+	public void countsMatchBruteForce() {
+		CoverageIndex index = new CoverageIndex();
+		Random random = new Random(11);
+		int lod = 6;
+		int side = 1 << lod;
+		boolean[][] tiles = new boolean[2 * side][2 * side];
+		for (int i = 0; i < 3000; i++) {
+			int row = random.nextInt(2 * side);
+			int column = random.nextInt(2 * side);
+			tiles[row][column] = true;
+			assertTrue(index.add(44 + row / side, -1 + column / side, 100, lod, row % side, column % side));
+		}
+		for (int q = 0; q < 200; q++) {
+			double minLat = 44 + random.nextDouble() * 2;
+			double maxLat = minLat + random.nextDouble() * (46 - minLat);
+			double minLon = -1 + random.nextDouble() * 2;
+			double maxLon = minLon + random.nextDouble() * (1 - minLon);
+			long expected = 0;
+			for (int row = 0; row < 2 * side; row++) {
+				for (int column = 0; column < 2 * side; column++) {
+					double south = 44 + (double) row / side;
+					double west = -1 + (double) column / side;
+					if (tiles[row][column] && south < maxLat && south + 1.0 / side > minLat && west < maxLon
+							&& west + 1.0 / side > minLon) {
+						expected++;
+					}
+				}
+			}
+			assertEquals(expected, index.count(100, lod, minLat, minLon, maxLat, maxLon));
+			assertEquals(expected, index.find(100, lod, minLat, minLon, maxLat, maxLon, Integer.MAX_VALUE).size());
+		}
+	}
+
+	@Test
+	public void usesGeocellWidthAtHighLatitudes() {
+		CoverageIndex index = new CoverageIndex();
+		assertFalse(index.add(89, -179, 1, 0, 0, 0));
+		assertTrue(index.add(89, -180, 1, 1, 0, 1));
+		assertEquals(1, index.count(1, 1, 89.2, -170, 89.2, -170));
+		assertEquals(0, index.count(1, 1, 89.2, -175, 89.2, -175));
+		assertEquals(Arrays.asList("N89W180_D001_L01_U0_R1"), index.find(1, 1, 89, -180, 90, 180, 10));
+	}
+
+	@Test
+	public void roundTripsThroughFile() throws IOException {
+		CoverageIndex index = new CoverageIndex();
+		index.add(-90, 168, 999, CoverageIndex.MAX_LOD, (1 << CoverageIndex.MAX_LOD) - 1, 5);
+		index.add(0, 0, 0, 0, 0, 0);
+		index.add(0, 0, 0, 3, 7, 7);
+		index.add(0, 0, 0, 3, 7, 7);
+		Path file = this.cdb_root.resolve("coverage.idx");
+		index.write(file);
+
+		CoverageIndex read = CoverageIndex.read(file);
+
+		assertEquals(3, read.size());
+		assertArrayEquals(new int[] { 0, 999 }, read.getDatasetCodes());
+		assertEquals(CoverageIndex.MAX_LOD, read.getMaxLod());
+		assertEquals(Arrays.asList("S90E168_D999_L23_U8388607_R5"),
+				read.find(999, CoverageIndex.MAX_LOD, -90, -180, 90, 180, 10));
+		assertEquals(1, read.count(0, 3, 0.9, 0.9, 1, 1));
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsOtherFiles() throws IOException {
+		Path file = this.cdb_root.resolve("coverage.idx");
+		Files.write(file, new byte[] { 1, 2, 3 });
+		CoverageIndex.read(file);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsInvalidLod() {
+		new CoverageIndex().count(CoverageIndex.ANY_DATASET, CoverageIndex.MAX_LOD + 1, 0, 0, 1, 1);
+	}
+}
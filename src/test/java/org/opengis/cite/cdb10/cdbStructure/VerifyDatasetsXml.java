@@ -0,0 +1,62 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class VerifyDatasetsXml {
+
+	private final DatasetsXml datasetDefs = new DatasetsXml("src/test/resources/CDB");
+
+	@Test
+	public void isValidCode() {
+		assertTrue(datasetDefs.isValidCode(1));
+		assertTrue(datasetDefs.isValidCode(100));
+		assertFalse(datasetDefs.isValidCode(999));
+		assertFalse(datasetDefs.isValidCode(-1));
+		assertFalse(datasetDefs.isValidCode(null));
+	}
+
+	@Test
+	public void isValidName() {
+		assertTrue(datasetDefs.isValidName("Elevation"));
+		assertFalse(datasetDefs.isValidName("Elevations"));
+		assertFalse(datasetDefs.isValidName(null));
+	}
+
+	@Test
+	public void datasetNameForCode() {
+		assertEquals("Elevation", datasetDefs.datasetNameForCode(1));
+		assertEquals("GSFeature", datasetDefs.datasetNameForCode(100));
+		assertNull(datasetDefs.datasetNameForCode(999));
+		assertNull(datasetDefs.datasetNameForCode(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void datasetNameForCode_FirstDuplicateWins() throws IOException {
+		Path cdb = Files.createTempDirectory("datasetsXml");
+		try {
+			Files.createDirectories(cdb.resolve("Metadata").resolve("Schema"));
+			Files.copy(Paths.get("src/test/resources/CDB/Metadata/Schema/Datasets.xsd"),
+					cdb.resolve("Metadata").resolve("Schema").resolve("Datasets.xsd"));
+			Files.write(cdb.resolve("Metadata").resolve("Datasets.xml"),
+					("<Datasets><Dataset code=\"1\" name=\"Elevation\"/>"
+							+ "<Dataset code=\"1\" name=\"Other\"/></Datasets>").getBytes("UTF-8"));
+			DatasetsXml duplicates = new DatasetsXml(cdb.toString());
+
+			assertEquals("Elevation", duplicates.datasetNameForCode(1));
+			assertTrue(duplicates.isValidName("Other"));
+		} finally {
+			FileUtils.deleteDirectory(cdb.toFile());
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class VerifyFeatureDataDictionaryXml {
+
+	private final FeatureDataDictionaryXml fddDefs = new FeatureDataDictionaryXml("src/test/resources/CDB");
+
+	@Test
+	public void codes() {
+		assertTrue(fddDefs.isValidCategoryCode("A"));
+		assertTrue(fddDefs.isValidSubcategoryCode("A"));
+		assertTrue(fddDefs.isValidFeatureTypeCode("010"));
+		assertFalse(fddDefs.isValidFeatureTypeCode("10"));
+		assertFalse(fddDefs.isValidCategoryCode(null));
+	}
+
+	@Test
+	public void labels() {
+		assertTrue(fddDefs.isValidCategoryLabel("Culture"));
+		assertTrue(fddDefs.isValidSubcategoryLabel("Extraction"));
+		assertTrue(fddDefs.isValidFeatureTypeLabel("Mine"));
+		assertFalse(fddDefs.isValidCategoryLabel("Mine"));
+		assertFalse(fddDefs.isValidFeatureTypeLabel("Mine\" or \"1\"=\"1"));
+	}
+
+	@Test
+	public void labelInCode() {
+		assertTrue(fddDefs.isCategoryLabelinCategoryCode("Culture", "A"));
+		assertFalse(fddDefs.isCategoryLabelinCategoryCode("Culture", "B"));
+		assertTrue(fddDefs.isSubcategoryLabelinSubcategoryCode("Extraction", "A", "A"));
+		assertTrue(fddDefs.isFeatureTypeLabelinFeatureTypeCode("Quarry", "A", "A", "012"));
+		assertFalse(fddDefs.isFeatureTypeLabelinFeatureTypeCode("Quarry", "A", "A", "010"));
+	}
+
+	@Test
+	public void codesWithinParents() {
+		assertTrue(fddDefs.isSubcategoryCodeInCategory("L", "A"));
+		assertFalse(fddDefs.isSubcategoryCodeInCategory("L", "Z"));
+		assertTrue(fddDefs.isFeatureTypeCodeInSubcategory("010", "A", "A"));
+		assertFalse(fddDefs.isFeatureTypeCodeInSubcategory("010", "A", null));
+		// 010 is Mine in A/A and Scrap_Yard in another subcategory of A
+		assertTrue(fddDefs.isValidFeatureTypeLabel("Scrap_Yard"));
+		assertFalse(fddDefs.isFeatureTypeLabelinFeatureTypeCode("Scrap_Yard", "A", "A", "010"));
+	}
+}
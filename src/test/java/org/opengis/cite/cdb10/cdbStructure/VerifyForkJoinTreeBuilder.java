@@ -0,0 +1,67 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VerifyForkJoinTreeBuilder {
+
+	private Path cdb_root;
+
+	@Before
+	public void createRoot() throws IOException {
+		this.cdb_root = Files.createTempDirectory("cdbTree");
+	}
+
+	@After
+	public void deleteRoot() throws IOException {
+		FileUtils.deleteDirectory(this.cdb_root.toFile());
+	}
+
+	private static void flatten(CdbTreeEntry entry, List<String> paths) {
+		paths.add(entry.getRelativePath() + (entry.isDirectory() ? "/" : ""));
+		for (CdbTreeEntry child : entry.getChildren()) {
+			flatten(child, paths);
+		}
+	}
+
+	private static List<String> flatten(CdbTreeSnapshot snapshot) {
+		List<String> paths = new ArrayList<String>();
+		flatten(snapshot.getRootEntry(), paths);
+		return paths;
+	}
+
+	@Test
+	public void build_MatchesSequentialSnapshot() throws IOException {
+		for (String lat : new String[] { "N12", "N62", "S01" }) {
+			for (String lon : new String[] { "W018", "W162", "E001" }) {
+				Path lod = this.cdb_root.resolve(Paths.get("Tiles", lat, lon, "001_Elevation", "L00", "U0"));
+				Files.createDirectories(lod);
+				Files.createFile(lod.resolve(lat + lon + "_D001_S001_T001_L00_U0_R0.tif"));
+			}
+		}
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("Metadata")));
+		Files.createFile(this.cdb_root.resolve(Paths.get("Metadata", "Datasets.xml")));
+
+		List<String> sequential = flatten(CdbTreeSnapshot.build(this.cdb_root));
+		List<String> parallel = flatten(CdbTreeSnapshot.build(this.cdb_root, 4));
+
+		assertEquals(sequential, parallel);
+	}
+
+	@Test(expected = NoSuchFileException.class)
+	public void build_MissingRoot() throws IOException {
+		CdbTreeSnapshot.build(this.cdb_root.resolve("missing"), 4);
+	}
+}
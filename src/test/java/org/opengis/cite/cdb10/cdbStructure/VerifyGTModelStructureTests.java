@@ -206,6 +206,16 @@ public class VerifyGTModelStructureTests extends StructureTestFixture<GTModelStr
 		this.testSuite.verifyFeatureType();
 	}
 
+	@Test(expected = AssertionError.class)
+	public void verifyFeatureType_LabelOfOtherSubcategory() throws IOException {
+		// setup
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("GTModel", "500_GTModelGeometry",
+				"A_Culture", "A_Extraction", "010_Scrap_Yard")));
+
+		// execute
+		this.testSuite.verifyFeatureType();
+	}
+
 	@Test(expected = AssertionError.class)
 	public void verifyFeatureType_UnspecifiedCategory() throws IOException {
 		// setup
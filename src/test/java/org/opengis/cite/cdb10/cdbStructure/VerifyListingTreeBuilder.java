@@ -0,0 +1,179 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VerifyListingTreeBuilder {
+
+	private Path cdb_root;
+	private Path listingDir;
+
+	@Before
+	public void createCdb() throws IOException {
+		this.cdb_root = Files.createTempDirectory("cdbTree");
+		this.listingDir = Files.createTempDirectory("listing");
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("Metadata")));
+		Files.write(this.cdb_root.resolve(Paths.get("Metadata", "Datasets.xml")), new byte[0]);
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("Tiles", "N12", "W018", "001_Elevation", "L00", "U0")));
+		Files.write(this.cdb_root.resolve(Paths.get("Tiles", "N12", "W018", "001_Elevation", "L00", "U0",
+				"N12W018_D001_S001_T001_L00_U0_R0.tif")), new byte[0]);
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("Tiles", "N62", "W162", "001_Elevation", "LC")));
+	}
+
+	@After
+	public void deleteCdb() throws IOException {
+		FileUtils.deleteDirectory(this.cdb_root.toFile());
+		FileUtils.deleteDirectory(this.listingDir.toFile());
+	}
+
+	private Path writeListing(String name, String... lines) throws IOException {
+		Path listing = this.listingDir.resolve(name);
+		Files.write(listing, Arrays.asList(lines), StandardCharsets.UTF_8);
+		return listing;
+	}
+
+	/**
+	 * Lists every entry of a snapshot in tree order, marking directories with
+	 * a trailing '/'.
+	 */
+	private static List<String> describe(CdbTreeSnapshot snapshot) {
+		List<String> paths = new ArrayList<String>();
+		describe(snapshot.getRootEntry(), paths);
+		return paths;
+	}
+
+	private static void describe(CdbTreeEntry dir, List<String> paths) {
+		for (CdbTreeEntry entry : dir.getChildren()) {
+			paths.add(entry.getRelativePath() + (entry.isDirectory() ? "/" : ""));
+			describe(entry, paths);
+		}
+	}
+
+	@Test
+	public void fromListing_FindMatchesFileSystem() throws IOException {
+		Path listing = writeListing("find.txt", ".", "./Metadata/", "./Metadata/Datasets.xml", "./Tiles/",
+				"./Tiles/N62/", "./Tiles/N62/W162/", "./Tiles/N62/W162/001_Elevation/",
+				"./Tiles/N62/W162/001_Elevation/LC/", "./Tiles/N12/", "./Tiles/N12/W018/",
+				"./Tiles/N12/W018/001_Elevation/", "./Tiles/N12/W018/001_Elevation/L00/",
+				"./Tiles/N12/W018/001_Elevation/L00/U0/",
+				"./Tiles/N12/W018/001_Elevation/L00/U0/N12W018_D001_S001_T001_L00_U0_R0.tif");
+
+		CdbTreeSnapshot fromListing = CdbTreeSnapshot.fromListing(this.cdb_root, listing, null, null);
+
+		assertEquals(describe(CdbTreeSnapshot.build(this.cdb_root)), describe(fromListing));
+		assertEquals(this.cdb_root, fromListing.getRoot());
+	}
+
+	@Test
+	public void fromListing_FindWithAbsolutePaths() throws IOException {
+		Path listing = writeListing("find.txt", "/mnt/cdb", "/mnt/cdb/Metadata/Datasets.xml",
+				"/mnt/cdb/Tiles/N12/W018/001_Elevation/L00/U0/N12W018_D001_S001_T001_L00_U0_R0.tif");
+
+		CdbTreeSnapshot snapshot = CdbTreeSnapshot.fromListing(this.cdb_root, listing, ListingFormat.FIND, null);
+
+		assertEquals(Arrays.asList("Metadata", "Tiles"), names(snapshot.list()));
+		assertTrue(snapshot.find("Tiles", "N12", "W018").isDirectory());
+		assertFalse(snapshot.find("Metadata", "Datasets.xml").isDirectory());
+	}
+
+	@Test
+	public void fromListing_RelativeFindWithoutStartingPoint() throws IOException {
+		Path listing = writeListing("find.txt", "Metadata", "Metadata/Datasets.xml", "Tiles/N12/");
+
+		CdbTreeSnapshot snapshot = CdbTreeSnapshot.fromListing(this.cdb_root, listing, null, null);
+
+		assertTrue(snapshot.find("Metadata").isDirectory());
+		assertTrue(snapshot.find("Tiles", "N12").isDirectory());
+	}
+
+	@Test
+	public void fromListing_LsRecursive() throws IOException {
+		Path listing = writeListing("ls.txt", ".:", "Metadata", "Tiles", "", "./Metadata:", "Datasets.xml", "",
+				"./Tiles:", "N12", "", "./Tiles/N12:", "W018", "", "./Tiles/N12/W018:", "001_Elevation/");
+
+		CdbTreeSnapshot snapshot = CdbTreeSnapshot.fromListing(this.cdb_root, listing, null, null);
+
+		assertEquals(Arrays.asList("Metadata/", "Metadata/Datasets.xml", "Tiles/", "Tiles/N12/", "Tiles/N12/W018/",
+				"Tiles/N12/W018/001_Elevation/"), describe(snapshot));
+	}
+
+	@Test
+	public void fromListing_Csv() throws IOException {
+		Path listing = writeListing("inventory.csv", "path,type", "Metadata/Datasets.xml,file",
+				"\"Tiles/N12/W018/001_Elevation\",directory");
+
+		CdbTreeSnapshot snapshot = CdbTreeSnapshot.fromListing(this.cdb_root, listing, null, null);
+
+		assertEquals(Arrays.asList("Metadata/", "Metadata/Datasets.xml", "Tiles/", "Tiles/N12/", "Tiles/N12/W018/",
+				"Tiles/N12/W018/001_Elevation/"), describe(snapshot));
+	}
+
+	@Test
+	public void fromListing_Gzipped() throws IOException {
+		Path listing = this.listingDir.resolve("find.txt.gz");
+		OutputStream out = new GZIPOutputStream(Files.newOutputStream(listing));
+		Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		writer.write(".\n./Tiles/N12/W018/\n");
+		writer.close();
+
+		CdbTreeSnapshot snapshot = CdbTreeSnapshot.fromListing(this.cdb_root, listing, null, null);
+
+		assertNotNull(snapshot.find("Tiles", "N12", "W018"));
+	}
+
+	@Test
+	public void fromListing_AppliesFilter() throws IOException {
+		Path listing = writeListing("find.txt", ".", "./Metadata/Datasets.xml",
+				"./Tiles/N12/W018/001_Elevation/L00/U0/N12W018_D001_S001_T001_L00_U0_R0.tif",
+				"./Tiles/N62/W162/001_Elevation/LC/", "./GTModel/500_GTModelGeometry/");
+
+		CdbTreeSnapshot snapshot = CdbTreeSnapshot.fromListing(this.cdb_root, listing, null,
+				TraversalFilter.parse("Tiles", "60,-170,70,-160", null));
+
+		assertEquals(Arrays.asList("Metadata", "Tiles"), names(snapshot.list()));
+		assertEquals(Arrays.asList("N62"), names(snapshot.list("Tiles")));
+		assertTrue(snapshot.find("Tiles").isPruned());
+		assertNull(snapshot.find("Tiles", "N12"));
+	}
+
+	@Test(expected = IOException.class)
+	public void fromListing_MalformedCsv() throws IOException {
+		Path listing = writeListing("inventory.csv", "\"Tiles/N12");
+
+		CdbTreeSnapshot.fromListing(this.cdb_root, listing, null, null);
+	}
+
+	@Test
+	public void splitCsv_Quotes() {
+		assertEquals(Arrays.asList("a,b", "say \"hi\"", ""), ListingTreeBuilder.splitCsv("\"a,b\",\"say \"\"hi\"\"\","));
+	}
+
+	private static List<String> names(List<CdbTreeEntry> entries) {
+		List<String> names = new ArrayList<String>();
+		for (CdbTreeEntry entry : entries) {
+			names.add(entry.getName());
+		}
+		return names;
+	}
+}
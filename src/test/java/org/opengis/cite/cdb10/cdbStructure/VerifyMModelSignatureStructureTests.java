@@ -1,11 +1,19 @@
 package org.opengis.cite.cdb10.cdbStructure;
 
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 
 import org.junit.Test;
+import org.opengis.cite.cdb10.SuiteAttribute;
 import org.opengis.cite.cdb10.TestFixture;
+import org.testng.ISuite;
+import org.testng.ITestContext;
 
 public class VerifyMModelSignatureStructureTests extends StructureTestFixture<MModelSignatureStructureTests> {
 
@@ -433,4 +441,29 @@ public class VerifyMModelSignatureStructureTests extends StructureTestFixture<MM
 		this.testSuite.verifyFile();
 	}
 
+	@Test
+	public void verifyFile_SampledRunCountsFailedEntries() throws IOException {
+		// setup
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("MModel", "606_MModelSignature",
+				"1_Platform", "0_Other", "0_Other", "0_Other", "0_0_0_0_0_0_0", "LC",
+				"D606_S1_T1_LC_0_0_0_0_0_0_0.shp")));
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("MModel", "606_MModelSignature",
+				"1_Platform", "0_Other", "0_Other", "0_Other", "0_0_0_0_0_0_0", "LC",
+				"D606_S001_T001_LC_0_0_0_0_0_0_0.shp")));
+		ITestContext sampledContext = mock(ITestContext.class);
+		ISuite sampledSuite = mock(ISuite.class);
+		when(sampledContext.getSuite()).thenReturn(sampledSuite);
+		when(sampledSuite.getAttribute(SuiteAttribute.TEST_SUBJECT.getName())).thenReturn(this.cdb_root.toFile());
+		when(sampledSuite.getAttribute(SuiteAttribute.TREE_SAMPLER.getName())).thenReturn(new TreeSampler(1, 1));
+		this.testSuite.initCommonFixture(sampledContext);
+		this.testSuite.obtainTestSubject(sampledContext);
+
+		// execute
+		try {
+			this.testSuite.verifyFile();
+			fail("Expected invalid component selectors");
+		} catch (AssertionError e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("1 of 2 checked entries invalid"));
+		}
+	}
 }
@@ -1,12 +1,20 @@
 package org.opengis.cite.cdb10.cdbStructure;
 
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.Test;
+import org.opengis.cite.cdb10.SuiteAttribute;
 import org.opengis.cite.cdb10.TestFixture;
+import org.testng.ISuite;
+import org.testng.ITestContext;
 
 public class VerifyMModelTextureStructureTests extends StructureTestFixture<MModelTextureStructureTests> {
 
@@ -259,4 +267,27 @@ public class VerifyMModelTextureStructureTests extends StructureTestFixture<MMod
 		this.testSuite.verifyFile();
 	}
 
+	@Test
+	public void verifyFile_SampledRunCountsFailedEntries() throws IOException {
+		// setup
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("MModel", "601_MModelTexture",
+				"A", "B", "AB", "D601_S1_T1_W10_AB.rgb")));
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("MModel", "601_MModelTexture",
+				"A", "B", "AB", "D601_S001_T001_W10_AB.rgb")));
+		ITestContext sampledContext = mock(ITestContext.class);
+		ISuite sampledSuite = mock(ISuite.class);
+		when(sampledContext.getSuite()).thenReturn(sampledSuite);
+		when(sampledSuite.getAttribute(SuiteAttribute.TEST_SUBJECT.getName())).thenReturn(this.cdb_root.toFile());
+		when(sampledSuite.getAttribute(SuiteAttribute.TREE_SAMPLER.getName())).thenReturn(new TreeSampler(1, 1));
+		this.testSuite.initCommonFixture(sampledContext);
+		this.testSuite.obtainTestSubject(sampledContext);
+
+		// execute
+		try {
+			this.testSuite.verifyFile();
+			fail("Expected invalid component selectors");
+		} catch (AssertionError e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("1 of 2 checked entries invalid"));
+		}
+	}
 }
@@ -0,0 +1,161 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class VerifyNamingGrammar {
+
+	// The expressions the grammars replace
+	private static final Pattern NAVIGATION = Pattern.compile("^(?<dataset>[^_]+)_S(?<cs1>\\d+)_T(?<cs2>\\d+)\\.(?<ext>.+)$");
+	private static final Pattern MODEL_TEXTURE = Pattern.compile(
+			"^(?<dataset>D601|D604|D605)_S(?<cs1>\\d+)_T(?<cs2>\\d+)_W(?<tsc>\\d{2})_(?<tnam>[^.]+)\\.(?<ext>.+)$");
+	private static final Pattern MODEL_GEOMETRY = Pattern.compile(
+			"^(?<dataset>D600|D603)_S(?<cs1>\\d+)_T(?<cs2>\\d+)_(?<mmdc>(?<kind>\\d+)" +
+					"_(?<domain>\\d+)_(?<country>\\d+)_(?<category>\\d+)_(\\d+)_(\\d+)_(\\d+))\\." +
+					"(?<ext>.+)$");
+	private static final Pattern MODEL_SIGNATURE = Pattern.compile(
+			"^D606_S(?<cs1>\\d+)_T(?<cs2>\\d+)_(?<lod>LC|L\\d{2})_(?<mmdc>(?<kind>\\d+)" +
+					"_(?<domain>\\d+)_(?<country>\\d+)_(?<category>\\d+)_(\\d+)_(\\d+)_(\\d+))\\." +
+					"(?<ext>.+)$");
+	private static final Pattern DIS_ENTITY = Pattern.compile(
+			"^(?<kind>\\d+)_(?<domain>\\d+)_(?<country>\\d+)_(?<category>\\d+)_(\\d+)_(\\d+)_(\\d+)$");
+
+	private static final String[] NAMES = {
+			"D400_S001_T002.dbf",
+			"D401_S001_T002.dbf",
+			"D400_S1_T02.dbf",
+			"D400_S00_T0002.dbf",
+			"D400_S99999999999_T001.dbf",
+			"D400_S001_T002.",
+			"D400_S001_T002.db\nf",
+			"D400_S001_T002.dbf\n",
+			"D400_SA01_T002.dbf",
+			"_S001_T002.dbf",
+			"D601_S005_T001_W10_M1A2_SEP.rgb",
+			"D604_S005_T001_W10_M1A2_SEP.tif",
+			"D602_S005_T001_W10_M1A2_SEP.rgb",
+			"D601_S005_T001_W1_M1A2_SEP.rgb",
+			"D601_S005_T001_W10_M1A2_SEP",
+			"D601_S05_T1_W10_M1A2.x.y",
+			"D600_S001_T001_1_1_225_1_1_8_0.flt",
+			"D603_S001_T001_1_1_225_1_1_8_0.xml",
+			"D600_S001_T001_1_1_225_1_1_8.flt",
+			"D600_S001_T001_1_1_225_1_1_8_0_0.flt",
+			"D600_S001_T001_1_1_2x5_1_1_8_0.flt",
+			"D606_S001_T001_LC_0_0_0_0_0_0_0.shp",
+			"D606_S001_T001_L05_0_0_0_0_0_0_0.shp",
+			"D606_S001_T001_L5_0_0_0_0_0_0_0.shp",
+			"D606_S001_T001_LC_0_0_0_0_0_0_0.",
+			"1_1_225_1_1_8_0",
+			"1_1_225_1_1_8_0\r\n",
+			"1_1_225_1_1_8_",
+			"1_1_225_1_1_8_0_",
+			"",
+			"." };
+
+	@Test
+	public void acceptsTheSameNamesAsTheExpressions() {
+		assertEquivalent(NAVIGATION, CdbFileNames.NAVIGATION, "dataset", "cs1", "cs2", "ext");
+		assertEquivalent(MODEL_TEXTURE, CdbFileNames.MODEL_TEXTURE, "dataset", "cs1", "cs2", "tsc", "tnam", "ext");
+		assertEquivalent(MODEL_GEOMETRY, CdbFileNames.MODEL_GEOMETRY, "dataset", "cs1", "cs2", "mmdc", "kind",
+				"domain", "country", "category", "ext");
+		assertEquivalent(MODEL_SIGNATURE, CdbFileNames.MODEL_SIGNATURE, "cs1", "cs2", "lod", "mmdc", "kind",
+				"ext");
+		assertEquivalent(DIS_ENTITY, CdbFileNames.DIS_ENTITY, "kind", "domain", "country", "category");
+	}
+
+	private static void assertEquivalent(Pattern pattern, NamingGrammar grammar, String... fields) {
+		NamingGrammar.NameMatch match = grammar.matcher();
+		for (String name : NAMES) {
+			Matcher expected = pattern.matcher(name);
+			boolean found = expected.find();
+			assertEquals(name, found, match.parse(name));
+			if (found) {
+				for (String field : fields) {
+					int handle = grammar.field(field);
+					assertTrue(name + " " + field, match.fieldEquals(handle, expected.group(field)));
+					assertEquals(name + " " + field, expected.start(field), match.start(handle));
+					assertEquals(name + " " + field, expected.end(field), match.end(handle));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void componentSelectorViolations() {
+		NamingGrammar.NameMatch match = CdbFileNames.NAVIGATION.matcher();
+		assertTrue(match.parse("D400_S001_T002.dbf"));
+		assertTrue(match.getViolations().isEmpty());
+
+		assertTrue(match.parse("D400_S1_T02.dbf"));
+		assertEquals(messages("Component Selector 1 should be 3 characters", "Invalid CS1 length",
+				"Component Selector 2 should be 3 characters", "Invalid padding on CS2"), messages(match));
+
+		assertTrue(match.parse("D400_S00_T99999999999.dbf"));
+		assertEquals(messages("Component Selector 1 should be 3 characters",
+				"Component Selector 2 should be 3 characters", "Invalid CS2 number format"), messages(match));
+
+		assertTrue(match.parse("D400_S0001_T2147483647.dbf"));
+		assertEquals(NamingGrammar.Violation.Code.WIDTH, match.getViolations().get(0).getCode());
+		assertEquals(2, match.getViolations().size());
+
+		assertFalse(match.parse("D400_S1.dbf"));
+		assertTrue(match.getViolations().isEmpty());
+	}
+
+	@Test
+	public void typedFields() {
+		NamingGrammar grammar = CdbFileNames.MODEL_SIGNATURE;
+		NamingGrammar.NameMatch match = grammar.matcher();
+		assertTrue(match.parse("D606_S001_T002_L05_1_2_225_4_5_6_7.shp"));
+		assertEquals(5, match.getNumber(grammar.field("lod")));
+		assertEquals(225, match.getNumber(grammar.field("country")));
+		assertEquals(2, match.getNumber(grammar.field("cs2")));
+		assertTrue(match.fieldStarts(grammar.field("kind"), "1_Platform"));
+		assertFalse(match.fieldStarts(grammar.field("kind"), "2_Munition"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsAmbiguousGrammars() {
+		NamingGrammar.builder("Ambiguous").digits("a", 1, NamingGrammar.UNBOUNDED).digits("b", 1, 1).compile();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsAlternativesThatArePrefixes() {
+		NamingGrammar.builder("Ambiguous").oneOf("dataset", "D60", "D601");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnknownFields() {
+		CdbFileNames.NAVIGATION.field("lod");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNumbersOfTextFields() {
+		CdbFileNames.NAVIGATION.matcher().getNumber(CdbFileNames.NAVIGATION.field("dataset"));
+	}
+
+	private static List<String> messages(String... prefixes) {
+		List<String> messages = new ArrayList<String>();
+		for (String prefix : prefixes) {
+			messages.add(prefix + ": name");
+		}
+		return messages;
+	}
+
+	private static List<String> messages(NamingGrammar.NameMatch match) {
+		List<String> messages = new ArrayList<String>();
+		for (NamingGrammar.Violation violation : match.getViolations()) {
+			messages.add(violation.getMessage("name"));
+		}
+		return messages;
+	}
+}
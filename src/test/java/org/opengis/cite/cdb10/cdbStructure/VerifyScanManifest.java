@@ -0,0 +1,211 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VerifyScanManifest {
+
+	private Path cdb_root;
+	private Path manifestFile;
+	private final AtomicInteger listings = new AtomicInteger();
+	private final AtomicInteger checks = new AtomicInteger();
+	private final List<File> spillFiles = new ArrayList<File>();
+
+	private final DirectoryLister countingLister = new DirectoryLister() {
+		@Override
+		public List<CdbTreeEntry> list(CdbTreeEntry dir, Path dirPath) throws IOException {
+			listings.incrementAndGet();
+			return DirectoryLister.FILE_SYSTEM.list(dir, dirPath);
+		}
+	};
+
+	private final TreeRule datasetRule = new TreeRule() {
+		@Override
+		public void check(CdbTreeEntry dataset, List<String> errors) {
+			checks.incrementAndGet();
+			errors.add("Invalid dataset: " + dataset.getName());
+		}
+	};
+
+	@Before
+	public void createCdb() throws IOException {
+		this.cdb_root = Files.createTempDirectory("cdbTree");
+		this.manifestFile = Files.createTempDirectory("manifest").resolve("scan.tsv.gz");
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("Metadata")));
+		Files.write(this.cdb_root.resolve(Paths.get("Metadata", "Datasets.xml")), "<Datasets/>".getBytes("UTF-8"));
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("Tiles", "N12", "W018", "001_Elevation", "L00")));
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("Tiles", "N62", "W162", "999_Unknown", "L00")));
+		ageDirectories();
+	}
+
+	@After
+	public void deleteCdb() throws IOException {
+		FileUtils.deleteDirectory(this.cdb_root.toFile());
+		FileUtils.deleteDirectory(this.manifestFile.getParent().toFile());
+		for (File spillFile : this.spillFiles) {
+			spillFile.delete();
+		}
+	}
+
+	/**
+	 * Moves every directory modification time an hour into the past, so that
+	 * the directories count as settled for the next scan.
+	 */
+	private void ageDirectories() throws IOException {
+		final FileTime past = FileTime.fromMillis(System.currentTimeMillis() - 3600000);
+		Files.walkFileTree(this.cdb_root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+				Files.setLastModifiedTime(dir, past);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private TreeRuleDispatcher check(ScanManifest manifest) throws IOException {
+		CdbTreeSnapshot snapshot = CdbTreeSnapshot.build(this.cdb_root, TraversalMode.SEQUENTIAL, 1,
+				manifest.lister(countingLister));
+		TreeRuleDispatcher rules = new TreeRuleDispatcher();
+		rules.register("datasets", 3, datasetRule);
+		rules.setManifest(manifest, 2);
+		rules.run(snapshot.find("Tiles"));
+		manifest.write(snapshot);
+		return rules;
+	}
+
+	@Test
+	public void load_MissingManifest() throws IOException {
+		ScanManifest manifest = ScanManifest.load(this.manifestFile, this.cdb_root);
+
+		assertNull(manifest.getPreviousRules("Tiles/N12/W018"));
+	}
+
+	@Test
+	public void rerun_ReusesListingsAndVerdicts() throws IOException {
+		List<String> first = check(ScanManifest.load(this.manifestFile, this.cdb_root)).getErrors("datasets").getExamples();
+		assertTrue(listings.get() > 0);
+		assertEquals(2, checks.get());
+
+		listings.set(0);
+		checks.set(0);
+		List<String> second = check(ScanManifest.load(this.manifestFile, this.cdb_root)).getErrors("datasets").getExamples();
+
+		assertEquals(0, listings.get());
+		assertEquals(0, checks.get());
+		assertEquals(first, second);
+		assertEquals(Arrays.asList("Invalid dataset: 001_Elevation", "Invalid dataset: 999_Unknown"), second);
+	}
+
+	@Test
+	public void rerun_ReplaysManyVerdictsPerUnit() throws IOException {
+		final TreeRule noisyRule = new TreeRule() {
+			@Override
+			public void check(CdbTreeEntry dataset, List<String> errors) {
+				for (int i = 0; i < 500; i++) {
+					errors.add("Invalid\tdataset " + i + ": " + dataset.getName());
+				}
+			}
+		};
+		long[] sizes = new long[3];
+		for (int run = 0; run < sizes.length; run++) {
+			ScanManifest manifest = ScanManifest.load(this.manifestFile, this.cdb_root);
+			CdbTreeSnapshot snapshot = CdbTreeSnapshot.build(this.cdb_root, TraversalMode.SEQUENTIAL, 1,
+					manifest.lister(countingLister));
+			TreeRuleDispatcher rules = new TreeRuleDispatcher();
+			rules.register("datasets", 3, noisyRule);
+			rules.setManifest(manifest, 2);
+			rules.run(snapshot.find("Tiles"));
+			manifest.write(snapshot);
+			sizes[run] = rules.getErrors("datasets").size();
+			this.spillFiles.add(rules.getErrors("datasets").getSpillFile());
+			assertEquals("Invalid\tdataset 0: 001_Elevation", rules.getErrors("datasets").getExamples().get(0));
+		}
+
+		assertEquals(1000, sizes[0]);
+		assertEquals(1000, sizes[1]);
+		assertEquals(1000, sizes[2]);
+	}
+
+	@Test
+	public void rerun_ChecksChangedGeocellOnly() throws IOException {
+		check(ScanManifest.load(this.manifestFile, this.cdb_root));
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("Tiles", "N62", "W162", "100_GSFeature")));
+
+		checks.set(0);
+		List<String> errors = check(ScanManifest.load(this.manifestFile, this.cdb_root)).getErrors("datasets").getExamples();
+
+		assertEquals(2, checks.get());
+		assertEquals(3, errors.size());
+	}
+
+	@Test
+	public void rerun_ListsDirectoryWhoseEntriesChanged() throws IOException {
+		check(ScanManifest.load(this.manifestFile, this.cdb_root));
+		// a rename that leaves the modification time and entry count unchanged
+		Path geocell = this.cdb_root.resolve(Paths.get("Tiles", "N12", "W018"));
+		FileTime lastModified = Files.getLastModifiedTime(geocell);
+		Files.move(geocell.resolve("001_Elevation"), geocell.resolve("002_Other"));
+		Files.setLastModifiedTime(geocell, lastModified);
+
+		listings.set(0);
+		checks.set(0);
+		List<String> errors = check(ScanManifest.load(this.manifestFile, this.cdb_root)).getErrors("datasets").getExamples();
+
+		assertTrue(listings.get() > 0);
+		assertEquals(1, checks.get());
+		assertEquals(Arrays.asList("Invalid dataset: 002_Other", "Invalid dataset: 999_Unknown"), errors);
+	}
+
+	@Test(expected = IOException.class)
+	public void load_MalformedManifest() throws IOException {
+		check(ScanManifest.load(this.manifestFile, this.cdb_root));
+		String contents;
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(this.manifestFile))) {
+			contents = IOUtils.toString(in, "UTF-8");
+		}
+		String header = contents.substring(0, contents.indexOf('\n') + 1);
+		try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(this.manifestFile))) {
+			out.write((header + "E\t001_Elevation\td\n").getBytes("UTF-8"));
+		}
+
+		ScanManifest.load(this.manifestFile, this.cdb_root);
+	}
+
+	@Test
+	public void load_MetadataChangeDiscardsVerdicts() throws IOException {
+		check(ScanManifest.load(this.manifestFile, this.cdb_root));
+		assertNotNull(ScanManifest.load(this.manifestFile, this.cdb_root).getPreviousRules("Tiles/N12/W018"));
+
+		Files.write(this.cdb_root.resolve(Paths.get("Metadata", "Datasets.xml")),
+				"<Datasets><Dataset/></Datasets>".getBytes("UTF-8"));
+		ScanManifest manifest = ScanManifest.load(this.manifestFile, this.cdb_root);
+
+		assertNull(manifest.getPreviousRules("Tiles/N12/W018"));
+	}
+}
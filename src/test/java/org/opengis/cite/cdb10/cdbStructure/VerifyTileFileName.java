@@ -0,0 +1,103 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class VerifyTileFileName {
+
+	// The expression the decoder replaces
+	private static final Pattern FILE_PATTERN = Pattern.compile("^(?<lat>(S|N)[0-9]{2})(?<lon>(E|W)[0-9]{3})_D(?<datasetCode>[0-9]{3})_S(?<CS1>[0-9]{3})_T(?<CS2>[0-9]{3})_(?<lod>LC|L[0-9]{2})_(?<uref>U[0-9]+)_R(?<rref>[0-9]+)\\.(?<ext>.+)$");
+
+	private static final String[] NAMES = {
+			"N62W162_D001_S001_T001_L03_U2_R5.tif",
+			"S01E001_D004_S005_T001_LC_U0_R0.tif",
+			"N00E000_D100_S001_T002_L23_U8388607_R8388607.shp",
+			"N62W162_D001_S001_T001_L03_U2_R5.tar.gz",
+			"N62W162_D001_S001_T001_L03_U2_R5.",
+			"N62W162_D001_S001_T001_L03_U2_R.tif",
+			"N62W162_D001_S001_T001_L03_U_R5.tif",
+			"N62W162_D001_S001_T001_L3_U2_R5.tif",
+			"N62W162_D001_S001_T001_L003_U2_R5.tif",
+			"N62W162_D001_S001_T001_LX_U2_R5.tif",
+			"N62W162_D001_S001_T001_L03_U2_R5tif",
+			"N62W162_D01_S001_T001_L03_U2_R5.tif",
+			"E62W162_D001_S001_T001_L03_U2_R5.tif",
+			"N62N162_D001_S001_T001_L03_U2_R5.tif",
+			"n62W162_D001_S001_T001_L03_U2_R5.tif",
+			"N6AW162_D001_S001_T001_L03_U2_R5.tif",
+			"N62W162-D001_S001_T001_L03_U2_R5.tif",
+			"N62W162_D001_S001_T001_L03_U2_R5.t\nf",
+			"N62W162_D001_S001_T001_L03_U2_R5.tif\n",
+			"N62W162_D001_S001_T001_L03_U2_R5.tif\r\n",
+			"N62W162_D001_S001_T001_L03_U2_R5.\n",
+			"N62W162_D001_S001_T001_LC",
+			"N62W162_D001_S001_T001_L",
+			"N62W162",
+			"",
+			"N62W162_D001_S001_T001_L03_U2_R99999999999999999999999.tif" };
+
+	@Test
+	public void acceptsTheSameNamesAsTheExpression() {
+		TileFileName decoder = new TileFileName();
+		for (String name : NAMES) {
+			assertEquals(name, FILE_PATTERN.matcher(name).find(), decoder.parse(name));
+		}
+	}
+
+	@Test
+	public void decodesTheSameFieldsAsTheExpression() {
+		TileFileName decoder = new TileFileName();
+		for (String name : NAMES) {
+			Matcher match = FILE_PATTERN.matcher(name);
+			if (!match.find()) {
+				continue;
+			}
+			assertTrue(name, decoder.parse(name));
+			assertTrue(name, decoder.latitudeEquals(match.group("lat")));
+			assertTrue(name, decoder.longitudeEquals(match.group("lon")));
+			assertTrue(name, decoder.datasetCodeEquals(match.group("datasetCode") + "_Name"));
+			assertTrue(name, decoder.lodEquals(match.group("lod")));
+			assertTrue(name, decoder.urefEquals(match.group("uref")));
+			assertEquals(name, Integer.parseInt(match.group("CS1")), decoder.getCs1());
+			assertEquals(name, Integer.parseInt(match.group("CS2")), decoder.getCs2());
+			assertEquals(name, match.start("ext"), decoder.getExtensionStart());
+		}
+	}
+
+	@Test
+	public void decodesFields() {
+		TileFileName decoder = new TileFileName();
+		assertTrue(decoder.parse("S01E001_D004_S005_T001_LC_U0_R7.tif"));
+		assertEquals(1, decoder.getLatitude());
+		assertEquals(1, decoder.getLongitude());
+		assertEquals(4, decoder.getDatasetCode());
+		assertTrue(decoder.isCoarse());
+		assertEquals(0, decoder.getLod());
+		assertEquals(0, decoder.getUref());
+		assertEquals(7, decoder.getRref());
+		assertFalse(decoder.lodEquals("L00"));
+		assertFalse(decoder.datasetCodeEquals("00"));
+
+		assertTrue(decoder.parse("N62W162_D001_S001_T001_L03_U2_R99999999999999999999999.tif"));
+		assertFalse(decoder.isCoarse());
+		assertEquals(3, decoder.getLod());
+		assertEquals(Long.MAX_VALUE, decoder.getRref());
+	}
+
+	@Test
+	public void lodLevelAndMaxRref() {
+		assertEquals(0, TileFileName.lodLevel("LC"));
+		assertEquals(3, TileFileName.lodLevel("L03"));
+		assertEquals(-1, TileFileName.lodLevel("Lx"));
+		assertEquals(-1, TileFileName.lodLevel("L"));
+		assertEquals(0, TileFileName.maxRref(0));
+		assertEquals(7, TileFileName.maxRref(3));
+		assertEquals(Long.MAX_VALUE, TileFileName.maxRref(64));
+	}
+}
@@ -0,0 +1,162 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class VerifyTilePyramid {
+
+	@Test
+	public void mortonCodesRoundTrip() {
+		Random random = new Random(7);
+		for (int i = 0; i < 1000; i++) {
+			long uref = random.nextInt(1 << TilePyramid.MAX_LOD);
+			long rref = random.nextInt(1 << TilePyramid.MAX_LOD);
+			long morton = TilePyramid.morton(uref, rref);
+			assertEquals(uref, TilePyramid.uref(morton));
+			assertEquals(rref, TilePyramid.rref(morton));
+			assertEquals(TilePyramid.morton(uref / 2, rref / 2), morton / 4);
+		}
+	}
+
+	@Test
+	public void compressNibbles() {
+		assertEquals(0xffffL, TilePyramid.compressNibbles(0x1111111111111111L));
+		assertEquals(0x8001L, TilePyramid.compressNibbles(0x1000000000000001L));
+		assertEquals(0L, TilePyramid.compressNibbles(0xeeeeeeeeeeeeeeeeL));
+	}
+
+	@Test
+	public void completePyramidHasNoViolations() {
+		TilePyramid pyramid = new TilePyramid();
+		for (int lod = 0; lod <= 4; lod++) {
+			for (int uref = 0; uref < (1 << lod); uref++) {
+				for (int rref = 0; rref < (1 << lod); rref++) {
+					assertTrue(pyramid.add(lod, uref, rref));
+				}
+			}
+		}
+		assertEquals(4, pyramid.getMaxLod());
+		for (int lod = 1; lod <= 4; lod++) {
+			assertEquals(0, pyramid.findOrphans(lod).length);
+			assertEquals(0, pyramid.findIncompleteParents(lod).length);
+		}
+	}
+
+	@Test
+	public void findsOrphansAndIncompleteParents() {
+		TilePyramid pyramid = new TilePyramid();
+		pyramid.add(0, 0, 0);
+		pyramid.add(1, 0, 0);
+		pyramid.add(1, 0, 1);
+		pyramid.add(1, 1, 0);
+		pyramid.add(1, 1, 1);
+		// Two of the four children of L01 U1 R0
+		pyramid.add(2, 2, 0);
+		pyramid.add(2, 3, 1);
+		// A child of L04 U9 R9, which is missing
+		pyramid.add(5, 18, 19);
+		pyramid.add(5, 19, 19);
+
+		assertEquals(0, pyramid.findOrphans(1).length);
+		assertEquals(0, pyramid.findOrphans(2).length);
+		assertArrayEquals(new long[] { TilePyramid.morton(1, 0) }, pyramid.findIncompleteParents(2));
+		assertEquals(0, pyramid.findOrphans(3).length);
+		assertArrayEquals(new long[] { TilePyramid.morton(18, 19), TilePyramid.morton(19, 19) },
+				pyramid.findOrphans(5));
+		assertArrayEquals(new long[] { TilePyramid.morton(9, 9) }, pyramid.findIncompleteParents(5));
+	}
+
+	@Test
+	public void scansSparseHighLods() {
+		TilePyramid pyramid = new TilePyramid();
+		long uref = (1L << TilePyramid.MAX_LOD) - 1;
+		pyramid.add(TilePyramid.MAX_LOD - 1, uref / 2, 0);
+		for (int i = 0; i < 4; i++) {
+			pyramid.add(TilePyramid.MAX_LOD, uref - (i >> 1), i & 1);
+		}
+		pyramid.add(TilePyramid.MAX_LOD, 0, 0);
+
+		List<Long> orphans = new ArrayList<Long>();
+		for (long tile : pyramid.findOrphans(TilePyramid.MAX_LOD)) {
+			orphans.add(tile);
+		}
+		assertEquals(1, orphans.size());
+		assertEquals(0L, (long) orphans.get(0));
+		assertEquals(1, pyramid.findIncompleteParents(TilePyramid.MAX_LOD).length);
+	}
+
+	@Test
+	public void countsAndFindsTilesInRange() {
+		TilePyramid pyramid = new TilePyramid();
+		Random random = new Random(3);
+		int lod = 7;
+		for (int i = 0; i < 2000; i++) {
+			pyramid.add(lod, random.nextInt(1 << lod), random.nextInt(1 << lod));
+		}
+		for (int q = 0; q < 100; q++) {
+			long minUref = random.nextInt(1 << lod) - 4;
+			long maxUref = minUref + random.nextInt(1 << (q % lod));
+			long minRref = random.nextInt(1 << lod) - 4;
+			long maxRref = minRref + random.nextInt(1 << (q % lod));
+			List<Long> expected = new ArrayList<Long>();
+			for (long uref = Math.max(minUref, 0); uref <= Math.min(maxUref, (1 << lod) - 1); uref++) {
+				for (long rref = Math.max(minRref, 0); rref <= Math.min(maxRref, (1 << lod) - 1); rref++) {
+					if (pyramid.contains(lod, uref, rref)) {
+						expected.add(TilePyramid.morton(uref, rref));
+					}
+				}
+			}
+			Collections.sort(expected);
+			assertEquals(expected.size(), pyramid.count(lod, minUref, maxUref, minRref, maxRref));
+			long[] found = pyramid.find(lod, minUref, maxUref, minRref, maxRref);
+			assertEquals(expected.size(), found.length);
+			for (int i = 0; i < found.length; i++) {
+				assertEquals((long) expected.get(i), found[i]);
+			}
+		}
+		assertEquals(0, pyramid.count(lod + 1, 0, 10, 0, 10));
+		assertEquals(0, pyramid.count(lod, 5, 4, 0, 10));
+	}
+
+	@Test
+	public void copiesWords() {
+		TilePyramid pyramid = new TilePyramid();
+		pyramid.add(1, 1, 0);
+		pyramid.add(9, 300, 17);
+		TilePyramid copy = new TilePyramid();
+		for (int lod = 0; lod <= pyramid.getMaxLod(); lod++) {
+			for (long index : pyramid.getWordIndexes(lod)) {
+				copy.addWord(lod, index, pyramid.getWord(lod, index));
+			}
+		}
+		assertTrue(copy.contains(1, 1, 0));
+		assertTrue(copy.contains(9, 300, 17));
+		assertEquals(9, copy.getMaxLod());
+		copy.addWord(0, 0, -1L);
+		assertEquals(1, copy.count(0, 0, 0, 0, 0));
+		assertEquals(1, Long.bitCount(copy.getWord(0, 0)));
+	}
+
+	@Test
+	public void ignoresTilesOutsideThePyramid() {
+		TilePyramid pyramid = new TilePyramid();
+		assertFalse(pyramid.add(2, 4, 0));
+		assertFalse(pyramid.add(-1, 0, 0));
+		assertFalse(pyramid.add(TilePyramid.MAX_LOD + 1, 0, 0));
+		assertTrue(pyramid.add(2, 3, 3));
+		assertTrue(pyramid.contains(2, 3, 3));
+		assertFalse(pyramid.contains(2, 3, 2));
+		pyramid.clear();
+		assertFalse(pyramid.contains(2, 3, 3));
+		assertEquals(-1, pyramid.getMaxLod());
+	}
+}
@@ -1,5 +1,8 @@
 package org.opengis.cite.cdb10.cdbStructure;
 
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -662,4 +665,65 @@ public class VerifyTilesStructureTests extends StructureTestFixture<TilesStructu
 		// execute
 		this.testSuite.verifyDatasetFileName();
 	}
+
+
+	private void createTiles(String... names) throws IOException {
+		for (String name : names) {
+			String[] parts = name.split("_");
+			Path dir = Files.createDirectories(this.cdb_root.resolve(Paths.get("Tiles", "S06", "E045",
+					"001_Elevation", parts[4], parts[5])));
+			Files.createFile(dir.resolve(name + ".tif"));
+		}
+	}
+
+	@Test
+	public void verifyTilePyramid_Good() throws IOException {
+		// setup
+		createTiles("S06E045_D001_S001_T001_LC_U0_R0", "S06E045_D001_S001_T001_L00_U0_R0",
+				"S06E045_D001_S001_T001_L01_U0_R0", "S06E045_D001_S001_T001_L01_U0_R1",
+				"S06E045_D001_S001_T001_L01_U1_R0", "S06E045_D001_S001_T001_L01_U1_R1",
+				"S06E045_D001_S002_T001_L01_U1_R1");
+
+		// execute
+		this.testSuite.verifyTilePyramid();
+	}
+
+	@Test
+	public void verifyTilePyramid_Orphan() throws IOException {
+		// setup
+		createTiles("S06E045_D001_S001_T001_L00_U0_R0", "S06E045_D001_S001_T001_L02_U3_R0",
+				"S06E045_D001_S001_T001_L02_U3_R1", "S06E045_D001_S001_T001_L02_U2_R0",
+				"S06E045_D001_S001_T001_L02_U2_R1");
+
+		// execute
+		try {
+			this.testSuite.verifyTilePyramid();
+			fail("Expected an orphaned tile");
+		} catch (AssertionError e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(
+					"Tile has no parent at L01: Tiles/S06/E045/001_Elevation/L02/U2 R0"));
+		}
+	}
+
+	@Test
+	public void verifyTilePyramid_IncompleteQuadrant() throws IOException {
+		// setup
+		createTiles("S06E045_D001_S001_T001_L00_U0_R0", "S06E045_D001_S001_T001_L01_U0_R1");
+
+		// execute
+		try {
+			this.testSuite.verifyTilePyramid();
+			fail("Expected an incomplete quadrant");
+		} catch (AssertionError e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(
+					"Tile is missing some of its children at L01: Tiles/S06/E045/001_Elevation/L00/U0 R0"));
+		}
+	}
+
+	@Test
+	public void verifyTilePyramid_Skip() throws IOException {
+		// setup
+		// execute
+		this.testSuite.verifyTilePyramid();
+	}
 }
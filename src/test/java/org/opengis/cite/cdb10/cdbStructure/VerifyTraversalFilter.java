@@ -0,0 +1,104 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VerifyTraversalFilter {
+
+	private Path cdb_root;
+
+	@Before
+	public void createCdb() throws IOException {
+		this.cdb_root = Files.createTempDirectory("cdbTree");
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("Metadata")));
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("GTModel", "500_GTModelGeometry")));
+		for (String geocell : new String[] { "N12/W018", "N62/W162", "N62/W164", "S01/E001", "B99/W018" }) {
+			for (String lod : new String[] { "LC", "L00", "L05", "L10" }) {
+				Files.createDirectories(this.cdb_root.resolve("Tiles/" + geocell + "/001_Elevation/" + lod));
+				Files.createDirectories(this.cdb_root.resolve("Tiles/" + geocell + "/100_GSFeature/" + lod));
+			}
+		}
+	}
+
+	@After
+	public void deleteCdb() throws IOException {
+		FileUtils.deleteDirectory(this.cdb_root.toFile());
+	}
+
+	private CdbTreeSnapshot build(String directories, String latlong, String minmaxlod) throws IOException {
+		return CdbTreeSnapshot.build(this.cdb_root, TraversalMode.SEQUENTIAL, 1, null,
+				TraversalFilter.parse(directories, latlong, minmaxlod));
+	}
+
+	@Test
+	public void parse_Empty() {
+		assertTrue(TraversalFilter.parse(null, null, null).isEmpty());
+		assertTrue(TraversalFilter.parse("", " ", "").isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parse_BadLatLong() {
+		TraversalFilter.parse(null, "10,20,30", null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parse_BadLodRange() {
+		TraversalFilter.parse(null, null, "L10,L02");
+	}
+
+	@Test
+	public void build_Directories() throws IOException {
+		CdbTreeSnapshot snapshot = build("Tiles", null, null);
+
+		assertNotNull(snapshot.find("Tiles"));
+		assertNotNull(snapshot.find("Metadata"));
+		assertNull(snapshot.find("GTModel"));
+	}
+
+	@Test
+	public void build_Datasets() throws IOException {
+		CdbTreeSnapshot snapshot = build("001_Elevation", null, null);
+
+		assertNull(snapshot.find("GTModel"));
+		assertNotNull(snapshot.find("Tiles", "N12", "W018", "001_Elevation"));
+		assertNull(snapshot.find("Tiles", "N12", "W018", "100_GSFeature"));
+		assertEquals(1, build("100", null, null).list("Tiles", "N62", "W162").size());
+	}
+
+	@Test
+	public void build_LatLong() throws IOException {
+		CdbTreeSnapshot snapshot = build(null, "62.5,-163.5,62.5,-163.5", null);
+
+		assertNull(snapshot.find("Tiles", "N12"));
+		assertNull(snapshot.find("Tiles", "S01"));
+		assertNotNull(snapshot.find("Tiles", "N62", "W164"));
+		assertNull(snapshot.find("Tiles", "N62", "W162"));
+		// malformed names are kept so that the structure tests report them
+		assertNotNull(snapshot.find("Tiles", "B99", "W018"));
+		assertNotNull(snapshot.find("GTModel"));
+	}
+
+	@Test
+	public void build_LodRange() throws IOException {
+		CdbTreeSnapshot snapshot = build(null, null, "LC,L05");
+
+		assertNotNull(snapshot.find("Tiles", "N12", "W018", "001_Elevation", "LC"));
+		assertNotNull(snapshot.find("Tiles", "N12", "W018", "001_Elevation", "L05"));
+		assertNull(snapshot.find("Tiles", "N12", "W018", "001_Elevation", "L10"));
+		assertTrue(snapshot.find("Tiles", "N12", "W018", "001_Elevation").isPruned());
+		assertFalse(snapshot.find("Tiles", "N12", "W018").isPruned());
+	}
+}
@@ -0,0 +1,118 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VerifyTreeRuleDispatcher {
+
+	private Path cdb_root;
+
+	@Before
+	public void createRoot() throws IOException {
+		this.cdb_root = Files.createTempDirectory("cdbTree");
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("Tiles", "N12", "W018", "001_Elevation")));
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("Tiles", "N62", "W162")));
+	}
+
+	@After
+	public void deleteRoot() throws IOException {
+		FileUtils.deleteDirectory(this.cdb_root.toFile());
+	}
+
+	private static TreeRule recordingRule(final String label) {
+		return new TreeRule() {
+			@Override
+			public void check(CdbTreeEntry entry, List<String> errors) {
+				errors.add(label + ":" + entry.getName());
+			}
+		};
+	}
+
+	@Test
+	public void run_DispatchesByDepthInTraversalOrder() throws IOException {
+		CdbTreeSnapshot snapshot = CdbTreeSnapshot.build(this.cdb_root);
+		TreeRuleDispatcher rules = new TreeRuleDispatcher();
+		rules.register("cells", 1, recordingRule("lat"));
+		rules.register("cells", 2, recordingRule("lon"));
+		rules.register("datasets", 3, recordingRule("dataset"));
+
+		rules.run(snapshot.find("Tiles"));
+
+		assertEquals(Arrays.asList("lat:N12", "lon:W018", "lat:N62", "lon:W162"), rules.getErrors("cells").getExamples());
+		assertEquals(Arrays.asList("dataset:001_Elevation"), rules.getErrors("datasets").getExamples());
+	}
+
+	@Test
+	public void run_ReportsRuntimeExceptionsAgainstTheRule() throws IOException {
+		CdbTreeSnapshot snapshot = CdbTreeSnapshot.build(this.cdb_root);
+		TreeRuleDispatcher rules = new TreeRuleDispatcher();
+		rules.register("broken", 1, new TreeRule() {
+			@Override
+			public void check(CdbTreeEntry entry, List<String> errors) {
+				Integer.parseInt(entry.getName());
+			}
+		});
+		rules.register("other", 1, recordingRule("lat"));
+
+		rules.run(snapshot.find("Tiles"));
+
+		assertEquals(2, rules.getErrors("broken").size());
+		assertTrue(rules.getErrors("broken").getExamples().get(0).startsWith("Unable to check Tiles/N12"));
+		assertEquals(2, rules.getErrors("other").size());
+	}
+
+	@Test
+	public void registerAfter_SeesEntriesAfterTheirDescendants() throws IOException {
+		CdbTreeSnapshot snapshot = CdbTreeSnapshot.build(this.cdb_root);
+		TreeRuleDispatcher rules = new TreeRuleDispatcher();
+		rules.registerAfter("order", 1, recordingRule("after"));
+		rules.register("order", 1, recordingRule("lat"));
+		rules.register("order", 2, recordingRule("lon"));
+
+		rules.run(snapshot.find("Tiles"));
+
+		assertEquals(Arrays.asList("lat:N12", "lon:W018", "after:N12", "lat:N62", "lon:W162", "after:N62"),
+				rules.getErrors("order").getExamples());
+	}
+
+	@Test
+	public void run_CompletesSpillFilesOfUnreportedRules() throws IOException {
+		CdbTreeSnapshot snapshot = CdbTreeSnapshot.build(this.cdb_root);
+		TreeRuleDispatcher rules = new TreeRuleDispatcher();
+		rules.register("noisy", 1, new TreeRule() {
+			@Override
+			public void check(CdbTreeEntry entry, List<String> errors) {
+				for (int i = 0; i < 100; i++) {
+					errors.add("Invalid entry " + i + ": " + entry.getName());
+				}
+			}
+		});
+
+		rules.run(snapshot.find("Tiles"));
+
+		File spillFile = rules.getErrors("noisy").getSpillFile();
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(spillFile.toPath()))) {
+			List<String> lines = IOUtils.readLines(in, "UTF-8");
+			assertEquals(200, lines.size());
+			assertEquals("Invalid entry 99: N62", lines.get(199));
+		} finally {
+			spillFile.delete();
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package org.opengis.cite.cdb10.cdbStructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VerifyTreeSampler {
+
+	private Path cdb_root;
+
+	@Before
+	public void createCdb() throws IOException {
+		this.cdb_root = Files.createTempDirectory("cdbTree");
+		Files.createDirectories(this.cdb_root.resolve(Paths.get("Metadata")));
+		for (int lat = 10; lat < 20; lat++) {
+			for (int lon = 100; lon < 110; lon++) {
+				Files.createDirectories(this.cdb_root.resolve(Paths.get("Tiles", "N" + lat, "E" + lon, "001_Elevation")));
+			}
+		}
+	}
+
+	@After
+	public void deleteCdb() throws IOException {
+		FileUtils.deleteDirectory(this.cdb_root.toFile());
+	}
+
+	private CdbTreeSnapshot build(TreeSampler sampler) throws IOException {
+		return CdbTreeSnapshot.build(this.cdb_root, TraversalMode.CONCURRENT, 4, null,
+				TraversalFilter.parse(null, null, null).withSampler(sampler));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_BadRate() {
+		new TreeSampler(0, 1);
+	}
+
+	@Test
+	public void build_SameSeedDrawsSameSample() throws IOException {
+		TreeSampler first = new TreeSampler(0.25, 42);
+		TreeSampler second = new TreeSampler(0.25, 42);
+		build(first);
+		build(second);
+
+		assertEquals(first.getSample(), second.getSample());
+		assertEquals(first.describeSample(), second.describeSample());
+	}
+
+	@Test
+	public void build_KeepsSampledGeocellsOnly() throws IOException {
+		TreeSampler sampler = new TreeSampler(0.25, 7);
+		CdbTreeSnapshot snapshot = build(sampler);
+
+		List<String> sample = sampler.getSample();
+		int geocells = snapshot.getRootEntry().getChild("Tiles").countAtDepth(2);
+		// the geocells and the dataset inside each of them are drawn
+		assertTrue(geocells > 5 && geocells < 50);
+		assertTrue(sample.contains("Tiles/" + snapshot.list("Tiles").get(0).getName() + "/"
+				+ snapshot.list("Tiles").get(0).getChildren().get(0).getName()));
+		assertNotNull(snapshot.find("Metadata"));
+
+		TreeSampler other = new TreeSampler(0.25, 8);
+		build(other);
+		assertFalse(other.getSample().equals(sample));
+	}
+
+	@Test
+	public void wilsonInterval_NoFailures() {
+		double[] interval = TreeSampler.wilsonInterval(0, 10);
+
+		assertEquals(0.0, interval[0], 1e-9);
+		assertEquals(0.2775, interval[1], 1e-4);
+	}
+
+	@Test
+	public void describeErrorRate() {
+		String description = new TreeSampler(0.1, 3).describeErrorRate(5, 50);
+
+		assertEquals("Sampled run (rate 0.1, seed 3): 5 of 50 checked entries invalid, "
+				+ "estimated error rate 10.00% (95% CI 4.35% - 21.36%)", description);
+	}
+}
@@ -154,7 +154,7 @@ public class VerifyCDBAttributesXmlStructureTests extends MetadataTestFixture<CD
 		Files.copy(XSD_FILE, this.schemaFolder.resolve("Vector_Attributes.xsd"), REPLACE_EXISTING);
 
 		String expectedMessage = "CDB_Attributes.xml element Attribute should have unique symbols. " +
-				"Symbol 'AEAC' is not unique. expected [1] but found [2]";
+				"Symbol 'AEAC' is not unique. expected [true] but found [false]";
 
 		this.expectedException.expect(AssertionError.class);
 		this.expectedException.expectMessage(expectedMessage);
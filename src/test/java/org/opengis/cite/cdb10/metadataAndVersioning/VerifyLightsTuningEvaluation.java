@@ -0,0 +1,68 @@
+package org.opengis.cite.cdb10.metadataAndVersioning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VerifyLightsTuningEvaluation {
+
+    private Path xmlFile;
+
+    @Before
+    public void createFile() throws IOException {
+        this.xmlFile = Files.createTempFile("Lights_Test", ".xml");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.delete(this.xmlFile);
+    }
+
+    private LightsTuningEvaluation evaluate(String xml) throws IOException {
+        Files.write(this.xmlFile, xml.getBytes(StandardCharsets.UTF_8));
+        return LightsTuningEvaluation.evaluate(this.xmlFile.toFile());
+    }
+
+    @Test
+    public void evaluate_AllChecksInOnePass() throws IOException {
+        LightsTuningEvaluation evaluation = evaluate("<Lights_Tuning xmlns=\"CDB\">"
+                + "<Light><Intensity> 1.5 </Intensity><Residual_Intensity>0.5</Residual_Intensity>"
+                + "<Color>\n 0.1 2.0 -1 \n</Color><Directionality>Sideways</Directionality>"
+                + "<Frequency>-2</Frequency><Duty_Cycle>abc</Duty_Cycle></Light>"
+                + "<Light><Intensity>0.3</Intensity><Directionality>Directional</Directionality></Light>"
+                + "</Lights_Tuning>");
+
+        assertEquals(Arrays.asList("1.5"), evaluation.getInvalidIntensityValues());
+        assertTrue(evaluation.getInvalidResidualIntensityValues().isEmpty());
+        assertEquals(Arrays.asList("2.0", "-1.0"), evaluation.getInvalidColorValues());
+        assertEquals(Arrays.asList("Sideways"), evaluation.getInvalidDirectionalityValues());
+        assertEquals(Arrays.asList("-2"), evaluation.getInvalidFrequencyValues());
+        assertEquals(Arrays.asList("abc"), evaluation.getInvalidDutyCycleValues());
+    }
+
+    @Test(expected = IOException.class)
+    public void evaluate_NotWellFormed() throws IOException {
+        evaluate("<Lights_Tuning><Light>");
+    }
+
+    @Test
+    public void evaluate_ValidFixture() throws IOException {
+        File valid = MetadataTestFixture.SOURCE_DIRECTORY.resolve("valid").resolve("Lights_Client.xml").toFile();
+
+        LightsTuningEvaluation evaluation = LightsTuningEvaluation.evaluate(valid);
+
+        assertTrue(evaluation.getInvalidDirectionalityValues().isEmpty());
+        assertTrue(evaluation.getInvalidColorValues().isEmpty());
+        assertTrue(evaluation.getInvalidIntensityValues().isEmpty());
+    }
+}
@@ -94,7 +94,7 @@ public class VerifyLightsXmlStructureTests extends MetadataTestFixture<LightsXml
         Files.createFile(schemaFolder.resolve(Paths.get("Lights.xsd")));
 
         expectedException.expect(AssertionError.class);
-        expectedException.expectMessage("Lights.xml element Light should have unique codes. Code '1' is not unique. expected [1] but found [2]");
+        expectedException.expectMessage("Lights.xml element Light should have unique codes. Code '1' is not unique. expected [true] but found [false]");
 
         // execute
         testSuite.verifyLightsXmlHasUniqueCodes();
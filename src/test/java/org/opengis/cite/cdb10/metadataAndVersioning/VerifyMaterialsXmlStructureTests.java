@@ -92,7 +92,7 @@ public class VerifyMaterialsXmlStructureTests extends MetadataTestFixture<Materi
         Files.createFile(schemaFolder.resolve(Paths.get("Base_Material_Table.xsd")));
 
         String expectedMessage = "Materials.xml element Name should be unique. " +
-                "'BM_ASH-VOLCANIC' is not unique. expected [1] but found [2]";
+                "'BM_ASH-VOLCANIC' is not unique. expected [true] but found [false]";
 
         expectedException.expect(AssertionError.class);
         expectedException.expectMessage(expectedMessage);
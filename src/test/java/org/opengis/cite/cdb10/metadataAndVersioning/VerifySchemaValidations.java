@@ -0,0 +1,57 @@
+package org.opengis.cite.cdb10.metadataAndVersioning;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+import org.opengis.cite.cdb10.util.SchemaValidatorErrorHandler;
+import org.xml.sax.SAXException;
+
+public class VerifySchemaValidations {
+
+    private static final String CDB = "src/test/resources/CDB";
+
+    private static File metadataFile(String... names) {
+        return Paths.get(CDB, "Metadata").resolve(Paths.get("", names)).toFile();
+    }
+
+    @Test
+    public void validate_ReadsPrecomputedResult() throws SAXException, IOException {
+        SchemaValidations validations = SchemaValidations.start(CDB, 4);
+        File xmlFile = metadataFile("Version.xml");
+        File xsdFile = metadataFile("Schema", "Version.xsd");
+
+        SchemaValidatorErrorHandler result = validations.validate(xmlFile, xsdFile);
+
+        assertTrue(result.getMessages(), result.noErrors());
+        assertSame(result, validations.validate(xmlFile, xsdFile));
+        assertSame(result, validations.validate(new File(CDB + "/Metadata/./Version.xml"), xsdFile));
+    }
+
+    @Test
+    public void validate_IncludesLightsTuningFiles() throws SAXException, IOException {
+        SchemaValidations validations = SchemaValidations.start(CDB, 2);
+        File xmlFile = metadataFile("Lights_Client.xml");
+        File xsdFile = metadataFile("Schema", SchemaValidations.LIGHTS_TUNING_SCHEMA);
+
+        assertSame(validations.validate(xmlFile, xsdFile), validations.validate(xmlFile, xsdFile));
+    }
+
+    @Test
+    public void validate_OtherPairValidatedOnDemand() throws SAXException, IOException {
+        SchemaValidations validations = SchemaValidations.start(CDB, 1);
+        File xmlFile = metadataFile("Version.xml");
+        File xsdFile = metadataFile("Schema", "Configuration.xsd");
+
+        SchemaValidatorErrorHandler result = validations.validate(xmlFile, xsdFile);
+
+        assertFalse(result.noErrors());
+        assertNotSame(result, validations.validate(xmlFile, xsdFile));
+    }
+}
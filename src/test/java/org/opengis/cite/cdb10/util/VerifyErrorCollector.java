@@ -0,0 +1,150 @@
+package org.opengis.cite.cdb10.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Verifies the behavior of the ErrorCollector class.
+ */
+public class VerifyErrorCollector {
+
+    private File spillFile;
+
+    @After
+    public void deleteSpillFile() {
+        if (null != this.spillFile) {
+            this.spillFile.delete();
+        }
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    @Test
+    public void getMessage_FewErrors() {
+        ErrorCollector errors = new ErrorCollector(3);
+        errors.addAll(Arrays.asList("Invalid LOD name: L99", "Invalid LOD name: LX"));
+
+        assertEquals(2, errors.size());
+        assertFalse(errors.isEmpty());
+        assertEquals("Invalid LOD name: L99\nInvalid LOD name: LX", errors.getMessage());
+        assertNull(errors.getSpillFile());
+    }
+
+    @Test
+    public void getMessage_NoErrors() {
+        ErrorCollector errors = new ErrorCollector();
+
+        assertTrue(errors.isEmpty());
+        assertEquals("", errors.getMessage());
+    }
+
+    @Test
+    public void add_SpillsErrorsBeyondExamples() throws IOException {
+        ErrorCollector errors = new ErrorCollector(2);
+        errors.add("Invalid LOD name: L99");
+        errors.add("Invalid LOD name: LX");
+        errors.add("Invalid UREF name: U1");
+        this.spillFile = errors.getSpillFile();
+
+        assertEquals(3, errors.size());
+        assertEquals(Arrays.asList("Invalid LOD name: L99", "Invalid LOD name: LX"), errors.getExamples());
+        assertEquals(Integer.valueOf(2), errors.getCountsByKind().get("Invalid LOD name"));
+        assertEquals(Integer.valueOf(1), errors.getCountsByKind().get("Invalid UREF name"));
+
+        String message = errors.getMessage();
+        assertTrue(message.startsWith("3 violations"));
+        assertTrue(message.contains("2 x Invalid LOD name"));
+        assertTrue(message.contains(this.spillFile.getAbsolutePath()));
+        assertEquals(Arrays.asList("Invalid LOD name: L99", "Invalid LOD name: LX", "Invalid UREF name: U1"),
+                readLines(this.spillFile));
+    }
+
+    @Test
+    public void add_AfterMessageAppendsToSpillFile() throws IOException {
+        ErrorCollector errors = new ErrorCollector(1);
+        errors.add("a: 1");
+        errors.add("a: 2");
+        errors.getMessage();
+        errors.add("b: 3");
+        this.spillFile = errors.getSpillFile();
+        errors.getMessage();
+
+        assertNotNull(this.spillFile);
+        assertEquals(Arrays.asList("a: 1", "a: 2", "b: 3"), readLines(this.spillFile));
+    }
+
+    @Test
+    public void close_CompletesSpillFile() throws IOException {
+        ErrorCollector errors = new ErrorCollector(1);
+        errors.add("a: 1");
+        errors.add("a: 2");
+        errors.close();
+        this.spillFile = errors.getSpillFile();
+
+        assertEquals(Arrays.asList("a: 1", "a: 2"), readLines(this.spillFile));
+    }
+
+    @Test
+    public void add_LimitsKinds() {
+        ErrorCollector errors = new ErrorCollector(ErrorCollector.MAX_KINDS + 10);
+        for (int i = 0; i < ErrorCollector.MAX_KINDS + 5; i++) {
+            errors.add("kind" + i + ": x");
+        }
+
+        assertEquals(ErrorCollector.MAX_KINDS + 1, errors.getCountsByKind().size());
+        assertEquals(Integer.valueOf(5), errors.getCountsByKind().get(ErrorCollector.OTHER_KIND));
+    }
+
+    @Test
+    public void getFailedEntries_CountsEntriesOnce() {
+        ErrorCollector errors = new ErrorCollector();
+        errors.beginEntry();
+        errors.add("Invalid CS1 width: D600_S1_T1.flt");
+        errors.add("Invalid CS2 width: D600_S1_T1.flt");
+        errors.beginEntry();
+        errors.beginEntry();
+        errors.add("Invalid LOD name: L99");
+
+        assertEquals(3, errors.size());
+        assertEquals(2, errors.getFailedEntries());
+    }
+
+    @Test
+    public void getFailedEntries_WithoutEntries() {
+        ErrorCollector errors = new ErrorCollector();
+        errors.add("Invalid LOD name: L99");
+        errors.add("Invalid LOD name: LX");
+
+        assertEquals(2, errors.getFailedEntries());
+    }
+}
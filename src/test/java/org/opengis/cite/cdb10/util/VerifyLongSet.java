@@ -0,0 +1,80 @@
+package org.opengis.cite.cdb10.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class VerifyLongSet {
+
+    @Test
+    public void behavesLikeHashSet() {
+        LongSet set = new LongSet();
+        Set<Long> expected = new HashSet<Long>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            long value = (i % 3 == 0) ? random.nextInt(100) : random.nextLong();
+            assertEquals(expected.add(value), set.add(value));
+        }
+        assertEquals(expected.size(), set.size());
+        for (Long value : expected) {
+            assertTrue(set.contains(value));
+        }
+        long[] values = set.toArray();
+        assertEquals(expected.size(), values.length);
+        assertEquals(expected, toSet(values));
+    }
+
+    @Test
+    public void holdsZeroAndNegativeValues() {
+        LongSet set = new LongSet(1);
+        assertFalse(set.contains(0L));
+        assertTrue(set.add(0L));
+        assertFalse(set.add(0L));
+        assertTrue(set.add(-1L));
+        assertTrue(set.add(Long.MIN_VALUE));
+        assertTrue(set.contains(0L));
+        assertTrue(set.contains(-1L));
+        assertEquals(3, set.size());
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(0L));
+        assertArrayEquals(new long[0], set.toArray());
+    }
+
+    @Test
+    public void mapCountsKeys() {
+        LongMap map = new LongMap();
+        for (int i = 0; i < 10000; i++) {
+            map.addTo(i % 100, 1);
+        }
+        assertEquals(100, map.size());
+        assertEquals(100, map.get(0L, -1));
+        assertEquals(100, map.get(99L, -1));
+        assertEquals(-1, map.get(100L, -1));
+        assertTrue(map.put(-5L, 7));
+        assertFalse(map.put(-5L, 8));
+        assertEquals(8, map.get(-5L, 0));
+        assertTrue(map.containsKey(0L));
+        assertEquals(101, map.keys().length);
+        map.clear();
+        assertFalse(map.containsKey(0L));
+        assertEquals(0, map.size());
+    }
+
+    private static Set<Long> toSet(long[] values) {
+        Set<Long> set = new HashSet<Long>();
+        for (long value : values) {
+            set.add(value);
+        }
+        assertEquals(Arrays.toString(values), values.length, set.size());
+        return set;
+    }
+}
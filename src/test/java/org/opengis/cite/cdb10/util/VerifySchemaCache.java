@@ -0,0 +1,74 @@
+package org.opengis.cite.cdb10.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.xml.validation.Schema;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+public class VerifySchemaCache {
+
+    private static final String XSD = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">"
+            + "<xs:element name=\"Version\" type=\"xs:string\"/></xs:schema>";
+
+    private Path xsdFile;
+
+    @Before
+    public void createSchema() throws IOException {
+        SchemaCache.clear();
+        this.xsdFile = Files.createTempFile("Version", ".xsd");
+        Files.write(this.xsdFile, XSD.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void deleteSchema() throws IOException {
+        Files.delete(this.xsdFile);
+    }
+
+    @Test
+    public void getSchema_CompilesOnce() throws SAXException, IOException {
+        Schema first = SchemaCache.getSchema(this.xsdFile.toFile());
+        Schema second = SchemaCache.getSchema(new File(this.xsdFile.getParent().toFile(),
+                "." + File.separator + this.xsdFile.getFileName()));
+
+        assertSame(first, second);
+        assertEquals(1, SchemaCache.getMisses());
+        assertEquals(1, SchemaCache.getHits());
+    }
+
+    @Test
+    public void getSchema_RecompilesChangedFile() throws SAXException, IOException {
+        Schema first = SchemaCache.getSchema(this.xsdFile.toFile());
+        assertTrue(this.xsdFile.toFile().setLastModified(this.xsdFile.toFile().lastModified() - 10000));
+
+        assertNotSame(first, SchemaCache.getSchema(this.xsdFile.toFile()));
+        assertEquals(2, SchemaCache.getMisses());
+    }
+
+    @Test
+    public void validateXmlFileIsValid_UsesCachedSchema() throws SAXException, IOException {
+        Path xmlFile = Files.createTempFile("Version", ".xml");
+        try {
+            Files.write(xmlFile, "<Version>3.0</Version>".getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < 3; i++) {
+                assertTrue(XMLUtils.validateXmlFileIsValid(xmlFile.toFile(), this.xsdFile.toFile()).noErrors());
+            }
+            assertEquals(1, SchemaCache.getMisses());
+            assertEquals(2, SchemaCache.getHits());
+        } finally {
+            Files.delete(xmlFile);
+        }
+    }
+}
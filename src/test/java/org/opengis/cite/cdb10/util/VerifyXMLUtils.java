@@ -1,12 +1,17 @@
 package org.opengis.cite.cdb10.util;
 
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamSource;
 import javax.xml.xpath.XPathExpressionException;
 import junit.framework.Assert;
 import net.sf.saxon.s9api.SaxonApiException;
@@ -19,6 +24,7 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 /**
@@ -129,6 +135,33 @@ public class VerifyXMLUtils {
                 result.getUnderlyingValue().getStringValue());
     }
 
+    @Test
+    public void evaluateXPath2_SameExpressionWithOtherBindings() throws SAXException,
+            IOException, SaxonApiException, XPathException {
+        Document doc = docBuilder.parse(this.getClass().getResourceAsStream(
+                "/atom-feed.xml"));
+        String expr = "count(//tns:entry)";
+        Map<String, String> nsBindings = new HashMap<String, String>();
+        nsBindings.put(ATOM_NS, "tns");
+        XdmValue atom = XMLUtils.evaluateXPath2(new DOMSource(doc), expr, nsBindings);
+        Assert.assertEquals(atom.getUnderlyingValue().getStringValue(),
+                XMLUtils.evaluateXPath2(new DOMSource(doc), expr, nsBindings).getUnderlyingValue().getStringValue());
+        nsBindings.put(EX_NS, "tns");
+        nsBindings.remove(ATOM_NS);
+        XdmValue other = XMLUtils.evaluateXPath2(new DOMSource(doc), expr, nsBindings);
+        Assert.assertEquals("0", other.getUnderlyingValue().getStringValue());
+        Assert.assertFalse("0".equals(atom.getUnderlyingValue().getStringValue()));
+    }
+
+    @Test
+    public void evaluateXQuery_Repeated() throws SaxonApiException, XPathException {
+        for (int i = 0; i < 2; i++) {
+            XdmValue result = XMLUtils.evaluateXQuery(new StreamSource(new StringReader("<a><b/><b/></a>")),
+                    "count(//b)", null);
+            Assert.assertEquals("2", result.getUnderlyingValue().getStringValue());
+        }
+    }
+
     @Test
     public void expandCharacterEntity() {
         String text = "Ce n&apos;est pas";
@@ -144,4 +177,59 @@ public class VerifyXMLUtils {
         Assert.assertEquals("Expected result to contain character é (U+00E9)",
                 "Montréal", result);
     }
+
+    @Test
+    public void getNodeList_ReusesDocumentUntilFileChanges() throws Exception {
+        Path xmlFile = Files.createTempFile("lights", ".xml");
+        try {
+            Files.write(xmlFile, "<Lights><Light/><Light/></Lights>".getBytes(StandardCharsets.UTF_8));
+            Document first = XMLUtils.getCachedDocument(xmlFile);
+            Assert.assertEquals(2, XMLUtils.getNodeList("//Light", xmlFile).getLength());
+            Assert.assertSame(first, XMLUtils.getCachedDocument(xmlFile));
+
+            Files.write(xmlFile, "<Lights><Light/></Lights>".getBytes(StandardCharsets.UTF_8));
+            Assert.assertEquals(1, XMLUtils.getNodeList("//Light", xmlFile).getLength());
+            Assert.assertNotSame(first, XMLUtils.getCachedDocument(xmlFile));
+        } finally {
+            Files.delete(xmlFile);
+        }
+    }
+
+    @Test
+    public void getNodeList_NotWellFormed() throws IOException {
+        Path xmlFile = Files.createTempFile("lights", ".xml");
+        try {
+            Files.write(xmlFile, "<Lights>".getBytes(StandardCharsets.UTF_8));
+            Assert.assertNull(XMLUtils.getNodeList("//Light", xmlFile));
+        } finally {
+            Files.delete(xmlFile);
+        }
+    }
+
+    @Test
+    public void transform_RecompilesEditedStylesheet() throws Exception {
+        Path xslFile = Files.createTempFile("name", ".xsl");
+        try {
+            Document source = docBuilder.parse(new InputSource(new StringReader("<a/>")));
+            Files.write(xslFile, stylesheet("first").getBytes(StandardCharsets.UTF_8));
+            Document result = XMLUtils.transform(new StreamSource(xslFile.toFile()), source);
+            Assert.assertEquals("first", result.getDocumentElement().getLocalName());
+
+            Files.write(xslFile, stylesheet("second").getBytes(StandardCharsets.UTF_8));
+            result = XMLUtils.transform(new StreamSource(xslFile.toFile()), source);
+            Assert.assertEquals("second", result.getDocumentElement().getLocalName());
+
+            StreamSource stream = new StreamSource(new StringReader(stylesheet("third")),
+                    xslFile.toUri().toString());
+            result = XMLUtils.transform(stream, source);
+            Assert.assertEquals("third", result.getDocumentElement().getLocalName());
+        } finally {
+            Files.delete(xslFile);
+        }
+    }
+
+    private static String stylesheet(String resultName) {
+        return "<xsl:stylesheet version='2.0' xmlns:xsl='http://www.w3.org/1999/XSL/Transform'>"
+                + "<xsl:template match='/'><" + resultName + "/></xsl:template></xsl:stylesheet>";
+    }
 }
@@ -0,0 +1,112 @@
+package org.opengis.cite.cdb10.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VerifyXmlConstraints {
+
+    private Path xmlFile;
+
+    @Before
+    public void createFile() throws IOException {
+        this.xmlFile = Files.createTempFile("constraints", ".xml");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.delete(this.xmlFile);
+    }
+
+    private void write(String xml) throws IOException {
+        Files.write(this.xmlFile, xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void unique_ReportsEveryDuplicate() throws IOException {
+        write("<Lights xmlns=\"CDB\"><Light code=\"1\"/><Light code=\"2\"/><Light code=\"1\"/>"
+                + "<Light code=\"3\"/><Light code=\"2\"/><Light code=\"1\"/><Light/></Lights>");
+        XmlConstraints constraints = new XmlConstraints();
+        XmlConstraints.Constraint codes = constraints.unique("//Light/@code");
+
+        constraints.evaluate(this.xmlFile);
+
+        assertEquals(Arrays.asList("1", "2"), codes.getInvalidValues());
+        assertEquals(3, codes.getViolations().get(0).getCount());
+        assertNull(codes.getViolations().get(0).getScope());
+    }
+
+    @Test
+    public void uniqueWithin_ScopeFieldAfterValue() throws IOException {
+        write("<Defaults>"
+                + "<Default_Value><Name>A</Name><Dataset>Elevation</Dataset></Default_Value>"
+                + "<Default_Value><Name>A</Name><Dataset>Imagery</Dataset></Default_Value>"
+                + "<Default_Value><Dataset>Elevation</Dataset><Name>A</Name></Default_Value>"
+                + "<Default_Value><Name>B</Name><Dataset>Imagery</Dataset></Default_Value>"
+                + "</Defaults>");
+        XmlConstraints constraints = new XmlConstraints();
+        XmlConstraints.Constraint names = constraints.uniqueWithin("//Default_Value/Name", "Dataset");
+
+        constraints.evaluate(this.xmlFile);
+
+        assertEquals(1, names.getViolations().size());
+        assertEquals("A", names.getViolations().get(0).getValue());
+        assertEquals("Elevation", names.getViolations().get(0).getScope());
+        assertEquals(2, names.getViolations().get(0).getCount());
+    }
+
+    @Test
+    public void valueConstraints_AllInOnePass() throws IOException {
+        write("<Attributes><Attribute code=\"1\"><Value><Type>Text</Type></Value></Attribute>"
+                + "<Attribute code=\"x\"><Value><Type>Date</Type></Value></Attribute>"
+                + "<Units><Unit code=\"0\"/><Unit code=\"12000\"/></Units></Attributes>");
+        XmlConstraints constraints = new XmlConstraints();
+        XmlConstraints.Constraint codes = constraints.matches("/Attributes/Attribute/@code", "\\d+");
+        XmlConstraints.Constraint types = constraints.oneOf("//Value/Type", "Text", "Numeric");
+        XmlConstraints.Constraint units = constraints.range("//Unit/@code", 1, 9999);
+        XmlConstraints.Constraint nested = constraints.matches("/Type", ".*");
+
+        constraints.evaluate(this.xmlFile);
+
+        assertEquals(Arrays.asList("x"), codes.getInvalidValues());
+        assertEquals(Arrays.asList("Date"), types.getInvalidValues());
+        assertEquals(Arrays.asList("0", "12000"), units.getInvalidValues());
+        assertTrue(nested.getViolations().isEmpty());
+    }
+
+    @Test
+    public void evaluate_KeepsResultsForSameFile() throws IOException {
+        write("<Lights><Light code=\"1\"/><Light code=\"1\"/></Lights>");
+        XmlConstraints constraints = new XmlConstraints();
+        XmlConstraints.Constraint codes = constraints.unique("//Light/@code");
+        constraints.evaluate(this.xmlFile);
+        constraints.evaluate(this.xmlFile);
+
+        assertEquals(1, codes.getViolations().size());
+        assertEquals(2, codes.getViolations().get(0).getCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void evaluate_NotWellFormed() throws IOException {
+        write("<Lights><Light>");
+        XmlConstraints constraints = new XmlConstraints();
+        constraints.unique("//Light/@code");
+
+        constraints.evaluate(this.xmlFile);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void uniqueWithin_NeedsParentStep() {
+        new XmlConstraints().uniqueWithin("//Name", "Dataset");
+    }
+}